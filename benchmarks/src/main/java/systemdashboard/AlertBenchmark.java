@@ -0,0 +1,92 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of evaluating one sample against a rules file, with an even mix of plain thresholds,
+ * rate(), ewma() and avg() rules. Values stay steady so no rule changes state and nothing is
+ * logged; run with {@code -prof gc} to confirm the evaluation allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertBenchmark {
+    private static final String[] TEMPLATES = {
+        "cpu > 90 for 60s", "rate(swap.used) > 1048576 for 5m", "ewma(core.max, 30s) > 95", "avg(memory, 5m) > 98"
+    };
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    private Path directory;
+    private AlertEngine engine;
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final ProcessSnapshot processes = new ProcessSnapshot(1);
+    private final LongBuffer slots = LongBuffer.allocate(SystemSnapshot.HEADER_LENGTH + 64);
+    private long now = 1_700_000_000_000L;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("alert-bench");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rules; i++) {
+            sb.append("rule-").append(i).append(' ').append(TEMPLATES[i % TEMPLATES.length]).append('\n');
+        }
+        Path file = directory.resolve("alerts.conf");
+        Files.writeString(file, sb);
+        engine = new AlertEngine(null, file, directory.resolve("alerts.log"));
+
+        slots.put(SystemSnapshot.VERSION, SystemSnapshot.LAYOUT_VERSION);
+        slots.put(SystemSnapshot.HEADER_SLOTS, SystemSnapshot.HEADER_LENGTH);
+        slots.put(SystemSnapshot.CORE_COUNT, 64);
+        slots.put(SystemSnapshot.CPU_USAGE, Double.doubleToRawLongBits(42.0));
+        slots.put(SystemSnapshot.MEM_TOTAL, 64L << 30);
+        slots.put(SystemSnapshot.MEM_FREE, 12L << 30);
+        slots.put(SystemSnapshot.MEM_AVAILABLE, 40L << 30);
+        slots.put(SystemSnapshot.DISK_TOTAL, 512L << 30);
+        slots.put(SystemSnapshot.DISK_FREE, 128L << 30);
+        for (int core = 0; core < 64; core++) {
+            slots.put(SystemSnapshot.HEADER_LENGTH + core, Double.doubleToRawLongBits(core));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public AlertEngine evaluate() {
+        now += 1_000;
+        slots.put(SystemSnapshot.TIMESTAMP, now);
+        snapshot.readSlots(slots, 0, slots.capacity());
+        engine.evaluate(snapshot, processes);
+        return engine;
+    }
+}
@@ -0,0 +1,106 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each native getter and of the batched collectors against a generated /proc tree, with the
+ * collectors run through both {@link MetricSource} backends.
+ *
+ * Run with {@code java -Djava.library.path=src/systemdashboard -jar benchmarks/target/benchmarks.jar};
+ * forked JVMs inherit the library path. The getters ignore {@code source}; pass {@code -p source=native}
+ * to skip their duplicate runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CollectorBenchmark {
+
+    @Param({"4", "64", "256"})
+    public int cores;
+
+    @Param({"100", "1000", "10000"})
+    public int processes;
+
+    @Param({MetricSource.NATIVE, MetricSource.JAVA})
+    public String source;
+
+    private FakeProcTree tree;
+    private MetricSource collector;
+    private SystemMonitor monitor;
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final ProcessSnapshot topProcesses = new ProcessSnapshot(3);
+    private final DeviceSnapshot devices = new DeviceSnapshot();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tree = new FakeProcTree(cores, processes);
+        collector = MetricSource.select(source);
+        monitor = new SystemMonitor(new MetricsHistory(), null, collector);
+        setProcRoot(tree.root().toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        setProcRoot("/proc");
+        collector.close();
+        tree.close();
+    }
+
+    private void setProcRoot(String root) {
+        NativeCollector.setProcRoot(root); // Process-wide: the getters and every native handle
+        if (collector instanceof JavaMetricSource) {
+            ((JavaMetricSource) collector).setProcRoot(root);
+        }
+    }
+
+    @Benchmark
+    public double[] getPerCpuUsage() {
+        return monitor.getPerCpuUsage();
+    }
+
+    @Benchmark
+    public long getNetworkBytesReceived() {
+        return monitor.getNetworkBytesReceived();
+    }
+
+    @Benchmark
+    public int getProcessCount() {
+        return monitor.getProcessCount();
+    }
+
+    @Benchmark
+    public SystemSnapshot collectSnapshot() {
+        snapshot.refresh(collector, SystemSnapshot.GROUP_ALL);
+        return snapshot;
+    }
+
+    @Benchmark
+    public ProcessSnapshot collectProcesses() {
+        topProcesses.refresh(collector);
+        return topProcesses;
+    }
+
+    @Benchmark
+    public DeviceSnapshot collectDevices() {
+        devices.refresh(collector, false);
+        return devices;
+    }
+}
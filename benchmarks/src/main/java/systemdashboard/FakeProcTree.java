@@ -0,0 +1,158 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates a /proc look-alike with a chosen number of cores and processes, so collector cost
+ * can be measured for hosts much larger than the one running the benchmark.
+ *
+ * Only the files the collectors read are written: stat, meminfo, vmstat, uptime, net/dev, diskstats and, per process,
+ * [pid]/stat and [pid]/io. Counters are static, so the sampled rates are zero.
+ */
+final class FakeProcTree implements AutoCloseable {
+    private static final String[] COMMANDS = {"java", "postgres", "nginx", "kworker/3:1", "systemd-journal", "sshd"};
+
+    private final Path root;
+
+    FakeProcTree(int cores, int processes) throws IOException {
+        root = Files.createTempDirectory("fake-proc");
+        writeStat(cores);
+        writeMeminfo();
+        writeVmstat();
+        Files.writeString(root.resolve("uptime"), "1234567.89 9876543.21\n");
+        writeNetDev();
+        writeDiskstats();
+        for (int pid = 1; pid <= processes; pid++) {
+            writeProcess(pid);
+        }
+    }
+
+    Path root() {
+        return root;
+    }
+
+    private void writeStat(int cores) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("cpu  ").append(cpuLine(cores)).append('\n');
+        for (int core = 0; core < cores; core++) {
+            sb.append("cpu").append(core).append(' ').append(cpuLine(1)).append('\n');
+        }
+        sb.append("intr 123456789 0 0 0\n");
+        sb.append("ctxt 987654321\n");
+        sb.append("btime 1700000000\n");
+        sb.append("processes 424242\n");
+        sb.append("procs_running 2\n");
+        sb.append("procs_blocked 0\n");
+        Files.writeString(root.resolve("stat"), sb);
+    }
+
+    private static String cpuLine(int scale) {
+        return (120_000L * scale) + " 300 " + (40_000L * scale) + " " + (900_000L * scale)
+            + " 2000 0 500 0 0 0";
+    }
+
+    private void writeMeminfo() throws IOException {
+        Files.writeString(root.resolve("meminfo"),
+            "MemTotal:       65843212 kB\n"
+            + "MemFree:        12345678 kB\n"
+            + "MemAvailable:   40000000 kB\n"
+            + "Buffers:          654321 kB\n"
+            + "Cached:         20000000 kB\n"
+            + "SwapCached:            0 kB\n"
+            + "Active:         30000000 kB\n"
+            + "Inactive:       15000000 kB\n"
+            + "SwapTotal:       8388604 kB\n"
+            + "SwapFree:        8388604 kB\n"
+            + "Dirty:              1234 kB\n"
+            + "Writeback:             0 kB\n"
+            + "AnonPages:      25000000 kB\n"
+            + "Mapped:          1000000 kB\n"
+            + "Shmem:            500000 kB\n"
+            + "Slab:            2000000 kB\n"
+            + "SReclaimable:    1500000 kB\n"
+            + "SUnreclaim:       500000 kB\n"
+            + "PageTables:       100000 kB\n"
+            + "Committed_AS:   50000000 kB\n"
+            + "HugePages_Total:       0\n"
+            + "HugePages_Free:        0\n"
+            + "Hugepagesize:       2048 kB\n");
+    }
+
+    // The kernel's ~170 counters, with the four the collectors want in their usual place
+    private void writeVmstat() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            sb.append("nr_counter_").append(i).append(' ').append(1000 + i).append('\n');
+        }
+        sb.append("pgpgin 123456789\npgpgout 987654321\npswpin 12\npswpout 34\n");
+        for (int i = 0; i < 20; i++) {
+            sb.append("pgalloc_zone_").append(i).append(' ').append(5000 + i).append('\n');
+        }
+        sb.append("pgfault 9876543210\npgmajfault 4321\n");
+        for (int i = 0; i < 90; i++) {
+            sb.append("pgscan_counter_").append(i).append(' ').append(i).append('\n');
+        }
+        Files.writeString(root.resolve("vmstat"), sb);
+    }
+
+    private void writeNetDev() throws IOException {
+        Path net = Files.createDirectories(root.resolve("net"));
+        StringBuilder sb = new StringBuilder();
+        sb.append("Inter-|   Receive                                                |  Transmit\n");
+        sb.append(" face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n");
+        String[] interfaces = {"lo", "eth0", "eth1", "docker0", "wlan0"};
+        for (int i = 0; i < interfaces.length; i++) {
+            long rx = 1_000_000_000L * (i + 1);
+            long tx = 500_000_000L * (i + 1);
+            sb.append(String.format("%6s: %d 1000 0 0 0 0 0 0 %d 900 0 0 0 0 0 0%n", interfaces[i], rx, tx));
+        }
+        Files.writeString(net.resolve("dev"), sb);
+    }
+
+    private void writeDiskstats() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            sb.append(String.format("   7       %d loop%d 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0%n", i, i));
+        }
+        String[] disks = {"nvme0n1", "nvme0n1p1", "nvme0n1p2", "sda", "sda1"};
+        for (int i = 0; i < disks.length; i++) {
+            long ios = 100_000L * (i + 1);
+            sb.append(String.format(" 259       %d %s %d 200 %d 3000 %d 400 %d 5000 0 7000 9000 0 0 0 0 0 0%n",
+                i, disks[i], ios, ios * 8, ios / 2, ios * 4));
+        }
+        Files.writeString(root.resolve("diskstats"), sb);
+    }
+
+    private void writeProcess(int pid) throws IOException {
+        Path dir = Files.createDirectory(root.resolve(Integer.toString(pid)));
+        String comm = COMMANDS[pid % COMMANDS.length];
+        long utime = pid * 7L;
+        long stime = pid * 3L;
+        long rss = 1_000 + pid % 5_000;
+        Files.writeString(dir.resolve("stat"), pid + " (" + comm + ") S 1 " + pid + " " + pid
+            + " 0 -1 4194560 1000 0 0 0 " + utime + " " + stime + " 0 0 20 0 1 0 " + (10_000 + pid)
+            + " 123456789 " + rss + " 18446744073709551615 0 0 0 0 0 0 0 0 0 0 0 0 17 0 0 0 0 0 0\n");
+        Files.writeString(dir.resolve("io"), "rchar: 1000\nwchar: 2000\nsyscr: 10\nsyscw: 20\n"
+            + "read_bytes: " + pid * 4096L + "\nwrite_bytes: " + pid * 8192L + "\ncancelled_write_bytes: 0\n");
+    }
+
+    @Override
+    public void close() {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EDT cost of one sample in the per-core heatmap: adding the column and painting the component
+ * into a back buffer the size of the CPU panel, under the headless AWT toolkit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HeatmapBenchmark {
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 300;
+
+    @Param({"64", "256", "512"})
+    public int cores;
+
+    private FakeProcTree tree;
+    private NativeMetricSource source;
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final CoreHeatmap heatmap = new CoreHeatmap();
+    private BufferedImage backBuffer;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tree = new FakeProcTree(cores, 100);
+        source = new NativeMetricSource();
+        NativeCollector.setProcRoot(tree.root().toString());
+        snapshot.refresh(source);
+        snapshot.refresh(source);
+        heatmap.setSize(WIDTH, HEIGHT);
+        backBuffer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = backBuffer.createGraphics();
+        heatmap.addColumn(snapshot);
+        heatmap.paint(graphics);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+        NativeCollector.setProcRoot("/proc");
+        source.close();
+        tree.close();
+    }
+
+    @Benchmark
+    public void addColumn() {
+        heatmap.addColumn(snapshot);
+    }
+
+    @Benchmark
+    public void addColumnAndPaint() {
+        heatmap.addColumn(snapshot);
+        heatmap.paint(graphics);
+    }
+}
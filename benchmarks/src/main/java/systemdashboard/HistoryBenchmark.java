@@ -0,0 +1,98 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The history store on a 128-core host filled with 24 hours of samples: one append, a 24 hour
+ * range query of one core at 10s (8640 buckets, as {@code /history} runs it), and both at once
+ * on two threads, where the query has to retry whenever an append races with it.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int CORES = 128;
+    private static final int TIER = MetricsHistory.TIER_10S;
+
+    private final MetricsHistory history = new MetricsHistory();
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final LongBuffer slots = LongBuffer.allocate(SystemSnapshot.HEADER_LENGTH + CORES);
+    private final int capacity = MetricsHistory.capacity(TIER);
+    private final long[] times = new long[capacity];
+    private final double[] min = new double[capacity];
+    private final double[] max = new double[capacity];
+    private final double[] avg = new double[capacity];
+    private long now = 1_700_000_000_000L;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        slots.put(SystemSnapshot.VERSION, SystemSnapshot.LAYOUT_VERSION);
+        slots.put(SystemSnapshot.HEADER_SLOTS, SystemSnapshot.HEADER_LENGTH);
+        slots.put(SystemSnapshot.CORE_COUNT, CORES);
+        slots.put(SystemSnapshot.MEM_TOTAL, 64L << 30);
+        slots.put(SystemSnapshot.MEM_AVAILABLE, 40L << 30);
+        for (int second = 0; second < 24 * 3600; second++) {
+            appendSample();
+        }
+    }
+
+    @Benchmark
+    @Group("append")
+    public MetricsHistory append() {
+        return appendSample();
+    }
+
+    @Benchmark
+    @Group("query")
+    public int query() {
+        return queryDay();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public MetricsHistory concurrentAppend() {
+        return appendSample();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public int concurrentQuery() {
+        return queryDay();
+    }
+
+    private MetricsHistory appendSample() {
+        now += 1_000;
+        slots.put(SystemSnapshot.TIMESTAMP, now);
+        slots.put(SystemSnapshot.CPU_USAGE, Double.doubleToRawLongBits(now % 100));
+        for (int core = 0; core < CORES; core++) {
+            slots.put(SystemSnapshot.HEADER_LENGTH + core, Double.doubleToRawLongBits((now / 1000 + core) % 100));
+        }
+        snapshot.readSlots(slots, 0, slots.capacity());
+        history.append(snapshot);
+        return history;
+    }
+
+    private int queryDay() {
+        return history.query(MetricsHistory.coreSeries(CORES - 1), TIER, now - 24 * 3_600_000L, now, times, min, max, avg);
+    }
+}
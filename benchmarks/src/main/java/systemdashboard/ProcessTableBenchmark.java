@@ -0,0 +1,150 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+
+/**
+ * EDT cost of showing a new process walk in the process table: copy, filter, sort, diff and the
+ * row events through a {@link JTable} in a scroll pane. Each walk changes the CPU usage of a
+ * tenth of the processes and replaces one in a hundred with a new PID, as on a busy host.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ProcessTableBenchmark {
+
+    @Param({"1000", "20000"})
+    public int processes;
+
+    @Param({"CPU", "NAME"})
+    public String sort;
+
+    @Param({"", "post"})
+    public String filter;
+
+    private final ProcessTable walk = new ProcessTable();
+    private ProcessTableModel model;
+    private WalkSource source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = new WalkSource(processes);
+        model = new ProcessTableModel();
+        JTable table = new JTable(model);
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.setSize(new Dimension(800, 400));
+        scroll.doLayout();
+        if (sort.equals("NAME")) {
+            model.sortBy(ProcessTableModel.NAME);
+        }
+        model.setFilter(filter);
+        walk.refresh(source);
+        model.apply(walk);
+    }
+
+    @Benchmark
+    public ProcessTableModel refresh() {
+        source.advance();
+        walk.refresh(source);
+        model.apply(walk);
+        return model;
+    }
+
+    /** Serves a synthetic walk in the {@link ProcessTable} layout; every other call is unused. */
+    private static final class WalkSource implements MetricSource {
+        private static final byte[][] COMMANDS = {
+            JavaMetricSource.ascii("java"), JavaMetricSource.ascii("postgres"), JavaMetricSource.ascii("nginx"),
+            JavaMetricSource.ascii("kworker/3:1"), JavaMetricSource.ascii("systemd-journal"), JavaMetricSource.ascii("sshd")
+        };
+
+        private final SplittableRandom random = new SplittableRandom(42);
+        private final int[] pids;
+        private final double[] cpu;
+        private int nextPid;
+
+        WalkSource(int processes) {
+            pids = new int[processes];
+            cpu = new double[processes];
+            for (int i = 0; i < processes; i++) {
+                pids[i] = ++nextPid;
+                cpu[i] = random.nextDouble() * 5;
+            }
+        }
+
+        void advance() {
+            for (int i = 0; i < pids.length; i++) {
+                int roll = random.nextInt(100);
+                if (roll == 0) {
+                    pids[i] = ++nextPid;
+                    cpu[i] = 0;
+                } else if (roll < 10) {
+                    cpu[i] = random.nextDouble() * 100;
+                }
+            }
+        }
+
+        @Override
+        public int collectProcessTable(long[] out, byte[] names) {
+            if (out.length < pids.length * 6 || names.length < pids.length * 16) {
+                return -pids.length;
+            }
+            for (int i = 0; i < pids.length; i++) {
+                out[i * 6] = pids[i];
+                out[i * 6 + 1] = pids[i] % 3 == 0 ? 0 : 1000;
+                out[i * 6 + 2] = Double.doubleToRawLongBits(cpu[i]);
+                out[i * 6 + 3] = (pids[i] % 512) << 20;
+                out[i * 6 + 4] = Double.doubleToRawLongBits(0);
+                out[i * 6 + 5] = Double.doubleToRawLongBits(pids[i] % 7 * 1024.0);
+                byte[] comm = COMMANDS[pids[i] % COMMANDS.length];
+                Arrays.fill(names, i * 16, i * 16 + 16, (byte) 0);
+                System.arraycopy(comm, 0, names, i * 16, comm.length);
+            }
+            return pids.length;
+        }
+
+        @Override
+        public String name() {
+            return "synthetic";
+        }
+
+        @Override
+        public int collectSnapshot(long[] out, int groups) {
+            return 0;
+        }
+
+        @Override
+        public int collectProcesses(int topN, long[] out, byte[] names) {
+            return -1;
+        }
+
+        @Override
+        public int collectDevices(long[] out, byte[] names, boolean mounts) {
+            return 0;
+        }
+
+        @Override
+        public HostFacts readHostFacts() {
+            return null;
+        }
+    }
+}
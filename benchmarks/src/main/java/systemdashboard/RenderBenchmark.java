@@ -0,0 +1,110 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full sampling tick and the per-panel update methods, with the panels built under the headless
+ * AWT toolkit. The tick samples every group so it measures the worst-case tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    private static final HostFacts HOST = new HostFacts("Linux", "6.1.0", "amd64", "bench", "10.0.0.2",
+        "02:42:ac:11:00:02", false);
+
+    @Param({"4", "64", "256"})
+    public int cores;
+
+    @Param({"100", "1000", "10000"})
+    public int processes;
+
+    private FakeProcTree tree;
+    private NativeMetricSource source;
+    private SamplingScheduler scheduler;
+    private SystemMonitor monitor;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tree = new FakeProcTree(cores, processes);
+        MetricsHistory history = new MetricsHistory();
+        source = new NativeMetricSource();
+        scheduler = new SamplingScheduler(history, source, 3, () -> HOST, () -> 1000);
+        monitor = new SystemMonitor(history, scheduler);
+        NativeCollector.setProcRoot(tree.root().toString());
+        monitor.buildContentPanel();
+
+        // Two samples so every rate and label has a value
+        scheduler.sample(nextTick());
+        scheduler.sample(nextTick());
+        monitor.updateMetrics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        NativeCollector.setProcRoot("/proc");
+        source.close();
+        tree.close();
+    }
+
+    // Far enough apart that every cadence is due on every tick
+    private long nextTick() {
+        now += SamplingScheduler.HOST_FACTS_PERIOD_MILLIS;
+        return now;
+    }
+
+    @Benchmark
+    public void fullTick() {
+        scheduler.sample(nextTick());
+        monitor.updateMetrics();
+    }
+
+    @Benchmark
+    public void updateMetrics() {
+        monitor.updateMetrics();
+    }
+
+    @Benchmark
+    public void updateCpuPanel() {
+        monitor.updateCpuPanel();
+    }
+
+    @Benchmark
+    public void updateProcessPanel() {
+        monitor.updateProcessPanel();
+    }
+
+    @Benchmark
+    public void updateMemoryPanel() {
+        monitor.updateMemoryPanel(64L << 30, 12L << 30, 8L << 30, 8L << 30);
+    }
+
+    @Benchmark
+    public void updateNetworkPanel() {
+        monitor.updateNetworkPanel();
+    }
+
+    @Benchmark
+    public void updateSystemPanel() {
+        monitor.updateSystemPanel();
+    }
+}
@@ -0,0 +1,79 @@
+package systemdashboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One terminal UI frame on a 200x60 grid: redraw the back buffer, then diff and encode it. Between
+ * frames about {@code changedPercent} of the rows get a new value at their end, as a dashboard's
+ * numbers do, while the text before it stays the same. {@code repaint} encodes the whole screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerminalBenchmark {
+    private static final int COLUMNS = 200;
+    private static final int ROWS = 60;
+
+    @Param({"5", "25", "100"})
+    public int changedPercent;
+
+    private final TerminalGrid grid = new TerminalGrid();
+    private final StringBuilder text = new StringBuilder(COLUMNS);
+    private final double[] values = new double[ROWS];
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid.resize(COLUMNS, ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            values[row] = random.nextDouble(100);
+        }
+        draw();
+        grid.flush();
+    }
+
+    @Benchmark
+    public int frame() {
+        int changed = ROWS * changedPercent / 100;
+        for (int i = 0; i < changed; i++) {
+            values[random.nextInt(ROWS)] = random.nextDouble(100);
+        }
+        draw();
+        return grid.flush();
+    }
+
+    @Benchmark
+    public int repaint() {
+        draw();
+        grid.invalidate();
+        return grid.flush();
+    }
+
+    private void draw() {
+        grid.clear();
+        for (int row = 0; row < ROWS; row++) {
+            text.setLength(0);
+            text.append("  row ").append(row).append(": steady text that does not change between frames");
+            grid.put(row, 0, text, row == 0 ? TerminalGrid.REVERSE : TerminalGrid.NORMAL);
+            text.setLength(0);
+            grid.putRight(row, COLUMNS - 1, MetricFormat.appendFixed(text, values[row], 1).append('%'), TerminalGrid.BOLD);
+        }
+    }
+}
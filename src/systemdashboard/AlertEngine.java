@@ -0,0 +1,323 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the {@link AlertRule}s of a config file against every published sample.
+ *
+ * Runs as a feed listener, so it follows a live sampler and a replay alike and times are sample
+ * times: a replay at 10x fires a "for 60s" rule after six wall-clock seconds. Each sample is turned
+ * into one value per metric and fed to every rule; that loop reuses the same arrays and rule
+ * objects, so hundreds of rules cost no allocation per tick. Only transitions are logged.
+ *
+ * The file is checked for changes every {@link #RELOAD_CHECK_MILLIS}. A reloaded rule whose name and
+ * definition are unchanged keeps its state, so editing one rule does not reset the others' windows.
+ * A file that fails to parse is reported and the previous rules stay in force.
+ */
+final class AlertEngine {
+    // Panels an alert is shown on
+    static final int PANEL_CPU = 0;
+    static final int PANEL_MEMORY = 1;
+    static final int PANEL_DISK = 2;
+    static final int PANEL_PROCESS = 3;
+    static final int PANEL_NETWORK = 4;
+    static final int PANELS = 5;
+
+    static final long RELOAD_CHECK_MILLIS = 2_000;
+
+    // Metric ids, in the order of METRICS
+    private static final int CPU = 0;
+    private static final int CORE_MAX = 1;
+    private static final int IOWAIT = 2;
+    private static final int STEAL = 3;
+    private static final int MEMORY = 4;
+    private static final int SWAP = 5;
+    private static final int SWAP_USED = 6;
+    private static final int DISK = 7;
+    private static final int DISK_FREE = 8;
+    private static final int NET_RX = 9;
+    private static final int NET_TX = 10;
+    private static final int PROCESSES = 11;
+    private static final int PROCESS_CPU = 12;
+    private static final int PROCESS_MEMORY = 13;
+    private static final int THROTTLED = 14;
+    private static final int CGROUP_MEMORY = 15;
+    private static final int PSI_CPU = 16;
+    private static final int PSI_MEMORY = 17;
+    private static final int PSI_IO = 18;
+    private static final int MAJOR_FAULTS = 19;
+    private static final int SWAP_OUT = 20;
+
+    // Percentages are 0-100, sizes in bytes, rates per second
+    private static final String[] METRICS = {
+        "cpu", "core.max", "iowait", "steal", "memory", "swap", "swap.used", "disk", "disk.free",
+        "net.rx", "net.tx", "processes", "process.cpu", "process.memory", "throttled", "cgroup.memory",
+        "psi.cpu", "psi.memory", "psi.io", "faults.major", "swap.out"
+    };
+    private static final int[] PANEL = {
+        PANEL_CPU, PANEL_CPU, PANEL_CPU, PANEL_CPU, PANEL_MEMORY, PANEL_MEMORY, PANEL_MEMORY, PANEL_DISK, PANEL_DISK,
+        PANEL_NETWORK, PANEL_NETWORK, PANEL_PROCESS, PANEL_PROCESS, PANEL_PROCESS, PANEL_CPU, PANEL_MEMORY,
+        PANEL_CPU, PANEL_MEMORY, PANEL_MEMORY, PANEL_MEMORY, PANEL_MEMORY
+    };
+
+    private final SampleFeed feed;
+    private final Path rulesFile;
+    private final Writer log;
+    private volatile AlertRule[] rules;
+    private FileTime rulesModified;
+    private long nextReloadCheck;
+
+    // Owned by the feed's thread
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final ProcessSnapshot processes = new ProcessSnapshot(1);
+    private final double[] values = new double[METRICS.length];
+    private final StringBuilder line = new StringBuilder(160);
+    private long lastGeneration = -1;
+    private long lastTimestamp;
+    private long lastRx;
+    private long lastTx;
+
+    /**
+     * Loads {@code rulesFile} and opens {@code logFile} for appending. Throws IllegalArgumentException
+     * naming the line if the rules do not parse.
+     */
+    AlertEngine(SampleFeed feed, Path rulesFile, Path logFile) throws IOException {
+        this.feed = feed;
+        this.rulesFile = rulesFile;
+        this.rulesModified = Files.getLastModifiedTime(rulesFile);
+        this.rules = parse(rulesFile, Files.readAllLines(rulesFile, StandardCharsets.UTF_8));
+        this.log = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.nextReloadCheck = System.currentTimeMillis() + RELOAD_CHECK_MILLIS;
+        writeLog(line("LOADED ").append(rules.length).append(" rules from ").append(rulesFile));
+    }
+
+    void start() {
+        feed.addListener(this::onSample);
+    }
+
+    static int metricIndex(String name) {
+        for (int i = 0; i < METRICS.length; i++) {
+            if (METRICS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int panelOf(int metric) {
+        return PANEL[metric];
+    }
+
+    AlertRule[] rules() {
+        return rules;
+    }
+
+    /**
+     * Appends the names of the rules firing on {@code panel}, comma separated, and returns how many there were.
+     */
+    int appendFiring(int panel, StringBuilder sb) {
+        int count = 0;
+        for (AlertRule rule : rules) {
+            if (rule.firing() && rule.panel() == panel) {
+                if (count++ > 0) {
+                    sb.append(", ");
+                }
+                sb.append(rule.name).append(" (").append(rule.definition).append(')');
+            }
+        }
+        return count;
+    }
+
+    // Listener on the feed's thread: samples folded into one publish are evaluated once
+    private void onSample() {
+        long generation = feed.copyLatest(snapshot, processes);
+        if (generation == lastGeneration) {
+            return;
+        }
+        lastGeneration = generation;
+        long started = System.nanoTime();
+        long now = System.currentTimeMillis();
+        if (now >= nextReloadCheck) {
+            nextReloadCheck = now + RELOAD_CHECK_MILLIS;
+            reloadIfChanged();
+        }
+        evaluate(snapshot, processes);
+        feed.diagnostics().recordSince(Diagnostics.ALERTS, started);
+    }
+
+    /**
+     * Feeds one sample to every rule and logs the ones that started or stopped firing.
+     */
+    void evaluate(SystemSnapshot snapshot, ProcessSnapshot processes) {
+        long timestamp = snapshot.timestamp();
+        if (timestamp < lastTimestamp) {
+            // A replay seeked backwards: start every rule over rather than wait to pass the old position
+            for (AlertRule rule : rules) {
+                if (rule.reset()) {
+                    writeLog(appendEvent(timestamp, "RESOLVED ", rule).append(" (replay moved back)"));
+                }
+            }
+            lastTimestamp = 0;
+        }
+        double seconds = (timestamp - lastTimestamp) / 1000.0;
+        boolean hasRate = lastTimestamp != 0 && seconds > 0;
+        long rx = snapshot.networkBytesReceived();
+        long tx = snapshot.networkBytesTransmitted();
+
+        double coreMax = 0;
+        for (int core = 0; core < snapshot.coreCount(); core++) {
+            coreMax = Math.max(coreMax, snapshot.coreUsage(core));
+        }
+        long swapUsed = snapshot.swapTotal() - snapshot.swapFree();
+        values[CPU] = snapshot.cpuUsage();
+        values[CORE_MAX] = coreMax;
+        values[IOWAIT] = snapshot.cpuIowait();
+        values[STEAL] = snapshot.cpuSteal();
+        values[MEMORY] = percent(snapshot.totalMemory() - snapshot.availableMemory(), snapshot.totalMemory());
+        values[SWAP] = percent(swapUsed, snapshot.swapTotal());
+        values[SWAP_USED] = swapUsed;
+        values[DISK] = percent(snapshot.totalDiskSpace() - snapshot.freeDiskSpace(), snapshot.totalDiskSpace());
+        values[DISK_FREE] = snapshot.totalDiskSpace() > 0 ? percent(snapshot.freeDiskSpace(), snapshot.totalDiskSpace()) : Double.NaN;
+        values[NET_RX] = hasRate ? Math.max(0, rx - lastRx) / seconds : 0;
+        values[NET_TX] = hasRate ? Math.max(0, tx - lastTx) / seconds : 0;
+        values[PROCESSES] = snapshot.processCount();
+        boolean ranked = processes.count() > 0;
+        values[PROCESS_CPU] = ranked ? processes.cpuUsage(ProcessSnapshot.BY_CPU, 0) : 0;
+        values[PROCESS_MEMORY] = ranked ? processes.residentBytes(ProcessSnapshot.BY_MEMORY, 0) : 0;
+        values[THROTTLED] = snapshot.hasCgroup() ? snapshot.cgroupThrottled() : 0;
+        values[CGROUP_MEMORY] = snapshot.hasCgroup() && snapshot.cgroupMemoryMax() > 0
+            ? percent(snapshot.cgroupMemoryCurrent(), snapshot.cgroupMemoryMax()) : Double.NaN;
+        values[PSI_CPU] = pressure(snapshot, SystemSnapshot.PSI_CPU);
+        values[PSI_MEMORY] = pressure(snapshot, SystemSnapshot.PSI_MEMORY);
+        values[PSI_IO] = pressure(snapshot, SystemSnapshot.PSI_IO);
+        values[MAJOR_FAULTS] = snapshot.hasMemoryBreakdown() ? snapshot.majorFaultRate() : Double.NaN;
+        values[SWAP_OUT] = snapshot.hasMemoryBreakdown() ? snapshot.swapOutRate() : Double.NaN;
+        lastTimestamp = timestamp;
+        lastRx = rx;
+        lastTx = tx;
+
+        for (AlertRule rule : rules) {
+            if (rule.evaluate(timestamp, values[rule.metric])) {
+                logTransition(timestamp, rule);
+            }
+        }
+    }
+
+    private static double percent(double part, double whole) {
+        return whole > 0 ? part / whole * 100 : 0;
+    }
+
+    // "some" avg10 of the dashboard's own cgroup where it has one, otherwise of the host
+    private static double pressure(SystemSnapshot snapshot, int resource) {
+        if (snapshot.hasPressure(SystemSnapshot.CGROUP_PRESSURE, resource)) {
+            return snapshot.pressureAvg10(SystemSnapshot.CGROUP_PRESSURE, resource, false);
+        }
+        return snapshot.hasPressure(SystemSnapshot.HOST_PRESSURE, resource)
+            ? snapshot.pressureAvg10(SystemSnapshot.HOST_PRESSURE, resource, false) : Double.NaN;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(rulesFile);
+            if (modified.equals(rulesModified)) {
+                return;
+            }
+            rulesModified = modified;
+            AlertRule[] loaded = parse(rulesFile, Files.readAllLines(rulesFile, StandardCharsets.UTF_8));
+
+            // Carry over the state of unchanged rules; removed rules that were firing are resolved
+            Map<String, AlertRule> previous = new HashMap<>();
+            for (AlertRule rule : rules) {
+                previous.put(rule.name, rule);
+            }
+            for (int i = 0; i < loaded.length; i++) {
+                AlertRule old = previous.get(loaded[i].name);
+                if (old != null && old.sameAs(loaded[i])) {
+                    loaded[i] = old;
+                    previous.remove(old.name);
+                }
+            }
+            long timestamp = snapshot.timestamp();
+            for (AlertRule removed : previous.values()) {
+                if (removed.firing()) {
+                    writeLog(appendEvent(timestamp, "RESOLVED ", removed).append(" (rule changed or removed)"));
+                }
+            }
+            rules = loaded;
+            writeLog(line("RELOADED ").append(loaded.length).append(" rules from ").append(rulesFile));
+        } catch (NoSuchFileException e) {
+            System.err.println(rulesFile + " is gone, keeping the previous alert rules");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ", keeping the previous alert rules");
+        }
+    }
+
+    /**
+     * Parses a whole rules file. Blank lines and everything after a {@code #} are ignored.
+     */
+    static AlertRule[] parse(Path file, List<String> lines) {
+        AlertRule[] parsed = new AlertRule[lines.size()];
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String text = lines.get(i);
+            int comment = text.indexOf('#');
+            if (comment >= 0) {
+                text = text.substring(0, comment);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                AlertRule rule = AlertRule.parse(text);
+                for (int j = 0; j < count; j++) {
+                    if (parsed[j].name.equals(rule.name)) {
+                        throw new IllegalArgumentException("duplicate rule name '" + rule.name + "'");
+                    }
+                }
+                parsed[count++] = rule;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return Arrays.copyOf(parsed, count);
+    }
+
+    private void logTransition(long timestamp, AlertRule rule) {
+        StringBuilder sb = appendEvent(timestamp, rule.firing() ? "FIRING " : "RESOLVED ", rule);
+        MetricFormat.appendFixed(sb.append(" value="), rule.current(), 2);
+        writeLog(sb);
+    }
+
+    private StringBuilder appendEvent(long timestamp, String event, AlertRule rule) {
+        line.setLength(0);
+        return line.append(Instant.ofEpochMilli(timestamp)).append(' ').append(event)
+            .append(rule.name).append(" (").append(rule.definition).append(')');
+    }
+
+    private StringBuilder line(String event) {
+        line.setLength(0);
+        return line.append(Instant.ofEpochMilli(System.currentTimeMillis())).append(' ').append(event);
+    }
+
+    private void writeLog(CharSequence entry) {
+        try {
+            log.append(entry).append('\n');
+            log.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package systemdashboard;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * One parsed alert rule and its evaluation state.
+ *
+ * A rule is a single config line: {@code name metric op limit [for duration]}, where the metric
+ * is either a bare value or one of the transforms {@code rate(metric)}, {@code ewma(metric, half-life)}
+ * and {@code avg(metric, window)}. For example:
+ * <pre>
+ * cpu-hot         cpu &gt; 90 for 60s
+ * swap-rising     rate(swap.used) &gt; 0 for 5m
+ * root-full       disk.free &lt; 5
+ * pinned-process  process.cpu &gt;= 95 for 30s
+ * </pre>
+ * State is a fixed handful of fields per rule: the sliding window is kept as {@link #BUCKETS}
+ * sub-window sums however long it is, so evaluating a sample never allocates.
+ */
+final class AlertRule {
+    static final int VALUE = 0;
+    static final int RATE = 1;
+    static final int EWMA = 2;
+    static final int AVERAGE = 3;
+
+    // Sub-windows of an avg(); the window slides by window / BUCKETS at a time
+    static final int BUCKETS = 16;
+
+    private static final String[] TRANSFORMS = {null, "rate", "ewma", "avg"};
+
+    final String name;
+    final String definition;
+    final int metric;
+    final int transform;
+    final long periodMillis; // Half-life of an ewma, window of an avg
+    final boolean above;
+    final boolean inclusive;
+    final double limit;
+    final long holdMillis;
+
+    // Evaluation state, owned by the feed's thread
+    private long lastTimestamp;
+    private double lastValue;
+    private double smoothed = Double.NaN; // NaN until the first value
+    private boolean primed;
+    private final double[] bucketSums;
+    private final int[] bucketCounts;
+    private long bucketIndex;
+    private long trueSince;
+    private double current;
+
+    // Read by the UI thread
+    private volatile boolean firing;
+
+    private AlertRule(String name, String definition, int metric, int transform, long periodMillis,
+                      boolean above, boolean inclusive, double limit, long holdMillis) {
+        this.name = name;
+        this.definition = definition;
+        this.metric = metric;
+        this.transform = transform;
+        this.periodMillis = periodMillis;
+        this.above = above;
+        this.inclusive = inclusive;
+        this.limit = limit;
+        this.holdMillis = holdMillis;
+        this.bucketSums = transform == AVERAGE ? new double[BUCKETS] : null;
+        this.bucketCounts = transform == AVERAGE ? new int[BUCKETS] : null;
+    }
+
+    /**
+     * Parses one config line, without the comment. Throws IllegalArgumentException with the reason
+     * if it is malformed.
+     */
+    static AlertRule parse(String line) {
+        String text = line.trim();
+        int space = indexOfSpace(text, 0);
+        if (space < 0) {
+            throw new IllegalArgumentException("expected: name metric op limit [for duration]");
+        }
+        String name = text.substring(0, space);
+        String definition = text.substring(space).trim();
+
+        // Split off the comparison: everything before the operator is the metric expression
+        int op = -1;
+        for (int i = 0; i < definition.length(); i++) {
+            char c = definition.charAt(i);
+            if (c == '<' || c == '>') {
+                op = i;
+                break;
+            }
+        }
+        if (op < 0) {
+            throw new IllegalArgumentException("missing comparison (<, <=, > or >=)");
+        }
+        String expression = definition.substring(0, op).trim();
+        boolean above = definition.charAt(op) == '>';
+        boolean inclusive = op + 1 < definition.length() && definition.charAt(op + 1) == '=';
+        String rest = definition.substring(op + (inclusive ? 2 : 1)).trim();
+
+        long holdMillis = 0;
+        int forAt = rest.indexOf(" for ");
+        String limitText = rest;
+        if (forAt >= 0) {
+            limitText = rest.substring(0, forAt).trim();
+            holdMillis = parseDuration(rest.substring(forAt + 5).trim());
+        }
+        double limit;
+        try {
+            limit = Double.parseDouble(limitText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad limit '" + limitText + "'");
+        }
+
+        int transform = VALUE;
+        long periodMillis = 0;
+        String metricName = expression;
+        int open = expression.indexOf('(');
+        if (open >= 0) {
+            if (!expression.endsWith(")")) {
+                throw new IllegalArgumentException("unbalanced parentheses in '" + expression + "'");
+            }
+            transform = transformOf(expression.substring(0, open).trim());
+            String[] args = expression.substring(open + 1, expression.length() - 1).split(",");
+            metricName = args[0].trim();
+            if (transform == RATE && args.length != 1) {
+                throw new IllegalArgumentException("rate() takes a metric only");
+            }
+            if (transform != RATE) {
+                if (args.length != 2) {
+                    throw new IllegalArgumentException(TRANSFORMS[transform] + "() takes a metric and a duration");
+                }
+                periodMillis = parseDuration(args[1].trim());
+            }
+        }
+        int metric = AlertEngine.metricIndex(metricName);
+        if (metric < 0) {
+            throw new IllegalArgumentException("unknown metric '" + metricName + "'");
+        }
+        return new AlertRule(name, definition, metric, transform, periodMillis, above, inclusive, limit, holdMillis);
+    }
+
+    private static int indexOfSpace(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int transformOf(String function) {
+        for (int i = 1; i < TRANSFORMS.length; i++) {
+            if (TRANSFORMS[i].equals(function)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown function '" + function + "', expected rate, ewma or avg");
+    }
+
+    /** Parses {@code 500ms}, {@code 30s}, {@code 5m} or {@code 1h}; a bare number is seconds. */
+    static long parseDuration(String text) {
+        String value = text.toLowerCase(Locale.ROOT);
+        long unit = 1_000;
+        if (value.endsWith("ms")) {
+            unit = 1;
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            unit = 60_000;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("h")) {
+            unit = 3_600_000;
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            long millis = Math.round(Double.parseDouble(value) * unit);
+            if (millis < 0) {
+                throw new IllegalArgumentException("negative duration '" + text + "'");
+            }
+            return millis;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad duration '" + text + "'");
+        }
+    }
+
+    /** True if {@code other} is the same rule, so a reload can keep this one's state. */
+    boolean sameAs(AlertRule other) {
+        return name.equals(other.name) && definition.equals(other.definition);
+    }
+
+    /**
+     * Folds one sample in and returns true if the rule started or stopped firing.
+     */
+    boolean evaluate(long timestamp, double sample) {
+        if (timestamp <= lastTimestamp) {
+            return false; // The same sample again; a replay seeking backwards calls reset first
+        }
+        double value = transform(timestamp, sample);
+        lastTimestamp = timestamp;
+        lastValue = sample;
+        primed = true;
+        current = value;
+
+        boolean met = !Double.isNaN(value)
+            && (above ? (inclusive ? value >= limit : value > limit) : (inclusive ? value <= limit : value < limit));
+        if (!met) {
+            trueSince = 0;
+        } else if (trueSince == 0) {
+            trueSince = timestamp;
+        }
+        boolean fire = met && timestamp - trueSince >= holdMillis;
+        if (fire != firing) {
+            firing = fire;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets all history, e.g. when a replay seeks backwards and the earlier samples no longer
+     * lead up to the next one. Returns true if the rule was firing, which it no longer is.
+     */
+    boolean reset() {
+        lastTimestamp = 0;
+        lastValue = 0;
+        smoothed = Double.NaN;
+        primed = false;
+        trueSince = 0;
+        current = Double.NaN;
+        if (bucketSums != null) {
+            Arrays.fill(bucketSums, 0);
+            Arrays.fill(bucketCounts, 0);
+        }
+        bucketIndex = 0;
+        boolean wasFiring = firing;
+        firing = false;
+        return wasFiring;
+    }
+
+    // The value compared against the limit, NaN until the transform has enough history
+    private double transform(long timestamp, double sample) {
+        switch (transform) {
+            case RATE:
+                return primed ? (sample - lastValue) * 1000.0 / (timestamp - lastTimestamp) : Double.NaN;
+            case EWMA:
+                if (Double.isNaN(sample)) {
+                    return smoothed; // Keep the average through a gap rather than poison it
+                }
+                if (Double.isNaN(smoothed) || periodMillis == 0) {
+                    smoothed = sample;
+                } else {
+                    // Weight by elapsed time so irregular ticks and replays decay at the same rate
+                    double alpha = 1 - Math.pow(0.5, (double) (timestamp - lastTimestamp) / periodMillis);
+                    smoothed += alpha * (sample - smoothed);
+                }
+                return smoothed;
+            case AVERAGE:
+                return slide(timestamp, sample);
+            default:
+                return sample;
+        }
+    }
+
+    private double slide(long timestamp, double sample) {
+        long width = Math.max(1, periodMillis / BUCKETS);
+        long index = timestamp / width;
+        if (!primed || index - bucketIndex >= BUCKETS) {
+            Arrays.fill(bucketSums, 0);
+            Arrays.fill(bucketCounts, 0);
+        } else {
+            // Clear the buckets the window slid past
+            for (long i = bucketIndex + 1; i <= index; i++) {
+                bucketSums[(int) (i % BUCKETS)] = 0;
+                bucketCounts[(int) (i % BUCKETS)] = 0;
+            }
+        }
+        bucketIndex = index;
+        // A metric without a value right now, e.g. cgroup.memory without a limit, leaves the window as it is
+        if (!Double.isNaN(sample)) {
+            bucketSums[(int) (index % BUCKETS)] += sample;
+            bucketCounts[(int) (index % BUCKETS)]++;
+        }
+
+        // Summed afresh each time rather than kept as a running total, which would drift
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += bucketSums[i];
+            count += bucketCounts[i];
+        }
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    boolean firing() {
+        return firing;
+    }
+
+    /** The transformed value of the last sample, for the alert log. */
+    double current() {
+        return current;
+    }
+
+    /** Panel that shows this rule, one of the {@code AlertEngine.PANEL_*} ids. */
+    int panel() {
+        return AlertEngine.panelOf(metric);
+    }
+}
@@ -0,0 +1,227 @@
+package systemdashboard;
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.swing.*;
+
+/**
+ * Per-core CPU usage over the last {@link #HISTORY} samples as a heatmap: one row per core, one
+ * column per sample, newest on the right. Hosts with more cores than {@link #MAX_ROWS} share a row
+ * between neighbouring cores, which shows the busiest of them. Hovering over a cell shows the
+ * core and its recent usage.
+ *
+ * The usage is kept in a primitive ring buffer and rendered into a cached image. Each sample
+ * paints only its own column, over the oldest one. The image is a ring as well: rather than
+ * shifting every pixel one column left, paint draws the older part and then the newer part next
+ * to it, so the per-sample cost is one column plus a blit. The whole image is only redrawn when
+ * the width or the core count changes.
+ */
+final class CoreHeatmap extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    static final int HISTORY = 120; // Samples, two minutes at the default refresh rate
+    private static final int MAX_ROWS = 256;
+    private static final int MAX_ROW_HEIGHT = 8;
+    private static final int TARGET_HEIGHT = 128; // Rows get thinner down to 1 px to stay near this
+    private static final int MIN_COLUMN_WIDTH = 2;
+    private static final int TOOLTIP_SAMPLES = 10;
+    private static final int EMPTY = 0x808080; // Slots before the first sample
+    private static final int[] PALETTE = palette(); // RGB per whole percent, 0 to 100
+
+    private int cores;
+    private int coresPerRow = 1;
+    private int rows;
+    private int rowHeight = MAX_ROW_HEIGHT;
+    private float[] usage = new float[0]; // core * HISTORY + slot
+    private int newest = HISTORY - 1; // Slot of the latest sample
+    private int samples; // Filled slots, up to HISTORY
+    private long shownTimestamp = Long.MIN_VALUE;
+
+    private BufferedImage image; // HISTORY columns of columnWidth px, rows of rowHeight px
+    private int[] pixels;
+    private int columnWidth;
+
+    CoreHeatmap() {
+        setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+        setAlignmentX(Component.LEFT_ALIGNMENT);
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    /** Adds the snapshot's per-core usage as the newest column, unless it is the sample already shown. */
+    void update(SystemSnapshot snapshot) {
+        if (snapshot.timestamp() != shownTimestamp) {
+            shownTimestamp = snapshot.timestamp();
+            addColumn(snapshot);
+        }
+    }
+
+    void addColumn(SystemSnapshot snapshot) {
+        int count = snapshot.coreCount();
+        if (count != cores) {
+            reset(count);
+        }
+        newest = newest + 1 == HISTORY ? 0 : newest + 1;
+        samples = Math.min(samples + 1, HISTORY);
+        for (int core = 0; core < cores; core++) {
+            usage[core * HISTORY + newest] = (float) snapshot.coreUsage(core);
+        }
+        if (image != null) {
+            drawColumn(newest);
+        }
+        repaint();
+    }
+
+    // Cores came or went: start over with rows sized for the new count
+    private void reset(int count) {
+        cores = count;
+        coresPerRow = Math.max(1, (count + MAX_ROWS - 1) / MAX_ROWS);
+        rows = (count + coresPerRow - 1) / coresPerRow;
+        rowHeight = Math.max(1, Math.min(MAX_ROW_HEIGHT, TARGET_HEIGHT / Math.max(1, rows)));
+        usage = new float[count * HISTORY];
+        newest = HISTORY - 1;
+        samples = 0;
+        image = null;
+        revalidate();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        return new Dimension(HISTORY * MIN_COLUMN_WIDTH + insets.left + insets.right,
+            rows * rowHeight + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        if (rows == 0) {
+            return;
+        }
+        Insets insets = getInsets();
+        int width = Math.max(MIN_COLUMN_WIDTH, (getWidth() - insets.left - insets.right) / HISTORY);
+        if (image == null || width != columnWidth) {
+            rebuild(width);
+        }
+        // Slots after the newest are the oldest, so they go on the left
+        int imageWidth = image.getWidth();
+        int height = image.getHeight();
+        int split = (newest + 1) * columnWidth;
+        int x = insets.left;
+        int y = insets.top;
+        g.drawImage(image, x, y, x + imageWidth - split, y + height, split, 0, imageWidth, height, null);
+        g.drawImage(image, x + imageWidth - split, y, x + imageWidth, y + height, 0, 0, split, height, null);
+    }
+
+    // Renders every slot, after a resize or a core count change
+    private void rebuild(int width) {
+        columnWidth = width;
+        image = new BufferedImage(HISTORY * columnWidth, rows * rowHeight, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int slot = 0; slot < HISTORY; slot++) {
+            drawColumn(slot);
+        }
+    }
+
+    private void drawColumn(int slot) {
+        int imageWidth = HISTORY * columnWidth;
+        boolean filled = (newest - slot + HISTORY) % HISTORY < samples;
+        for (int row = 0; row < rows; row++) {
+            int color = filled ? PALETTE[percentIndex(rowUsage(row, slot))] : EMPTY;
+            int start = row * rowHeight * imageWidth + slot * columnWidth;
+            for (int y = 0; y < rowHeight; y++, start += imageWidth) {
+                for (int x = 0; x < columnWidth; x++) {
+                    pixels[start + x] = color;
+                }
+            }
+        }
+    }
+
+    // Busiest core of the row at one slot
+    private float rowUsage(int row, int slot) {
+        int first = row * coresPerRow;
+        int last = Math.min(cores, first + coresPerRow);
+        float max = 0;
+        for (int core = first; core < last; core++) {
+            max = Math.max(max, usage[core * HISTORY + slot]);
+        }
+        return max;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        Insets insets = getInsets();
+        if (samples == 0 || columnWidth == 0 || event.getY() < insets.top || event.getX() < insets.left) {
+            return null;
+        }
+        int row = (event.getY() - insets.top) / rowHeight;
+        int age = HISTORY - 1 - (event.getX() - insets.left) / columnWidth; // Samples before the newest
+        if (row >= rows || age < 0 || age >= samples) {
+            return null;
+        }
+        int first = row * coresPerRow + 1;
+        int last = Math.min(cores, first + coresPerRow - 1);
+        StringBuilder tip = new StringBuilder("<html>");
+        tip.append(first == last ? "Core " : "Cores ").append(first);
+        if (first != last) {
+            tip.append('-').append(last).append(" (busiest)");
+        }
+        MetricFormat.appendFixed(tip.append(": "), rowUsage(row, slotAt(age)), 1).append('%');
+        tip.append(age == 0 ? " now" : " " + age + " samples ago");
+
+        tip.append("<br>Recent:");
+        for (int i = Math.min(TOOLTIP_SAMPLES, samples) - 1; i >= 0; i--) {
+            MetricFormat.appendFixed(tip.append(' '), rowUsage(row, slotAt(i)), 0);
+        }
+        double sum = 0;
+        double max = 0;
+        for (int i = 0; i < samples; i++) {
+            double value = rowUsage(row, slotAt(i));
+            sum += value;
+            max = Math.max(max, value);
+        }
+        MetricFormat.appendFixed(tip.append("<br>Average "), sum / samples, 1).append("%, max ");
+        MetricFormat.appendFixed(tip, max, 1).append("% over ").append(samples).append(" samples");
+        return tip.toString();
+    }
+
+    private int slotAt(int age) {
+        return (newest - age + HISTORY) % HISTORY;
+    }
+
+    private static int percentIndex(float value) {
+        return value <= 0 ? 0 : value >= 100 ? 100 : (int) (value + 0.5f);
+    }
+
+    // Dark blue when idle, through green and yellow, to red when saturated
+    private static int[] palette() {
+        int[] stops = {0, 30, 60, 100};
+        int[][] colors = {{30, 50, 90}, {40, 160, 90}, {230, 200, 40}, {220, 40, 40}};
+        int[] palette = new int[101];
+        for (int percent = 0, stop = 0; percent <= 100; percent++) {
+            if (percent > stops[stop + 1]) {
+                stop++;
+            }
+            double t = (percent - stops[stop]) / (double) (stops[stop + 1] - stops[stop]);
+            int rgb = 0;
+            for (int channel = 0; channel < 3; channel++) {
+                int value = (int) Math.round(colors[stop][channel] + t * (colors[stop + 1][channel] - colors[stop][channel]));
+                rgb = rgb << 8 | value;
+            }
+            palette[percent] = rgb;
+        }
+        return palette;
+    }
+}
@@ -0,0 +1,187 @@
+package systemdashboard;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-interface network rates, per-mount capacity and per-device disk I/O, filled by
+ * {@link MetricSource#collectDevices}.
+ *
+ * Like {@link ProcessSnapshot}, the source keeps the previous counters of every interface
+ * and disk, so rates cover the interval since the previous refresh and the first refresh reports
+ * zero. Interfaces, mounts and disks come and go; the arrays grow to fit whatever the host has.
+ */
+public final class DeviceSnapshot {
+    // Header and record layout, matching DEV_* in devices.h
+    private static final int HEADER_LENGTH = 3;
+    private static final int INTERFACE_SLOTS = 8;
+    private static final int MOUNT_SLOTS = 3;
+    private static final int DISK_SLOTS = 5;
+    private static final int NAME_LENGTH = 64;
+    private static final int INITIAL_ENTRIES = 32;
+
+    private long[] slots = new long[HEADER_LENGTH + INITIAL_ENTRIES * INTERFACE_SLOTS];
+    private byte[] names = new byte[INITIAL_ENTRIES * NAME_LENGTH];
+    private int interfaceCount;
+    private int mountCount;
+    private int diskCount;
+
+    /**
+     * Samples every interface and disk once, and every mount's capacity if {@code mounts} is set;
+     * otherwise the mounts of the previous refresh are kept. Returns false if /proc could not be read.
+     */
+    boolean refresh(MetricSource source, boolean mounts) {
+        int written = source.collectDevices(slots, names, mounts);
+        if (written < 0) {
+            // More devices than fit: the header holds the counts and the baseline was left untouched
+            int entries = (int) (slots[0] + slots[1] + slots[2]);
+            slots = new long[Math.max(-written, slots.length)];
+            names = new byte[Math.max(entries * NAME_LENGTH, names.length)];
+            written = source.collectDevices(slots, names, mounts);
+        }
+        if (written <= 0) {
+            return false;
+        }
+        interfaceCount = (int) slots[0];
+        mountCount = (int) slots[1];
+        diskCount = (int) slots[2];
+        return true;
+    }
+
+    /** Replaces this view's contents with {@code other}'s, growing the arrays if needed. */
+    public void copyFrom(DeviceSnapshot other) {
+        int length = other.length();
+        int entries = other.interfaceCount + other.mountCount + other.diskCount;
+        if (slots.length < length) {
+            slots = new long[other.slots.length];
+        }
+        if (names.length < entries * NAME_LENGTH) {
+            names = new byte[other.names.length];
+        }
+        System.arraycopy(other.slots, 0, slots, 0, length);
+        System.arraycopy(other.names, 0, names, 0, entries * NAME_LENGTH);
+        interfaceCount = other.interfaceCount;
+        mountCount = other.mountCount;
+        diskCount = other.diskCount;
+    }
+
+    private int length() {
+        return HEADER_LENGTH + interfaceCount * INTERFACE_SLOTS + mountCount * MOUNT_SLOTS + diskCount * DISK_SLOTS;
+    }
+
+    // Network interfaces, loopback excluded
+
+    public int interfaceCount() {
+        return interfaceCount;
+    }
+
+    public String interfaceName(int i) {
+        return name(i);
+    }
+
+    public long receivedBytes(int i) {
+        return slots[interfaceSlot(i)];
+    }
+
+    public long transmittedBytes(int i) {
+        return slots[interfaceSlot(i) + 1];
+    }
+
+    public double receivedBytesPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 2]);
+    }
+
+    public double transmittedBytesPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 3]);
+    }
+
+    public double receivedPacketsPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 4]);
+    }
+
+    public double transmittedPacketsPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 5]);
+    }
+
+    public double receiveDropsPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 6]);
+    }
+
+    public double transmitDropsPerSecond(int i) {
+        return Double.longBitsToDouble(slots[interfaceSlot(i) + 7]);
+    }
+
+    // Mounted filesystems with a nonzero size, one entry per mount point
+
+    public int mountCount() {
+        return mountCount;
+    }
+
+    public String mountPoint(int i) {
+        return name(interfaceCount + i);
+    }
+
+    public long mountTotalBytes(int i) {
+        return slots[mountSlot(i)];
+    }
+
+    public long mountFreeBytes(int i) {
+        return slots[mountSlot(i) + 1];
+    }
+
+    /** Free bytes usable by unprivileged users, excluding the root reserve. */
+    public long mountAvailableBytes(int i) {
+        return slots[mountSlot(i) + 2];
+    }
+
+    // Block devices from /proc/diskstats, idle loop and ram devices excluded
+
+    public int diskCount() {
+        return diskCount;
+    }
+
+    public String diskName(int i) {
+        return name(interfaceCount + mountCount + i);
+    }
+
+    public double readsPerSecond(int i) {
+        return Double.longBitsToDouble(slots[diskSlot(i)]);
+    }
+
+    public double writesPerSecond(int i) {
+        return Double.longBitsToDouble(slots[diskSlot(i) + 1]);
+    }
+
+    public double readBytesPerSecond(int i) {
+        return Double.longBitsToDouble(slots[diskSlot(i) + 2]);
+    }
+
+    public double writeBytesPerSecond(int i) {
+        return Double.longBitsToDouble(slots[diskSlot(i) + 3]);
+    }
+
+    /** Share of the interval the device had I/O in flight, 0-100. */
+    public double utilization(int i) {
+        return Double.longBitsToDouble(slots[diskSlot(i) + 4]);
+    }
+
+    private int interfaceSlot(int i) {
+        return HEADER_LENGTH + i * INTERFACE_SLOTS;
+    }
+
+    private int mountSlot(int i) {
+        return HEADER_LENGTH + interfaceCount * INTERFACE_SLOTS + i * MOUNT_SLOTS;
+    }
+
+    private int diskSlot(int i) {
+        return HEADER_LENGTH + interfaceCount * INTERFACE_SLOTS + mountCount * MOUNT_SLOTS + i * DISK_SLOTS;
+    }
+
+    private String name(int entry) {
+        int offset = entry * NAME_LENGTH;
+        int length = 0;
+        while (length < NAME_LENGTH && names[offset + length] != 0) {
+            length++;
+        }
+        return new String(names, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package systemdashboard;
+
+/**
+ * The dashboard's own latency, one {@link LatencyHistogram} per pipeline stage.
+ *
+ * The sampler times each native collector call, the history append, the sinks and the whole
+ * tick; the UI adds the delay between {@code invokeLater} and the update running (EDT lag)
+ * and the time spent rendering. Each stage has a single writer, and readers copy a
+ * {@link LatencyHistogram.Snapshot} without stopping it. Collections that fail outright are
+ * counted separately, since they produce no sample.
+ */
+final class Diagnostics {
+    static final int SNAPSHOT = 0;
+    static final int PROCESSES = 1;
+    static final int HOST_FACTS = 2;
+    static final int HISTORY = 3;
+    static final int SINKS = 4;
+    static final int TICK = 5;
+    static final int EDT_LAG = 6;
+    static final int RENDER = 7;
+    static final int DEVICES = 8;
+    static final int ALERTS = 9;
+    static final int STAGES = 10;
+
+    private static final String[] NAMES = {
+        "snapshot", "processes", "host_facts", "history", "sinks", "tick", "edt_lag", "render", "devices", "alerts"
+    };
+    private static final String[] TITLES = {
+        "Native snapshot", "Process walk", "Host facts", "History append", "Recorders", "Full tick", "EDT lag", "Render", "Device stats",
+        "Alert rules"
+    };
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGES];
+    private volatile long failedSamples; // Written by the sampling thread only
+
+    Diagnostics() {
+        for (int i = 0; i < STAGES; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /** Stage id as exported, e.g. {@code edt_lag}. */
+    static String name(int stage) {
+        return NAMES[stage];
+    }
+
+    static String title(int stage) {
+        return TITLES[stage];
+    }
+
+    /** Records the time since {@code startNanos}, a {@link System#nanoTime} reading. */
+    void recordSince(int stage, long startNanos) {
+        stages[stage].record(System.nanoTime() - startNanos);
+    }
+
+    /** Counts a collection that returned nothing usable; called from the sampling thread only. */
+    void recordFailedSample() {
+        failedSamples++;
+    }
+
+    long failedSamples() {
+        return failedSamples;
+    }
+
+    void copyTo(int stage, LatencyHistogram.Snapshot into) {
+        stages[stage].copyTo(into);
+    }
+}
@@ -0,0 +1,161 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Streams this host's samples to a {@link FleetCollector}.
+ *
+ * Runs as a {@link SampleSink} on the sampling thread and never blocks it: the socket is
+ * non-blocking, frames are encoded into one reused buffer and written in batches at most once
+ * per {@link #FLUSH_INTERVAL_MILLIS}. If the collector falls behind, TCP flow control stops the
+ * writes, the buffer fills and new samples are dropped instead of queued; the first sample that
+ * fits afterwards goes out as a keyframe, so a slow collector only ever sees fresh data.
+ * A lost connection is retried every {@link #RECONNECT_MILLIS}.
+ */
+final class FleetAgent implements SampleSink {
+    static final long FLUSH_INTERVAL_MILLIS = 1_000;
+    static final long RECONNECT_MILLIS = 5_000;
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private final InetSocketAddress collector;
+    private final String name;
+    private final HostFacts facts;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private SocketChannel channel;
+    private boolean connected;
+    private long nextConnectAt;
+    private long lastFlushAt;
+
+    private long[] values = new long[FleetProtocol.CORE_BASE];
+    private long[] previous = new long[FleetProtocol.CORE_BASE];
+    private int previousCount;
+    private boolean keyframe = true;
+    private long dropped;
+
+    FleetAgent(InetSocketAddress collector, String name, HostFacts facts) {
+        this.collector = collector;
+        this.name = name;
+        this.facts = facts;
+    }
+
+    /** Samples dropped because the collector could not keep up or was unreachable. */
+    long dropped() {
+        return dropped;
+    }
+
+    @Override
+    public void accept(SystemSnapshot snapshot, ProcessSnapshot processes, boolean processesSampled) {
+        long now = System.currentTimeMillis();
+        if (!ensureConnected(now)) {
+            dropped++;
+            return;
+        }
+
+        int fields = FleetProtocol.fieldCount(snapshot);
+        if (fields > values.length) {
+            values = new long[fields];
+        }
+        if (out.remaining() < FleetProtocol.maxSampleFrame(fields)) {
+            dropped++;
+            keyframe = true;
+        } else {
+            FleetProtocol.fill(snapshot, values);
+            encodeSample(fields);
+        }
+
+        if (now - lastFlushAt >= FLUSH_INTERVAL_MILLIS || out.position() > BUFFER_BYTES / 2) {
+            flush();
+            lastFlushAt = now;
+        }
+    }
+
+    private void encodeSample(int fields) {
+        int start = out.position();
+        out.putInt(0).put(keyframe ? FleetProtocol.KEYFRAME : FleetProtocol.DELTA);
+        FleetProtocol.putVarLong(out, fields);
+        for (int i = 0; i < fields; i++) {
+            long base = !keyframe && i < previousCount ? previous[i] : 0;
+            FleetProtocol.putVarLong(out, values[i] - base);
+        }
+        out.putInt(start, out.position() - start - 4);
+
+        long[] swap = previous;
+        previous = values;
+        values = swap.length >= fields ? swap : new long[fields];
+        previousCount = fields;
+        keyframe = false;
+    }
+
+    private void flush() {
+        out.flip();
+        try {
+            channel.write(out);
+        } catch (IOException e) {
+            disconnect();
+            return;
+        } finally {
+            out.compact();
+        }
+    }
+
+    // Non-blocking connect, finished on a later tick; sends the hello once connected
+    private boolean ensureConnected(long now) {
+        try {
+            if (channel == null) {
+                if (now < nextConnectAt) {
+                    return false;
+                }
+                nextConnectAt = now + RECONNECT_MILLIS;
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(collector);
+            }
+            if (!connected) {
+                if (!channel.finishConnect()) {
+                    return false;
+                }
+                connected = true;
+                out.clear();
+                keyframe = true;
+                writeHello();
+            }
+            return true;
+        } catch (IOException e) {
+            disconnect();
+            return false;
+        }
+    }
+
+    private void writeHello() {
+        int start = out.position();
+        out.putInt(0).put(FleetProtocol.HELLO);
+        FleetProtocol.putString(out, name);
+        FleetProtocol.putString(out, facts.getOsName() + " " + facts.getOsVersion() + " " + facts.getOsArch());
+        FleetProtocol.putString(out, facts.getIpAddress());
+        out.putInt(start, out.position() - start - 4);
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+        channel = null;
+        connected = false;
+        keyframe = true;
+    }
+
+    void close() {
+        if (connected) {
+            flush();
+        }
+        disconnect();
+    }
+}
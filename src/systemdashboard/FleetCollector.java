@@ -0,0 +1,214 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ingests {@link FleetAgent} streams on a single thread with a non-blocking {@link Selector}.
+ *
+ * Each connection reads into its host's buffer, decodes every complete frame in place and
+ * publishes the host once per read. The buffer is a small heap one until the agent's hello and
+ * a fixed direct one after it, so stray connections do not tie up direct memory. Steady-state ingestion allocates nothing: no
+ * per-frame or per-sample objects, just primitive decoding into reused arrays. Because the
+ * collector only ever reads what it can decode, a collector that falls behind lets the socket
+ * buffers fill and pushes back on the agents, which drop samples rather than queue them.
+ */
+final class FleetCollector {
+    private static final long ACCEPT_PAUSE_MILLIS = 1_000;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final CopyOnWriteArrayList<FleetHost> hosts = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running;
+    private long acceptPausedUntil; // After a failed accept, e.g. out of file descriptors
+
+    FleetCollector(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "fleet-collector");
+        thread.setDaemon(true);
+    }
+
+    int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Every host that has connected, in connection order. Disconnected hosts stay until the agent
+     * reconnects under the same name, unless they dropped before sending a hello.
+     */
+    List<FleetHost> hosts() {
+        return hosts;
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (acceptPausedUntil == 0) {
+                    selector.select();
+                } else {
+                    selector.select(Math.max(1, acceptPausedUntil - System.currentTimeMillis()));
+                    resumeAccepting();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            // E.g. out of file descriptors during a burst: keep serving the connected
+                            // agents, and stop accepting for a moment rather than spin on the ready key
+                            System.err.println("Fleet collector could not accept a connection: " + e);
+                            key.interestOps(0);
+                            acceptPausedUntil = System.currentTimeMillis() + ACCEPT_PAUSE_MILLIS;
+                        }
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            close();
+        }
+    }
+
+    private void resumeAccepting() {
+        if (System.currentTimeMillis() >= acceptPausedUntil) {
+            acceptPausedUntil = 0;
+            server.keyFor(selector).interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            FleetHost host = new FleetHost(channel.getRemoteAddress().toString());
+            channel.register(selector, SelectionKey.OP_READ, host);
+            hosts.add(host);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        FleetHost host = (FleetHost) key.attachment();
+        ByteBuffer in = host.in;
+        try {
+            int n = channel.read(in);
+            if (n < 0) {
+                drop(key, host);
+                return;
+            }
+        } catch (IOException e) {
+            drop(key, host);
+            return;
+        }
+
+        // Decode every complete frame, keep a trailing partial one for the next read
+        in.flip();
+        boolean decoded = false;
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > FleetProtocol.MAX_FRAME) {
+                drop(key, host);
+                return;
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            int end = in.position() + 4 + length;
+            int limit = in.limit();
+            in.position(in.position() + 4).limit(end);
+            boolean valid;
+            try {
+                valid = host.decode(in);
+            } catch (RuntimeException e) {
+                valid = false; // Truncated varint or string
+            }
+            in.limit(limit).position(end);
+            if (!valid) {
+                drop(key, host);
+                return;
+            }
+            decoded = true;
+        }
+        in.compact();
+        if (host.isAnnounced()) {
+            host.growBuffer();
+        } else if (!in.hasRemaining()) {
+            drop(key, host); // Filled the hello buffer without a complete hello
+            return;
+        }
+        if (host.takeHello()) {
+            // A reconnecting agent replaces its stale entry
+            hosts.removeIf(other -> other != host && !other.isConnected() && other.name().equals(host.name()));
+        }
+        if (decoded) {
+            host.publish(System.currentTimeMillis());
+        }
+    }
+
+    private void drop(SelectionKey key, FleetHost host) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        host.disconnected();
+        if (!host.isAnnounced()) {
+            // Port scans, health checks and agents that never got as far as a hello
+            hosts.remove(host);
+        }
+    }
+
+    private void close() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Shutting down
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package systemdashboard;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One agent as seen by the {@link FleetCollector}: its identity and the latest decoded sample.
+ *
+ * The collector thread decodes frames into a private working array and publishes it once per
+ * read, so a burst of batched frames costs one short lock however many samples it carried.
+ * Readers copy the latest fields out with {@link #copyValues}.
+ */
+final class FleetHost {
+    static final int HELLO_BUFFER = 1024; // A hello is three strings of at most 255 bytes
+
+    private final String address;
+    private volatile String name;
+    private volatile String system = "";
+    private volatile String ipAddress = "";
+    private volatile boolean connected = true;
+    private volatile boolean announced; // Sent a hello on this connection
+
+    // Owned by the collector thread. A small heap buffer until the hello, so connections that never
+    // send one cost little, then room for two full frames; released on disconnect
+    ByteBuffer in = ByteBuffer.allocate(HELLO_BUFFER);
+    private long[] decoded = new long[FleetProtocol.CORE_BASE];
+    private int decodedCount;
+    private long decodedFrames;
+    private boolean helloPending;
+
+    // Guarded by this
+    private long[] values = new long[FleetProtocol.CORE_BASE];
+    private int count;
+    private long frames;
+    private long lastSeen;
+
+    FleetHost(String address) {
+        this.address = address;
+        this.name = address;
+    }
+
+    String address() {
+        return address;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String system() {
+        return system;
+    }
+
+    String ipAddress() {
+        return ipAddress;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /** True once the agent has sent its hello; connections that never do are not kept. */
+    boolean isAnnounced() {
+        return announced;
+    }
+
+    void disconnected() {
+        connected = false;
+        in = null;
+    }
+
+    /** Decodes one frame body (type and payload). Returns false if the frame is malformed. */
+    boolean decode(ByteBuffer frame) {
+        byte type = frame.get();
+        if (!announced && type != FleetProtocol.HELLO) {
+            return false; // Agents always introduce themselves first
+        }
+        if (type == FleetProtocol.HELLO) {
+            name = FleetProtocol.getString(frame);
+            system = FleetProtocol.getString(frame);
+            ipAddress = FleetProtocol.getString(frame);
+            helloPending = true;
+            announced = true;
+            return true;
+        }
+        if (type != FleetProtocol.KEYFRAME && type != FleetProtocol.DELTA) {
+            return false;
+        }
+
+        int fields = (int) FleetProtocol.getVarLong(frame);
+        if (fields < FleetProtocol.CORE_BASE || fields > FleetProtocol.MAX_FRAME) {
+            return false;
+        }
+        if (fields > decoded.length) {
+            decoded = Arrays.copyOf(decoded, fields);
+        }
+        boolean delta = type == FleetProtocol.DELTA;
+        for (int i = 0; i < fields; i++) {
+            long base = delta && i < decodedCount ? decoded[i] : 0;
+            decoded[i] = base + FleetProtocol.getVarLong(frame);
+        }
+        // The per-core fields must match the core count, readers index them by it
+        if (decoded[FleetProtocol.CORES] != fields - FleetProtocol.CORE_BASE) {
+            return false;
+        }
+        decodedCount = fields;
+        decodedFrames++;
+        return true;
+    }
+
+    /** Swaps the hello buffer for one that holds full sample frames, keeping what was read so far. */
+    void growBuffer() {
+        if (in.capacity() < FleetProtocol.MAX_FRAME * 2) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(FleetProtocol.MAX_FRAME * 2);
+            in.flip();
+            grown.put(in);
+            in = grown;
+        }
+    }
+
+    /** True once after each hello, when the host has (re)announced its name. */
+    boolean takeHello() {
+        boolean pending = helloPending;
+        helloPending = false;
+        return pending;
+    }
+
+    /** Makes the last decoded sample visible to readers. */
+    synchronized void publish(long now) {
+        if (values.length < decodedCount) {
+            values = new long[decoded.length];
+        }
+        System.arraycopy(decoded, 0, values, 0, decodedCount);
+        count = decodedCount;
+        frames = decodedFrames;
+        lastSeen = now;
+    }
+
+    /**
+     * Copies the latest fields into {@code into}, growing it if needed, and returns the copy.
+     * Fields are indexed by the {@link FleetProtocol} constants; the field count is
+     * {@code CORE_BASE + into[CORES]}, or 0 fields before the first sample.
+     */
+    synchronized long[] copyValues(long[] into) {
+        if (into.length < count) {
+            into = new long[values.length];
+        }
+        System.arraycopy(values, 0, into, 0, count);
+        if (count == 0) {
+            Arrays.fill(into, 0);
+        }
+        return into;
+    }
+
+    synchronized long frames() {
+        return frames;
+    }
+
+    synchronized long lastSeen() {
+        return lastSeen;
+    }
+}
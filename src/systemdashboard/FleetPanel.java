@@ -0,0 +1,236 @@
+package systemdashboard;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.border.TitledBorder;
+
+/**
+ * Grid of one tile per fleet host, refreshed once a second from the {@link FleetCollector}.
+ * Clicking a tile opens a detail window for that host with every field and per-core usage.
+ *
+ * Like the local panels, tiles are built once per host and only their label text changes.
+ */
+final class FleetPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int REFRESH_MILLIS = 1000;
+    private static final int COLUMNS = 4;
+
+    private final FleetCollector collector;
+    private final JPanel grid = new JPanel(new GridLayout(0, COLUMNS, 6, 6));
+    private final List<Tile> tiles = new ArrayList<>();
+    private final MetricLabel summaryLabel = new MetricLabel("");
+    private final StringBuilder line = new StringBuilder(128);
+    private final Timer timer;
+    private long[] values = new long[FleetProtocol.CORE_BASE];
+
+    FleetPanel(FleetCollector collector) {
+        super(new BorderLayout());
+        this.collector = collector;
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        add(summaryLabel, BorderLayout.NORTH);
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(grid, BorderLayout.NORTH);
+        add(new JScrollPane(top), BorderLayout.CENTER);
+        timer = new Timer(REFRESH_MILLIS, e -> refresh());
+    }
+
+    void start() {
+        refresh();
+        timer.start();
+    }
+
+    private void refresh() {
+        List<FleetHost> hosts = collector.hosts();
+        syncTiles(hosts);
+
+        int online = 0;
+        long now = System.currentTimeMillis();
+        for (Tile tile : tiles) {
+            values = tile.host.copyValues(values);
+            tile.update(values, now);
+            if (tile.host.isConnected()) {
+                online++;
+            }
+        }
+        summaryLabel.setText(line("Hosts: ").append(tiles.size()).append("  Online: ").append(online)
+            .append("  Listening on port ").append(port()));
+    }
+
+    private int port() {
+        try {
+            return collector.getPort();
+        } catch (java.io.IOException e) {
+            return -1;
+        }
+    }
+
+    // Tiles follow the collector's host list: new hosts append, replaced ones are removed
+    private void syncTiles(List<FleetHost> hosts) {
+        boolean changed = tiles.removeIf(tile -> !hosts.contains(tile.host));
+        for (FleetHost host : hosts) {
+            if (tiles.stream().noneMatch(tile -> tile.host == host)) {
+                tiles.add(new Tile(host));
+                changed = true;
+            }
+        }
+        if (changed) {
+            grid.removeAll();
+            for (Tile tile : tiles) {
+                grid.add(tile.panel);
+            }
+            grid.revalidate();
+            grid.repaint();
+        }
+    }
+
+    private StringBuilder line(String prefix) {
+        line.setLength(0);
+        return line.append(prefix);
+    }
+
+    private final class Tile {
+        final FleetHost host;
+        final JPanel panel = new JPanel();
+        final TitledBorder border = BorderFactory.createTitledBorder("");
+        final MetricLabel statusLabel = new MetricLabel("");
+        final MetricLabel cpuLabel = new MetricLabel("");
+        final MetricLabel memoryLabel = new MetricLabel("");
+        final MetricLabel networkLabel = new MetricLabel("");
+        final MetricLabel processLabel = new MetricLabel("");
+        private long lastTimestamp, lastRx, lastTx;
+        private double rxRate, txRate;
+        private HostDetail detail;
+
+        Tile(FleetHost host) {
+            this.host = host;
+            panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+            panel.setBorder(border);
+            panel.add(statusLabel);
+            panel.add(cpuLabel);
+            panel.add(memoryLabel);
+            panel.add(networkLabel);
+            panel.add(processLabel);
+            panel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            panel.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    showDetail();
+                }
+            });
+        }
+
+        void update(long[] v, long now) {
+            if (!border.getTitle().equals(host.name())) {
+                border.setTitle(host.name());
+                panel.repaint();
+            }
+
+            long timestamp = v[FleetProtocol.TIMESTAMP];
+            if (timestamp > lastTimestamp) {
+                double seconds = (timestamp - lastTimestamp) / 1000.0;
+                if (lastTimestamp != 0) {
+                    rxRate = Math.max(0, v[FleetProtocol.NET_RX] - lastRx) / seconds;
+                    txRate = Math.max(0, v[FleetProtocol.NET_TX] - lastTx) / seconds;
+                }
+                lastTimestamp = timestamp;
+                lastRx = v[FleetProtocol.NET_RX];
+                lastTx = v[FleetProtocol.NET_TX];
+            }
+
+            if (!host.isConnected()) {
+                statusLabel.setText(line("Offline"));
+            } else if (timestamp == 0) {
+                statusLabel.setText(line("Waiting for first sample"));
+            } else {
+                statusLabel.setText(line("Online, ").append((now - host.lastSeen()) / 1000).append("s ago"));
+            }
+            cpuLabel.setText(MetricFormat.appendFixed(line("CPU: "), FleetProtocol.percent(v[FleetProtocol.CPU]), 1)
+                .append("% of ").append(v[FleetProtocol.CORES]).append(" cores"));
+            long total = v[FleetProtocol.MEM_TOTAL];
+            long used = total - v[FleetProtocol.MEM_AVAILABLE];
+            StringBuilder memory = MetricFormat.appendFixed(line("Memory: "), used / MetricFormat.GB, 1).append(" / ");
+            memoryLabel.setText(MetricFormat.appendFixed(memory, total / MetricFormat.GB, 1).append(" GB"));
+            StringBuilder network = MetricFormat.appendFixed(line("Net: "), rxRate / MetricFormat.KB, 1).append(" KB/s in, ");
+            networkLabel.setText(MetricFormat.appendFixed(network, txRate / MetricFormat.KB, 1).append(" KB/s out"));
+            processLabel.setText(line("Processes: ").append(v[FleetProtocol.PROCESSES]));
+
+            if (detail != null && detail.isDisplayable()) {
+                detail.update(v);
+            }
+        }
+
+        void showDetail() {
+            if (detail == null || !detail.isDisplayable()) {
+                detail = new HostDetail(SwingUtilities.getWindowAncestor(panel), host);
+            }
+            values = host.copyValues(values);
+            detail.update(values);
+            detail.setVisible(true);
+        }
+    }
+
+    // Drill-down window for one host, updated by the grid's timer while open
+    private final class HostDetail extends JDialog {
+        private static final long serialVersionUID = 1L;
+
+        private final FleetHost host;
+        private final MetricLabel[] fieldLabels = new MetricLabel[8];
+        private final JPanel coreRows = new JPanel();
+        private MetricLabel[] coreLabels = new MetricLabel[0];
+
+        HostDetail(Window owner, FleetHost host) {
+            super(owner, host.name(), ModalityType.MODELESS);
+            this.host = host;
+            JPanel content = new JPanel();
+            content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+            content.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+            for (int i = 0; i < fieldLabels.length; i++) {
+                fieldLabels[i] = new MetricLabel("");
+                content.add(fieldLabels[i]);
+            }
+            content.add(new MetricLabel("Per Core Usage:"));
+            coreRows.setLayout(new BoxLayout(coreRows, BoxLayout.Y_AXIS));
+            coreRows.setAlignmentX(Component.LEFT_ALIGNMENT);
+            content.add(coreRows);
+            add(new JScrollPane(content));
+            setSize(420, 520);
+            setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        }
+
+        void update(long[] v) {
+            long memTotal = v[FleetProtocol.MEM_TOTAL];
+            long swapTotal = v[FleetProtocol.SWAP_TOTAL];
+            long diskTotal = v[FleetProtocol.DISK_TOTAL];
+            fieldLabels[0].setText(line("System: ").append(host.system()));
+            fieldLabels[1].setText(line("Address: ").append(host.ipAddress()).append(" (").append(host.address()).append(')'));
+            fieldLabels[2].setText(MetricFormat.appendUptime(line("Uptime: "), v[FleetProtocol.UPTIME]));
+            fieldLabels[3].setText(MetricFormat.appendFixed(line("CPU: "), FleetProtocol.percent(v[FleetProtocol.CPU]), 1).append('%'));
+            fieldLabels[4].setText(MetricFormat.appendPercent(line("Memory used: "),
+                memTotal - v[FleetProtocol.MEM_AVAILABLE], memTotal));
+            fieldLabels[5].setText(MetricFormat.appendPercent(line("Swap used: "),
+                swapTotal - v[FleetProtocol.SWAP_FREE], swapTotal));
+            fieldLabels[6].setText(MetricFormat.appendPercent(line("Disk used: "),
+                diskTotal - v[FleetProtocol.DISK_FREE], diskTotal));
+            fieldLabels[7].setText(line("Samples received: ").append(host.frames()));
+
+            int cores = (int) v[FleetProtocol.CORES];
+            if (coreLabels.length != cores) {
+                coreRows.removeAll();
+                coreLabels = new MetricLabel[cores];
+                for (int i = 0; i < cores; i++) {
+                    coreLabels[i] = new MetricLabel("");
+                    coreRows.add(coreLabels[i]);
+                }
+                coreRows.revalidate();
+            }
+            for (int i = 0; i < cores; i++) {
+                coreLabels[i].setText(MetricFormat.appendFixed(line("  Core ").append(i + 1).append(": "),
+                    FleetProtocol.percent(v[FleetProtocol.CORE_BASE + i]), 1).append('%'));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package systemdashboard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format between {@link FleetAgent} and {@link FleetCollector}.
+ *
+ * A connection is a stream of frames: {@code int length} (big-endian, covering everything after
+ * it), {@code byte type}, payload. The first frame is a {@link #HELLO} with the host's identity.
+ * Samples follow as {@link #KEYFRAME}s or {@link #DELTA}s carrying a field count and then one
+ * zigzag varint per field: the field itself in a keyframe, the change since the previous sample
+ * in a delta. Counters and gauges barely move between ticks, so a typical delta is a few bytes
+ * per field. An agent sends a keyframe after connecting and after any dropped sample.
+ *
+ * Fields are fixed: see the constants below, followed by one CPU usage per core. CPU values
+ * travel as hundredths of a percent.
+ */
+final class FleetProtocol {
+    static final byte HELLO = 1;
+    static final byte KEYFRAME = 2;
+    static final byte DELTA = 3;
+
+    static final int DEFAULT_PORT = 9257;
+    static final int MAX_FRAME = 64 * 1024;
+
+    // Sample fields
+    static final int TIMESTAMP = 0;
+    static final int CPU = 1;
+    static final int MEM_TOTAL = 2;
+    static final int MEM_AVAILABLE = 3;
+    static final int SWAP_TOTAL = 4;
+    static final int SWAP_FREE = 5;
+    static final int DISK_TOTAL = 6;
+    static final int DISK_FREE = 7;
+    static final int NET_RX = 8;
+    static final int NET_TX = 9;
+    static final int PROCESSES = 10;
+    static final int UPTIME = 11;
+    static final int CORES = 12;
+    static final int CORE_BASE = 13;
+
+    private FleetProtocol() {
+    }
+
+    static int fieldCount(SystemSnapshot snapshot) {
+        return CORE_BASE + snapshot.coreCount();
+    }
+
+    /** Writes the snapshot's fields into {@code values}, which must hold {@link #fieldCount} entries. */
+    static void fill(SystemSnapshot snapshot, long[] values) {
+        values[TIMESTAMP] = snapshot.timestamp();
+        values[CPU] = centiPercent(snapshot.cpuUsage());
+        values[MEM_TOTAL] = snapshot.totalMemory();
+        values[MEM_AVAILABLE] = snapshot.availableMemory();
+        values[SWAP_TOTAL] = snapshot.swapTotal();
+        values[SWAP_FREE] = snapshot.swapFree();
+        values[DISK_TOTAL] = snapshot.totalDiskSpace();
+        values[DISK_FREE] = snapshot.freeDiskSpace();
+        values[NET_RX] = snapshot.networkBytesReceived();
+        values[NET_TX] = snapshot.networkBytesTransmitted();
+        values[PROCESSES] = snapshot.processCount();
+        values[UPTIME] = snapshot.uptime();
+        values[CORES] = snapshot.coreCount();
+        for (int core = 0; core < snapshot.coreCount(); core++) {
+            values[CORE_BASE + core] = centiPercent(snapshot.coreUsage(core));
+        }
+    }
+
+    static long centiPercent(double percent) {
+        return Math.round(percent * 100);
+    }
+
+    static double percent(long centiPercent) {
+        return centiPercent / 100.0;
+    }
+
+    // Worst-case encoded size of a sample frame with the given number of fields
+    static int maxSampleFrame(int fields) {
+        return 5 + 10 * (fields + 1);
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.put((byte) zigzag);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void putString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 255);
+        out.put((byte) length).put(bytes, 0, length);
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.get() & 0xFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package systemdashboard;
+
+import java.util.Objects;
+
+/**
+ * Host properties that practically never change: OS, hostname, primary addresses and whether a
+ * battery is present. Collected once at startup and re-checked on a slow cadence.
+ */
+public final class HostFacts {
+    private final String osName;
+    private final String osVersion;
+    private final String osArch;
+    private final String hostname;
+    private final String ipAddress;
+    private final String macAddress;
+    private final boolean battery;
+
+    public HostFacts(String osName, String osVersion, String osArch, String hostname,
+                     String ipAddress, String macAddress, boolean battery) {
+        this.osName = osName;
+        this.osVersion = osVersion;
+        this.osArch = osArch;
+        this.hostname = hostname;
+        this.ipAddress = ipAddress;
+        this.macAddress = macAddress;
+        this.battery = battery;
+    }
+
+    public String getOsName() {
+        return osName;
+    }
+
+    public String getOsVersion() {
+        return osVersion;
+    }
+
+    public String getOsArch() {
+        return osArch;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    public boolean hasBattery() {
+        return battery;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HostFacts)) {
+            return false;
+        }
+        HostFacts other = (HostFacts) o;
+        return battery == other.battery
+            && Objects.equals(osName, other.osName)
+            && Objects.equals(osVersion, other.osVersion)
+            && Objects.equals(osArch, other.osArch)
+            && Objects.equals(hostname, other.hostname)
+            && Objects.equals(ipAddress, other.ipAddress)
+            && Objects.equals(macAddress, other.macAddress);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(osName, osVersion, osArch, hostname, ipAddress, macAddress, battery);
+    }
+}
@@ -0,0 +1,313 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Java port of cgroup.c: the cgroup v2 group of this process with its memory and CPU limits,
+ * CPU throttling from cpu.stat, and pressure stall information for the group and the host.
+ *
+ * The control files stay open and are re-read through the shared {@link ProcReader}. Finding the
+ * group and the levels that set its limits uses the ordinary allocating file APIs, but only runs
+ * once a minute.
+ */
+final class JavaCgroupSampler {
+    private static final long REDETECT_NANOS = 60_000_000_000L;
+    private static final String[] PRESSURE_NAMES = {"cpu", "memory", "io"};
+
+    private static final byte[] SOME = JavaMetricSource.ascii("some avg10=");
+    private static final byte[] FULL = JavaMetricSource.ascii("full avg10=");
+    private static final byte[] TOTAL = JavaMetricSource.ascii("total=");
+    private static final byte[] USAGE_USEC = JavaMetricSource.ascii("usage_usec ");
+    private static final byte[] NR_PERIODS = JavaMetricSource.ascii("nr_periods ");
+    private static final byte[] NR_THROTTLED = JavaMetricSource.ascii("nr_throttled ");
+    private static final byte[] THROTTLED_USEC = JavaMetricSource.ascii("throttled_usec ");
+
+    private final ProcReader reader;
+    private final ProcReader.ProcFile[] hostPressure = {
+        new ProcReader.ProcFile("pressure/cpu"), new ProcReader.ProcFile("pressure/memory"), new ProcReader.ProcFile("pressure/io")
+    };
+
+    // Absolute paths, null until the group is found
+    private Path mountPoint;
+    private Path dir;
+    private ProcReader.ProcFile memoryCurrent;
+    private ProcReader.ProcFile memoryMax;
+    private Path memoryCurrentPath;
+    private Path cpuStatPath;
+    private ProcReader.ProcFile cpuMax;
+    private ProcReader.ProcFile cpuStat;
+    private final ProcReader.ProcFile[] pressure = new ProcReader.ProcFile[SystemSnapshot.PSI_RESOURCES];
+    private boolean detected;
+    private long detectedNanos;
+
+    private long prevUsageMicros;
+    private long prevPeriods;
+    private long prevThrottled;
+    private long lastSampleNanos;
+    private boolean primed;
+
+    JavaCgroupSampler(ProcReader reader) {
+        this.reader = reader;
+    }
+
+    /** Forgets the group, e.g. after the proc root moved. */
+    void reset() {
+        closeFiles();
+        dir = null;
+        detected = false;
+        primed = false;
+    }
+
+    /** Fills the cgroup and pressure slots of the {@link SystemSnapshot} layout. */
+    void sample(long[] slots) {
+        long now = System.nanoTime();
+        for (int r = 0; r < SystemSnapshot.PSI_RESOURCES; r++) {
+            readPressure(hostPressure[r], slots, SystemSnapshot.HOST_PRESSURE + r * SystemSnapshot.PRESSURE_SLOTS);
+        }
+        if (!detected || now - detectedNanos >= REDETECT_NANOS) {
+            detect(now);
+        }
+
+        slots[SystemSnapshot.CGROUP_PRESENT] = dir != null ? 1 : 0;
+        slots[SystemSnapshot.CGROUP_MEMORY_CURRENT] = -1;
+        slots[SystemSnapshot.CGROUP_MEMORY_MAX] = -1;
+        slots[SystemSnapshot.CGROUP_CPU_QUOTA] = -1;
+        slots[SystemSnapshot.CGROUP_CPU_PERIOD] = 0;
+        slots[SystemSnapshot.CGROUP_CPU_USAGE] = Double.doubleToRawLongBits(0);
+        slots[SystemSnapshot.CGROUP_PERIODS] = 0;
+        slots[SystemSnapshot.CGROUP_THROTTLED_PERIODS] = 0;
+        slots[SystemSnapshot.CGROUP_THROTTLED_USEC] = 0;
+        slots[SystemSnapshot.CGROUP_THROTTLED] = Double.doubleToRawLongBits(0);
+        if (dir == null) {
+            for (int r = 0; r < SystemSnapshot.PSI_RESOURCES; r++) {
+                clearPressure(slots, SystemSnapshot.CGROUP_PRESSURE + r * SystemSnapshot.PRESSURE_SLOTS);
+            }
+            return;
+        }
+
+        slots[SystemSnapshot.CGROUP_MEMORY_CURRENT] = readValue(memoryCurrent);
+        slots[SystemSnapshot.CGROUP_MEMORY_MAX] = readValue(memoryMax);
+
+        // "quota period" or "max period"
+        if (reader.read(cpuMax)) {
+            if (isDigit(reader.byteAt(reader.position()))) {
+                slots[SystemSnapshot.CGROUP_CPU_QUOTA] = reader.parseLong();
+            } else {
+                reader.skipField();
+            }
+            slots[SystemSnapshot.CGROUP_CPU_PERIOD] = reader.parseLong();
+        }
+
+        long usageMicros = 0;
+        long periods = 0;
+        long throttled = 0;
+        if (reader.read(cpuStat)) {
+            while (reader.hasRemaining()) {
+                if (reader.startsWith(USAGE_USEC)) {
+                    usageMicros = parseAfter(USAGE_USEC);
+                } else if (reader.startsWith(NR_PERIODS)) {
+                    periods = parseAfter(NR_PERIODS);
+                } else if (reader.startsWith(NR_THROTTLED)) {
+                    throttled = parseAfter(NR_THROTTLED);
+                } else if (reader.startsWith(THROTTLED_USEC)) {
+                    slots[SystemSnapshot.CGROUP_THROTTLED_USEC] = parseAfter(THROTTLED_USEC);
+                }
+                reader.nextLine();
+            }
+        }
+        slots[SystemSnapshot.CGROUP_PERIODS] = periods;
+        slots[SystemSnapshot.CGROUP_THROTTLED_PERIODS] = throttled;
+        double elapsedMicros = primed ? (now - lastSampleNanos) / 1e3 : 0;
+        if (elapsedMicros > 0 && usageMicros >= prevUsageMicros) {
+            slots[SystemSnapshot.CGROUP_CPU_USAGE] = Double.doubleToRawLongBits((usageMicros - prevUsageMicros) * 100.0 / elapsedMicros);
+        }
+        if (primed && periods > prevPeriods && throttled >= prevThrottled) {
+            slots[SystemSnapshot.CGROUP_THROTTLED] = Double.doubleToRawLongBits((throttled - prevThrottled) * 100.0 / (periods - prevPeriods));
+        }
+        prevUsageMicros = usageMicros;
+        prevPeriods = periods;
+        prevThrottled = throttled;
+        lastSampleNanos = now;
+        primed = true;
+
+        for (int r = 0; r < SystemSnapshot.PSI_RESOURCES; r++) {
+            readPressure(pressure[r], slots, SystemSnapshot.CGROUP_PRESSURE + r * SystemSnapshot.PRESSURE_SLOTS);
+        }
+    }
+
+    // A number, or -1 for "max" and missing files
+    private long readValue(ProcReader.ProcFile file) {
+        return reader.read(file) && isDigit(reader.byteAt(reader.position())) ? reader.parseLong() : -1;
+    }
+
+    private long parseAfter(byte[] key) {
+        reader.position(reader.position() + key.length);
+        return reader.parseLong();
+    }
+
+    // "some avg10=0.12 avg60=0.05 avg300=0.01 total=12345" and the same for "full"
+    private void readPressure(ProcReader.ProcFile file, long[] slots, int block) {
+        clearPressure(slots, block);
+        if (!reader.read(file)) {
+            return;
+        }
+        while (reader.hasRemaining()) {
+            boolean full = reader.startsWith(FULL);
+            if (full || reader.startsWith(SOME)) {
+                reader.position(reader.position() + SOME.length);
+                double avg10 = reader.parseDecimal();
+                reader.skipField(); // avg60
+                reader.skipField(); // avg300
+                reader.skipSpaces();
+                if (reader.startsWith(TOTAL)) {
+                    long total = parseAfter(TOTAL);
+                    slots[block + (full ? SystemSnapshot.FULL_AVG10 : SystemSnapshot.SOME_AVG10)] = Double.doubleToRawLongBits(avg10);
+                    slots[block + (full ? SystemSnapshot.FULL_TOTAL : SystemSnapshot.SOME_TOTAL)] = total;
+                }
+            }
+            reader.nextLine();
+        }
+    }
+
+    private static void clearPressure(long[] slots, int block) {
+        slots[block + SystemSnapshot.SOME_AVG10] = Double.doubleToRawLongBits(0);
+        slots[block + SystemSnapshot.FULL_AVG10] = Double.doubleToRawLongBits(0);
+        slots[block + SystemSnapshot.SOME_TOTAL] = -1;
+        slots[block + SystemSnapshot.FULL_TOTAL] = 0;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private void detect(long now) {
+        detected = true;
+        detectedNanos = now;
+        Path found = findGroup();
+        if (found == null) {
+            reset();
+            detected = true;
+            return;
+        }
+        if (!found.equals(dir)) {
+            // Another group's counters are no baseline for this one
+            closeFiles();
+            dir = found;
+            primed = false;
+            memoryCurrent = null;
+            memoryCurrentPath = null;
+            cpuStat = null;
+            cpuStatPath = null;
+            for (int r = 0; r < SystemSnapshot.PSI_RESOURCES; r++) {
+                pressure[r] = new ProcReader.ProcFile(dir.resolve(PRESSURE_NAMES[r] + ".pressure").toString());
+            }
+        }
+        // A limit may have moved to another level since the last detection
+        if (memoryMax != null) {
+            memoryMax.close();
+            cpuMax.close();
+        }
+        Path memoryLimit = findLimit("memory.max", false);
+        Path cpuLimit = findLimit("cpu.max", true);
+        memoryMax = new ProcReader.ProcFile(memoryLimit.toString());
+        cpuMax = new ProcReader.ProcFile(cpuLimit.toString());
+
+        // Usage comes from the group that supplied the limit, so both describe the same group
+        Path current = memoryLimit.resolveSibling("memory.current");
+        if (!current.equals(memoryCurrentPath)) {
+            if (memoryCurrent != null) {
+                memoryCurrent.close();
+            }
+            memoryCurrentPath = current;
+            memoryCurrent = new ProcReader.ProcFile(current.toString());
+        }
+        Path stat = cpuLimit.resolveSibling("cpu.stat");
+        if (!stat.equals(cpuStatPath)) {
+            if (cpuStat != null) {
+                cpuStat.close();
+            }
+            cpuStatPath = stat;
+            cpuStat = new ProcReader.ProcFile(stat.toString());
+            primed = false; // Another group's counters are no baseline
+        }
+    }
+
+    // The "0::/path" line of /proc/self/cgroup, joined to the cgroup2 mount from /proc/self/mountinfo
+    private Path findGroup() {
+        try {
+            String group = null;
+            for (String line : Files.readAllLines(reader.root().resolve("self/cgroup"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("0::")) {
+                    group = line.substring(3);
+                }
+            }
+            if (group == null) {
+                return null;
+            }
+            List<String> mounts = Files.readAllLines(reader.root().resolve("self/mountinfo"), StandardCharsets.UTF_8);
+            for (String line : mounts) {
+                int separator = line.indexOf(" - ");
+                if (separator < 0 || !line.startsWith("cgroup2 ", separator + 3)) {
+                    continue;
+                }
+                // mount id, parent id, major:minor, root, mount point
+                String[] fields = line.substring(0, separator).split(" ");
+                if (fields.length < 5) {
+                    return null;
+                }
+                String root = fields[3];
+                String relative = !root.equals("/") && group.startsWith(root) ? group.substring(root.length()) : group;
+                mountPoint = Path.of(fields[4]);
+                Path found = Path.of(fields[4] + (relative.equals("/") ? "" : relative));
+                return Files.isReadable(found) ? found : null;
+            }
+        } catch (IOException | InvalidPathException e) {
+            // No cgroup v2 hierarchy here, or not one we can see
+        }
+        return null;
+    }
+
+    // name in the level from the group up to the mount point with the tightest limit, like find_limit
+    private Path findLimit(String name, boolean hasPeriod) {
+        Path best = dir.resolve(name);
+        long bestLimit = -1;
+        long bestPeriod = 1;
+        for (Path level = dir; level != null && level.startsWith(mountPoint); level = level.getParent()) {
+            try {
+                String[] fields = Files.readString(level.resolve(name), StandardCharsets.UTF_8).trim().split(" ");
+                if (fields[0].isEmpty() || !isDigit((byte) fields[0].charAt(0))) {
+                    continue; // "max"
+                }
+                long limit = Long.parseLong(fields[0]);
+                long period = hasPeriod && fields.length > 1 ? Math.max(1, Long.parseLong(fields[1])) : 1;
+                // limit / period < bestLimit / bestPeriod, without dividing
+                if (bestLimit < 0 || limit * bestPeriod < bestLimit * period) {
+                    bestLimit = limit;
+                    bestPeriod = period;
+                    best = level.resolve(name);
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not set at this level, e.g. the root group
+            }
+        }
+        return best;
+    }
+
+    private void closeFiles() {
+        for (ProcReader.ProcFile file : new ProcReader.ProcFile[] {memoryCurrent, memoryMax, cpuMax, cpuStat}) {
+            if (file != null) {
+                file.close();
+            }
+        }
+        for (ProcReader.ProcFile file : pressure) {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Java port of devices.c: per-interface and per-disk counters from /proc/net/dev and
+ * /proc/diskstats, matched by name against the previous tick, and the capacity of every local mount.
+ *
+ * Counters and names live in primitive arrays that swap every tick like the native tables.
+ * Mount capacity goes through {@link FileStore}, which allocates, but only runs on the disk cadence.
+ */
+final class JavaDeviceSampler {
+    private static final int NAME_LENGTH = 64;
+    private static final int HEADER_LENGTH = 3;
+    private static final int INTERFACE_SLOTS = 8;
+    private static final int MOUNT_SLOTS = 3;
+    private static final int DISK_SLOTS = 5;
+    private static final int SECTOR_BYTES = 512;
+
+    // Per-interface counters: rx bytes, packets, drops, tx bytes, packets, drops
+    private static final int NET_FIELDS = 6;
+    // Per-disk counters: reads, writes, sectors read, sectors written, io_ms
+    private static final int DISK_FIELDS = 5;
+    // Network filesystems and automount points, whose capacity query can block on the server; as in devices.c
+    private static final byte[][] REMOTE_FSTYPES = {
+        JavaMetricSource.ascii("nfs"), JavaMetricSource.ascii("nfs4"), JavaMetricSource.ascii("cifs"),
+        JavaMetricSource.ascii("smb3"), JavaMetricSource.ascii("smbfs"), JavaMetricSource.ascii("ncpfs"),
+        JavaMetricSource.ascii("afs"), JavaMetricSource.ascii("ceph"), JavaMetricSource.ascii("glusterfs"),
+        JavaMetricSource.ascii("lustre"), JavaMetricSource.ascii("9p"), JavaMetricSource.ascii("autofs"),
+        JavaMetricSource.ascii("fuse.sshfs"), JavaMetricSource.ascii("fuse.glusterfs"),
+        JavaMetricSource.ascii("fuse.s3fs"), JavaMetricSource.ascii("fuse.rclone"), JavaMetricSource.ascii("davfs"),
+    };
+
+    private final ProcReader reader;
+    private final ProcReader.ProcFile netDev = new ProcReader.ProcFile("net/dev");
+    private final ProcReader.ProcFile diskstats = new ProcReader.ProcFile("diskstats");
+    private final ProcReader.ProcFile mountsFile = new ProcReader.ProcFile("self/mounts");
+
+    private final Counters[] net = {new Counters(NET_FIELDS), new Counters(NET_FIELDS)};
+    private final Counters[] disks = {new Counters(DISK_FIELDS), new Counters(DISK_FIELDS)};
+    private final Counters mounts = new Counters(MOUNT_SLOTS);
+    private int current;
+    private long lastSampleNanos;
+
+    JavaDeviceSampler(ProcReader reader) {
+        this.reader = reader;
+    }
+
+    /** Same contract as {@link MetricSource#collectDevices}. */
+    int collect(long[] out, byte[] names, boolean refreshMounts) {
+        int next = current ^ 1;
+        parseNetDev(net[next]);
+        parseDiskstats(disks[next]);
+        if (refreshMounts) {
+            parseMounts();
+        }
+
+        int length = HEADER_LENGTH + net[next].count * INTERFACE_SLOTS + mounts.count * MOUNT_SLOTS
+            + disks[next].count * DISK_SLOTS;
+        int entries = net[next].count + mounts.count + disks[next].count;
+        if (out.length < length || names.length < entries * NAME_LENGTH) {
+            if (out.length >= HEADER_LENGTH) {
+                out[0] = net[next].count;
+                out[1] = mounts.count;
+                out[2] = disks[next].count;
+            }
+            return -length;
+        }
+        return write(next, out, names);
+    }
+
+    // Every interface except loopback; header lines have no colon
+    private void parseNetDev(Counters table) {
+        table.count = 0;
+        if (!reader.read(netDev)) {
+            return;
+        }
+        while (reader.hasRemaining()) {
+            int colon = reader.indexInLine((byte) ':');
+            if (colon >= 0) {
+                table.reserve(table.count + 1);
+                int i = table.count;
+                int length = reader.copyToken(table.names, i * NAME_LENGTH, NAME_LENGTH);
+                boolean loopback = length == 2 && table.names[i * NAME_LENGTH] == 'l' && table.names[i * NAME_LENGTH + 1] == 'o';
+                if (!loopback) {
+                    // rx: bytes packets errs drop fifo frame compressed multicast, tx: bytes packets errs drop ...
+                    reader.position(colon + 1);
+                    long[] v = table.values;
+                    int base = i * NET_FIELDS;
+                    v[base] = reader.parseLong();
+                    v[base + 1] = reader.parseLong();
+                    reader.parseLong();
+                    v[base + 2] = reader.parseLong();
+                    for (int skip = 0; skip < 4; skip++) {
+                        reader.parseLong();
+                    }
+                    v[base + 3] = reader.parseLong();
+                    v[base + 4] = reader.parseLong();
+                    reader.parseLong();
+                    v[base + 5] = reader.parseLong();
+                    table.count++;
+                }
+            }
+            reader.nextLine();
+        }
+    }
+
+    // Block devices with any activity, skipping the idle loop and ram devices every host has
+    private void parseDiskstats(Counters table) {
+        table.count = 0;
+        if (!reader.read(diskstats)) {
+            return; // Missing in some containers
+        }
+        while (reader.hasRemaining()) {
+            table.reserve(table.count + 1);
+            int i = table.count;
+            // major minor name, then reads merged sectors ms, writes merged sectors ms, in-flight, io_ms
+            reader.parseLong();
+            reader.parseLong();
+            int length = reader.copyToken(table.names, i * NAME_LENGTH, NAME_LENGTH);
+            long[] v = table.values;
+            int base = i * DISK_FIELDS;
+            v[base] = reader.parseLong();
+            reader.parseLong();
+            v[base + 2] = reader.parseLong();
+            reader.parseLong();
+            v[base + 1] = reader.parseLong();
+            reader.parseLong();
+            v[base + 3] = reader.parseLong();
+            reader.parseLong();
+            reader.parseLong();
+            v[base + 4] = reader.parseLong();
+            reader.nextLine();
+
+            boolean idle = v[base] == 0 && v[base + 1] == 0;
+            if (length > 0 && !(idle && (table.startsWith(i, "loop") || table.startsWith(i, "ram")))) {
+                table.count++;
+            }
+        }
+    }
+
+    // Every mounted filesystem with real capacity; pseudo filesystems report zero size
+    private void parseMounts() {
+        mounts.count = 0;
+        if (!reader.read(mountsFile)) {
+            return;
+        }
+        byte[] path = new byte[256];
+        while (reader.hasRemaining()) {
+            // device mountpoint fstype options dump pass
+            reader.skipField();
+            reader.skipSpaces();
+            int start = reader.position();
+            reader.skipField();
+            int end = reader.position();
+            reader.skipSpaces();
+            int typeStart = reader.position();
+            reader.skipField();
+            boolean remote = isRemote(typeStart, reader.position());
+            reader.nextLine();
+            if (remote) {
+                continue;
+            }
+
+            if (path.length < end - start) {
+                path = new byte[end - start];
+            }
+            String mountPoint = unescape(start, end, path);
+            long total;
+            long free;
+            long available;
+            try {
+                FileStore store = Files.getFileStore(Path.of(mountPoint));
+                total = store.getTotalSpace();
+                free = store.getUnallocatedSpace();
+                available = store.getUsableSpace();
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                continue;
+            }
+            if (total == 0) {
+                continue;
+            }
+
+            // Bind mounts and overlays can list the same mountpoint twice, keep the last
+            byte[] name = mountPoint.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, NAME_LENGTH - 1);
+            int index = mounts.count;
+            for (int i = 0; i < mounts.count; i++) {
+                if (mounts.nameEquals(i, name, length)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == mounts.count) {
+                mounts.reserve(mounts.count + 1);
+                mounts.count++;
+            }
+            Arrays.fill(mounts.names, index * NAME_LENGTH, (index + 1) * NAME_LENGTH, (byte) 0);
+            System.arraycopy(name, 0, mounts.names, index * NAME_LENGTH, length);
+            mounts.values[index * MOUNT_SLOTS] = total;
+            mounts.values[index * MOUNT_SLOTS + 1] = free;
+            mounts.values[index * MOUNT_SLOTS + 2] = available;
+        }
+    }
+
+    private boolean isRemote(int start, int end) {
+        for (byte[] type : REMOTE_FSTYPES) {
+            if (type.length != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < type.length && reader.byteAt(start + i) == type[i]) {
+                i++;
+            }
+            if (i == type.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Undoes the octal escapes (\040 for space) /proc/self/mounts uses in paths
+    private String unescape(int start, int end, byte[] path) {
+        int n = 0;
+        for (int p = start; p < end; p++) {
+            byte b = reader.byteAt(p);
+            if (b == '\\' && p + 3 < end && reader.byteAt(p + 1) >= '0' && reader.byteAt(p + 1) <= '7') {
+                path[n++] = (byte) ((reader.byteAt(p + 1) - '0') * 64 + (reader.byteAt(p + 2) - '0') * 8 + (reader.byteAt(p + 3) - '0'));
+                p += 3;
+            } else {
+                path[n++] = b;
+            }
+        }
+        return new String(path, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private int write(int next, long[] out, byte[] names) {
+        int prev = current;
+        long now = System.nanoTime();
+        double elapsed = lastSampleNanos != 0 ? (now - lastSampleNanos) / 1e9 : 0.0;
+
+        Counters cur = net[next];
+        Counters last = net[prev];
+        out[0] = cur.count;
+        out[1] = mounts.count;
+        out[2] = disks[next].count;
+        int slot = HEADER_LENGTH;
+        int name = 0;
+
+        for (int i = 0; i < cur.count; i++) {
+            int p = last.indexOf(cur, i);
+            out[slot] = cur.values[i * NET_FIELDS];
+            out[slot + 1] = cur.values[i * NET_FIELDS + 3];
+            out[slot + 2] = rateBits(cur, i, last, p, 0, elapsed);
+            out[slot + 3] = rateBits(cur, i, last, p, 3, elapsed);
+            out[slot + 4] = rateBits(cur, i, last, p, 1, elapsed);
+            out[slot + 5] = rateBits(cur, i, last, p, 4, elapsed);
+            out[slot + 6] = rateBits(cur, i, last, p, 2, elapsed);
+            out[slot + 7] = rateBits(cur, i, last, p, 5, elapsed);
+            System.arraycopy(cur.names, i * NAME_LENGTH, names, name, NAME_LENGTH);
+            slot += INTERFACE_SLOTS;
+            name += NAME_LENGTH;
+        }
+
+        for (int i = 0; i < mounts.count; i++) {
+            System.arraycopy(mounts.values, i * MOUNT_SLOTS, out, slot, MOUNT_SLOTS);
+            System.arraycopy(mounts.names, i * NAME_LENGTH, names, name, NAME_LENGTH);
+            slot += MOUNT_SLOTS;
+            name += NAME_LENGTH;
+        }
+
+        cur = disks[next];
+        last = disks[prev];
+        for (int i = 0; i < cur.count; i++) {
+            int p = last.indexOf(cur, i);
+            out[slot] = rateBits(cur, i, last, p, 0, elapsed);
+            out[slot + 1] = rateBits(cur, i, last, p, 1, elapsed);
+            out[slot + 2] = Double.doubleToRawLongBits(rate(cur, i, last, p, 2, elapsed) * SECTOR_BYTES);
+            out[slot + 3] = Double.doubleToRawLongBits(rate(cur, i, last, p, 3, elapsed) * SECTOR_BYTES);
+            // io_ms counts milliseconds with I/O in flight, so ms per second / 10 is percent busy
+            double busy = rate(cur, i, last, p, 4, elapsed) / 10.0;
+            out[slot + 4] = Double.doubleToRawLongBits(Math.min(busy, 100.0));
+            System.arraycopy(cur.names, i * NAME_LENGTH, names, name, NAME_LENGTH);
+            slot += DISK_SLOTS;
+            name += NAME_LENGTH;
+        }
+
+        current = next;
+        lastSampleNanos = now;
+        return slot;
+    }
+
+    // Per-second rate of a counter, zero without a baseline or when it went backwards (reset)
+    private static double rate(Counters cur, int i, Counters prev, int p, int field, double elapsed) {
+        if (p < 0 || elapsed <= 0) {
+            return 0.0;
+        }
+        long now = cur.values[i * cur.fields + field];
+        long before = prev.values[p * prev.fields + field];
+        return now < before ? 0.0 : (now - before) / elapsed;
+    }
+
+    private static long rateBits(Counters cur, int i, Counters prev, int p, int field, double elapsed) {
+        return Double.doubleToRawLongBits(rate(cur, i, prev, p, field, elapsed));
+    }
+
+    /** Named rows of counters, {@code fields} longs and a zero-padded name per row. */
+    private static final class Counters {
+        final int fields;
+        int count;
+        long[] values;
+        byte[] names;
+
+        Counters(int fields) {
+            this.fields = fields;
+            this.values = new long[16 * fields];
+            this.names = new byte[16 * NAME_LENGTH];
+        }
+
+        void reserve(int rows) {
+            if (rows * fields > values.length) {
+                int capacity = Math.max(rows, values.length / fields * 2);
+                values = Arrays.copyOf(values, capacity * fields);
+                names = Arrays.copyOf(names, capacity * NAME_LENGTH);
+            }
+        }
+
+        /** Row of this table with the same name as {@code other}'s row {@code i}, or -1. */
+        int indexOf(Counters other, int i) {
+            int from = i * NAME_LENGTH;
+            for (int row = 0; row < count; row++) {
+                if (Arrays.equals(names, row * NAME_LENGTH, (row + 1) * NAME_LENGTH,
+                        other.names, from, from + NAME_LENGTH)) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        boolean startsWith(int row, String prefix) {
+            for (int i = 0; i < prefix.length(); i++) {
+                if (names[row * NAME_LENGTH + i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean nameEquals(int row, byte[] name, int length) {
+            return names[row * NAME_LENGTH + length] == 0
+                && Arrays.equals(names, row * NAME_LENGTH, row * NAME_LENGTH + length, name, 0, length);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package systemdashboard;
+
+import java.util.Arrays;
+
+/**
+ * Java port of memstat.c: the /proc/meminfo breakdown and paging rates from /proc/vmstat.
+ *
+ * Both files stay open and are read once per sample through the shared {@link ProcReader}; keys
+ * are matched as bytes in place, so a sample allocates nothing.
+ */
+final class JavaMemorySampler {
+    private static final byte[][] MEMINFO_KEYS = {
+        JavaMetricSource.ascii("MemTotal:"), JavaMetricSource.ascii("MemFree:"), JavaMetricSource.ascii("MemAvailable:"),
+        JavaMetricSource.ascii("Cached:"), JavaMetricSource.ascii("Buffers:"), JavaMetricSource.ascii("Dirty:"),
+        JavaMetricSource.ascii("Slab:"), JavaMetricSource.ascii("SwapTotal:"), JavaMetricSource.ascii("SwapFree:"),
+        JavaMetricSource.ascii("HugePages_Total:"), JavaMetricSource.ascii("HugePages_Free:"),
+        JavaMetricSource.ascii("Hugepagesize:")
+    };
+    private static final int[] MEMINFO_SLOTS = {
+        SystemSnapshot.MEM_TOTAL, SystemSnapshot.MEM_FREE, SystemSnapshot.MEM_AVAILABLE,
+        SystemSnapshot.MEM_CACHED, SystemSnapshot.MEM_BUFFERS, SystemSnapshot.MEM_DIRTY,
+        SystemSnapshot.MEM_SLAB, SystemSnapshot.SWAP_TOTAL, SystemSnapshot.SWAP_FREE,
+        SystemSnapshot.HUGE_PAGES_TOTAL, SystemSnapshot.HUGE_PAGES_FREE,
+        SystemSnapshot.HUGE_PAGE_SIZE
+    };
+    // The key and its separating space, so "pgfault " does not match "pgfault_..."
+    private static final byte[][] VMSTAT_KEYS = {
+        JavaMetricSource.ascii("pgfault "), JavaMetricSource.ascii("pgmajfault "),
+        JavaMetricSource.ascii("pswpin "), JavaMetricSource.ascii("pswpout ")
+    };
+    private static final int[] VMSTAT_SLOTS = {
+        SystemSnapshot.PAGE_FAULTS, SystemSnapshot.MAJOR_FAULTS, SystemSnapshot.SWAP_IN, SystemSnapshot.SWAP_OUT
+    };
+    private static final byte[] KB = {'k', 'B'};
+
+    private final ProcReader reader;
+    private final ProcReader.ProcFile meminfo = new ProcReader.ProcFile("meminfo");
+    private final ProcReader.ProcFile vmstat = new ProcReader.ProcFile("vmstat");
+
+    private final long[] counters = new long[VMSTAT_KEYS.length];
+    private final long[] prev = new long[VMSTAT_KEYS.length];
+    private long lastSampleNanos;
+    private boolean primed;
+
+    JavaMemorySampler(ProcReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Fills the memory slots of the {@link SystemSnapshot} layout. Returns false and leaves them
+     * untouched if /proc/meminfo is unreadable.
+     */
+    boolean sample(long[] slots) {
+        if (!reader.read(meminfo)) {
+            return false;
+        }
+        for (int slot : MEMINFO_SLOTS) {
+            slots[slot] = 0;
+        }
+        while (reader.hasRemaining()) {
+            for (int i = 0; i < MEMINFO_KEYS.length; i++) {
+                if (reader.startsWith(MEMINFO_KEYS[i])) {
+                    reader.position(reader.position() + MEMINFO_KEYS[i].length);
+                    long value = reader.parseLong();
+                    reader.skipSpaces();
+                    slots[MEMINFO_SLOTS[i]] = reader.startsWith(KB) ? value * 1024 : value;
+                    break;
+                }
+            }
+            reader.nextLine();
+        }
+        // Kernels before 3.14 have no MemAvailable; page cache and buffers are the bulk of what it adds
+        if (slots[SystemSnapshot.MEM_AVAILABLE] == 0) {
+            slots[SystemSnapshot.MEM_AVAILABLE] = slots[SystemSnapshot.MEM_FREE]
+                + slots[SystemSnapshot.MEM_CACHED] + slots[SystemSnapshot.MEM_BUFFERS];
+        }
+
+        long now = System.nanoTime();
+        for (int slot : VMSTAT_SLOTS) {
+            slots[slot] = Double.doubleToRawLongBits(0);
+        }
+        if (!reader.read(vmstat)) {
+            primed = false;
+            return true;
+        }
+        Arrays.fill(counters, 0);
+        while (reader.hasRemaining()) {
+            for (int i = 0; i < VMSTAT_KEYS.length; i++) {
+                if (reader.startsWith(VMSTAT_KEYS[i])) {
+                    reader.position(reader.position() + VMSTAT_KEYS[i].length);
+                    counters[i] = reader.parseLong();
+                    break;
+                }
+            }
+            reader.nextLine();
+        }
+        double seconds = primed ? (now - lastSampleNanos) / 1e9 : 0;
+        for (int i = 0; i < counters.length; i++) {
+            if (seconds > 0 && counters[i] >= prev[i]) {
+                slots[VMSTAT_SLOTS[i]] = Double.doubleToRawLongBits((counters[i] - prev[i]) / seconds);
+            }
+            prev[i] = counters[i];
+        }
+        lastSampleNanos = now;
+        primed = true;
+        return true;
+    }
+}
@@ -0,0 +1,366 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+
+/**
+ * {@link MetricSource} that reads /proc from Java, for hosts where libsysteminfo is missing or
+ * was built for another JDK.
+ *
+ * /proc/stat, /proc/net/dev and /proc/uptime stay open as {@code FileChannel}s and are re-read
+ * into one direct buffer that {@link ProcReader} scans byte by byte, so a snapshot allocates
+ * nothing in steady state. The one exception is the process count, which lists /proc; see
+ * {@link #countProcesses}. It produces the same layouts and rates as the native collector; see
+ * {@link JavaMemorySampler}, {@link JavaProcessSampler}, {@link JavaDeviceSampler} and
+ * {@link JavaCgroupSampler} for the rest.
+ */
+final class JavaMetricSource implements MetricSource {
+    private static final Path DEFAULT_ROOT = Path.of("/proc");
+    private static final Path BATTERY_PATH = Path.of("/sys/class/power_supply/BAT0");
+
+    // Columns of a "cpu" line in /proc/stat
+    private static final int CPU_FIELDS = 8;
+    private static final int USER = 0, NICE = 1, SYSTEM = 2, IDLE = 3, IOWAIT = 4, IRQ = 5, SOFTIRQ = 6, STEAL = 7;
+
+    private static final byte[] CPU = {'c', 'p', 'u'};
+    private static final byte[] CHARGING = ascii("Charging");
+
+    private final ProcReader reader = new ProcReader(DEFAULT_ROOT);
+    private final ProcReader.ProcFile stat = new ProcReader.ProcFile("stat");
+    private final ProcReader.ProcFile netDev = new ProcReader.ProcFile("net/dev");
+    private final ProcReader.ProcFile uptime = new ProcReader.ProcFile("uptime");
+    private final ProcReader batteryReader = new ProcReader(BATTERY_PATH);
+    private final ProcReader.ProcFile batteryCapacity = new ProcReader.ProcFile("capacity");
+    private final ProcReader.ProcFile batteryStatus = new ProcReader.ProcFile("status");
+    private final JavaProcessSampler processes = new JavaProcessSampler(reader);
+    private final JavaDeviceSampler devices = new JavaDeviceSampler(reader);
+    private final JavaCgroupSampler cgroup = new JavaCgroupSampler(reader);
+    private final JavaMemorySampler memory = new JavaMemorySampler(reader);
+    private FileStore rootStore;
+
+    // CPU counters of this and the previous tick, aggregate and per core
+    private final long[] total = new long[CPU_FIELDS];
+    private final long[] prevTotal = new long[CPU_FIELDS];
+    private long[] cores = new long[8 * CPU_FIELDS];
+    private long[] prevCores = new long[8 * CPU_FIELDS];
+    private int coreCount;
+    private int prevCoreCount;
+    private boolean primed;
+    private final double[] usage = new double[6];
+
+    private long[] slots = new long[SystemSnapshot.HEADER_LENGTH];
+
+    @Override
+    public String name() {
+        return JAVA;
+    }
+
+    /** Reads every /proc file of this instance from {@code root} instead, e.g. a generated tree in the benchmarks. */
+    void setProcRoot(String root) {
+        reader.setRoot(Path.of(root));
+        cgroup.reset();
+    }
+
+    @Override
+    public int collectSnapshot(long[] out, int groups) {
+        if (!reader.read(stat)) {
+            return 0;
+        }
+        int online = parseCpu();
+
+        // Leave the CPU baseline untouched so the retry with a larger array still gets a full interval
+        int length = SystemSnapshot.HEADER_LENGTH + online;
+        if (out.length < length) {
+            return -length;
+        }
+        if (slots.length < length) {
+            slots = Arrays.copyOf(slots, length);
+        }
+
+        slots[SystemSnapshot.VERSION] = SystemSnapshot.LAYOUT_VERSION;
+        slots[SystemSnapshot.HEADER_SLOTS] = SystemSnapshot.HEADER_LENGTH;
+        slots[SystemSnapshot.TIMESTAMP] = System.currentTimeMillis();
+        slots[SystemSnapshot.CORE_COUNT] = online;
+        snapshotCpu();
+        commitCpu();
+
+        if (reader.read(uptime)) {
+            slots[SystemSnapshot.UPTIME] = reader.parseLong();
+        }
+        if ((groups & SystemSnapshot.GROUP_MEMORY) != 0) {
+            memory.sample(slots);
+        }
+        if ((groups & SystemSnapshot.GROUP_DISK) != 0) {
+            snapshotDisk();
+        }
+        if ((groups & SystemSnapshot.GROUP_NETWORK) != 0 && reader.read(netDev)) {
+            parseNetDevTotals();
+        }
+        if ((groups & SystemSnapshot.GROUP_PROCESS_COUNT) != 0) {
+            slots[SystemSnapshot.PROCESS_COUNT] = countProcesses();
+        }
+        if ((groups & SystemSnapshot.GROUP_BATTERY) != 0) {
+            snapshotBattery();
+        }
+        if ((groups & SystemSnapshot.GROUP_CGROUP) != 0) {
+            cgroup.sample(slots);
+        }
+
+        System.arraycopy(slots, 0, out, 0, length);
+        return length;
+    }
+
+    @Override
+    public int collectProcesses(int topN, long[] out, byte[] names) {
+        return processes.collect(topN, out, names);
+    }
+
+    @Override
+    public int collectProcessTable(long[] out, byte[] names) {
+        return processes.collectTable(out, names);
+    }
+
+    @Override
+    public int collectDevices(long[] out, byte[] names, boolean mounts) {
+        return devices.collect(out, names, mounts);
+    }
+
+    @Override
+    public HostFacts readHostFacts() {
+        String arch = System.getProperty("os.arch");
+        return new HostFacts(System.getProperty("os.name"), System.getProperty("os.version"),
+            "amd64".equals(arch) ? "x86_64" : arch, // uname's name for it, as the native getter reports
+            hostname(), ipAddress(), macAddress(), Files.isDirectory(BATTERY_PATH));
+    }
+
+    // The aggregate and every cpuN line in one pass, returns the core count
+    private int parseCpu() {
+        int count = 0;
+        while (reader.startsWith(CPU)) {
+            reader.position(reader.position() + CPU.length);
+            if (reader.byteAt(reader.position()) == ' ') {
+                parseCpuTimes(total, 0);
+            } else {
+                int core = (int) reader.parseLong();
+                if ((core + 1) * CPU_FIELDS > cores.length) {
+                    int capacity = Math.max(cores.length * 2, (core + 1) * CPU_FIELDS);
+                    cores = Arrays.copyOf(cores, capacity);
+                    prevCores = Arrays.copyOf(prevCores, capacity);
+                }
+                // Cores can be offline, leave their slots zeroed
+                Arrays.fill(cores, count * CPU_FIELDS, core * CPU_FIELDS, 0);
+                parseCpuTimes(cores, core * CPU_FIELDS);
+                count = core + 1;
+            }
+            reader.nextLine();
+        }
+        coreCount = count;
+        return count;
+    }
+
+    private void parseCpuTimes(long[] times, int offset) {
+        for (int i = 0; i < CPU_FIELDS; i++) {
+            times[offset + i] = reader.parseLong();
+        }
+    }
+
+    private void snapshotCpu() {
+        usageBetween(total, 0, prevTotal, 0);
+        slots[SystemSnapshot.CPU_USAGE] = Double.doubleToRawLongBits(usage[0]);
+        slots[SystemSnapshot.CPU_USER] = Double.doubleToRawLongBits(usage[1]);
+        slots[SystemSnapshot.CPU_SYSTEM] = Double.doubleToRawLongBits(usage[2]);
+        slots[SystemSnapshot.CPU_IOWAIT] = Double.doubleToRawLongBits(usage[3]);
+        slots[SystemSnapshot.CPU_IRQ] = Double.doubleToRawLongBits(usage[4]);
+        slots[SystemSnapshot.CPU_STEAL] = Double.doubleToRawLongBits(usage[5]);
+
+        for (int i = 0; i < coreCount; i++) {
+            double busy = 0.0;
+            // Cores that just came online have no baseline yet
+            if (primed && i < prevCoreCount) {
+                usageBetween(cores, i * CPU_FIELDS, prevCores, i * CPU_FIELDS);
+                busy = usage[0];
+            }
+            slots[SystemSnapshot.HEADER_LENGTH + i] = Double.doubleToRawLongBits(busy);
+        }
+    }
+
+    // Makes the counters just parsed the baseline for the next delta
+    private void commitCpu() {
+        long[] swap = prevCores;
+        prevCores = cores;
+        cores = swap;
+        System.arraycopy(total, 0, prevTotal, 0, CPU_FIELDS);
+        prevCoreCount = coreCount;
+        primed = true;
+    }
+
+    // Fills usage with busy, user, system, iowait, irq and steal percentages, like cpu_usage_between
+    private void usageBetween(long[] cur, int c, long[] prev, int p) {
+        Arrays.fill(usage, 0.0);
+        long prevSum = 0;
+        for (int i = 0; i < CPU_FIELDS; i++) {
+            prevSum += prev[p + i];
+        }
+        if (prevSum == 0) {
+            return; // No baseline yet, e.g. a core that just came online
+        }
+        long user = delta(cur, c, prev, p, USER) + delta(cur, c, prev, p, NICE);
+        long system = delta(cur, c, prev, p, SYSTEM);
+        long idle = delta(cur, c, prev, p, IDLE);
+        long iowait = delta(cur, c, prev, p, IOWAIT);
+        long irq = delta(cur, c, prev, p, IRQ) + delta(cur, c, prev, p, SOFTIRQ);
+        long steal = delta(cur, c, prev, p, STEAL);
+        long total = user + system + idle + iowait + irq + steal;
+        if (total <= 0) {
+            return;
+        }
+        double scale = 100.0 / total;
+        usage[0] = 100.0 - (idle + iowait) * scale;
+        usage[1] = user * scale;
+        usage[2] = system * scale;
+        usage[3] = iowait * scale;
+        usage[4] = irq * scale;
+        usage[5] = steal * scale;
+    }
+
+    // Per-CPU counters such as iowait can go backwards (proc(5)), so each field's delta is clamped at 0
+    private static long delta(long[] cur, int c, long[] prev, int p, int field) {
+        return Math.max(0, cur[c + field] - prev[p + field]);
+    }
+
+    private void snapshotDisk() {
+        try {
+            if (rootStore == null) {
+                rootStore = Files.getFileStore(Path.of("/"));
+            }
+            slots[SystemSnapshot.DISK_TOTAL] = rootStore.getTotalSpace();
+            slots[SystemSnapshot.DISK_FREE] = rootStore.getUnallocatedSpace();
+        } catch (IOException e) {
+            rootStore = null;
+        }
+    }
+
+    // Sums rx/tx bytes of every non-loopback interface, by column after the "iface:" separator
+    private void parseNetDevTotals() {
+        long rx = 0;
+        long tx = 0;
+        while (reader.hasRemaining()) {
+            int colon = reader.indexInLine((byte) ':');
+            if (colon >= 0) {
+                reader.skipSpaces();
+                int start = reader.position();
+                boolean loopback = colon - start == 2 && reader.byteAt(start) == 'l' && reader.byteAt(start + 1) == 'o';
+                if (!loopback) {
+                    reader.position(colon + 1);
+                    rx += reader.parseLong();
+                    for (int i = 0; i < 7; i++) {
+                        reader.parseLong();
+                    }
+                    tx += reader.parseLong();
+                }
+            }
+            reader.nextLine();
+        }
+        slots[SystemSnapshot.NET_RX] = rx;
+        slots[SystemSnapshot.NET_TX] = tx;
+    }
+
+    /**
+     * The one step of a snapshot that allocates, as the process walk does in {@link JavaProcessSampler}:
+     * the JDK lists a directory only through a {@code DirectoryStream}, which costs a {@code Path} and
+     * its name per entry, about 220 bytes a process. The scheduler asks for the count only every
+     * {@code PROCESS_PERIOD_MILLIS}, alongside the walk.
+     */
+    private int countProcesses() {
+        int count = 0;
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(reader.root())) {
+            for (Path entry : dir) {
+                char first = entry.getFileName().toString().charAt(0);
+                if (first >= '1' && first <= '9') {
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+        return count;
+    }
+
+    private void snapshotBattery() {
+        slots[SystemSnapshot.BATTERY_PRESENT] = 0;
+        slots[SystemSnapshot.BATTERY_LEVEL] = 0;
+        slots[SystemSnapshot.BATTERY_CHARGING] = 0;
+        if (!batteryReader.read(batteryCapacity)) {
+            return;
+        }
+        slots[SystemSnapshot.BATTERY_PRESENT] = 1;
+        slots[SystemSnapshot.BATTERY_LEVEL] = batteryReader.parseLong();
+        if (batteryReader.read(batteryStatus)) {
+            slots[SystemSnapshot.BATTERY_CHARGING] = batteryReader.startsWith(CHARGING) ? 1 : 0;
+        }
+    }
+
+    // Host facts are read once a minute, so these use the ordinary allocating APIs
+
+    private String hostname() {
+        try {
+            return Files.readString(reader.root().resolve("sys/kernel/hostname")).trim();
+        } catch (IOException e) {
+            return "Unknown";
+        }
+    }
+
+    // First IPv4 address of a non-loopback interface
+    private static String ipAddress() {
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface nif = interfaces.nextElement();
+                if (nif.isLoopback()) {
+                    continue;
+                }
+                Enumeration<InetAddress> addresses = nif.getInetAddresses();
+                while (addresses.hasMoreElements()) {
+                    InetAddress address = addresses.nextElement();
+                    if (address instanceof Inet4Address) {
+                        return address.getHostAddress();
+                    }
+                }
+            }
+            return "Not available";
+        } catch (SocketException e) {
+            return "Unknown";
+        }
+    }
+
+    // Hardware address of the first non-loopback interface that has one
+    private static String macAddress() {
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface nif = interfaces.nextElement();
+                byte[] mac = nif.isLoopback() ? null : nif.getHardwareAddress();
+                if (mac != null && mac.length == 6) {
+                    return String.format("%02x:%02x:%02x:%02x:%02x:%02x", mac[0], mac[1], mac[2], mac[3], mac[4], mac[5]);
+                }
+            }
+            return "Not available";
+        } catch (SocketException e) {
+            return "Unknown";
+        }
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,440 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Java port of processes.c: walks /proc, keeps per-PID counters in two open-addressed primitive
+ * tables that swap every walk, and ranks the top N by CPU, RSS and I/O rate with bounded heaps.
+ *
+ * /proc/[pid]/stat and /proc/[pid]/io are parsed in place from {@link ProcReader}'s buffer.
+ * What does allocate is the walk itself: the JDK has no openat(), so every process costs a
+ * directory entry {@link Path}, its name and a channel per file. That is where the JNI sampler
+ * keeps its lead on large process counts.
+ */
+final class JavaProcessSampler {
+    private static final int TABLE_INITIAL = 1024;
+    private static final int COMM_LENGTH = 16;
+    private static final int HEADER_LENGTH = 2;
+    private static final int RECORD_SLOTS = 5;
+    private static final int TABLE_SLOTS = 6;
+    // USER_HZ, which the kernel reports to user space as 100 on every Linux architecture
+    private static final int CLOCK_TICKS = 100;
+    private static final byte[] READ_BYTES = JavaMetricSource.ascii("read_bytes:");
+    private static final byte[] WRITE_BYTES = JavaMetricSource.ascii("write_bytes:");
+
+    private final ProcReader reader;
+    private final long pageSize = pageSize();
+    private final PidTable[] tables = {new PidTable(), new PidTable()};
+    private int current;
+    private long lastSampleNanos;
+    private int[][] heaps = new int[ProcessSnapshot.DIMENSIONS][0];
+    private final int[] heapSizes = new int[ProcessSnapshot.DIMENSIONS];
+    private final byte[] comm = new byte[COMM_LENGTH];
+
+    JavaProcessSampler(ProcReader reader) {
+        this.reader = reader;
+    }
+
+    /** Same contract as {@link MetricSource#collectProcesses}. */
+    int collect(int topN, long[] out, byte[] names) {
+        int outLength = HEADER_LENGTH + ProcessSnapshot.DIMENSIONS * topN * RECORD_SLOTS;
+        int namesLength = ProcessSnapshot.DIMENSIONS * topN * COMM_LENGTH;
+        if (topN <= 0 || out.length < outLength || names.length < namesLength) {
+            return -1;
+        }
+        Arrays.fill(out, 0, outLength, 0);
+        Arrays.fill(names, 0, namesLength, (byte) 0);
+        if (sample(topN) < 0) {
+            return -1;
+        }
+        return write(topN, out, names);
+    }
+
+    private int sample(int topN) {
+        PidTable prev = tables[current];
+        PidTable next = tables[current ^ 1];
+
+        long now = System.nanoTime();
+        double elapsed = lastSampleNanos != 0 ? (now - lastSampleNanos) / 1e9 : 0.0;
+
+        // Bumping the generation empties the table without touching its memory
+        next.generation++;
+        next.count = 0;
+        if (next.capacity == 0) {
+            next.grow();
+        }
+
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(reader.root())) {
+            for (Path entry : dir) {
+                int pid = parsePid(entry.getFileName().toString());
+                if (pid <= 0) {
+                    continue;
+                }
+                if (!reader.read(entry.resolve("stat")) || !parseStat()) {
+                    continue; // exited mid-walk
+                }
+                long cpuTicks = statCpuTicks;
+                long startTime = statStartTime;
+                long rss = statRss * pageSize;
+                int uid = ownerOf(entry);
+
+                long readBytes = 0;
+                long writeBytes = 0;
+                if (reader.read(entry.resolve("io"))) {
+                    // Unreadable for other users' processes
+                    while (reader.hasRemaining()) {
+                        if (reader.startsWith(READ_BYTES)) {
+                            reader.position(reader.position() + READ_BYTES.length);
+                            readBytes = reader.parseLong();
+                        } else if (reader.startsWith(WRITE_BYTES)) {
+                            reader.position(reader.position() + WRITE_BYTES.length);
+                            writeBytes = reader.parseLong();
+                        }
+                        reader.nextLine();
+                    }
+                }
+
+                if ((next.count + 1) * 2 > next.capacity) {
+                    next.grow();
+                }
+                int e = next.slot(pid);
+                next.pids[e] = pid;
+                next.uids[e] = uid;
+                next.generations[e] = next.generation;
+                next.startTimes[e] = startTime;
+                next.cpuTicks[e] = cpuTicks;
+                next.rss[e] = rss;
+                next.readBytes[e] = readBytes;
+                next.writeBytes[e] = writeBytes;
+                next.cpu[e] = 0.0;
+                next.readRates[e] = 0.0;
+                next.writeRates[e] = 0.0;
+                System.arraycopy(comm, 0, next.comms, e * COMM_LENGTH, COMM_LENGTH);
+                next.count++;
+
+                // Only a PID seen last tick with the same start time has a valid baseline
+                int last = prev.find(pid);
+                if (last >= 0 && prev.startTimes[last] == startTime && elapsed > 0) {
+                    if (cpuTicks >= prev.cpuTicks[last]) {
+                        next.cpu[e] = 100.0 * (cpuTicks - prev.cpuTicks[last]) / CLOCK_TICKS / elapsed;
+                    }
+                    if (readBytes >= prev.readBytes[last]) {
+                        next.readRates[e] = (readBytes - prev.readBytes[last]) / elapsed;
+                    }
+                    if (writeBytes >= prev.writeBytes[last]) {
+                        next.writeRates[e] = (writeBytes - prev.writeBytes[last]) / elapsed;
+                    }
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return -1;
+        }
+
+        if (topN > heaps[0].length) {
+            for (int d = 0; d < ProcessSnapshot.DIMENSIONS; d++) {
+                heaps[d] = new int[topN];
+            }
+        }
+        current ^= 1;
+        lastSampleNanos = now;
+        return next.count;
+    }
+
+    /** Same contract as {@link MetricSource#collectProcessTable}. */
+    int collectTable(long[] out, byte[] names) {
+        PidTable table = tables[current];
+        int rows = table.count;
+        if (out.length < rows * TABLE_SLOTS || names.length < rows * COMM_LENGTH) {
+            return -rows;
+        }
+        int row = 0;
+        for (int e = 0; e < table.capacity; e++) {
+            if (table.generations[e] != table.generation) {
+                continue;
+            }
+            int slot = row * TABLE_SLOTS;
+            out[slot] = table.pids[e];
+            out[slot + 1] = table.uids[e];
+            out[slot + 2] = Double.doubleToRawLongBits(table.cpu[e]);
+            out[slot + 3] = table.rss[e];
+            out[slot + 4] = Double.doubleToRawLongBits(table.readRates[e]);
+            out[slot + 5] = Double.doubleToRawLongBits(table.writeRates[e]);
+            System.arraycopy(table.comms, e * COMM_LENGTH, names, row * COMM_LENGTH, COMM_LENGTH);
+            row++;
+        }
+        return row;
+    }
+
+    // The directory is owned by the process's effective uid, -1 if it exited meanwhile
+    private static int ownerOf(Path entry) {
+        try {
+            return (Integer) Files.getAttribute(entry, "unix:uid");
+        } catch (IOException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    private static int parsePid(String name) {
+        if (name.isEmpty() || name.charAt(0) < '1' || name.charAt(0) > '9') {
+            return -1;
+        }
+        int pid = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            pid = pid * 10 + (c - '0');
+        }
+        return pid;
+    }
+
+    // Fields of the last parseStat, kept in fields to avoid a result object
+    private long statCpuTicks;
+    private long statStartTime;
+    private long statRss;
+
+    // comm, utime+stime, starttime and rss (pages) out of /proc/[pid]/stat
+    private boolean parseStat() {
+        int open = reader.indexInLine((byte) '(');
+        int close = reader.lastIndexOf((byte) ')');
+        if (open < 0 || close < open) {
+            return false;
+        }
+        reader.copy(open + 1, close, comm, 0, COMM_LENGTH);
+
+        // Field 3 (state) follows the closing paren, utime is field 14
+        reader.position(close + 1);
+        for (int field = 3; field < 14; field++) {
+            reader.skipField();
+        }
+        long utime = reader.parseLong();
+        long stime = reader.parseLong();
+        for (int field = 16; field < 22; field++) {
+            reader.skipField();
+        }
+        statStartTime = reader.parseLong();
+        reader.skipField(); // vsize
+        statRss = reader.parseLong();
+        statCpuTicks = utime + stime;
+        return true;
+    }
+
+    private int write(int topN, long[] out, byte[] names) {
+        PidTable table = tables[current];
+        Arrays.fill(heapSizes, 0);
+        for (int i = 0; i < table.capacity; i++) {
+            if (table.generations[i] != table.generation) {
+                continue;
+            }
+            for (int d = 0; d < ProcessSnapshot.DIMENSIONS; d++) {
+                offer(table, d, topN, i);
+            }
+        }
+
+        out[0] = table.count;
+        out[1] = heapSizes[0];
+        for (int d = 0; d < ProcessSnapshot.DIMENSIONS; d++) {
+            // Pop the minimum into the last free record so each block ends up sorted descending
+            int[] heap = heaps[d];
+            for (int size = heapSizes[d]; size > 0; size--) {
+                int e = heap[0];
+                int record = d * topN + size - 1;
+                int slot = HEADER_LENGTH + record * RECORD_SLOTS;
+                out[slot] = table.pids[e];
+                out[slot + 1] = Double.doubleToRawLongBits(table.cpu[e]);
+                out[slot + 2] = table.rss[e];
+                out[slot + 3] = Double.doubleToRawLongBits(table.readRates[e]);
+                out[slot + 4] = Double.doubleToRawLongBits(table.writeRates[e]);
+                System.arraycopy(table.comms, e * COMM_LENGTH, names, record * COMM_LENGTH, COMM_LENGTH);
+
+                heap[0] = heap[size - 1];
+                siftDown(table, heap, size - 1, 0, d);
+            }
+        }
+        return heapSizes[0];
+    }
+
+    private static double rank(PidTable table, int e, int dimension) {
+        switch (dimension) {
+            case ProcessSnapshot.BY_CPU:
+                return table.cpu[e];
+            case ProcessSnapshot.BY_MEMORY:
+                return table.rss[e];
+            default:
+                return table.readRates[e] + table.writeRates[e];
+        }
+    }
+
+    // Keeps the topN largest entries in a bounded min-heap, the root is the smallest survivor
+    private void offer(PidTable table, int d, int topN, int e) {
+        int[] heap = heaps[d];
+        if (heapSizes[d] < topN) {
+            heap[heapSizes[d]] = e;
+            siftUp(table, heap, heapSizes[d]++, d);
+        } else if (rank(table, e, d) > rank(table, heap[0], d)) {
+            heap[0] = e;
+            siftDown(table, heap, heapSizes[d], 0, d);
+        }
+    }
+
+    private static void siftDown(PidTable table, int[] heap, int size, int i, int d) {
+        for (;;) {
+            int smallest = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < size && rank(table, heap[l], d) < rank(table, heap[smallest], d)) {
+                smallest = l;
+            }
+            if (r < size && rank(table, heap[r], d) < rank(table, heap[smallest], d)) {
+                smallest = r;
+            }
+            if (smallest == i) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+    private static void siftUp(PidTable table, int[] heap, int i, int d) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (rank(table, heap[parent], d) <= rank(table, heap[i], d)) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = tmp;
+            i = parent;
+        }
+    }
+
+    // AT_PAGESZ from the auxiliary vector, which a 64-bit JVM reads as pairs of native longs
+    private static long pageSize() {
+        try {
+            ByteBuffer auxv = ByteBuffer.wrap(Files.readAllBytes(Path.of("/proc/self/auxv"))).order(ByteOrder.nativeOrder());
+            while (auxv.remaining() >= 16) {
+                long type = auxv.getLong();
+                long value = auxv.getLong();
+                if (type == 6) {
+                    return value;
+                }
+            }
+        } catch (IOException e) {
+            // Fall through to the common default
+        }
+        return 4096;
+    }
+
+    /** Open-addressed PID table as parallel arrays; an entry is live only when its generation matches. */
+    private static final class PidTable {
+        int capacity;
+        int count;
+        int generation;
+        int[] pids = new int[0];
+        int[] uids = new int[0];
+        int[] generations = new int[0];
+        long[] startTimes = new long[0];
+        long[] cpuTicks = new long[0];
+        long[] rss = new long[0];
+        long[] readBytes = new long[0];
+        long[] writeBytes = new long[0];
+        double[] cpu = new double[0];
+        double[] readRates = new double[0];
+        double[] writeRates = new double[0];
+        byte[] comms = new byte[0];
+
+        private static int hash(int pid, int capacity) {
+            return (pid * 0x9E3779B1) & (capacity - 1);
+        }
+
+        int find(int pid) {
+            if (capacity == 0) {
+                return -1;
+            }
+            for (int i = hash(pid, capacity);; i = (i + 1) & (capacity - 1)) {
+                if (generations[i] != generation) {
+                    return -1;
+                }
+                if (pids[i] == pid) {
+                    return i;
+                }
+            }
+        }
+
+        int slot(int pid) {
+            int i = hash(pid, capacity);
+            while (generations[i] == generation) {
+                i = (i + 1) & (capacity - 1);
+            }
+            return i;
+        }
+
+        // Doubles the table and re-inserts its live entries, keeping it at most half full
+        void grow() {
+            PidTable old = copy();
+            capacity = capacity == 0 ? TABLE_INITIAL : capacity * 2;
+            pids = new int[capacity];
+            uids = new int[capacity];
+            generations = new int[capacity];
+            startTimes = new long[capacity];
+            cpuTicks = new long[capacity];
+            rss = new long[capacity];
+            readBytes = new long[capacity];
+            writeBytes = new long[capacity];
+            cpu = new double[capacity];
+            readRates = new double[capacity];
+            writeRates = new double[capacity];
+            comms = new byte[capacity * COMM_LENGTH];
+            int liveGeneration = generation;
+            generation = 1;
+            for (int i = 0; i < old.capacity; i++) {
+                if (old.generations[i] != liveGeneration) {
+                    continue;
+                }
+                int e = slot(old.pids[i]);
+                pids[e] = old.pids[i];
+                uids[e] = old.uids[i];
+                generations[e] = generation;
+                startTimes[e] = old.startTimes[i];
+                cpuTicks[e] = old.cpuTicks[i];
+                rss[e] = old.rss[i];
+                readBytes[e] = old.readBytes[i];
+                writeBytes[e] = old.writeBytes[i];
+                cpu[e] = old.cpu[i];
+                readRates[e] = old.readRates[i];
+                writeRates[e] = old.writeRates[i];
+                System.arraycopy(old.comms, i * COMM_LENGTH, comms, e * COMM_LENGTH, COMM_LENGTH);
+            }
+        }
+
+        private PidTable copy() {
+            PidTable old = new PidTable();
+            old.capacity = capacity;
+            old.generation = generation;
+            old.pids = pids;
+            old.uids = uids;
+            old.generations = generations;
+            old.startTimes = startTimes;
+            old.cpuTicks = cpuTicks;
+            old.rss = rss;
+            old.readBytes = readBytes;
+            old.writeBytes = writeBytes;
+            old.cpu = cpu;
+            old.readRates = readRates;
+            old.writeRates = writeRates;
+            old.comms = comms;
+            return old;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package systemdashboard;
+
+import java.util.TimeZone;
+
+/**
+ * Allocation-free number formatting for the per-tick panel text, in place of String.format.
+ */
+final class MetricFormat {
+    static final double KB = 1024.0;
+    static final double MB = 1024.0 * 1024;
+    static final double GB = 1024.0 * 1024 * 1024;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private MetricFormat() {
+    }
+
+    /**
+     * Appends {@code value} rounded half-up to {@code decimals} (at most 6) fraction digits.
+     */
+    static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+        if (!Double.isFinite(value) || Math.abs(value) >= 1e12) {
+            return sb.append(value);
+        }
+        long factor = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * factor);
+        if (value < 0 && scaled != 0) {
+            sb.append('-');
+        }
+        sb.append(scaled / factor);
+        if (decimals > 0) {
+            sb.append('.');
+            long fraction = scaled % factor;
+            for (long p = factor / 10; p > fraction && p > 1; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a percentage of {@code part} over {@code whole} with one decimal, or 0 when empty.
+     */
+    static StringBuilder appendPercent(StringBuilder sb, double part, double whole) {
+        return appendFixed(sb, whole > 0 ? part / whole * 100 : 0, 1).append('%');
+    }
+
+    static StringBuilder appendUptime(StringBuilder sb, long seconds) {
+        return sb.append(seconds / 86400).append(" days, ")
+            .append((seconds % 86400) / 3600).append(" hours, ")
+            .append((seconds % 3600) / 60).append(" minutes");
+    }
+
+    /**
+     * Appends the local wall-clock time of {@code millis} as HH:mm:ss.
+     */
+    static StringBuilder appendClock(StringBuilder sb, long millis) {
+        long local = millis + ZONE.getOffset(millis);
+        long secondOfDay = Math.floorMod(local / 1000, 86400L);
+        return appendTwoDigits(appendTwoDigits(appendTwoDigits(sb, secondOfDay / 3600).append(':'),
+            (secondOfDay % 3600) / 60).append(':'), secondOfDay % 60);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, long value) {
+        if (value < 10) {
+            sb.append('0');
+        }
+        return sb.append(value);
+    }
+}
@@ -0,0 +1,84 @@
+package systemdashboard;
+
+import java.awt.*;
+import java.util.Map;
+import javax.swing.*;
+
+/**
+ * Single-line text component for values that change every tick.
+ *
+ * Unlike {@link JLabel}, setting new text never revalidates: the label is stretched to the
+ * panel width by its BoxLayout, so a changed value only repaints the label's own bounds, and
+ * an unchanged value costs a character comparison.
+ */
+final class MetricLabel extends JComponent {
+    private static final long serialVersionUID = 1L;
+
+    private char[] chars = new char[64];
+    private int length;
+
+    MetricLabel(CharSequence text) {
+        setFont(UIManager.getFont("Label.font"));
+        setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+        setAlignmentX(Component.LEFT_ALIGNMENT);
+        setText(text);
+    }
+
+    /**
+     * Copies {@code text} and repaints if it differs from what is shown.
+     */
+    void setText(CharSequence text) {
+        int n = text.length();
+        if (n == length) {
+            int i = 0;
+            while (i < n && chars[i] == text.charAt(i)) {
+                i++;
+            }
+            if (i == n) {
+                return;
+            }
+        }
+        if (n > chars.length) {
+            chars = new char[Math.max(n, chars.length * 2)];
+        }
+        for (int i = 0; i < n; i++) {
+            chars[i] = text.charAt(i);
+        }
+        length = n;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        FontMetrics fm = getFontMetrics(getFont());
+        Insets insets = getInsets();
+        return new Dimension(fm.charsWidth(chars, 0, length) + insets.left + insets.right,
+            fm.getHeight() + insets.top + insets.bottom);
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        Graphics2D g2 = (Graphics2D) g;
+        Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (hints instanceof Map) {
+            g2.addRenderingHints((Map<?, ?>) hints);
+        }
+        g2.setFont(getFont());
+        g2.setColor(getForeground());
+        FontMetrics fm = g2.getFontMetrics();
+        Insets insets = getInsets();
+        g2.drawChars(chars, 0, length, insets.left, insets.top + fm.getAscent());
+    }
+}
@@ -0,0 +1,71 @@
+package systemdashboard;
+
+/**
+ * Where samples come from: the JNI library ({@link NativeMetricSource}) or plain Java reading
+ * /proc through NIO ({@link JavaMetricSource}).
+ *
+ * Both write the same primitive layouts, so {@link SystemSnapshot}, {@link ProcessSnapshot} and
+ * {@link DeviceSnapshot} read either one unchanged. Every method is called from the sampling
+ * thread only; implementations keep the previous tick's counters and are not thread-safe, but
+ * separate instances share no state and can sample on separate threads at different intervals.
+ * The one exception is where /proc is read from: {@link NativeCollector#setProcRoot} moves every
+ * native handle at once, {@link JavaMetricSource#setProcRoot} just the one instance.
+ */
+interface MetricSource {
+    String AUTO = "auto";
+    String NATIVE = "native";
+    String JAVA = "java";
+
+    /** {@link #NATIVE} or {@link #JAVA}, as shown in the UI and on /metrics. */
+    String name();
+
+    /**
+     * Fills {@code out} with the {@link SystemSnapshot} layout. CPU and uptime are always sampled;
+     * {@code groups} selects the optional {@code SystemSnapshot.GROUP_*} sections. Returns the number
+     * of slots written, the negated required length if {@code out} is too small, or 0 on failure.
+     */
+    int collectSnapshot(long[] out, int groups);
+
+    /**
+     * Walks /proc once and writes the top {@code topN} processes by CPU, RSS and disk I/O rate
+     * in the {@link ProcessSnapshot} layout. Returns the records per dimension, or -1 on failure.
+     */
+    int collectProcesses(int topN, long[] out, byte[] names);
+
+    /**
+     * Writes every process seen by the last {@link #collectProcesses} walk in the {@link ProcessTable}
+     * layout. Returns the row count, or the negated row count if either array is too small.
+     */
+    int collectProcessTable(long[] out, byte[] names);
+
+    /**
+     * Writes per-interface, per-mount and per-disk stats in the {@link DeviceSnapshot} layout.
+     * Returns the slots written, the negated required length (with the header counts filled in)
+     * if either array is too small, or 0 on failure.
+     */
+    int collectDevices(long[] out, byte[] names, boolean mounts);
+
+    HostFacts readHostFacts();
+
+    /**
+     * Releases open files and native state. Collect calls after this fail; call it only once the
+     * sampling thread has stopped.
+     */
+    default void close() {
+    }
+
+    /**
+     * Picks the backend for {@code preference}: {@link #NATIVE}, {@link #JAVA}, or {@link #AUTO}
+     * for the JNI library when it loads and links, and the Java reader otherwise.
+     */
+    static MetricSource select(String preference) {
+        if (JAVA.equals(preference)) {
+            return new JavaMetricSource();
+        }
+        if (NATIVE.equals(preference) || NativeCollector.isAvailable()) {
+            return new NativeMetricSource();
+        }
+        System.err.println("libsysteminfo unavailable (" + NativeCollector.loadError() + "), reading /proc from Java");
+        return new JavaMetricSource();
+    }
+}
@@ -0,0 +1,238 @@
+package systemdashboard;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * In-memory history of every sampled series, rolled up into 1s, 10s and 1m tiers.
+ *
+ * Each tier is a fixed ring of buckets holding min, max and sum per series, stored as
+ * {@code float[]} to keep 24h of per-core data on a 128-core host at roughly 18 MB. The ring
+ * timestamps and sample counts are shared by all series because every series is appended from
+ * the same snapshot. Appends never allocate unless the core count grows.
+ *
+ * There is a single writer (the sampler). Readers copy ranges out under a per-tier sequence
+ * lock and retry if an append raced with them, so they never block the sampler.
+ */
+public final class MetricsHistory {
+    public static final int TIER_1S = 0;
+    public static final int TIER_10S = 1;
+    public static final int TIER_1M = 2;
+    public static final int TIERS = 3;
+
+    private static final long[] RESOLUTION_MILLIS = {1_000, 10_000, 60_000};
+    private static final int[] CAPACITY = {900, 8_640, 1_440}; // 15 minutes, 24 hours, 24 hours
+
+    // Fixed series ids, per-core series follow from CPU_CORE_BASE
+    public static final int CPU_TOTAL = 0;
+    public static final int MEMORY_USED = 1;
+    public static final int SWAP_USED = 2;
+    public static final int DISK_USED = 3;
+    public static final int NET_RX_RATE = 4;
+    public static final int NET_TX_RATE = 5;
+    public static final int CPU_CORE_BASE = 6;
+
+    private final Tier[] tiers = new Tier[TIERS];
+    private double[] values = new double[CPU_CORE_BASE];
+    private volatile int seriesCount = CPU_CORE_BASE;
+
+    private long lastTimestamp;
+    private long lastRx;
+    private long lastTx;
+
+    public MetricsHistory() {
+        for (int i = 0; i < TIERS; i++) {
+            tiers[i] = new Tier(RESOLUTION_MILLIS[i], CAPACITY[i], CPU_CORE_BASE);
+        }
+    }
+
+    public static int coreSeries(int core) {
+        return CPU_CORE_BASE + core;
+    }
+
+    public static long resolutionMillis(int tier) {
+        return RESOLUTION_MILLIS[tier];
+    }
+
+    /** Number of buckets the tier keeps, the most a query of it can return. */
+    public static int capacity(int tier) {
+        return CAPACITY[tier];
+    }
+
+    public int seriesCount() {
+        return seriesCount;
+    }
+
+    /**
+     * Folds one snapshot into every tier. Must only be called from the sampling thread.
+     */
+    public void append(SystemSnapshot snapshot) {
+        long timestamp = snapshot.timestamp();
+        int count = CPU_CORE_BASE + snapshot.coreCount();
+        if (count > values.length) {
+            values = new double[count];
+        }
+
+        double seconds = (timestamp - lastTimestamp) / 1000.0;
+        boolean hasRate = lastTimestamp != 0 && seconds > 0;
+        values[CPU_TOTAL] = snapshot.cpuUsage();
+        values[MEMORY_USED] = snapshot.totalMemory() - snapshot.availableMemory();
+        values[SWAP_USED] = snapshot.swapTotal() - snapshot.swapFree();
+        values[DISK_USED] = snapshot.totalDiskSpace() - snapshot.freeDiskSpace();
+        values[NET_RX_RATE] = hasRate ? Math.max(0, snapshot.networkBytesReceived() - lastRx) / seconds : 0;
+        values[NET_TX_RATE] = hasRate ? Math.max(0, snapshot.networkBytesTransmitted() - lastTx) / seconds : 0;
+        for (int core = 0; core < snapshot.coreCount(); core++) {
+            values[coreSeries(core)] = snapshot.coreUsage(core);
+        }
+        lastTimestamp = timestamp;
+        lastRx = snapshot.networkBytesReceived();
+        lastTx = snapshot.networkBytesTransmitted();
+
+        for (Tier tier : tiers) {
+            tier.add(timestamp, values, count);
+        }
+        if (count > seriesCount) {
+            seriesCount = count;
+        }
+    }
+
+    /**
+     * Copies the buckets of {@code series} whose start lies in [{@code from}, {@code to}] into the
+     * caller's arrays, oldest first. Series that did not exist yet read as NaN.
+     * Returns the number of buckets copied, bounded by the shortest array.
+     */
+    public int query(int series, int tier, long from, long to,
+                     long[] times, double[] min, double[] max, double[] avg) {
+        return tiers[tier].read(series, from, to, times, min, max, avg);
+    }
+
+    private static final class Tier {
+        private final long resolution;
+        private final int capacity;
+        private final long[] bucketStart;
+        private final int[] sampleCount;
+        private float[][] min;
+        private float[][] max;
+        private float[][] sum;
+
+        // Odd while an append is in progress
+        private volatile long sequence;
+        private int head = -1;
+        private int size;
+
+        Tier(long resolution, int capacity, int series) {
+            this.resolution = resolution;
+            this.capacity = capacity;
+            this.bucketStart = new long[capacity];
+            this.sampleCount = new int[capacity];
+            this.min = new float[0][];
+            this.max = new float[0][];
+            this.sum = new float[0][];
+            growSeries(series);
+        }
+
+        // The grown arrays are filled before they are published, a racing read never sees a missing column
+        private void growSeries(int series) {
+            float[][] grownMin = Arrays.copyOf(min, series);
+            float[][] grownMax = Arrays.copyOf(max, series);
+            float[][] grownSum = Arrays.copyOf(sum, series);
+            for (int i = min.length; i < series; i++) {
+                grownMin[i] = newColumn();
+                grownMax[i] = newColumn();
+                grownSum[i] = newColumn();
+            }
+            min = grownMin;
+            max = grownMax;
+            sum = grownSum;
+        }
+
+        private float[] newColumn() {
+            float[] column = new float[capacity];
+            Arrays.fill(column, Float.NaN);
+            return column;
+        }
+
+        void add(long timestamp, double[] values, int series) {
+            long start = timestamp - timestamp % resolution;
+            long seq = sequence;
+            sequence = seq + 1;
+            VarHandle.storeStoreFence();
+
+            if (series > min.length) {
+                growSeries(series);
+            }
+            if (head < 0 || bucketStart[head] != start) {
+                head = (head + 1) % capacity;
+                size = Math.min(size + 1, capacity);
+                bucketStart[head] = start;
+                sampleCount[head] = 0;
+                for (int i = 0; i < min.length; i++) {
+                    min[i][head] = Float.NaN;
+                    max[i][head] = Float.NaN;
+                    sum[i][head] = Float.NaN;
+                }
+            }
+
+            boolean first = sampleCount[head] == 0;
+            sampleCount[head]++;
+            for (int i = 0; i < series; i++) {
+                float v = (float) values[i];
+                if (first || Float.isNaN(sum[i][head])) {
+                    min[i][head] = v;
+                    max[i][head] = v;
+                    sum[i][head] = v;
+                } else {
+                    min[i][head] = Math.min(min[i][head], v);
+                    max[i][head] = Math.max(max[i][head], v);
+                    sum[i][head] += v;
+                }
+            }
+
+            sequence = seq + 2;
+        }
+
+        int read(int series, long from, long to, long[] times, double[] outMin, double[] outMax, double[] outAvg) {
+            int limit = Math.min(times.length, Math.min(outMin.length, Math.min(outMax.length, outAvg.length)));
+            for (;;) {
+                long seq = sequence;
+                if ((seq & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                float[][] mins = min, maxs = max, sums = sum;
+                if (mins.length != maxs.length || mins.length != sums.length) {
+                    // An append is growing the series arrays, which are swapped one after another
+                    Thread.onSpinWait();
+                    continue;
+                }
+                // head and size stay in range however they race, so every slot below is in bounds
+                int currentHead = head;
+                int currentSize = size;
+                int n = 0;
+                for (int i = 0; i < currentSize && n < limit; i++) {
+                    int slot = (currentHead - currentSize + 1 + i + capacity) % capacity;
+                    long start = bucketStart[slot];
+                    if (start < from || start > to) {
+                        continue;
+                    }
+                    times[n] = start;
+                    if (series < mins.length) {
+                        int samples = sampleCount[slot];
+                        outMin[n] = mins[series][slot];
+                        outMax[n] = maxs[series][slot];
+                        outAvg[n] = samples > 0 ? sums[series][slot] / samples : Double.NaN;
+                    } else {
+                        outMin[n] = outMax[n] = outAvg[n] = Double.NaN;
+                    }
+                    n++;
+                }
+
+                VarHandle.acquireFence();
+                if (sequence == seq) {
+                    return n;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Appends every sample to fixed-size records in memory-mapped segment files.
+ *
+ * A segment is preallocated and mapped once, so recording a tick is a handful of bulk copies
+ * into the mapping: no formatting, no allocation and no write() call on the sampling thread.
+ * The kernel flushes dirty pages in the background. A new segment is started when the current
+ * one is full or when a snapshot no longer fits its record size (more cores came online).
+ *
+ * Directory layout:
+ * <pre>
+ *   host.properties     host facts at the time recording started
+ *   index               16-byte entries (first timestamp, segment number), one per segment
+ *   segment-NNNNNN.rec  64-byte header followed by {@code capacity} fixed-size records
+ * </pre>
+ * A record holds the timestamp, the snapshot slot count, the ranked process count and flags,
+ * then the raw {@link SystemSnapshot} slots, the {@link ProcessSnapshot} records and names.
+ * All values are little-endian.
+ */
+final class MetricsRecorder implements SampleSink, AutoCloseable {
+    static final int MAGIC = 0x53445243; // "SDRC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_HEADER_BYTES = 24;
+    static final int FLAG_PROCESSES_SAMPLED = 1;
+    static final String INDEX_FILE = "index";
+    static final String HOST_FILE = "host.properties";
+
+    // Segment header offsets
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_RECORD_SIZE = 8;
+    static final int H_MAX_SLOTS = 12;
+    static final int H_TOP_N = 16;
+    static final int H_CAPACITY = 20;
+    static final int H_COUNT = 24;
+    static final int H_FIRST_TIMESTAMP = 32;
+    static final int H_LAST_TIMESTAMP = 40;
+
+    private static final int DEFAULT_CAPACITY = 3_600; // One hour per segment at the default 1s tick
+
+    private final Path directory;
+    private final int capacity;
+    private final FileChannel index;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+
+    private int segmentNumber = -1;
+    private MappedByteBuffer segment;
+    private LongBuffer longs;
+    private int recordSize;
+    private int maxSlots;
+    private int topN;
+    private int count;
+
+    MetricsRecorder(Path directory, HostFacts facts) throws IOException {
+        this(directory, facts, DEFAULT_CAPACITY);
+    }
+
+    MetricsRecorder(Path directory, HostFacts facts, int capacity) throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        Files.createDirectories(directory);
+        writeHostFacts(directory.resolve(HOST_FILE), facts);
+        this.index = FileChannel.open(directory.resolve(INDEX_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Continue numbering after any segments already in the directory
+        this.segmentNumber = (int) (index.size() / 16) - 1;
+    }
+
+    static Path segmentPath(Path directory, int number) {
+        return directory.resolve(String.format("segment-%06d.rec", number));
+    }
+
+    static int recordSize(int maxSlots, ProcessSnapshot processes) {
+        int bytes = RECORD_HEADER_BYTES + (maxSlots + processes.recordLength()) * 8 + processes.namesLength();
+        return (bytes + 7) & ~7;
+    }
+
+    @Override
+    public void accept(SystemSnapshot snapshot, ProcessSnapshot processes, boolean processesSampled) {
+        try {
+            if (segment == null || count == capacity
+                    || snapshot.slotCount() > maxSlots || processes.topN() != topN) {
+                roll(snapshot.slotCount(), processes, snapshot.timestamp());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int base = HEADER_BYTES + count * recordSize;
+        segment.putLong(base, snapshot.timestamp());
+        segment.putInt(base + 8, snapshot.slotCount());
+        segment.putInt(base + 12, processes.count());
+        segment.putInt(base + 16, processesSampled ? FLAG_PROCESSES_SAMPLED : 0);
+
+        int slotIndex = (base + RECORD_HEADER_BYTES) / 8;
+        snapshot.writeSlots(longs, slotIndex);
+        processes.writeRecords(longs, slotIndex + maxSlots);
+        processes.writeNames(segment, (slotIndex + maxSlots + processes.recordLength()) * 8);
+
+        // Publish the record only after its body is in place
+        count++;
+        segment.putLong(H_LAST_TIMESTAMP, snapshot.timestamp());
+        segment.putInt(H_COUNT, count);
+    }
+
+    private void roll(int slots, ProcessSnapshot processes, long timestamp) throws IOException {
+        // Map the new segment before touching any state, so a failure leaves the old one as it was
+        int number = segmentNumber + 1;
+        int size = recordSize(slots, processes);
+        Path path = segmentPath(directory, number);
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * size);
+        } catch (IOException | RuntimeException e) {
+            if (!(e instanceof FileAlreadyExistsException)) {
+                Files.deleteIfExists(path);
+            }
+            throw e;
+        }
+
+        segmentNumber = number;
+        maxSlots = slots;
+        topN = processes.topN();
+        recordSize = size;
+        count = 0;
+        segment = mapped;
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        longs = segment.asLongBuffer();
+        segment.putInt(H_MAGIC, MAGIC);
+        segment.putInt(H_VERSION, VERSION);
+        segment.putInt(H_RECORD_SIZE, recordSize);
+        segment.putInt(H_MAX_SLOTS, maxSlots);
+        segment.putInt(H_TOP_N, topN);
+        segment.putInt(H_CAPACITY, capacity);
+        segment.putInt(H_COUNT, 0);
+        segment.putLong(H_FIRST_TIMESTAMP, timestamp);
+        segment.putLong(H_LAST_TIMESTAMP, timestamp);
+
+        indexEntry.clear();
+        indexEntry.putLong(timestamp).putLong(segmentNumber).flip();
+        while (indexEntry.hasRemaining()) {
+            index.write(indexEntry);
+        }
+    }
+
+    private static void writeHostFacts(Path file, HostFacts facts) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("os.name", facts.getOsName());
+        properties.setProperty("os.version", facts.getOsVersion());
+        properties.setProperty("os.arch", facts.getOsArch());
+        properties.setProperty("hostname", facts.getHostname());
+        properties.setProperty("ip", facts.getIpAddress());
+        properties.setProperty("mac", facts.getMacAddress());
+        properties.setProperty("battery", Boolean.toString(facts.hasBattery()));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "System Dashboard recording");
+        }
+    }
+
+    static HostFacts readHostFacts(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return new HostFacts(properties.getProperty("os.name", ""), properties.getProperty("os.version", ""),
+            properties.getProperty("os.arch", ""), properties.getProperty("hostname", ""),
+            properties.getProperty("ip", ""), properties.getProperty("mac", ""),
+            Boolean.parseBoolean(properties.getProperty("battery")));
+    }
+
+    /**
+     * Forces the current segment to disk and closes the index. Call after the sampler has stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        index.close();
+    }
+}
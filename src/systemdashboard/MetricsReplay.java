@@ -0,0 +1,259 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Plays a {@link MetricsRecorder} directory back as a {@link SampleFeed}.
+ *
+ * Segments are mapped read-only and records are copied straight into the same snapshot
+ * buffers the live sampler uses, then published the same way, so the panels, history and
+ * exporters cannot tell a replay from a live host. Playback runs on its own thread at a
+ * multiple of the recorded pace, or as fast as possible with a speed of 0. Gaps where the
+ * recorder was stopped are shortened to {@link #MAX_GAP_MILLIS}.
+ */
+final class MetricsReplay implements SampleFeed {
+    // Longest recorded gap played in real time; beyond it the recorder was stopped, e.g. overnight
+    private static final long MAX_GAP_MILLIS = 10_000;
+
+    private final MetricsHistory history;
+    private final HostFacts hostFacts;
+    private final double speed;
+    private final long[] indexTimestamps;
+    private final int[] indexSegments;
+    private final Path directory;
+    private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Diagnostics diagnostics = new Diagnostics();
+
+    // Owned by the replay thread
+    private final SystemSnapshot sampled = new SystemSnapshot();
+    private ProcessSnapshot sampledProcesses;
+    private int segmentPosition; // Index entry of the mapped segment
+    private MappedByteBuffer segment;
+    private LongBuffer longs;
+    private int recordSize;
+    private int maxSlots;
+    private int count;
+    private int record;
+
+    // Guarded by this; generation is also readable without the lock
+    private final SystemSnapshot published = new SystemSnapshot();
+    private final ProcessSnapshot publishedProcesses;
+    private volatile long generation;
+
+    private volatile Thread thread;
+    private volatile boolean finished;
+
+    /**
+     * @param speed playback rate relative to the recording, 0 for as fast as possible
+     */
+    MetricsReplay(Path directory, MetricsHistory history, int topProcesses, double speed) throws IOException {
+        this.directory = directory;
+        this.history = history;
+        this.speed = speed;
+        this.publishedProcesses = new ProcessSnapshot(topProcesses);
+        this.hostFacts = MetricsRecorder.readHostFacts(directory.resolve(MetricsRecorder.HOST_FILE));
+
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(MetricsRecorder.INDEX_FILE)))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        int entries = index.remaining() / 16;
+        if (entries == 0) {
+            throw new IOException("No recorded segments in " + directory);
+        }
+        indexTimestamps = new long[entries];
+        indexSegments = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            indexTimestamps[i] = index.getLong();
+            indexSegments[i] = (int) index.getLong();
+        }
+        open(0);
+    }
+
+    /**
+     * Positions playback at the first record at or after {@code timestamp}. Must be called before {@link #start}.
+     */
+    void seek(long timestamp) throws IOException {
+        // Last segment starting at or before the timestamp, then the first record in it at or after
+        int lo = 0, hi = indexTimestamps.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (indexTimestamps[mid] <= timestamp) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        open(lo);
+        int first = 0, last = count;
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (timestampAt(mid) < timestamp) {
+                first = mid + 1;
+            } else {
+                last = mid;
+            }
+        }
+        record = first;
+    }
+
+    /** True once every record has been played; the front end decides how to tell the user. */
+    boolean finished() {
+        return finished;
+    }
+
+    @Override
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        Thread replay = new Thread(this::play, "metrics-replay");
+        replay.setDaemon(true);
+        thread = replay;
+        replay.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread replay = thread;
+        thread = null;
+        if (replay != null) {
+            replay.interrupt();
+        }
+    }
+
+    @Override
+    public HostFacts hostFacts() {
+        return hostFacts;
+    }
+
+    @Override
+    public Diagnostics diagnostics() {
+        return diagnostics;
+    }
+
+    @Override
+    public long generation() {
+        return generation;
+    }
+
+    @Override
+    public synchronized long copyLatest(SystemSnapshot snapshot, ProcessSnapshot processes) {
+        snapshot.copyFrom(published);
+        if (processes != null) {
+            processes.copyFrom(publishedProcesses);
+        }
+        return generation;
+    }
+
+    /** Recordings keep only the ranked processes, so the table holds those. */
+    @Override
+    public synchronized void copyProcessTable(ProcessTable table) {
+        table.fillFrom(publishedProcesses);
+    }
+
+    /** Recordings do not carry per-device stats, so {@code devices} is left as it is. */
+    @Override
+    public void copyDevices(DeviceSnapshot devices) {
+    }
+
+    private void play() {
+        long previous = 0;
+        try {
+            while (thread == Thread.currentThread() && next()) {
+                long timestamp = sampled.timestamp();
+                if (speed > 0 && previous != 0 && timestamp > previous) {
+                    Thread.sleep((long) (Math.min(timestamp - previous, MAX_GAP_MILLIS) / speed));
+                }
+                previous = timestamp;
+                long start = System.nanoTime();
+                publish();
+                diagnostics.recordSince(Diagnostics.TICK, start);
+            }
+            if (thread == Thread.currentThread()) {
+                finished = true;
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Loads the next record into the sampled buffers, returns false at the end of the recording
+    private boolean next() throws IOException {
+        while (record >= count) {
+            if (segmentPosition + 1 >= indexSegments.length) {
+                // The last segment may still be growing under a live recorder
+                count = segment.getInt(MetricsRecorder.H_COUNT);
+                if (record >= count) {
+                    return false;
+                }
+                break;
+            }
+            open(segmentPosition + 1);
+        }
+
+        int base = MetricsRecorder.HEADER_BYTES + record * recordSize;
+        int slots = segment.getInt(base + 8);
+        int ranked = segment.getInt(base + 12);
+        boolean processesSampled = (segment.getInt(base + 16) & MetricsRecorder.FLAG_PROCESSES_SAMPLED) != 0;
+        int slotIndex = (base + MetricsRecorder.RECORD_HEADER_BYTES) / 8;
+        sampled.readSlots(longs, slotIndex, slots);
+        if (processesSampled) {
+            sampledProcesses.readFrom(longs, slotIndex + maxSlots,
+                segment, (slotIndex + maxSlots + sampledProcesses.recordLength()) * 8, ranked);
+        }
+        record++;
+        return true;
+    }
+
+    private void publish() {
+        long start = System.nanoTime();
+        history.append(sampled);
+        diagnostics.recordSince(Diagnostics.HISTORY, start);
+        synchronized (this) {
+            published.copyFrom(sampled);
+            publishedProcesses.copyFrom(sampledProcesses);
+            generation++;
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private void open(int position) throws IOException {
+        Path path = MetricsRecorder.segmentPath(directory, indexSegments[position]);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        if (segment.getInt(MetricsRecorder.H_MAGIC) != MetricsRecorder.MAGIC
+                || segment.getInt(MetricsRecorder.H_VERSION) != MetricsRecorder.VERSION) {
+            throw new IOException("Not a version " + MetricsRecorder.VERSION + " recording segment: " + path);
+        }
+        longs = segment.asLongBuffer();
+        recordSize = segment.getInt(MetricsRecorder.H_RECORD_SIZE);
+        maxSlots = segment.getInt(MetricsRecorder.H_MAX_SLOTS);
+        count = segment.getInt(MetricsRecorder.H_COUNT);
+        int topN = segment.getInt(MetricsRecorder.H_TOP_N);
+        if (sampledProcesses == null || sampledProcesses.topN() != topN) {
+            sampledProcesses = new ProcessSnapshot(topN);
+        }
+        segmentPosition = position;
+        record = 0;
+    }
+
+    private long timestampAt(int index) {
+        return segment.getLong(MetricsRecorder.HEADER_BYTES + index * recordSize);
+    }
+}
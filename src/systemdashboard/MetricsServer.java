@@ -0,0 +1,550 @@
+package systemdashboard;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the latest sample as OpenMetrics text on {@code /metrics}, and ranges of the
+ * {@link MetricsHistory} as CSV on {@code /history}.
+ *
+ * Scrapes never touch /proc or the native library: they read whatever the
+ * {@link SampleFeed} last published. The body is encoded at most once per sample
+ * generation into a reused buffer, and every scrape of the same generation writes that same
+ * byte array, so concurrent scrapers share one encoding and the sampler is never blocked.
+ * History queries copy their range out of the store without taking a lock.
+ */
+final class MetricsServer {
+    static final int DEFAULT_PORT = 9256;
+
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String CSV_TYPE = "text/csv; charset=utf-8";
+    // Indexed by MetricsHistory series id
+    private static final String[] HISTORY_SERIES = {"cpu", "memory.used", "swap.used", "disk.used", "net.rx", "net.tx"};
+    private static final String[] HISTORY_TIERS = {"1s", "10s", "1m"};
+    private static final String[] CPU_MODES = {"user", "system", "iowait", "irq", "steal"};
+    private static final String[] PSI_RESOURCES = {"cpu", "memory", "io"};
+    private static final int[] PRESSURE_BLOCKS = {SystemSnapshot.HOST_PRESSURE, SystemSnapshot.CGROUP_PRESSURE};
+
+    private final SampleFeed feed;
+    private final MetricsHistory history;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Guarded by this: scratch state used to re-encode when a new generation is published
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final ProcessSnapshot processes;
+    private final DeviceSnapshot devices = new DeviceSnapshot();
+    private final LatencyHistogram.Snapshot latency = new LatencyHistogram.Snapshot();
+    private final StringBuilder text = new StringBuilder(4096);
+    private byte[] scratch = new byte[4096];
+
+    private volatile Encoded current = new Encoded(-1, new byte[0]);
+
+    MetricsServer(SampleFeed feed, MetricsHistory history, int topProcesses, int port) throws IOException {
+        this.feed = feed;
+        this.history = history;
+        this.processes = new ProcessSnapshot(topProcesses);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(false);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.createContext("/history", this::handleHistory);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Encoded body = latest();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body.bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * {@code GET /history?series=cpu&tier=10s&minutes=60}: one {@code timestamp,min,max,avg} line
+     * per bucket, oldest first. Series are {@code cpu}, {@code memory.used}, {@code swap.used},
+     * {@code disk.used}, {@code net.rx}, {@code net.tx} and {@code core.N}; tiers are 1s, 10s and
+     * 1m. Defaults to the cpu series over the last 15 minutes at 1s.
+     */
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            int series = historySeries(parameter(query, "series", "cpu"));
+            int tier = indexOf(HISTORY_TIERS, parameter(query, "tier", "1s"));
+            long minutes = parseMinutes(parameter(query, "minutes", "15"));
+            if (series < 0 || tier < 0 || minutes < 0) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            int capacity = MetricsHistory.capacity(tier);
+            long[] times = new long[capacity];
+            double[] min = new double[capacity];
+            double[] max = new double[capacity];
+            double[] avg = new double[capacity];
+            long now = System.currentTimeMillis();
+            int n = history.query(series, tier, now - minutes * 60_000, now, times, min, max, avg);
+
+            StringBuilder sb = new StringBuilder(32 + n * 48);
+            sb.append("timestamp,min,max,avg\n");
+            for (int i = 0; i < n; i++) {
+                sb.append(times[i]).append(',');
+                csvValue(sb, min[i]).append(',');
+                csvValue(sb, max[i]).append(',');
+                csvValue(sb, avg[i]).append('\n');
+            }
+            byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CSV_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Series id for a /history name, -1 if there is no such series
+    private int historySeries(String name) {
+        int fixed = indexOf(HISTORY_SERIES, name);
+        if (fixed >= 0) {
+            return fixed;
+        }
+        if (name.startsWith("core.")) {
+            try {
+                int core = Integer.parseInt(name.substring(5));
+                if (core >= 0 && MetricsHistory.coreSeries(core) < history.seriesCount()) {
+                    return MetricsHistory.coreSeries(core);
+                }
+            } catch (NumberFormatException e) {
+                // Not a core number
+            }
+        }
+        return -1;
+    }
+
+    private static long parseMinutes(String value) {
+        try {
+            long minutes = Long.parseLong(value);
+            return minutes >= 0 && minutes <= 7 * 24 * 60 ? minutes : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Value of one query parameter, or the default; names and values are plain ASCII
+    private static String parameter(String query, String name, String defaultValue) {
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.length() > name.length() && pair.startsWith(name) && pair.charAt(name.length()) == '=') {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Empty where the bucket had no samples of the series
+    private static StringBuilder csvValue(StringBuilder sb, double value) {
+        return Double.isNaN(value) ? sb : MetricFormat.appendFixed(sb, value, 3);
+    }
+
+    private Encoded latest() {
+        Encoded encoded = current;
+        if (encoded.generation == feed.generation()) {
+            return encoded;
+        }
+        synchronized (this) {
+            // Another scraper may have re-encoded while we waited
+            long generation = feed.copyLatest(snapshot, processes);
+            feed.copyDevices(devices);
+            if (current.generation != generation) {
+                current = new Encoded(generation, encode(feed.hostFacts()));
+            }
+            return current;
+        }
+    }
+
+    private byte[] encode(HostFacts facts) {
+        StringBuilder sb = text;
+        sb.setLength(0);
+
+        header(sb, "sysdash_host", "info", "Static host facts.");
+        sb.append("sysdash_host_info{os=\"");
+        escape(sb, facts.getOsName()).append("\",version=\"");
+        escape(sb, facts.getOsVersion()).append("\",arch=\"");
+        escape(sb, facts.getOsArch()).append("\",hostname=\"");
+        escape(sb, facts.getHostname()).append("\"} 1\n");
+
+        header(sb, "sysdash_uptime_seconds", "gauge", "Seconds since boot.");
+        sb.append("sysdash_uptime_seconds ").append(snapshot.uptime()).append('\n');
+
+        header(sb, "sysdash_cpu_usage_percent", "gauge", "Busy CPU time over the last interval.");
+        gauge(sb, "sysdash_cpu_usage_percent", snapshot.cpuUsage());
+
+        header(sb, "sysdash_cpu_mode_percent", "gauge", "CPU time per mode over the last interval.");
+        double[] modes = {snapshot.cpuUser(), snapshot.cpuSystem(), snapshot.cpuIowait(), snapshot.cpuIrq(), snapshot.cpuSteal()};
+        for (int i = 0; i < CPU_MODES.length; i++) {
+            sb.append("sysdash_cpu_mode_percent{mode=\"").append(CPU_MODES[i]).append("\"} ");
+            MetricFormat.appendFixed(sb, modes[i], 3).append('\n');
+        }
+
+        header(sb, "sysdash_cpu_core_usage_percent", "gauge", "Busy time per core over the last interval.");
+        for (int core = 0; core < snapshot.coreCount(); core++) {
+            sb.append("sysdash_cpu_core_usage_percent{core=\"").append(core).append("\"} ");
+            MetricFormat.appendFixed(sb, snapshot.coreUsage(core), 3).append('\n');
+        }
+
+        header(sb, "sysdash_memory_total_bytes", "gauge", "Physical memory.");
+        sb.append("sysdash_memory_total_bytes ").append(snapshot.totalMemory()).append('\n');
+        header(sb, "sysdash_memory_free_bytes", "gauge", "Unused physical memory.");
+        sb.append("sysdash_memory_free_bytes ").append(snapshot.freeMemory()).append('\n');
+        header(sb, "sysdash_swap_total_bytes", "gauge", "Swap space.");
+        sb.append("sysdash_swap_total_bytes ").append(snapshot.swapTotal()).append('\n');
+        header(sb, "sysdash_swap_free_bytes", "gauge", "Unused swap space.");
+        sb.append("sysdash_swap_free_bytes ").append(snapshot.swapFree()).append('\n');
+        encodeMemoryBreakdown(sb);
+
+        encodeFilesystems(sb);
+
+        header(sb, "sysdash_network_receive_bytes", "counter", "Bytes received on non-loopback interfaces.");
+        sb.append("sysdash_network_receive_bytes_total ").append(snapshot.networkBytesReceived()).append('\n');
+        header(sb, "sysdash_network_transmit_bytes", "counter", "Bytes transmitted on non-loopback interfaces.");
+        sb.append("sysdash_network_transmit_bytes_total ").append(snapshot.networkBytesTransmitted()).append('\n');
+
+        encodeInterfaces(sb);
+        encodeDisks(sb);
+
+        encodeCgroup(sb);
+        encodePressure(sb);
+
+        header(sb, "sysdash_processes", "gauge", "Live processes.");
+        sb.append("sysdash_processes ").append(snapshot.processCount()).append('\n');
+
+        header(sb, "sysdash_top_process_cpu_percent", "gauge", "CPU usage of the busiest processes.");
+        for (int i = 0; i < processes.count(); i++) {
+            sb.append("sysdash_top_process_cpu_percent{pid=\"").append(processes.pid(ProcessSnapshot.BY_CPU, i))
+                .append("\",name=\"");
+            escape(sb, processes.name(ProcessSnapshot.BY_CPU, i)).append("\"} ");
+            MetricFormat.appendFixed(sb, processes.cpuUsage(ProcessSnapshot.BY_CPU, i), 3).append('\n');
+        }
+
+        if (facts.hasBattery()) {
+            header(sb, "sysdash_battery_level_percent", "gauge", "Battery charge.");
+            sb.append("sysdash_battery_level_percent ").append(snapshot.batteryLevel()).append('\n');
+            header(sb, "sysdash_battery_charging", "gauge", "1 while charging.");
+            sb.append("sysdash_battery_charging ").append(snapshot.isBatteryCharging() ? 1 : 0).append('\n');
+        }
+
+        header(sb, "sysdash_self_latency_seconds", "summary", "The dashboard's own latency per pipeline stage.");
+        Diagnostics diagnostics = feed.diagnostics();
+        for (int stage = 0; stage < Diagnostics.STAGES; stage++) {
+            diagnostics.copyTo(stage, latency);
+            if (latency.count() == 0) {
+                continue;
+            }
+            String name = Diagnostics.name(stage);
+            quantile(sb, name, "0.5", latency.percentileNanos(50));
+            quantile(sb, name, "0.99", latency.percentileNanos(99));
+            quantile(sb, name, "1", latency.maxNanos());
+            sb.append("sysdash_self_latency_seconds_sum{stage=\"").append(name).append("\"} ");
+            MetricFormat.appendFixed(sb, latency.totalNanos() / 1e9, 6).append('\n');
+            sb.append("sysdash_self_latency_seconds_count{stage=\"").append(name).append("\"} ")
+                .append(latency.count()).append('\n');
+        }
+
+        header(sb, "sysdash_self_failed_samples", "counter", "Collections that returned no usable sample.");
+        sb.append("sysdash_self_failed_samples_total ").append(diagnostics.failedSamples()).append('\n');
+
+        sb.append("# EOF\n");
+        int length = utf8(sb);
+        return Arrays.copyOf(scratch, length);
+    }
+
+    // Every mount when per-device stats are available, otherwise just the root filesystem
+    private void encodeFilesystems(StringBuilder sb) {
+        int mounts = devices.mountCount();
+        header(sb, "sysdash_filesystem_size_bytes", "gauge", "Filesystem size.");
+        if (mounts == 0) {
+            sb.append("sysdash_filesystem_size_bytes{mountpoint=\"/\"} ").append(snapshot.totalDiskSpace()).append('\n');
+        }
+        for (int i = 0; i < mounts; i++) {
+            mountLabel(sb, "sysdash_filesystem_size_bytes", i).append(devices.mountTotalBytes(i)).append('\n');
+        }
+        header(sb, "sysdash_filesystem_free_bytes", "gauge", "Filesystem free space.");
+        if (mounts == 0) {
+            sb.append("sysdash_filesystem_free_bytes{mountpoint=\"/\"} ").append(snapshot.freeDiskSpace()).append('\n');
+        }
+        for (int i = 0; i < mounts; i++) {
+            mountLabel(sb, "sysdash_filesystem_free_bytes", i).append(devices.mountFreeBytes(i)).append('\n');
+        }
+        if (mounts > 0) {
+            header(sb, "sysdash_filesystem_avail_bytes", "gauge", "Filesystem space available to unprivileged users.");
+            for (int i = 0; i < mounts; i++) {
+                mountLabel(sb, "sysdash_filesystem_avail_bytes", i).append(devices.mountAvailableBytes(i)).append('\n');
+            }
+        }
+    }
+
+    private void encodeInterfaces(StringBuilder sb) {
+        int interfaces = devices.interfaceCount();
+        if (interfaces == 0) {
+            return;
+        }
+        header(sb, "sysdash_network_interface_receive_bytes", "counter", "Bytes received per interface.");
+        for (int i = 0; i < interfaces; i++) {
+            interfaceLabel(sb, "sysdash_network_interface_receive_bytes_total", i).append(devices.receivedBytes(i)).append('\n');
+        }
+        header(sb, "sysdash_network_interface_transmit_bytes", "counter", "Bytes transmitted per interface.");
+        for (int i = 0; i < interfaces; i++) {
+            interfaceLabel(sb, "sysdash_network_interface_transmit_bytes_total", i).append(devices.transmittedBytes(i)).append('\n');
+        }
+        header(sb, "sysdash_network_interface_bytes_per_second", "gauge", "Throughput per interface over the last interval.");
+        for (int i = 0; i < interfaces; i++) {
+            rate(sb, "sysdash_network_interface_bytes_per_second", "interface", devices.interfaceName(i),
+                "rx", devices.receivedBytesPerSecond(i));
+            rate(sb, "sysdash_network_interface_bytes_per_second", "interface", devices.interfaceName(i),
+                "tx", devices.transmittedBytesPerSecond(i));
+        }
+        header(sb, "sysdash_network_interface_packets_per_second", "gauge", "Packets per interface over the last interval.");
+        for (int i = 0; i < interfaces; i++) {
+            rate(sb, "sysdash_network_interface_packets_per_second", "interface", devices.interfaceName(i),
+                "rx", devices.receivedPacketsPerSecond(i));
+            rate(sb, "sysdash_network_interface_packets_per_second", "interface", devices.interfaceName(i),
+                "tx", devices.transmittedPacketsPerSecond(i));
+        }
+        header(sb, "sysdash_network_interface_drops_per_second", "gauge", "Dropped packets per interface over the last interval.");
+        for (int i = 0; i < interfaces; i++) {
+            rate(sb, "sysdash_network_interface_drops_per_second", "interface", devices.interfaceName(i),
+                "rx", devices.receiveDropsPerSecond(i));
+            rate(sb, "sysdash_network_interface_drops_per_second", "interface", devices.interfaceName(i),
+                "tx", devices.transmitDropsPerSecond(i));
+        }
+    }
+
+    private void encodeDisks(StringBuilder sb) {
+        int disks = devices.diskCount();
+        if (disks == 0) {
+            return;
+        }
+        header(sb, "sysdash_disk_operations_per_second", "gauge", "Completed I/O requests per device over the last interval.");
+        for (int i = 0; i < disks; i++) {
+            rate(sb, "sysdash_disk_operations_per_second", "device", devices.diskName(i), "read", devices.readsPerSecond(i));
+            rate(sb, "sysdash_disk_operations_per_second", "device", devices.diskName(i), "write", devices.writesPerSecond(i));
+        }
+        header(sb, "sysdash_disk_bytes_per_second", "gauge", "Throughput per device over the last interval.");
+        for (int i = 0; i < disks; i++) {
+            rate(sb, "sysdash_disk_bytes_per_second", "device", devices.diskName(i), "read", devices.readBytesPerSecond(i));
+            rate(sb, "sysdash_disk_bytes_per_second", "device", devices.diskName(i), "write", devices.writeBytesPerSecond(i));
+        }
+        header(sb, "sysdash_disk_utilization_percent", "gauge", "Time each device had I/O in flight over the last interval.");
+        for (int i = 0; i < disks; i++) {
+            sb.append("sysdash_disk_utilization_percent{device=\"");
+            escape(sb, devices.diskName(i)).append("\"} ");
+            MetricFormat.appendFixed(sb, devices.utilization(i), 3).append('\n');
+        }
+    }
+
+    private StringBuilder mountLabel(StringBuilder sb, String name, int mount) {
+        sb.append(name).append("{mountpoint=\"");
+        return escape(sb, devices.mountPoint(mount)).append("\"} ");
+    }
+
+    private StringBuilder interfaceLabel(StringBuilder sb, String name, int i) {
+        sb.append(name).append("{interface=\"");
+        return escape(sb, devices.interfaceName(i)).append("\"} ");
+    }
+
+    // One direction of a per-device rate, e.g. name{device="sda",direction="read"}
+    private static void rate(StringBuilder sb, String name, String label, String device, String direction, double value) {
+        sb.append(name).append('{').append(label).append("=\"");
+        escape(sb, device).append("\",direction=\"").append(direction).append("\"} ");
+        MetricFormat.appendFixed(sb, value, 3).append('\n');
+    }
+
+    private void encodeMemoryBreakdown(StringBuilder sb) {
+        if (!snapshot.hasMemoryBreakdown()) {
+            return;
+        }
+        header(sb, "sysdash_memory_available_bytes", "gauge", "Memory available without swapping (MemAvailable).");
+        sb.append("sysdash_memory_available_bytes ").append(snapshot.availableMemory()).append('\n');
+        header(sb, "sysdash_memory_cached_bytes", "gauge", "Page cache.");
+        sb.append("sysdash_memory_cached_bytes ").append(snapshot.cachedMemory()).append('\n');
+        header(sb, "sysdash_memory_buffers_bytes", "gauge", "Block device buffers.");
+        sb.append("sysdash_memory_buffers_bytes ").append(snapshot.bufferMemory()).append('\n');
+        header(sb, "sysdash_memory_dirty_bytes", "gauge", "Page cache waiting to be written back.");
+        sb.append("sysdash_memory_dirty_bytes ").append(snapshot.dirtyMemory()).append('\n');
+        header(sb, "sysdash_memory_slab_bytes", "gauge", "Kernel slab allocations.");
+        sb.append("sysdash_memory_slab_bytes ").append(snapshot.slabMemory()).append('\n');
+        header(sb, "sysdash_memory_huge_pages", "gauge", "Reserved huge pages.");
+        sb.append("sysdash_memory_huge_pages{state=\"total\"} ").append(snapshot.hugePagesTotal()).append('\n');
+        sb.append("sysdash_memory_huge_pages{state=\"free\"} ").append(snapshot.hugePagesFree()).append('\n');
+        header(sb, "sysdash_page_faults_per_second", "gauge", "Page faults over the last interval.");
+        gauge(sb, "sysdash_page_faults_per_second{kind=\"all\"}", snapshot.pageFaultRate());
+        gauge(sb, "sysdash_page_faults_per_second{kind=\"major\"}", snapshot.majorFaultRate());
+        header(sb, "sysdash_swap_pages_per_second", "gauge", "Pages swapped over the last interval.");
+        gauge(sb, "sysdash_swap_pages_per_second{direction=\"in\"}", snapshot.swapInRate());
+        gauge(sb, "sysdash_swap_pages_per_second{direction=\"out\"}", snapshot.swapOutRate());
+    }
+
+    private void encodeCgroup(StringBuilder sb) {
+        if (!snapshot.hasCgroup()) {
+            return;
+        }
+        header(sb, "sysdash_cgroup_memory_bytes", "gauge", "memory.current of the cgroup that sets the memory limit, the dashboard's own if none does.");
+        sb.append("sysdash_cgroup_memory_bytes ").append(snapshot.cgroupMemoryCurrent()).append('\n');
+        if (snapshot.cgroupMemoryMax() >= 0) {
+            header(sb, "sysdash_cgroup_memory_limit_bytes", "gauge", "Effective memory limit: the smallest over the cgroup and its ancestors.");
+            sb.append("sysdash_cgroup_memory_limit_bytes ").append(snapshot.cgroupMemoryMax()).append('\n');
+        }
+        if (snapshot.cgroupCpuLimit() > 0) {
+            header(sb, "sysdash_cgroup_cpu_limit_cores", "gauge", "CPU quota divided by its period.");
+            gauge(sb, "sysdash_cgroup_cpu_limit_cores", snapshot.cgroupCpuLimit());
+        }
+        header(sb, "sysdash_cgroup_cpu_usage_percent", "gauge", "CPU used over the last interval, 100 per core, by the cgroup that sets the CPU limit.");
+        gauge(sb, "sysdash_cgroup_cpu_usage_percent", snapshot.cgroupCpuUsage());
+        header(sb, "sysdash_cgroup_cpu_periods", "counter", "CFS enforcement periods.");
+        sb.append("sysdash_cgroup_cpu_periods_total ").append(snapshot.cgroupPeriods()).append('\n');
+        header(sb, "sysdash_cgroup_cpu_throttled_periods", "counter", "Enforcement periods in which the cgroup ran out of quota.");
+        sb.append("sysdash_cgroup_cpu_throttled_periods_total ").append(snapshot.cgroupThrottledPeriods()).append('\n');
+        header(sb, "sysdash_cgroup_cpu_throttled_seconds", "counter", "Time the cgroup's tasks were held back by the quota.");
+        MetricFormat.appendFixed(sb.append("sysdash_cgroup_cpu_throttled_seconds_total "), snapshot.cgroupThrottledMicros() / 1e6, 6).append('\n');
+    }
+
+    private void encodePressure(StringBuilder sb) {
+        header(sb, "sysdash_pressure_stalled_seconds", "counter", "Time tasks were stalled on a resource, from pressure stall information.");
+        for (int block : PRESSURE_BLOCKS) {
+            for (int resource = 0; resource < SystemSnapshot.PSI_RESOURCES; resource++) {
+                if (!snapshot.hasPressure(block, resource)) {
+                    continue;
+                }
+                for (int full = 0; full < 2; full++) {
+                    sb.append("sysdash_pressure_stalled_seconds_total{scope=\"")
+                        .append(block == SystemSnapshot.HOST_PRESSURE ? "host" : "cgroup")
+                        .append("\",resource=\"").append(PSI_RESOURCES[resource])
+                        .append("\",kind=\"").append(full == 0 ? "some" : "full").append("\"} ");
+                    MetricFormat.appendFixed(sb, snapshot.pressureStallMicros(block, resource, full == 1) / 1e6, 6).append('\n');
+                }
+            }
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, double value) {
+        MetricFormat.appendFixed(sb.append(name).append(' '), value, 3).append('\n');
+    }
+
+    private static void quantile(StringBuilder sb, String stage, String quantile, long nanos) {
+        sb.append("sysdash_self_latency_seconds{stage=\"").append(stage).append("\",quantile=\"").append(quantile).append("\"} ");
+        MetricFormat.appendFixed(sb, nanos / 1e9, 6).append('\n');
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    // Transcodes the text buffer into the reused byte buffer, returns the encoded length
+    private int utf8(CharSequence chars) {
+        int n = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            if (n + 4 > scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            int c = chars.charAt(i);
+            if (Character.isHighSurrogate((char) c) && i + 1 < chars.length()) {
+                c = Character.toCodePoint((char) c, chars.charAt(++i));
+            }
+            if (c < 0x80) {
+                scratch[n++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[n++] = (byte) (0xC0 | (c >> 6));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c < 0x10000) {
+                scratch[n++] = (byte) (0xE0 | (c >> 12));
+                scratch[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                scratch[n++] = (byte) (0xF0 | (c >> 18));
+                scratch[n++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                scratch[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return n;
+    }
+
+    private static final class Encoded {
+        final long generation;
+        final byte[] bytes;
+
+        Encoded(long generation, byte[] bytes) {
+            this.generation = generation;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Batched entry points into libsysteminfo, which is loaded here rather than by a class the
+ * rest of the app depends on: if the library is missing or does not link, {@link #isAvailable}
+ * says so and {@link MetricSource#select} falls back to {@link JavaMetricSource}.
+ *
+ * The collect calls take a handle from {@link #createCollector} that owns the descriptors, buffers
+ * and previous-sample counters they use. Handles share nothing, so samplers on different threads
+ * and intervals each keep their own deltas; one handle must only be used by one thread at a time.
+ *
+ * A packaged jar carries the library as a resource. It is extracted once into the user's cache
+ * directory, under a name derived from its content hash, so every later start loads it in place
+ * and two builds never overwrite each other. Without the resource, e.g. when running from the
+ * compiled sources, it is looked up on {@code java.library.path} as before.
+ */
+final class NativeCollector {
+    static final String LIBRARY_FILE = "libsysteminfo.so";
+    static final String LIBRARY_RESOURCE = "/native/linux-" + System.getProperty("os.arch") + "/" + LIBRARY_FILE;
+
+    private static final Throwable LOAD_ERROR = load();
+
+    private NativeCollector() {
+    }
+
+    private static Throwable load() {
+        IOException extractError = null;
+        try {
+            Path bundled = null;
+            try {
+                bundled = extractBundledLibrary();
+            } catch (IOException e) {
+                extractError = e; // E.g. a read-only home; the library may still be on the path
+            }
+            if (bundled != null) {
+                System.load(bundled.toString());
+            } else {
+                System.loadLibrary("systeminfo");
+            }
+            // A library built from other sources loads fine and only fails on the first call
+            collectSnapshot(0, new long[0], 0);
+            return null;
+        } catch (UnsatisfiedLinkError e) {
+            if (extractError != null) {
+                e.addSuppressed(extractError);
+            }
+            return e;
+        }
+    }
+
+    /**
+     * Returns the cached copy of the library bundled in the jar, writing it first if this build has
+     * not been started before, or null if the jar has none.
+     */
+    static Path extractBundledLibrary() throws IOException {
+        byte[] library;
+        try (InputStream in = NativeCollector.class.getResourceAsStream(LIBRARY_RESOURCE)) {
+            if (in == null) {
+                return null;
+            }
+            library = in.readAllBytes();
+        }
+        Path directory = cacheDirectory().resolve(contentHash(library));
+        Path target = directory.resolve(LIBRARY_FILE);
+        // Only complete files are ever renamed into place, so a matching size means the same content
+        if (Files.isRegularFile(target) && Files.size(target) == library.length) {
+            return target;
+        }
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, LIBRARY_FILE, ".tmp");
+        try {
+            Files.write(temp, library);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    // $XDG_CACHE_HOME/system-dashboard, or ~/.cache/system-dashboard
+    private static Path cacheDirectory() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path base = cacheHome != null && !cacheHome.isEmpty()
+            ? Paths.get(cacheHome)
+            : Paths.get(System.getProperty("user.home"), ".cache");
+        return base.resolve("system-dashboard");
+    }
+
+    // CRC-32 plus length: initializing a MessageDigest provider costs more than the rest of the load
+    private static String contentHash(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return Long.toHexString(crc.getValue()) + "-" + content.length;
+    }
+
+    /** True if libsysteminfo loaded and its entry points link. */
+    static boolean isAvailable() {
+        return LOAD_ERROR == null;
+    }
+
+    /** Why the library is unavailable, or null. */
+    static Throwable loadError() {
+        return LOAD_ERROR;
+    }
+
+    /** Allocates an independent collector, or returns 0 if the native side is out of memory. */
+    static native long createCollector();
+
+    /** Closes the handle's descriptors and frees it; 0 is ignored. */
+    static native void closeCollector(long handle);
+
+    /**
+     * Fills {@code out} with the {@link SystemSnapshot} layout in a single call. CPU and uptime are
+     * always sampled; {@code groups} selects the optional {@code SystemSnapshot.GROUP_*} sections.
+     * Returns the number of slots written, or the negated required length if {@code out} is too small.
+     */
+    static native int collectSnapshot(long handle, long[] out, int groups);
+
+    /**
+     * Walks /proc once and writes the top {@code topN} processes by CPU, RSS and disk I/O rate
+     * in the {@link ProcessSnapshot} layout. Returns the records per dimension, or -1 on failure.
+     */
+    static native int collectProcesses(long handle, int topN, long[] out, byte[] names);
+
+    /**
+     * Writes every process seen by the last {@link #collectProcesses} walk in the {@link ProcessTable}
+     * layout, without walking /proc again. Returns the row count, or the negated row count if
+     * either array is too small.
+     */
+    static native int collectProcessTable(long handle, long[] out, byte[] names);
+
+    /**
+     * Reads /proc/net/dev and /proc/diskstats once and, if {@code mounts} is set, the capacity of
+     * every mounted filesystem, writing rates in the {@link DeviceSnapshot} layout. Returns the
+     * slots written, the negated required length (with the header counts filled in) if either
+     * array is too small, or 0 on failure.
+     */
+    static native int collectDevices(long handle, long[] out, byte[] names, boolean mounts);
+
+    /** OS name, version and architecture, hostname, IP address and MAC address. */
+    static native String[] collectHostFacts();
+
+    static native boolean hasBattery();
+
+    /** Size of the controlling terminal as {@code rows << 16 | columns}, or 0 if there is none. */
+    static native int terminalSize();
+
+    /**
+     * Reads every /proc file from {@code root} instead, e.g. a generated tree in the benchmarks.
+     * The root is process-wide, for every handle; files already open are reopened under the new
+     * root on their next read. Not meant to be called while another thread is sampling.
+     */
+    static native void setProcRoot(String root);
+}
@@ -0,0 +1,57 @@
+package systemdashboard;
+
+/**
+ * {@link MetricSource} backed by libsysteminfo: one JNI call per snapshot, process walk or
+ * device pass, with all parsing and rate state on the native side in a collector handle of
+ * its own, so several instances sample independently.
+ */
+final class NativeMetricSource implements MetricSource {
+    private long handle;
+
+    NativeMetricSource() {
+        if (!NativeCollector.isAvailable()) {
+            throw new IllegalStateException("libsysteminfo is not available", NativeCollector.loadError());
+        }
+        handle = NativeCollector.createCollector();
+        if (handle == 0) {
+            throw new IllegalStateException("libsysteminfo could not allocate a collector");
+        }
+    }
+
+    @Override
+    public String name() {
+        return NATIVE;
+    }
+
+    @Override
+    public int collectSnapshot(long[] out, int groups) {
+        return NativeCollector.collectSnapshot(handle, out, groups);
+    }
+
+    @Override
+    public int collectProcesses(int topN, long[] out, byte[] names) {
+        return NativeCollector.collectProcesses(handle, topN, out, names);
+    }
+
+    @Override
+    public int collectProcessTable(long[] out, byte[] names) {
+        return NativeCollector.collectProcessTable(handle, out, names);
+    }
+
+    @Override
+    public int collectDevices(long[] out, byte[] names, boolean mounts) {
+        return NativeCollector.collectDevices(handle, out, names, mounts);
+    }
+
+    @Override
+    public HostFacts readHostFacts() {
+        String[] facts = NativeCollector.collectHostFacts();
+        return new HostFacts(facts[0], facts[1], facts[2], facts[3], facts[4], facts[5], NativeCollector.hasBattery());
+    }
+
+    @Override
+    public void close() {
+        NativeCollector.closeCollector(handle);
+        handle = 0;
+    }
+}
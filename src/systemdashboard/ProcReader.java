@@ -0,0 +1,261 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * The Java counterpart of procfs.c: reads /proc files into one reused direct buffer and scans
+ * them in place.
+ *
+ * Long-lived files are {@link ProcFile}s whose channel stays open and is re-read from offset 0
+ * every tick. The scanning methods work at the byte level with the buffer's position as the
+ * cursor, so parsing allocates nothing: no Strings, no split, no regex.
+ */
+final class ProcReader {
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    private Path root;
+
+    ProcReader(Path root) {
+        this.root = root;
+    }
+
+    Path root() {
+        return root;
+    }
+
+    /** Points every {@link ProcFile} at another tree; open channels are reopened on their next read. */
+    void setRoot(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Re-reads a kept-open file from offset 0, positioned at its first byte. Returns false if it
+     * cannot be read; the channel is then reopened on the next call.
+     */
+    boolean read(ProcFile file) {
+        try {
+            if (file.channel != null && file.root != root) {
+                file.close();
+            }
+            if (file.channel == null) {
+                file.channel = FileChannel.open(root.resolve(file.path));
+                file.root = root;
+            }
+            fill(file.channel);
+            return true;
+        } catch (IOException e) {
+            file.close();
+            return false;
+        }
+    }
+
+    /** Reads a short-lived file such as /proc/[pid]/stat with a channel that is closed again. */
+    boolean read(Path path) {
+        try (FileChannel channel = FileChannel.open(path)) {
+            fill(channel);
+            return true;
+        } catch (IOException e) {
+            return false; // e.g. the process exited mid-walk
+        }
+    }
+
+    // Proc files report no size and may return one page per read, so read until EOF
+    private void fill(FileChannel channel) throws IOException {
+        buffer.clear();
+        long position = 0;
+        int n;
+        while ((n = channel.read(buffer, position)) >= 0) {
+            position += n;
+            if (!buffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+        buffer.flip();
+    }
+
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void position(int position) {
+        buffer.position(position);
+    }
+
+    int limit() {
+        return buffer.limit();
+    }
+
+    /** The byte at an absolute index, or 0 past the end, like the C parsers' NUL terminator. */
+    byte byteAt(int index) {
+        return index < buffer.limit() ? buffer.get(index) : 0;
+    }
+
+    void skipSpaces() {
+        int p = buffer.position();
+        int limit = buffer.limit();
+        while (p < limit && (buffer.get(p) == ' ' || buffer.get(p) == '\t')) {
+            p++;
+        }
+        buffer.position(p);
+    }
+
+    /** Skips blanks, then parses an unsigned decimal; 0 if there is none. */
+    long parseLong() {
+        skipSpaces();
+        int p = buffer.position();
+        int limit = buffer.limit();
+        long value = 0;
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            p++;
+        }
+        buffer.position(p);
+        return value;
+    }
+
+    /**
+     * Skips blanks, then parses an unsigned decimal with an optional fraction such as a PSI
+     * "0.25"; 0 if there is none.
+     */
+    double parseDecimal() {
+        double value = parseLong();
+        int p = buffer.position();
+        if (p < buffer.limit() && buffer.get(p) == '.') {
+            double scale = 0.1;
+            for (p++; p < buffer.limit() && buffer.get(p) >= '0' && buffer.get(p) <= '9'; p++) {
+                value += (buffer.get(p) - '0') * scale;
+                scale /= 10;
+            }
+            buffer.position(p);
+        }
+        return value;
+    }
+
+    /** Skips blanks and then one blank-delimited field. */
+    void skipField() {
+        skipSpaces();
+        int p = buffer.position();
+        int limit = buffer.limit();
+        while (p < limit && buffer.get(p) != ' ' && buffer.get(p) != '\n') {
+            p++;
+        }
+        buffer.position(p);
+    }
+
+    /** Moves past the next newline, or to the end. */
+    void nextLine() {
+        int p = buffer.position();
+        int limit = buffer.limit();
+        while (p < limit && buffer.get(p) != '\n') {
+            p++;
+        }
+        buffer.position(Math.min(p + 1, limit));
+    }
+
+    /** Index of {@code b} between the cursor and the end of its line, or -1. */
+    int indexInLine(byte b) {
+        int limit = buffer.limit();
+        for (int p = buffer.position(); p < limit; p++) {
+            byte c = buffer.get(p);
+            if (c == b) {
+                return p;
+            }
+            if (c == '\n') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Index of the last {@code b} in the file, or -1. */
+    int lastIndexOf(byte b) {
+        for (int p = buffer.limit() - 1; p >= 0; p--) {
+            if (buffer.get(p) == b) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /** True if the bytes at the cursor are {@code prefix}; does not move the cursor. */
+    boolean startsWith(byte[] prefix) {
+        int p = buffer.position();
+        if (buffer.limit() - p < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(p + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the blank- or colon-delimited token at the cursor into {@code dst} at {@code offset},
+     * truncated to {@code max - 1} bytes and zero-padded to {@code max}, and moves past it.
+     * Returns the copied length.
+     */
+    int copyToken(byte[] dst, int offset, int max) {
+        skipSpaces();
+        int start = buffer.position();
+        int p = start;
+        int limit = buffer.limit();
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b == ' ' || b == '\t' || b == '\n' || b == ':') {
+                break;
+            }
+            p++;
+        }
+        buffer.position(p);
+        return copy(start, p, dst, offset, max);
+    }
+
+    /** Copies bytes {@code [from, to)} like {@link #copyToken} without moving the cursor. */
+    int copy(int from, int to, byte[] dst, int offset, int max) {
+        int length = Math.min(to - from, max - 1);
+        buffer.get(from, dst, offset, length);
+        for (int i = offset + length; i < offset + max; i++) {
+            dst[i] = 0;
+        }
+        return length;
+    }
+
+    /** A /proc file kept open across ticks, relative to the reader's root unless absolute. */
+    static final class ProcFile {
+        private final String path;
+        private FileChannel channel;
+        private Path root;
+
+        ProcFile(String path) {
+            this.path = path;
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Already unusable
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package systemdashboard;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Top processes per ranking dimension, filled by {@link MetricSource#collectProcesses}.
+ *
+ * The source's sampler keeps per-PID state between calls, so CPU% and I/O rates are measured over
+ * the interval since the previous refresh rather than over the process lifetime. The first
+ * refresh therefore reports zero rates.
+ */
+public final class ProcessSnapshot {
+    // Ranking dimensions, matching PROC_BY_* in processes.h
+    public static final int BY_CPU = 0;
+    public static final int BY_MEMORY = 1;
+    public static final int BY_IO = 2;
+    public static final int DIMENSIONS = 3;
+
+    private static final int HEADER_LENGTH = 2;
+    private static final int RECORD_SLOTS = 5;
+    private static final int COMM_LENGTH = 16;
+
+    private final int topN;
+    private final long[] records;
+    private final byte[] names;
+    private int count;
+
+    public ProcessSnapshot(int topN) {
+        this.topN = topN;
+        this.records = new long[HEADER_LENGTH + DIMENSIONS * topN * RECORD_SLOTS];
+        this.names = new byte[DIMENSIONS * topN * COMM_LENGTH];
+    }
+
+    /**
+     * Walks /proc once and re-ranks every process. Returns false if the walk failed.
+     */
+    boolean refresh(MetricSource source) {
+        int written = source.collectProcesses(topN, records, names);
+        count = Math.max(written, 0);
+        return written >= 0;
+    }
+
+    /**
+     * Replaces this view's contents with {@code other}'s, keeping the first
+     * {@code min(topN, other.topN)} ranks of each dimension.
+     */
+    public void copyFrom(ProcessSnapshot other) {
+        if (other.topN == topN) {
+            System.arraycopy(other.records, 0, records, 0, records.length);
+            System.arraycopy(other.names, 0, names, 0, names.length);
+            count = other.count;
+            return;
+        }
+        int ranks = Math.min(topN, other.topN);
+        System.arraycopy(other.records, 0, records, 0, HEADER_LENGTH);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            System.arraycopy(other.records, other.slot(d, 0), records, slot(d, 0), ranks * RECORD_SLOTS);
+            System.arraycopy(other.names, d * other.topN * COMM_LENGTH, names, d * topN * COMM_LENGTH, ranks * COMM_LENGTH);
+        }
+        count = Math.min(other.count, ranks);
+    }
+
+    public int topN() {
+        return topN;
+    }
+
+    // Raw layout access for the recorder and replay
+
+    int recordLength() {
+        return records.length;
+    }
+
+    int namesLength() {
+        return names.length;
+    }
+
+    void writeRecords(LongBuffer dst, int index) {
+        dst.put(index, records, 0, records.length);
+    }
+
+    void writeNames(ByteBuffer dst, int index) {
+        dst.put(index, names, 0, names.length);
+    }
+
+    void readFrom(LongBuffer records, int recordsIndex, ByteBuffer names, int namesIndex, int count) {
+        records.get(recordsIndex, this.records, 0, this.records.length);
+        names.get(namesIndex, this.names, 0, this.names.length);
+        this.count = count;
+    }
+
+    /** Number of live processes seen by the last walk. */
+    public int processCount() {
+        return (int) records[0];
+    }
+
+    /** Number of ranked entries available in each dimension. */
+    public int count() {
+        return count;
+    }
+
+    public int pid(int dimension, int rank) {
+        return (int) records[slot(dimension, rank)];
+    }
+
+    /** CPU usage over the last interval, 100% per fully used core. */
+    public double cpuUsage(int dimension, int rank) {
+        return Double.longBitsToDouble(records[slot(dimension, rank) + 1]);
+    }
+
+    public long residentBytes(int dimension, int rank) {
+        return records[slot(dimension, rank) + 2];
+    }
+
+    public double readBytesPerSecond(int dimension, int rank) {
+        return Double.longBitsToDouble(records[slot(dimension, rank) + 3]);
+    }
+
+    public double writeBytesPerSecond(int dimension, int rank) {
+        return Double.longBitsToDouble(records[slot(dimension, rank) + 4]);
+    }
+
+    /** Copies the NUL-padded comm of an entry into {@code dst} at {@code offset}. */
+    void copyName(int dimension, int rank, byte[] dst, int offset) {
+        System.arraycopy(names, (dimension * topN + rank) * COMM_LENGTH, dst, offset, COMM_LENGTH);
+    }
+
+    public String name(int dimension, int rank) {
+        int offset = (dimension * topN + rank) * COMM_LENGTH;
+        int length = 0;
+        while (length < COMM_LENGTH && names[offset + length] != 0) {
+            length++;
+        }
+        return new String(names, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private int slot(int dimension, int rank) {
+        return HEADER_LENGTH + (dimension * topN + rank) * RECORD_SLOTS;
+    }
+}
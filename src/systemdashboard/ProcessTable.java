@@ -0,0 +1,147 @@
+package systemdashboard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Every process of the last /proc walk, filled by {@link MetricSource#collectProcessTable} right
+ * after the walk that ranked {@link ProcessSnapshot}, so both agree on rates.
+ *
+ * Rows are in the sampler's hash-table order, not sorted; {@link ProcessTableModel} sorts and
+ * filters them. The arrays grow to the largest process count seen and are reused after that.
+ */
+public final class ProcessTable {
+    // Row layout, matching PROC_TABLE_SLOTS in processes.h
+    private static final int ROW_SLOTS = 6;
+    private static final int COMM_LENGTH = 16;
+    private static final int INITIAL_ROWS = 1024;
+
+    private long[] rows = new long[INITIAL_ROWS * ROW_SLOTS];
+    private byte[] names = new byte[INITIAL_ROWS * COMM_LENGTH];
+    private int count;
+    private long walks;
+
+    /**
+     * Copies out the last walk. Returns false if the source has not walked /proc yet.
+     */
+    boolean refresh(MetricSource source) {
+        int written = source.collectProcessTable(rows, names);
+        if (written < 0) {
+            // More processes than ever before: grow with headroom for the ones still starting
+            int capacity = -written + -written / 4;
+            rows = new long[capacity * ROW_SLOTS];
+            names = new byte[capacity * COMM_LENGTH];
+            written = source.collectProcessTable(rows, names);
+        }
+        if (written <= 0) {
+            return false;
+        }
+        count = written;
+        walks++;
+        return true;
+    }
+
+    /**
+     * Fills the table from the ranked entries of a snapshot, for feeds that only have those: each
+     * process once, with an unknown owner.
+     */
+    void fillFrom(ProcessSnapshot snapshot) {
+        count = 0;
+        for (int d = 0; d < ProcessSnapshot.DIMENSIONS; d++) {
+            for (int rank = 0; rank < snapshot.count(); rank++) {
+                int pid = snapshot.pid(d, rank);
+                if (indexOf(pid) >= 0) {
+                    continue;
+                }
+                if ((count + 1) * ROW_SLOTS > rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                    names = Arrays.copyOf(names, names.length * 2);
+                }
+                int slot = count * ROW_SLOTS;
+                rows[slot] = pid;
+                rows[slot + 1] = -1;
+                rows[slot + 2] = Double.doubleToRawLongBits(snapshot.cpuUsage(d, rank));
+                rows[slot + 3] = snapshot.residentBytes(d, rank);
+                rows[slot + 4] = Double.doubleToRawLongBits(snapshot.readBytesPerSecond(d, rank));
+                rows[slot + 5] = Double.doubleToRawLongBits(snapshot.writeBytesPerSecond(d, rank));
+                snapshot.copyName(d, rank, names, count * COMM_LENGTH);
+                count++;
+            }
+        }
+        walks++;
+    }
+
+    private int indexOf(int pid) {
+        for (int i = 0; i < count; i++) {
+            if (pid(i) == pid) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Replaces this table's contents with {@code other}'s, growing the arrays if needed. */
+    public void copyFrom(ProcessTable other) {
+        if (rows.length < other.count * ROW_SLOTS) {
+            rows = new long[other.rows.length];
+            names = new byte[other.names.length];
+        }
+        System.arraycopy(other.rows, 0, rows, 0, other.count * ROW_SLOTS);
+        System.arraycopy(other.names, 0, names, 0, other.count * COMM_LENGTH);
+        count = other.count;
+        walks = other.walks;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /** Number of walks copied into this table so far; unchanged means the rows are too. */
+    public long walks() {
+        return walks;
+    }
+
+    public int pid(int row) {
+        return (int) rows[row * ROW_SLOTS];
+    }
+
+    /** Effective uid of the process, or -1 if unknown. */
+    public int uid(int row) {
+        return (int) rows[row * ROW_SLOTS + 1];
+    }
+
+    /** CPU usage over the last interval, 100% per fully used core. */
+    public double cpuUsage(int row) {
+        return Double.longBitsToDouble(rows[row * ROW_SLOTS + 2]);
+    }
+
+    public long residentBytes(int row) {
+        return rows[row * ROW_SLOTS + 3];
+    }
+
+    public double readBytesPerSecond(int row) {
+        return Double.longBitsToDouble(rows[row * ROW_SLOTS + 4]);
+    }
+
+    public double writeBytesPerSecond(int row) {
+        return Double.longBitsToDouble(rows[row * ROW_SLOTS + 5]);
+    }
+
+    public String name(int row) {
+        int offset = row * COMM_LENGTH;
+        return new String(names, offset, nameLength(offset), StandardCharsets.UTF_8);
+    }
+
+    /** Copies the NUL-padded comm of {@code row} into {@code dst} at {@code offset}. */
+    void copyName(int row, byte[] dst, int offset) {
+        System.arraycopy(names, row * COMM_LENGTH, dst, offset, COMM_LENGTH);
+    }
+
+    private int nameLength(int offset) {
+        int length = 0;
+        while (length < COMM_LENGTH && names[offset + length] != 0) {
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,519 @@
+package systemdashboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Every process as a sorted, filtered table, stored column by column in primitive arrays.
+ *
+ * Sorting and filtering happen here rather than in a {@code RowSorter}, which would box every
+ * value it compares and re-sort on each row event. Rows are ordered by the sort column with the
+ * PID as tie-break, so equal values keep their relative order from one refresh to the next.
+ * {@link #apply} rewrites only the rows whose contents changed and reports them as one update
+ * range plus an insert or delete at the tail, never a full data change: the table keeps its
+ * selection and scroll position and repaints only what is visible. Cell text is formatted on
+ * demand in {@link #getValueAt}, i.e. only for the rows on screen.
+ */
+final class ProcessTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    static final int PID = 0;
+    static final int NAME = 1;
+    static final int USER = 2;
+    static final int CPU = 3;
+    static final int MEMORY = 4;
+    static final int READ = 5;
+    static final int WRITE = 6;
+    static final int COLUMNS = 7;
+
+    private static final String[] TITLES = {"PID", "Name", "User", "CPU", "Memory", "Read", "Write"};
+    private static final int COMM_LENGTH = 16;
+
+    // uid -> user name from /etc/passwd, sorted by uid for binary search
+    private final int[] userIds;
+    private final String[] userNames;
+    private final int[] userRanks; // Position of each user name in alphabetical order
+
+    // Displayed rows, in view order
+    private int rowCount;
+    private int[] pids = new int[0];
+    private int[] uids = new int[0];
+    private double[] cpu = new double[0];
+    private long[] rss = new long[0];
+    private double[] reads = new double[0];
+    private double[] writes = new double[0];
+    private byte[] names = new byte[0];
+    private long[] rowKeys = new long[0]; // Sort key each row was placed by
+    private int[] rowSlots = new int[0]; // Open-addressed PID -> view row + 1, 0 if empty
+    private int[] keptFrom = new int[0]; // Walk row that keeps each view row's place, or -1
+    private boolean resort = true; // The view is not in the order of the sort column
+
+    // The latest walk and the scratch used to sort it
+    private final ProcessTable table = new ProcessTable();
+    // Walk rows to show, with their sort keys and PIDs alongside so the merge reads them in sequence
+    private int[] order = new int[0];
+    private long[] keys = new long[0];
+    private int[] keyPids = new int[0];
+    private int[] scratchOrder = new int[0];
+    private long[] scratchKeys = new long[0];
+    private int[] scratchPids = new int[0];
+    private final byte[] name = new byte[COMM_LENGTH];
+    private final byte[] otherName = new byte[COMM_LENGTH];
+    private final StringBuilder cell = new StringBuilder(32);
+
+    private int sortColumn = CPU;
+    private boolean descending = true;
+    private byte[] filter = new byte[0]; // Lower-case ASCII
+    private int[] filterUids = new int[0]; // Sorted; users whose name matches the filter
+
+    ProcessTableModel() {
+        this(Path.of("/etc/passwd"));
+    }
+
+    ProcessTableModel(Path passwd) {
+        List<String> entries;
+        try {
+            entries = Files.readAllLines(passwd, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            entries = List.of();
+        }
+        // name:password:uid:...
+        long[] packed = new long[entries.size()];
+        List<String> found = new ArrayList<>();
+        for (String entry : entries) {
+            String[] fields = entry.split(":", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            try {
+                packed[found.size()] = (Long.parseLong(fields[2]) << 32) | found.size();
+                found.add(fields[0]);
+            } catch (NumberFormatException e) {
+                // Skip malformed lines
+            }
+        }
+        packed = Arrays.copyOf(packed, found.size());
+        Arrays.sort(packed);
+        userIds = new int[packed.length];
+        userNames = new String[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            userIds[i] = (int) (packed[i] >>> 32);
+            userNames[i] = found.get((int) packed[i]);
+        }
+        Integer[] alphabetical = new Integer[userNames.length];
+        for (int i = 0; i < alphabetical.length; i++) {
+            alphabetical[i] = i;
+        }
+        Arrays.sort(alphabetical, (a, b) -> userNames[a].compareTo(userNames[b]));
+        userRanks = new int[userNames.length];
+        for (int rank = 0; rank < alphabetical.length; rank++) {
+            userRanks[alphabetical[rank]] = rank;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return TITLES[column];
+    }
+
+    /** Column title with an arrow on the sort column. */
+    String headerTitle(int column) {
+        return column == sortColumn ? TITLES[column] + (descending ? " \u25BC" : " \u25B2") : TITLES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == PID ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == PID) {
+            return pids[row];
+        }
+        if (column == USER) {
+            return userName(uids[row]);
+        }
+        cell.setLength(0);
+        return appendValue(cell, row, column).toString();
+    }
+
+    /** Appends a cell's text as the table shows it, without allocating for the ASCII names. */
+    StringBuilder appendValue(StringBuilder sb, int row, int column) {
+        switch (column) {
+            case PID:
+                return sb.append(pids[row]);
+            case NAME:
+                return appendName(sb, row);
+            case USER:
+                return sb.append(userName(uids[row]));
+            case CPU:
+                return MetricFormat.appendFixed(sb, cpu[row], 1).append('%');
+            case MEMORY:
+                return MetricFormat.appendFixed(sb, rss[row] / MetricFormat.MB, 1).append(" MB");
+            case READ:
+                return MetricFormat.appendFixed(sb, reads[row] / MetricFormat.KB, 1).append(" KB/s");
+            default:
+                return MetricFormat.appendFixed(sb, writes[row] / MetricFormat.KB, 1).append(" KB/s");
+        }
+    }
+
+    private StringBuilder appendName(StringBuilder sb, int row) {
+        int offset = row * COMM_LENGTH;
+        int length = nameLength(names, offset);
+        for (int i = 0; i < length; i++) {
+            if (names[offset + i] < 0) {
+                return sb.append(new String(names, offset, length, StandardCharsets.UTF_8));
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            sb.append((char) names[offset + i]);
+        }
+        return sb;
+    }
+
+    int pidAt(int row) {
+        return pids[row];
+    }
+
+    /** View row of {@code pid}, or -1 if it is not shown. */
+    int rowOf(int pid) {
+        if (rowSlots.length == 0) {
+            return -1;
+        }
+        int mask = rowSlots.length - 1;
+        for (int slot = slotOf(pid, mask); rowSlots[slot] != 0; slot = (slot + 1) & mask) {
+            if (pids[rowSlots[slot] - 1] == pid) {
+                return rowSlots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int slotOf(int pid, int mask) {
+        int mixed = pid * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+
+    // Rebuilds the PID index over the current view rows
+    private void indexRows() {
+        int capacity = 16;
+        while (capacity < rowCount * 2) {
+            capacity <<= 1;
+        }
+        if (rowSlots.length != capacity) {
+            rowSlots = new int[capacity];
+        } else {
+            Arrays.fill(rowSlots, 0);
+        }
+        int mask = capacity - 1;
+        for (int row = 0; row < rowCount; row++) {
+            int slot = slotOf(pids[row], mask);
+            while (rowSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rowSlots[slot] = row + 1;
+        }
+    }
+
+    /**
+     * Copies the latest walk from {@code feed} and shows it. Returns false without touching the
+     * rows if the feed has not walked /proc since the last call.
+     */
+    boolean update(SampleFeed feed) {
+        long walks = table.walks();
+        feed.copyProcessTable(table);
+        if (table.walks() == walks) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    /** Shows {@code latest}, e.g. a table the caller filled itself. */
+    void apply(ProcessTable latest) {
+        table.copyFrom(latest);
+        rebuild();
+    }
+
+    /**
+     * Sorts by {@code column}, flipping the direction if it already is the sort column. Numbers
+     * start largest first, text A to Z.
+     */
+    void sortBy(int column) {
+        if (column == sortColumn) {
+            descending = !descending;
+        } else {
+            sortColumn = column;
+            descending = column >= CPU;
+        }
+        resort = true;
+        rebuild();
+    }
+
+    /** Keeps the processes whose name or user contains {@code text}, ignoring case; empty shows all. */
+    void setFilter(String text) {
+        String lower = text.trim().toLowerCase(Locale.ROOT);
+        filter = lower.getBytes(StandardCharsets.UTF_8);
+        int matches = 0;
+        int[] uids = new int[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            if (!lower.isEmpty() && userNames[i].toLowerCase(Locale.ROOT).contains(lower)) {
+                uids[matches++] = userIds[i];
+            }
+        }
+        filterUids = Arrays.copyOf(uids, matches);
+        rebuild();
+    }
+
+    /*
+     * Filters and sorts the latest walk, then rewrites only the view rows that changed.
+     *
+     * A shown process whose sort key is unchanged keeps its place relative to the others like it,
+     * so only new processes and those whose key moved are sorted, then merged with the rest. A
+     * walk usually changes a small share of the keys, which makes this close to linear.
+     */
+    private void rebuild() {
+        int count = table.count();
+        if (order.length < count) {
+            order = new int[count];
+            keys = new long[count];
+            keyPids = new int[count];
+            scratchOrder = new int[count];
+            scratchKeys = new long[count];
+            scratchPids = new int[count];
+        }
+        Arrays.fill(keptFrom, 0, rowCount, -1);
+        int shown = 0;
+        int moved = 0;
+        for (int i = 0; i < count; i++) {
+            if (!matches(i)) {
+                continue;
+            }
+            shown++;
+            long key = descending ? ~key(i) : key(i);
+            int row = resort ? -1 : rowOf(table.pid(i));
+            if (row >= 0 && rowKeys[row] == key && (sortColumn != NAME || sameName(row, i))) {
+                keptFrom[row] = i;
+            } else {
+                keys[moved] = key;
+                keyPids[moved] = table.pid(i);
+                order[moved++] = i;
+            }
+        }
+        sort(0, moved);
+        int next = moved;
+        for (int row = 0; row < rowCount; row++) {
+            if (keptFrom[row] >= 0) {
+                order[next] = keptFrom[row];
+                keys[next] = rowKeys[row];
+                keyPids[next++] = pids[row];
+            }
+        }
+        merge(0, moved, shown);
+        resort = false;
+
+        if (pids.length < shown) {
+            int capacity = Math.max(shown, pids.length * 2);
+            pids = Arrays.copyOf(pids, capacity);
+            uids = Arrays.copyOf(uids, capacity);
+            cpu = Arrays.copyOf(cpu, capacity);
+            rss = Arrays.copyOf(rss, capacity);
+            reads = Arrays.copyOf(reads, capacity);
+            writes = Arrays.copyOf(writes, capacity);
+            names = Arrays.copyOf(names, capacity * COMM_LENGTH);
+            rowKeys = Arrays.copyOf(rowKeys, capacity);
+            keptFrom = Arrays.copyOf(keptFrom, capacity);
+        }
+
+        int kept = Math.min(rowCount, shown);
+        int firstChanged = -1;
+        int lastChanged = -1;
+        for (int row = 0; row < shown; row++) {
+            int i = order[row];
+            rowKeys[row] = keys[row];
+            table.copyName(i, name, 0);
+            boolean same = row < kept
+                && pids[row] == table.pid(i)
+                && uids[row] == table.uid(i)
+                && cpu[row] == table.cpuUsage(i)
+                && rss[row] == table.residentBytes(i)
+                && reads[row] == table.readBytesPerSecond(i)
+                && writes[row] == table.writeBytesPerSecond(i)
+                && Arrays.equals(names, row * COMM_LENGTH, (row + 1) * COMM_LENGTH, name, 0, COMM_LENGTH);
+            if (same) {
+                continue;
+            }
+            pids[row] = table.pid(i);
+            uids[row] = table.uid(i);
+            cpu[row] = table.cpuUsage(i);
+            rss[row] = table.residentBytes(i);
+            reads[row] = table.readBytesPerSecond(i);
+            writes[row] = table.writeBytesPerSecond(i);
+            System.arraycopy(name, 0, names, row * COMM_LENGTH, COMM_LENGTH);
+            if (row < kept) {
+                if (firstChanged < 0) {
+                    firstChanged = row;
+                }
+                lastChanged = row;
+            }
+        }
+
+        int previous = rowCount;
+        rowCount = shown;
+        indexRows();
+        if (firstChanged >= 0) {
+            fireTableRowsUpdated(firstChanged, lastChanged);
+        }
+        if (shown > previous) {
+            fireTableRowsInserted(previous, shown - 1);
+        } else if (shown < previous) {
+            fireTableRowsDeleted(shown, previous - 1);
+        }
+    }
+
+    private boolean matches(int i) {
+        if (filter.length == 0) {
+            return true;
+        }
+        if (Arrays.binarySearch(filterUids, table.uid(i)) >= 0) {
+            return true;
+        }
+        table.copyName(i, name, 0);
+        int length = nameLength(name, 0);
+        outer:
+        for (int start = 0; start + filter.length <= length; start++) {
+            for (int j = 0; j < filter.length; j++) {
+                byte b = name[start + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != filter[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Merge sort of positions [from, to) by key; the PID tie-break makes the order total
+    private void sort(int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(from, mid);
+        sort(mid, to);
+        merge(from, mid, to);
+    }
+
+    // Merges the sorted positions [from, mid) and [mid, to)
+    private void merge(int from, int mid, int to) {
+        if (from == mid || mid == to || compare(keys, keyPids, order, mid - 1, mid) <= 0) {
+            return; // Already in order
+        }
+        System.arraycopy(order, from, scratchOrder, from, to - from);
+        System.arraycopy(keys, from, scratchKeys, from, to - from);
+        System.arraycopy(keyPids, from, scratchPids, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int k = from; k < to; k++) {
+            int next = right >= to || (left < mid && compare(scratchKeys, scratchPids, scratchOrder, left, right) <= 0)
+                ? left++ : right++;
+            order[k] = scratchOrder[next];
+            keys[k] = scratchKeys[next];
+            keyPids[k] = scratchPids[next];
+        }
+    }
+
+    private boolean sameName(int row, int i) {
+        table.copyName(i, name, 0);
+        return Arrays.equals(names, row * COMM_LENGTH, (row + 1) * COMM_LENGTH, name, 0, COMM_LENGTH);
+    }
+
+    private int compare(long[] keys, int[] pids, int[] order, int a, int b) {
+        int result = Long.compare(keys[a], keys[b]);
+        if (result == 0 && sortColumn == NAME) {
+            // The key holds the first eight bytes of the name; compare the rest
+            table.copyName(order[a], name, 0);
+            table.copyName(order[b], otherName, 0);
+            result = Arrays.compareUnsigned(name, Long.BYTES, COMM_LENGTH, otherName, Long.BYTES, COMM_LENGTH);
+            if (descending) {
+                result = -result;
+            }
+        }
+        return result != 0 ? result : Integer.compare(pids[a], pids[b]);
+    }
+
+    /**
+     * Ascending sort key of walk row {@code i} for the sort column, computed once per rebuild so
+     * the merge sort compares two longs instead of decoding both rows on every comparison.
+     */
+    private long key(int i) {
+        switch (sortColumn) {
+            case NAME:
+                table.copyName(i, name, 0);
+                long packed = 0;
+                for (int b = 0; b < Long.BYTES; b++) {
+                    packed = (packed << 8) | (name[b] & 0xff);
+                }
+                return packed ^ Long.MIN_VALUE; // Unsigned byte order as signed long order
+            case USER:
+                // Named users alphabetically, then unknown uids by number
+                int user = Arrays.binarySearch(userIds, table.uid(i));
+                return user >= 0 ? userRanks[user] : (1L << 32) + table.uid(i);
+            case PID:
+                return table.pid(i);
+            case CPU:
+                return sortable(table.cpuUsage(i));
+            case MEMORY:
+                return table.residentBytes(i);
+            case READ:
+                return sortable(table.readBytesPerSecond(i));
+            case WRITE:
+                return sortable(table.writeBytesPerSecond(i));
+            default:
+                return 0;
+        }
+    }
+
+    // Bits of a double that order like Double.compare when compared as signed longs
+    private static long sortable(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private String userName(int uid) {
+        int i = Arrays.binarySearch(userIds, uid);
+        if (i >= 0) {
+            return userNames[i];
+        }
+        return uid < 0 ? "?" : Integer.toString(uid);
+    }
+
+    private static int nameLength(byte[] names, int offset) {
+        int length = 0;
+        while (length < COMM_LENGTH && names[offset + length] != 0) {
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,32 @@
+package systemdashboard;
+
+/**
+ * A stream of published samples that the panels and exporters render from: either the live
+ * {@link SamplingScheduler} or a {@link MetricsReplay} of a recording.
+ */
+interface SampleFeed {
+
+    void start();
+
+    void stop();
+
+    /** Registers a callback run on the feed's thread after each publish; it must not block. */
+    void addListener(Runnable listener);
+
+    /** Number of samples published so far. */
+    long generation();
+
+    /** Copies the latest published sample into the caller's buffers and returns its generation. */
+    long copyLatest(SystemSnapshot snapshot, ProcessSnapshot processes);
+
+    /** Copies every process of the latest /proc walk; feeds with only the ranked entries copy those. */
+    void copyProcessTable(ProcessTable table);
+
+    /** Copies the latest per-interface, per-mount and per-disk stats; feeds without them copy nothing. */
+    void copyDevices(DeviceSnapshot devices);
+
+    HostFacts hostFacts();
+
+    /** Latency of every stage that produces and renders this feed's samples. */
+    Diagnostics diagnostics();
+}
@@ -0,0 +1,14 @@
+package systemdashboard;
+
+/**
+ * Receives every sample on the sampling thread, right after it is published, straight from the
+ * sampler's own buffers. Implementations must copy what they need and return quickly. A sink
+ * that throws is removed and gets no further samples.
+ */
+interface SampleSink {
+
+    /**
+     * @param processesSampled whether {@code processes} was refreshed on this tick
+     */
+    void accept(SystemSnapshot snapshot, ProcessSnapshot processes, boolean processesSampled);
+}
@@ -0,0 +1,241 @@
+package systemdashboard;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs all metric collection on one background thread, each group on its own cadence.
+ *
+ * CPU, memory, network, cgroup and pressure stall values and per-device rates are sampled every
+ * tick; the /proc process walk every few seconds; disk space, per-mount capacity and battery every
+ * 30 seconds. Host facts are read once up front and re-checked every minute, and only republished
+ * when they actually change.
+ *
+ * Each tick samples into private buffers, appends to the history, then copies the result into
+ * the published snapshot under a short lock and hands it to the sinks; a sink that throws is
+ * dropped. Consumers copy it out with {@link #copyLatest} and
+ * are notified through listeners that run on the sampling thread and must not block.
+ */
+final class SamplingScheduler implements SampleFeed {
+    static final long PROCESS_PERIOD_MILLIS = 3_000;
+    static final long DISK_PERIOD_MILLIS = 30_000;
+    static final long HOST_FACTS_PERIOD_MILLIS = 60_000;
+
+    private static final int TICK_GROUPS = SystemSnapshot.GROUP_MEMORY | SystemSnapshot.GROUP_NETWORK | SystemSnapshot.GROUP_CGROUP;
+
+    private final MetricsHistory history;
+    private final MetricSource source;
+    private final Supplier<HostFacts> hostFactsReader;
+    private final IntSupplier refreshMillis;
+    private final ScheduledExecutorService executor;
+    private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<SampleSink> sinks = new CopyOnWriteArrayList<>();
+    private final Diagnostics diagnostics = new Diagnostics();
+
+    // Owned by the sampling thread
+    private final SystemSnapshot sampled = new SystemSnapshot();
+    private final ProcessSnapshot sampledProcesses;
+    private final DeviceSnapshot sampledDevices = new DeviceSnapshot();
+    private final ProcessTable sampledTable = new ProcessTable();
+    private long nextProcessesAt;
+    private long nextDiskAt;
+    private long nextHostFactsAt;
+
+    // Guarded by this; generation is also readable without the lock
+    private final SystemSnapshot published = new SystemSnapshot();
+    private final ProcessSnapshot publishedProcesses;
+    private final DeviceSnapshot publishedDevices = new DeviceSnapshot();
+    private final ProcessTable publishedTable = new ProcessTable();
+    private volatile long generation;
+
+    private volatile HostFacts hostFacts;
+    private volatile boolean running;
+
+    SamplingScheduler(MetricsHistory history, MetricSource source, int topProcesses,
+                      Supplier<HostFacts> hostFactsReader, IntSupplier refreshMillis) {
+        this.history = history;
+        this.source = source;
+        this.hostFactsReader = hostFactsReader;
+        this.refreshMillis = refreshMillis;
+        this.sampledProcesses = new ProcessSnapshot(topProcesses);
+        this.publishedProcesses = new ProcessSnapshot(topProcesses);
+        this.hostFacts = hostFactsReader.get();
+        this.nextHostFactsAt = System.currentTimeMillis() + HOST_FACTS_PERIOD_MILLIS;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    void addSink(SampleSink sink) {
+        sinks.add(sink);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        executor.execute(this::tick);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    MetricSource source() {
+        return source;
+    }
+
+    @Override
+    public HostFacts hostFacts() {
+        return hostFacts;
+    }
+
+    @Override
+    public Diagnostics diagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Number of samples published so far, a cheap check for whether {@link #copyLatest} has anything new.
+     */
+    @Override
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Copies the latest published sample into the caller's buffers. Returns its generation, which
+     * increases by one per tick.
+     */
+    @Override
+    public synchronized long copyLatest(SystemSnapshot snapshot, ProcessSnapshot processes) {
+        snapshot.copyFrom(published);
+        if (processes != null) {
+            processes.copyFrom(publishedProcesses);
+        }
+        return generation;
+    }
+
+    @Override
+    public synchronized void copyProcessTable(ProcessTable table) {
+        if (table.walks() != publishedTable.walks()) {
+            table.copyFrom(publishedTable);
+        }
+    }
+
+    @Override
+    public synchronized void copyDevices(DeviceSnapshot devices) {
+        devices.copyFrom(publishedDevices);
+    }
+
+    private void tick() {
+        long started = System.currentTimeMillis();
+        long startedNanos = System.nanoTime();
+        try {
+            if (sample(started)) {
+                diagnostics.recordSince(Diagnostics.TICK, startedNanos);
+                for (Runnable listener : listeners) {
+                    listener.run();
+                }
+            }
+        } catch (Throwable e) {
+            // The executor would swallow it silently, and sampling must go on regardless
+            System.err.println("Sampling tick failed: " + e);
+            e.printStackTrace();
+        } finally {
+            if (running) {
+                // Delay from the start of this tick so slow collection does not stretch the period
+                long delay = Math.max(0, refreshMillis.getAsInt() - (System.currentTimeMillis() - started));
+                executor.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /** Collects and publishes one tick; returns false if the collection failed and nothing was published. */
+    boolean sample(long now) {
+        int groups = TICK_GROUPS;
+        boolean diskDue = now >= nextDiskAt;
+        if (diskDue) {
+            groups |= SystemSnapshot.GROUP_DISK | SystemSnapshot.GROUP_BATTERY;
+        }
+        boolean processesDue = now >= nextProcessesAt;
+        if (processesDue) {
+            groups |= SystemSnapshot.GROUP_PROCESS_COUNT;
+        }
+
+        long start = System.nanoTime();
+        boolean collected = sampled.refresh(source, groups);
+        diagnostics.recordSince(Diagnostics.SNAPSHOT, start);
+        if (!collected) {
+            // Nothing new to show: the previous sample stays published, and is not recorded twice
+            diagnostics.recordFailedSample();
+            return false;
+        }
+        // Only a successful collection moves the slower groups on, a failed one retries them next tick
+        if (diskDue) {
+            nextDiskAt = now + DISK_PERIOD_MILLIS;
+        }
+        if (processesDue) {
+            nextProcessesAt = now + PROCESS_PERIOD_MILLIS;
+        }
+        start = System.nanoTime();
+        sampledDevices.refresh(source, diskDue);
+        diagnostics.recordSince(Diagnostics.DEVICES, start);
+        if (processesDue) {
+            start = System.nanoTime();
+            sampledProcesses.refresh(source);
+            sampledTable.refresh(source);
+            diagnostics.recordSince(Diagnostics.PROCESSES, start);
+        }
+        start = System.nanoTime();
+        history.append(sampled);
+        diagnostics.recordSince(Diagnostics.HISTORY, start);
+
+        if (now >= nextHostFactsAt) {
+            start = System.nanoTime();
+            HostFacts facts = hostFactsReader.get();
+            diagnostics.recordSince(Diagnostics.HOST_FACTS, start);
+            if (!facts.equals(hostFacts)) {
+                hostFacts = facts;
+            }
+            nextHostFactsAt = now + HOST_FACTS_PERIOD_MILLIS;
+        }
+
+        synchronized (this) {
+            published.copyFrom(sampled);
+            publishedDevices.copyFrom(sampledDevices);
+            if (processesDue) {
+                publishedProcesses.copyFrom(sampledProcesses);
+                publishedTable.copyFrom(sampledTable);
+            }
+            generation++;
+        }
+
+        // After the publish, so a failing recorder or agent cannot hold back the live views
+        if (!sinks.isEmpty()) {
+            start = System.nanoTime();
+            for (SampleSink sink : sinks) {
+                try {
+                    sink.accept(sampled, sampledProcesses, processesDue);
+                } catch (RuntimeException e) {
+                    System.err.println("Disabling " + sink.getClass().getSimpleName() + " after a failure: " + e);
+                    sinks.remove(sink);
+                }
+            }
+            diagnostics.recordSince(Diagnostics.SINKS, start);
+        }
+        return true;
+    }
+}
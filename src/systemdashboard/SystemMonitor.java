@@ -3,11 +3,18 @@ package systemdashboard;
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SystemMonitor {
+    private static final int TOP_PROCESSES = 3; // Shown per ranking dimension
+
     private JFrame mainFrame;
     private JPanel systemPanel;    // New panel for system info
     private JPanel cpuPanel;
@@ -16,9 +23,43 @@ public class SystemMonitor {
     private JPanel networkPanel;
     private JPanel processPanel;   // New panel for process info
     private JPanel batteryPanel;   // New panel for battery info
+    private JPanel diagnosticsPanel; // Self-instrumentation, hidden until toggled
     private JPanel controlPanel;
     private boolean isDarkTheme = false;
-    private int refreshRate = 1000; // milliseconds
+    private volatile int refreshRate = 1000; // milliseconds, read by the sampling thread
+    private final SystemSnapshot snapshot = new SystemSnapshot(); // EDT copy of the latest sample
+    private final ProcessSnapshot processes = new ProcessSnapshot(TOP_PROCESSES); // Rates since the last /proc walk
+    private final MetricsHistory history; // Every sample, rolled up for charts and exporters
+    private final SampleFeed feed; // Live sampler or a recording being replayed
+    private final AtomicBoolean uiUpdatePending = new AtomicBoolean(); // At most one updateMetrics queued on the EDT
+    private final LatencyHistogram.Snapshot latency = new LatencyHistogram.Snapshot(); // Scratch copy for the diagnostics panel
+    private HostFacts hostFacts;
+    private final StringBuilder line = new StringBuilder(128); // Reused for every label's text
+
+    // Value labels, created once by the build*Panel methods
+    private MetricLabel osNameLabel, osVersionLabel, osArchLabel, hostnameLabel, systemUptimeLabel;
+    private MetricLabel cpuUptimeLabel, cpuTotalLabel, cpuBreakdownLabel, coreCountLabel, activeProcessesLabel;
+    private final CoreHeatmap coreHeatmap = new CoreHeatmap();
+    private final DeviceSnapshot devices = new DeviceSnapshot(); // Per-interface, per-mount and per-disk rates
+    private JPanel interfaceRowsPanel;
+    private MetricLabel[] interfaceLabels = new MetricLabel[0];
+    private JPanel mountRowsPanel;
+    private MetricLabel[] mountLabels = new MetricLabel[0];
+    private JPanel diskRowsPanel;
+    private MetricLabel[] diskLabels = new MetricLabel[0];
+    private MetricLabel memTotalLabel, memUsedLabel, memAvailableLabel, swapTotalLabel, swapUsedLabel;
+    private MetricLabel memCacheLabel, memHugePagesLabel, memPagingLabel; // Hidden on replays of older recordings
+    private MetricLabel cpuCgroupLabel, cpuPressureLabel, memCgroupLabel, memPressureLabel, ioPressureLabel; // Hidden without cgroup v2 or PSI
+    private MetricLabel processTotalLabel;
+    private final ProcessTableModel processModel = new ProcessTableModel(); // Every process, sorted and filtered
+    private JTable processTable;
+    private MetricLabel diskTotalLabel, diskUsedLabel, diskFreeLabel;
+    private MetricLabel ipLabel, macLabel, rxLabel, txLabel, trafficLabel, lastUpdatedLabel;
+    private MetricLabel batteryLevelLabel, batteryStatusLabel;
+    private final MetricLabel[] diagnosticsLabels = new MetricLabel[Diagnostics.STAGES];
+    private MetricLabel failedSamplesLabel;
+    private AlertEngine alerts; // Null unless started with --alerts
+    private final MetricLabel[] alertLabels = new MetricLabel[AlertEngine.PANELS]; // Hidden while nothing fires
 
     // Colors for themes
     private Color lightBackground = new Color(240, 240, 240);
@@ -35,41 +76,56 @@ public class SystemMonitor {
     private Color lightButtonHover = new Color(210, 210, 210);
     private Color darkSelection = new Color(100, 100, 100);
     private Color lightSelection = new Color(200, 200, 200);
+    private Color darkAlert = new Color(255, 110, 110);
+    private Color lightAlert = new Color(190, 30, 30);
 
-    // Native method declarations
-    private native double getCpuUsage();
-    private native int getCpuCores();
-    private native double[] getPerCpuUsage();
-    private native long getTotalMemory();
-    private native long getFreeMemory();
-    private native long getSwapTotal();
-    private native long getSwapFree();
-    private native long getTotalDiskSpace();
-    private native long getFreeDiskSpace();
-    private native long getNetworkBytesReceived();
-    private native long getNetworkBytesTransmitted();
-    private native int getProcessCount();
-    private native long getSystemUptime();
+    // Native method declarations, package-private so the benchmarks can call them; the library is
+    // loaded by NativeCollector, so these only link once that class has initialized
+    native double getCpuUsage();
+    native int getCpuCores();
+    native double[] getPerCpuUsage();
+    native long getTotalMemory();
+    native long getFreeMemory();
+    native long getSwapTotal();
+    native long getSwapFree();
+    native long getTotalDiskSpace();
+    native long getFreeDiskSpace();
+    native long getNetworkBytesReceived();
+    native long getNetworkBytesTransmitted();
+    native int getProcessCount();
+    native long getSystemUptime();
     
     // New native method declarations
-    private native String getOsName();
-    private native String getOsVersion();
-    private native String getOsArch();
-    private native String getHostname();
-    private native String[] getNetworkInterfaces();
-    private native String getIpAddress();
-    private native String getMacAddress();
-    private native boolean hasBattery();
-    private native int getBatteryLevel();
-    private native boolean isBatteryCharging();
-    private native String[] getTopProcesses();
-
-    static {
-        System.loadLibrary("systeminfo");
-    }
+    native String getOsName();
+    native String getOsVersion();
+    native String getOsArch();
+    native String getHostname();
+    native String[] getNetworkInterfaces();
+    native String getIpAddress();
+    native String getMacAddress();
+    native boolean hasBattery();
+    native int getBatteryLevel();
+    native boolean isBatteryCharging();
 
     public SystemMonitor() {
+        this(new MetricsHistory(), null);
         prepareGUI();
+        feed.start();
+    }
+
+    SystemMonitor(MetricsHistory history, SampleFeed feed) {
+        this(history, feed, null);
+    }
+
+    // A null feed samples this host live from source, or from the best available source if that is null too
+    SystemMonitor(MetricsHistory history, SampleFeed feed, MetricSource source) {
+        this.history = history;
+        if (feed == null) {
+            MetricSource live = source != null ? source : MetricSource.select(MetricSource.AUTO);
+            feed = new SamplingScheduler(history, live, TOP_PROCESSES, live::readHostFacts, () -> refreshRate);
+        }
+        this.feed = feed;
+        hostFacts = this.feed.hostFacts();
     }
 
     private void prepareGUI() {
@@ -77,8 +133,47 @@ public class SystemMonitor {
         mainFrame.setSize(1200, 800);
         mainFrame.setLayout(new BorderLayout());
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        JPanel contentPanel = buildContentPanel();
+
+        // Control Panel
+        controlPanel = new JPanel(new FlowLayout());
+        JButton themeButton = new JButton("Toggle Theme");
+        themeButton.addActionListener(e -> toggleTheme());
+        styleButton(themeButton);
+
+        JButton diagnosticsButton = new JButton("Diagnostics");
+        diagnosticsButton.addActionListener(e -> toggleDiagnostics());
+        styleButton(diagnosticsButton);
+        
+        JComboBox<String> refreshRateCombo = new JComboBox<>(new String[]{"1s", "2s", "5s"});
+        refreshRateCombo.addActionListener(e -> {
+            String selected = (String)refreshRateCombo.getSelectedItem();
+            refreshRate = Integer.parseInt(selected.substring(0, 1)) * 1000;
+        });
+        styleComboBox(refreshRateCombo);
+
+        JLabel refreshLabel = new JLabel("Refresh Rate: ");
+        controlPanel.add(refreshLabel);
+        controlPanel.add(refreshRateCombo);
+        controlPanel.add(themeButton);
+        controlPanel.add(diagnosticsButton);
+
+        mainFrame.add(contentPanel, BorderLayout.CENTER);
+        mainFrame.add(controlPanel, BorderLayout.SOUTH);
+
+        // The frame shows with empty panels; the first sample fills them in
+        applyTheme();
+        mainFrame.setVisible(true);
+
+        // Samples arrive off the EDT once the feed is started, possibly before the frame was built
+        feed.addListener(this::scheduleUiUpdate);
+        if (feed.generation() > 0) {
+            scheduleUiUpdate();
+        }
+    }
 
-        // Create main panels
+    // Creates every metric panel and its labels; needs no window, so it also runs headless
+    JPanel buildContentPanel() {
         JPanel contentPanel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.fill = GridBagConstraints.BOTH;
@@ -86,6 +181,7 @@ public class SystemMonitor {
         
         // System Info Panel
         systemPanel = createMetricPanel("System Information");
+        buildSystemPanel();
         gbc.gridx = 0;
         gbc.gridy = 0;
         gbc.weightx = 1.0;
@@ -94,66 +190,60 @@ public class SystemMonitor {
 
         // CPU Panel
         cpuPanel = createMetricPanel("CPU Statistics");
+        alertLabels[AlertEngine.PANEL_CPU] = addAlertLabel(cpuPanel);
+        buildCpuPanel();
         gbc.gridx = 1;
         contentPanel.add(cpuPanel, gbc);
 
         // Memory Panel
         memoryPanel = createMetricPanel("Memory Statistics");
+        alertLabels[AlertEngine.PANEL_MEMORY] = addAlertLabel(memoryPanel);
+        buildMemoryPanel();
         gbc.gridx = 0;
         gbc.gridy = 1;
         contentPanel.add(memoryPanel, gbc);
 
         // Process Panel
         processPanel = createMetricPanel("Process Information");
+        alertLabels[AlertEngine.PANEL_PROCESS] = addAlertLabel(processPanel);
+        buildProcessPanel();
         gbc.gridx = 1;
         contentPanel.add(processPanel, gbc);
 
         // Disk Panel
         diskPanel = createMetricPanel("Storage Statistics");
+        alertLabels[AlertEngine.PANEL_DISK] = addAlertLabel(diskPanel);
+        buildDiskPanel();
         gbc.gridx = 0;
         gbc.gridy = 2;
         contentPanel.add(diskPanel, gbc);
 
         // Network Panel
         networkPanel = createMetricPanel("Network Statistics");
+        alertLabels[AlertEngine.PANEL_NETWORK] = addAlertLabel(networkPanel);
+        buildNetworkPanel();
         gbc.gridx = 1;
         contentPanel.add(networkPanel, gbc);
 
         // Battery Panel (if available)
-        if (hasBattery()) {
+        if (hostFacts.hasBattery()) {
             batteryPanel = createMetricPanel("Battery Status");
+            buildBatteryPanel();
             gbc.gridx = 0;
             gbc.gridy = 3;
             gbc.gridwidth = 2;
             contentPanel.add(batteryPanel, gbc);
         }
 
-        // Control Panel
-        controlPanel = new JPanel(new FlowLayout());
-        JButton themeButton = new JButton("Toggle Theme");
-        themeButton.addActionListener(e -> toggleTheme());
-        styleButton(themeButton);
-        
-        JComboBox<String> refreshRateCombo = new JComboBox<>(new String[]{"1s", "2s", "5s"});
-        refreshRateCombo.addActionListener(e -> {
-            String selected = (String)refreshRateCombo.getSelectedItem();
-            refreshRate = Integer.parseInt(selected.substring(0, 1)) * 1000;
-        });
-        styleComboBox(refreshRateCombo);
-
-        JLabel refreshLabel = new JLabel("Refresh Rate: ");
-        controlPanel.add(refreshLabel);
-        controlPanel.add(refreshRateCombo);
-        controlPanel.add(themeButton);
-
-        mainFrame.add(contentPanel, BorderLayout.CENTER);
-        mainFrame.add(controlPanel, BorderLayout.SOUTH);
-
-        applyTheme();
-        mainFrame.setVisible(true);
-
-        // Start update thread
-        startMonitoring();
+        // Diagnostics Panel (toggled from the control panel)
+        diagnosticsPanel = createMetricPanel("Diagnostics (p50 / p99 / max since start)");
+        buildDiagnosticsPanel();
+        diagnosticsPanel.setVisible(false);
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.gridwidth = 2;
+        contentPanel.add(diagnosticsPanel, gbc);
+        return contentPanel;
     }
 
     private void styleButton(JButton button) {
@@ -216,10 +306,19 @@ public class SystemMonitor {
         return panel;
     }
 
+    private void toggleDiagnostics() {
+        diagnosticsPanel.setVisible(!diagnosticsPanel.isVisible());
+        updateDiagnosticsPanel();
+        mainFrame.revalidate();
+    }
+
     private void toggleTheme() {
         isDarkTheme = !isDarkTheme;
         applyTheme();
         SwingUtilities.updateComponentTreeUI(mainFrame);
+        if (feed.generation() > 0) {
+            updateMetrics(); // Restores the alert colors the recoloring overwrote
+        }
     }
 
     private void applyTheme() {
@@ -245,7 +344,7 @@ public class SystemMonitor {
         // Update all panels
         JPanel[] panels = {
             systemPanel, cpuPanel, memoryPanel, diskPanel,
-            networkPanel, processPanel, controlPanel
+            networkPanel, processPanel, diagnosticsPanel, controlPanel
         };
         
         if (batteryPanel != null) {
@@ -299,11 +398,6 @@ public class SystemMonitor {
             }
         }
 
-        // Force an update of all metric panels
-        updateSystemPanel();
-        updateProcessPanel();
-        updateMetrics();
-
         mainFrame.repaint();
         mainFrame.revalidate();
     }
@@ -326,202 +420,719 @@ public class SystemMonitor {
         }
     }
 
-    private void updateMetrics() {
+    // Called on the sampling thread; samples arriving while an update is queued are folded into it
+    private void scheduleUiUpdate() {
+        if (uiUpdatePending.compareAndSet(false, true)) {
+            long queued = System.nanoTime();
+            SwingUtilities.invokeLater(() -> {
+                uiUpdatePending.set(false);
+                feed.diagnostics().recordSince(Diagnostics.EDT_LAG, queued);
+                updateMetrics();
+            });
+        }
+    }
+
+    void updateMetrics() {
+        long started = System.nanoTime();
+        // Render from a private copy so the sampler can keep collecting
+        feed.copyLatest(snapshot, processes);
+        feed.copyDevices(devices);
+        hostFacts = feed.hostFacts();
+
         // System Info
         updateSystemPanel();
 
         // CPU Metrics
-        double cpuUsage = getCpuUsage();
-        double[] perCpuUsage = getPerCpuUsage();
-        updateCpuPanel(cpuUsage, perCpuUsage);
+        updateCpuPanel();
 
         // Memory Metrics
-        long totalMem = getTotalMemory();
-        long freeMem = getFreeMemory();
-        long swapTotal = getSwapTotal();
-        long swapFree = getSwapFree();
-        updateMemoryPanel(totalMem, freeMem, swapTotal, swapFree);
+        updateMemoryPanel(snapshot.totalMemory(), snapshot.availableMemory(),
+            snapshot.swapTotal(), snapshot.swapFree());
 
         // Process Information
         updateProcessPanel();
 
         // Disk Metrics
-        long totalDisk = getTotalDiskSpace();
-        long freeDisk = getFreeDiskSpace();
-        updateDiskPanel(totalDisk, freeDisk);
+        updateDiskPanel(snapshot.totalDiskSpace(), snapshot.freeDiskSpace());
 
         // Network Metrics
         updateNetworkPanel();
 
         // Battery Status (if available)
-        if (hasBattery()) {
+        if (hostFacts.hasBattery()) {
             updateBatteryPanel();
         }
 
-        mainFrame.repaint();
+        // Alerts (only when rules are loaded)
+        if (alerts != null) {
+            updateAlertLabels();
+        }
+
+        // Diagnostics (only while shown)
+        if (diagnosticsPanel.isVisible()) {
+            updateDiagnosticsPanel();
+        }
+        feed.diagnostics().recordSince(Diagnostics.RENDER, started);
     }
 
-    private void updateSystemPanel() {
-        systemPanel.removeAll();
-        
+    // Panels are built once; each tick only rewrites the text of labels whose value changed
+
+    private void buildSystemPanel() {
         addMetricLabel(systemPanel, "Operating System:");
-        addMetricLabel(systemPanel, String.format("  Name: %s", getOsName()));
-        addMetricLabel(systemPanel, String.format("  Version: %s", getOsVersion()));
-        addMetricLabel(systemPanel, String.format("  Architecture: %s", getOsArch()));
-        addMetricLabel(systemPanel, String.format("  Hostname: %s", getHostname()));
-        
-        // System uptime
-        long uptime = getSystemUptime();
-        int days = (int) (uptime / 86400);
-        int hours = (int) ((uptime % 86400) / 3600);
-        int minutes = (int) ((uptime % 3600) / 60);
-        addMetricLabel(systemPanel, String.format("System Uptime: %d days, %d hours, %d minutes", 
-            days, hours, minutes));
-        
-        systemPanel.revalidate();
+        osNameLabel = addMetricLabel(systemPanel, "");
+        osVersionLabel = addMetricLabel(systemPanel, "");
+        osArchLabel = addMetricLabel(systemPanel, "");
+        hostnameLabel = addMetricLabel(systemPanel, "");
+        systemUptimeLabel = addMetricLabel(systemPanel, "");
     }
 
-    private void updateProcessPanel() {
-        processPanel.removeAll();
-        
-        addMetricLabel(processPanel, String.format("Total Processes: %d", getProcessCount()));
-        addMetricLabel(processPanel, "\nTop Processes by CPU Usage:");
-        
-        String[] topProcesses = getTopProcesses();
-        for (String process : topProcesses) {
-            addMetricLabel(processPanel, "  " + process);
+    private void buildCpuPanel() {
+        cpuUptimeLabel = addMetricLabel(cpuPanel, "");
+        cpuTotalLabel = addMetricLabel(cpuPanel, "");
+        cpuBreakdownLabel = addMetricLabel(cpuPanel, "");
+        coreCountLabel = addMetricLabel(cpuPanel, "");
+        addMetricLabel(cpuPanel, "Per Core Usage (last " + CoreHeatmap.HISTORY + " samples, hover for details):");
+        cpuPanel.add(coreHeatmap);
+
+        activeProcessesLabel = addMetricLabel(cpuPanel, "");
+        cpuCgroupLabel = addHiddenLabel(cpuPanel);
+        cpuPressureLabel = addHiddenLabel(cpuPanel);
+    }
+
+    private void buildMemoryPanel() {
+        addMetricLabel(memoryPanel, "Physical Memory:");
+        memTotalLabel = addMetricLabel(memoryPanel, "");
+        memUsedLabel = addMetricLabel(memoryPanel, "");
+        memAvailableLabel = addMetricLabel(memoryPanel, "");
+        memCacheLabel = addHiddenLabel(memoryPanel);
+        memHugePagesLabel = addHiddenLabel(memoryPanel);
+        memPagingLabel = addHiddenLabel(memoryPanel);
+
+        addSectionGap(memoryPanel);
+        addMetricLabel(memoryPanel, "Swap Memory:");
+        swapTotalLabel = addMetricLabel(memoryPanel, "");
+        swapUsedLabel = addMetricLabel(memoryPanel, "");
+        memCgroupLabel = addHiddenLabel(memoryPanel);
+        memPressureLabel = addHiddenLabel(memoryPanel);
+        ioPressureLabel = addHiddenLabel(memoryPanel);
+    }
+
+    private void buildProcessPanel() {
+        processTotalLabel = addMetricLabel(processPanel, "");
+
+        JPanel filterRow = new JPanel(new BorderLayout(6, 0));
+        filterRow.setOpaque(false);
+        filterRow.setAlignmentX(Component.LEFT_ALIGNMENT);
+        filterRow.setBorder(BorderFactory.createEmptyBorder(2, 10, 4, 10));
+        filterRow.add(new JLabel("Filter:"), BorderLayout.WEST);
+        JTextField filterField = new JTextField();
+        filterField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                keepSelection(() -> processModel.setFilter(filterField.getText()));
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                keepSelection(() -> processModel.setFilter(filterField.getText()));
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
+        });
+        filterRow.add(filterField, BorderLayout.CENTER);
+        filterRow.setMaximumSize(new Dimension(Integer.MAX_VALUE, filterRow.getPreferredSize().height));
+        processPanel.add(filterRow);
+
+        processTable = new JTable(processModel);
+        processTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        processTable.setFillsViewportHeight(true);
+        processTable.getTableHeader().setReorderingAllowed(false);
+        javax.swing.table.DefaultTableCellRenderer numbers = new javax.swing.table.DefaultTableCellRenderer();
+        numbers.setHorizontalAlignment(SwingConstants.RIGHT);
+        for (int column = ProcessTableModel.CPU; column < ProcessTableModel.COLUMNS; column++) {
+            processTable.getColumnModel().getColumn(column).setCellRenderer(numbers);
         }
-        
-        processPanel.revalidate();
+        processTable.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int column = processTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    keepSelection(() -> processModel.sortBy(processTable.convertColumnIndexToModel(column)));
+                    updateProcessHeaders();
+                }
+            }
+        });
+        updateProcessHeaders();
+
+        JScrollPane scroll = new JScrollPane(processTable);
+        scroll.setAlignmentX(Component.LEFT_ALIGNMENT);
+        scroll.setPreferredSize(new Dimension(420, 260));
+        processPanel.add(scroll);
     }
 
-    private void updateNetworkPanel() {
-        networkPanel.removeAll();
-        
+    private void updateProcessHeaders() {
+        for (int column = 0; column < ProcessTableModel.COLUMNS; column++) {
+            processTable.getColumnModel().getColumn(column).setHeaderValue(processModel.headerTitle(column));
+        }
+        processTable.getTableHeader().repaint();
+    }
+
+    // Re-sorting moves rows under the selection; follow the selected process instead
+    private void keepSelection(Runnable change) {
+        int selected = processTable.getSelectedRow();
+        int pid = selected >= 0 ? processModel.pidAt(selected) : -1;
+        change.run();
+        if (pid < 0) {
+            return;
+        }
+        int row = processModel.rowOf(pid);
+        if (row < 0) {
+            processTable.clearSelection();
+        } else if (row != processTable.getSelectedRow()) {
+            processTable.setRowSelectionInterval(row, row);
+        }
+    }
+
+    private void buildDiskPanel() {
+        addMetricLabel(diskPanel, "Root Partition (/):");
+        diskTotalLabel = addMetricLabel(diskPanel, "");
+        diskUsedLabel = addMetricLabel(diskPanel, "");
+        diskFreeLabel = addMetricLabel(diskPanel, "");
+
+        addSectionGap(diskPanel);
+        addMetricLabel(diskPanel, "Mounted Filesystems:");
+        mountRowsPanel = addRowsPanel(diskPanel);
+
+        addSectionGap(diskPanel);
+        addMetricLabel(diskPanel, "Disk I/O:");
+        diskRowsPanel = addRowsPanel(diskPanel);
+    }
+
+    private void buildNetworkPanel() {
         addMetricLabel(networkPanel, "Network Interfaces:");
-        addMetricLabel(networkPanel, String.format("  IP Address: %s", getIpAddress()));
-        addMetricLabel(networkPanel, String.format("  MAC Address: %s", getMacAddress()));
-        
-        double receivedGB = getNetworkBytesReceived() / (1024.0 * 1024 * 1024);
-        double transmittedGB = getNetworkBytesTransmitted() / (1024.0 * 1024 * 1024);
-        
-        addMetricLabel(networkPanel, "\nNetwork Traffic:");
-        addMetricLabel(networkPanel, String.format("  Total Received: %.2f GB", receivedGB));
-        addMetricLabel(networkPanel, String.format("  Total Transmitted: %.2f GB", transmittedGB));
-        addMetricLabel(networkPanel, String.format("  Total Traffic: %.2f GB", receivedGB + transmittedGB));
-        
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-        addMetricLabel(networkPanel, "\nLast Updated: " + sdf.format(new Date()));
-        
-        networkPanel.revalidate();
+        ipLabel = addMetricLabel(networkPanel, "");
+        macLabel = addMetricLabel(networkPanel, "");
+
+        addSectionGap(networkPanel);
+        addMetricLabel(networkPanel, "Network Traffic:");
+        rxLabel = addMetricLabel(networkPanel, "");
+        txLabel = addMetricLabel(networkPanel, "");
+        trafficLabel = addMetricLabel(networkPanel, "");
+
+        addSectionGap(networkPanel);
+        addMetricLabel(networkPanel, "Per Interface:");
+        interfaceRowsPanel = addRowsPanel(networkPanel);
+
+        addSectionGap(networkPanel);
+        lastUpdatedLabel = addMetricLabel(networkPanel, "");
+    }
+
+    private void buildBatteryPanel() {
+        batteryLevelLabel = addMetricLabel(batteryPanel, "");
+        batteryStatusLabel = addMetricLabel(batteryPanel, "");
+    }
+
+    private void buildDiagnosticsPanel() {
+        String source = feed instanceof SamplingScheduler ? ((SamplingScheduler) feed).source().name() : "replay";
+        addMetricLabel(diagnosticsPanel, "  Source: " + source);
+        for (int stage = 0; stage < Diagnostics.STAGES; stage++) {
+            diagnosticsLabels[stage] = addMetricLabel(diagnosticsPanel, "");
+        }
+        failedSamplesLabel = addMetricLabel(diagnosticsPanel, "");
+    }
+
+    void updateSystemPanel() {
+        osNameLabel.setText(line("  Name: ").append(hostFacts.getOsName()));
+        osVersionLabel.setText(line("  Version: ").append(hostFacts.getOsVersion()));
+        osArchLabel.setText(line("  Architecture: ").append(hostFacts.getOsArch()));
+        hostnameLabel.setText(line("  Hostname: ").append(hostFacts.getHostname()));
+        systemUptimeLabel.setText(MetricFormat.appendUptime(line("System Uptime: "), snapshot.uptime()));
+    }
+
+    void updateProcessPanel() {
+        processTotalLabel.setText(line("Total Processes: ").append(processes.processCount()));
+        if (processTable.getSelectedRow() < 0) {
+            processModel.update(feed);
+        } else {
+            keepSelection(() -> processModel.update(feed));
+        }
     }
 
-    private void updateBatteryPanel() {
+    void updateNetworkPanel() {
+        ipLabel.setText(line("  IP Address: ").append(hostFacts.getIpAddress()));
+        macLabel.setText(line("  MAC Address: ").append(hostFacts.getMacAddress()));
+
+        double receivedGB = snapshot.networkBytesReceived() / MetricFormat.GB;
+        double transmittedGB = snapshot.networkBytesTransmitted() / MetricFormat.GB;
+
+        rxLabel.setText(MetricFormat.appendFixed(line("  Total Received: "), receivedGB, 2).append(" GB"));
+        txLabel.setText(MetricFormat.appendFixed(line("  Total Transmitted: "), transmittedGB, 2).append(" GB"));
+        trafficLabel.setText(MetricFormat.appendFixed(line("  Total Traffic: "), receivedGB + transmittedGB, 2).append(" GB"));
+
+        int interfaces = devices.interfaceCount();
+        interfaceLabels = syncRows(interfaceRowsPanel, interfaceLabels, interfaces);
+        for (int i = 0; i < interfaces; i++) {
+            StringBuilder row = line("  ").append(devices.interfaceName(i)).append(": ");
+            MetricFormat.appendFixed(row, devices.receivedBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s in, ");
+            MetricFormat.appendFixed(row, devices.transmittedBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s out, ");
+            MetricFormat.appendFixed(row, devices.receivedPacketsPerSecond(i) + devices.transmittedPacketsPerSecond(i), 0)
+                .append(" pkt/s");
+            double drops = devices.receiveDropsPerSecond(i) + devices.transmitDropsPerSecond(i);
+            if (drops > 0) {
+                MetricFormat.appendFixed(row.append(", "), drops, 1).append(" drops/s");
+            }
+            interfaceLabels[i].setText(row);
+        }
+
+        lastUpdatedLabel.setText(MetricFormat.appendClock(line("Last Updated: "), snapshot.timestamp()));
+    }
+
+    void updateBatteryPanel() {
         if (batteryPanel != null) {
-            batteryPanel.removeAll();
-            
-            int batteryLevel = getBatteryLevel();
-            boolean isCharging = isBatteryCharging();
-            
-            addMetricLabel(batteryPanel, String.format("Battery Level: %d%%", batteryLevel));
-            addMetricLabel(batteryPanel, String.format("Status: %s", 
-                isCharging ? "Charging" : "Discharging"));
-            
-            batteryPanel.revalidate();
+            batteryLevelLabel.setText(line("Battery Level: ").append(snapshot.batteryLevel()).append('%'));
+            batteryStatusLabel.setText(line("Status: ").append(snapshot.isBatteryCharging() ? "Charging" : "Discharging"));
         }
     }
 
-    private void updateCpuPanel(double cpuUsage, double[] perCpuUsage) {
-        cpuPanel.removeAll();
-        
-        // System uptime
-        long uptime = getSystemUptime();
-        int days = (int) (uptime / 86400);
-        int hours = (int) ((uptime % 86400) / 3600);
-        int minutes = (int) ((uptime % 3600) / 60);
-        
-        // Add metrics with proper spacing
-        addMetricLabel(cpuPanel, String.format("System Uptime: %d days, %d hours, %d minutes", days, hours, minutes));
-        addMetricLabel(cpuPanel, String.format("Total CPU Usage: %.1f%%", cpuUsage));
-        addMetricLabel(cpuPanel, String.format("Number of CPU Cores: %d", perCpuUsage.length));
-        addMetricLabel(cpuPanel, "Per Core Usage:");
-        
-        for (int i = 0; i < perCpuUsage.length; i++) {
-            addMetricLabel(cpuPanel, String.format("  Core %d: %.1f%%", i + 1, perCpuUsage[i]));
+    void updateDiagnosticsPanel() {
+        Diagnostics diagnostics = feed.diagnostics();
+        for (int stage = 0; stage < Diagnostics.STAGES; stage++) {
+            diagnostics.copyTo(stage, latency);
+            StringBuilder row = line("  ").append(Diagnostics.title(stage)).append(": ");
+            MetricFormat.appendFixed(row, latency.percentileNanos(50) / 1e6, 2).append(" / ");
+            MetricFormat.appendFixed(row, latency.percentileNanos(99) / 1e6, 2).append(" / ");
+            MetricFormat.appendFixed(row, latency.maxNanos() / 1e6, 2).append(" ms (")
+                .append(latency.count()).append(" samples)");
+            diagnosticsLabels[stage].setText(row);
         }
-        
-        addMetricLabel(cpuPanel, String.format("Active Processes: %d", getProcessCount()));
-        
-        cpuPanel.revalidate();
+        failedSamplesLabel.setText(line("  Failed collections: ").append(diagnostics.failedSamples()));
     }
 
-    private void updateMemoryPanel(long total, long free, long swapTotal, long swapFree) {
-        memoryPanel.removeAll();
-        
-        long used = total - free;
+    void updateAlertLabels() {
+        Color color = isDarkTheme ? darkAlert : lightAlert;
+        for (int panel = 0; panel < AlertEngine.PANELS; panel++) {
+            boolean firing = alerts.appendFiring(panel, line("  ALERT: ")) > 0;
+            MetricLabel label = alertLabels[panel];
+            label.setText(firing ? line : "");
+            label.setForeground(color); // The theme toggle recolors every label
+            if (label.isVisible() != firing) {
+                label.setVisible(firing);
+            }
+        }
+    }
+
+    void updateCpuPanel() {
+        cpuUptimeLabel.setText(MetricFormat.appendUptime(line("System Uptime: "), snapshot.uptime()));
+        cpuTotalLabel.setText(MetricFormat.appendFixed(line("Total CPU Usage: "), snapshot.cpuUsage(), 1).append('%'));
+
+        StringBuilder breakdown = line("  User: ");
+        MetricFormat.appendFixed(breakdown, snapshot.cpuUser(), 1).append("%  System: ");
+        MetricFormat.appendFixed(breakdown, snapshot.cpuSystem(), 1).append("%  IOWait: ");
+        MetricFormat.appendFixed(breakdown, snapshot.cpuIowait(), 1).append("%  IRQ: ");
+        MetricFormat.appendFixed(breakdown, snapshot.cpuIrq(), 1).append("%  Steal: ");
+        MetricFormat.appendFixed(breakdown, snapshot.cpuSteal(), 1).append('%');
+        cpuBreakdownLabel.setText(breakdown);
+
+        int cores = snapshot.coreCount();
+        coreCountLabel.setText(line("Number of CPU Cores: ").append(cores));
+        coreHeatmap.update(snapshot);
+
+        activeProcessesLabel.setText(line("Active Processes: ").append(snapshot.processCount()));
+
+        boolean cgroup = snapshot.hasCgroup();
+        if (cgroup) {
+            StringBuilder row = MetricFormat.appendFixed(line("Cgroup CPU: "), snapshot.cgroupCpuUsage(), 1).append('%');
+            double limit = snapshot.cgroupCpuLimit();
+            if (limit > 0) {
+                MetricFormat.appendFixed(row.append(" of "), limit, 2).append(" cores, throttled ");
+                MetricFormat.appendFixed(row, snapshot.cgroupThrottled(), 1).append("% of periods (");
+                MetricFormat.appendFixed(row, snapshot.cgroupThrottledMicros() / 1e6, 1).append(" s total)");
+            } else {
+                row.append(" (no quota)");
+            }
+            cpuCgroupLabel.setText(row);
+        }
+        showIf(cpuCgroupLabel, cgroup);
+        updatePressureLabel(cpuPressureLabel, "CPU Pressure: ", SystemSnapshot.PSI_CPU);
+    }
+
+    // "some" and "full" avg10 of one resource for the host and, when it has its own, the cgroup
+    private void updatePressureLabel(MetricLabel label, String prefix, int resource) {
+        boolean host = snapshot.hasPressure(SystemSnapshot.HOST_PRESSURE, resource);
+        if (host) {
+            StringBuilder row = appendPressure(line(prefix).append("host "), SystemSnapshot.HOST_PRESSURE, resource);
+            if (snapshot.hasPressure(SystemSnapshot.CGROUP_PRESSURE, resource)) {
+                appendPressure(row.append(", cgroup "), SystemSnapshot.CGROUP_PRESSURE, resource);
+            }
+            label.setText(row);
+        }
+        showIf(label, host);
+    }
+
+    private StringBuilder appendPressure(StringBuilder row, int block, int resource) {
+        MetricFormat.appendFixed(row.append("some "), snapshot.pressureAvg10(block, resource, false), 1).append("% full ");
+        return MetricFormat.appendFixed(row, snapshot.pressureAvg10(block, resource, true), 1).append('%');
+    }
+
+    private static void showIf(MetricLabel label, boolean visible) {
+        if (label.isVisible() != visible) {
+            label.setVisible(visible);
+        }
+    }
+
+    // The only structural changes on the panels: cores, interfaces, mounts or disks coming and going
+    private MetricLabel[] syncRows(JPanel rows, MetricLabel[] labels, int count) {
+        if (labels.length == count) {
+            return labels;
+        }
+        rows.removeAll();
+        labels = new MetricLabel[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = addMetricLabel(rows, "");
+        }
+        rows.revalidate();
+        return labels;
+    }
+
+    // Used is what the kernel could not hand out without swapping, so page cache and buffers count as available
+    void updateMemoryPanel(long total, long available, long swapTotal, long swapFree) {
+        long used = total - available;
         long swapUsed = swapTotal - swapFree;
-        
-        addMetricLabel(memoryPanel, "Physical Memory:");
-        addMetricLabel(memoryPanel, String.format("  Total: %.2f GB", total / (1024.0 * 1024 * 1024)));
-        addMetricLabel(memoryPanel, String.format("  Used: %.2f GB (%.1f%%)", 
-            used / (1024.0 * 1024 * 1024), 
-            (double)used / total * 100));
-        addMetricLabel(memoryPanel, String.format("  Free: %.2f GB", 
-            free / (1024.0 * 1024 * 1024)));
-        
-        addMetricLabel(memoryPanel, "\nSwap Memory:");
-        addMetricLabel(memoryPanel, String.format("  Total: %.2f GB", 
-            swapTotal / (1024.0 * 1024 * 1024)));
-        addMetricLabel(memoryPanel, String.format("  Used: %.2f GB (%.1f%%)", 
-            swapUsed / (1024.0 * 1024 * 1024),
-            swapTotal > 0 ? (double)swapUsed / swapTotal * 100 : 0));
-        
-        memoryPanel.revalidate();
+
+        memTotalLabel.setText(MetricFormat.appendFixed(line("  Total: "), total / MetricFormat.GB, 2).append(" GB"));
+        StringBuilder memUsed = MetricFormat.appendFixed(line("  Used: "), used / MetricFormat.GB, 2).append(" GB (");
+        memUsedLabel.setText(MetricFormat.appendPercent(memUsed, used, total).append(')'));
+        boolean breakdown = snapshot.hasMemoryBreakdown();
+        StringBuilder memAvailable = MetricFormat.appendFixed(line("  Available: "), available / MetricFormat.GB, 2);
+        if (breakdown) {
+            MetricFormat.appendFixed(memAvailable.append(" GB (unused "), snapshot.freeMemory() / MetricFormat.GB, 2).append(" GB)");
+        } else {
+            memAvailable.append(" GB");
+        }
+        memAvailableLabel.setText(memAvailable);
+
+        if (breakdown) {
+            StringBuilder cache = MetricFormat.appendFixed(line("  Cache: "), snapshot.cachedMemory() / MetricFormat.GB, 2).append(" GB, Buffers: ");
+            MetricFormat.appendFixed(cache, snapshot.bufferMemory() / MetricFormat.GB, 2).append(" GB, Slab: ");
+            MetricFormat.appendFixed(cache, snapshot.slabMemory() / MetricFormat.GB, 2).append(" GB, Dirty: ");
+            memCacheLabel.setText(MetricFormat.appendFixed(cache, snapshot.dirtyMemory() / MetricFormat.MB, 1).append(" MB"));
+
+            StringBuilder paging = MetricFormat.appendFixed(line("  Faults: "), snapshot.pageFaultRate(), 0).append("/s (");
+            MetricFormat.appendFixed(paging, snapshot.majorFaultRate(), 0).append(" major), Swap in/out: ");
+            MetricFormat.appendFixed(paging, snapshot.swapInRate(), 0).append(" / ");
+            memPagingLabel.setText(MetricFormat.appendFixed(paging, snapshot.swapOutRate(), 0).append(" pages/s"));
+        }
+        showIf(memCacheLabel, breakdown);
+        showIf(memPagingLabel, breakdown);
+
+        long hugePages = breakdown ? snapshot.hugePagesTotal() : 0;
+        if (hugePages > 0) {
+            StringBuilder huge = line("  Huge Pages: ").append(hugePages - snapshot.hugePagesFree()).append(" / ").append(hugePages);
+            memHugePagesLabel.setText(huge.append(" used (").append(snapshot.hugePageSize() >> 10).append(" kB each)"));
+        }
+        showIf(memHugePagesLabel, hugePages > 0);
+
+        swapTotalLabel.setText(MetricFormat.appendFixed(line("  Total: "), swapTotal / MetricFormat.GB, 2).append(" GB"));
+        StringBuilder swapUsedText = MetricFormat.appendFixed(line("  Used: "), swapUsed / MetricFormat.GB, 2).append(" GB (");
+        swapUsedLabel.setText(MetricFormat.appendPercent(swapUsedText, swapUsed, swapTotal).append(')'));
+
+        boolean cgroup = snapshot.hasCgroup() && snapshot.cgroupMemoryCurrent() >= 0;
+        if (cgroup) {
+            long current = snapshot.cgroupMemoryCurrent();
+            long max = snapshot.cgroupMemoryMax();
+            StringBuilder row = MetricFormat.appendFixed(line("Cgroup Memory: "), current / MetricFormat.GB, 2);
+            if (max > 0) {
+                MetricFormat.appendFixed(row.append(" / "), max / MetricFormat.GB, 2).append(" GB (");
+                MetricFormat.appendPercent(row, current, max).append(')');
+            } else {
+                row.append(" GB (no limit)");
+            }
+            memCgroupLabel.setText(row);
+        }
+        showIf(memCgroupLabel, cgroup);
+        updatePressureLabel(memPressureLabel, "Memory Pressure: ", SystemSnapshot.PSI_MEMORY);
+        updatePressureLabel(ioPressureLabel, "I/O Pressure: ", SystemSnapshot.PSI_IO);
     }
 
-    private void updateDiskPanel(long total, long free) {
-        diskPanel.removeAll();
-        
+    void updateDiskPanel(long total, long free) {
         long used = total - free;
-        double totalGB = total / (1024.0 * 1024 * 1024);
-        double usedGB = used / (1024.0 * 1024 * 1024);
-        double freeGB = free / (1024.0 * 1024 * 1024);
-        
-        addMetricLabel(diskPanel, "Root Partition (/):");
-        addMetricLabel(diskPanel, String.format("  Total Space: %.2f GB", totalGB));
-        addMetricLabel(diskPanel, String.format("  Used Space: %.2f GB (%.1f%%)", 
-            usedGB, (double)used / total * 100));
-        addMetricLabel(diskPanel, String.format("  Free Space: %.2f GB", freeGB));
-        
-        diskPanel.revalidate();
+
+        diskTotalLabel.setText(MetricFormat.appendFixed(line("  Total Space: "), total / MetricFormat.GB, 2).append(" GB"));
+        StringBuilder diskUsed = MetricFormat.appendFixed(line("  Used Space: "), used / MetricFormat.GB, 2).append(" GB (");
+        diskUsedLabel.setText(MetricFormat.appendPercent(diskUsed, used, total).append(')'));
+        diskFreeLabel.setText(MetricFormat.appendFixed(line("  Free Space: "), free / MetricFormat.GB, 2).append(" GB"));
+
+        int mounts = devices.mountCount();
+        mountLabels = syncRows(mountRowsPanel, mountLabels, mounts);
+        for (int i = 0; i < mounts; i++) {
+            long mountTotal = devices.mountTotalBytes(i);
+            long mountUsed = mountTotal - devices.mountFreeBytes(i);
+            StringBuilder row = line("  ").append(devices.mountPoint(i)).append(": ");
+            MetricFormat.appendFixed(row, mountUsed / MetricFormat.GB, 1).append(" / ");
+            MetricFormat.appendFixed(row, mountTotal / MetricFormat.GB, 1).append(" GB (");
+            mountLabels[i].setText(MetricFormat.appendPercent(row, mountUsed, mountTotal).append(')'));
+        }
+
+        int disks = devices.diskCount();
+        diskLabels = syncRows(diskRowsPanel, diskLabels, disks);
+        for (int i = 0; i < disks; i++) {
+            StringBuilder row = line("  ").append(devices.diskName(i)).append(": ");
+            MetricFormat.appendFixed(row, devices.readsPerSecond(i), 0).append(" r/s ");
+            MetricFormat.appendFixed(row, devices.readBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s, ");
+            MetricFormat.appendFixed(row, devices.writesPerSecond(i), 0).append(" w/s ");
+            MetricFormat.appendFixed(row, devices.writeBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s, ");
+            diskLabels[i].setText(MetricFormat.appendFixed(row, devices.utilization(i), 1).append("% busy"));
+        }
+    }
+
+    // Resets the shared line buffer; every label copies the text out before the next call
+    private StringBuilder line(String prefix) {
+        line.setLength(0);
+        return line.append(prefix);
     }
 
-    private void addMetricLabel(JPanel panel, String text) {
-        JLabel label = new JLabel(text);
-        label.setAlignmentX(Component.LEFT_ALIGNMENT);
-        label.setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+    private MetricLabel addMetricLabel(JPanel panel, String text) {
+        MetricLabel label = new MetricLabel(text);
         if (isDarkTheme) {
             label.setForeground(darkText);
         }
         panel.add(label);
+        return label;
     }
 
-    private void startMonitoring() {
-        Thread updateThread = new Thread(() -> {
-            while (true) {
-                SwingUtilities.invokeLater(this::updateMetrics);
-                try {
-                    Thread.sleep(refreshRate);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+    // Row that only shows up on hosts that have the metric
+    private MetricLabel addHiddenLabel(JPanel panel) {
+        MetricLabel label = addMetricLabel(panel, "");
+        label.setVisible(false);
+        return label;
+    }
+
+    // First row of a panel, shown in red while one of its alert rules fires
+    private MetricLabel addAlertLabel(JPanel panel) {
+        return addHiddenLabel(panel);
+    }
+
+    // Vertical box whose rows are rebuilt by syncRows
+    private JPanel addRowsPanel(JPanel panel) {
+        JPanel rows = new JPanel();
+        rows.setLayout(new BoxLayout(rows, BoxLayout.Y_AXIS));
+        rows.setAlignmentX(Component.LEFT_ALIGNMENT);
+        rows.setBackground(isDarkTheme ? darkPanelBackground : lightPanelBackground);
+        panel.add(rows);
+        return rows;
+    }
+
+    private void addSectionGap(JPanel panel) {
+        panel.add(Box.createVerticalStrut(6));
+    }
+
+    // Walks the same classes as a GUI start, minus the window: builds the panels and renders one sample
+    private void renderFirstSample() {
+        CountDownLatch sampled = new CountDownLatch(1);
+        feed.addListener(sampled::countDown);
+        feed.start();
+        try {
+            SwingUtilities.invokeAndWait(this::buildContentPanel);
+            sampled.await(30, TimeUnit.SECONDS);
+            SwingUtilities.invokeAndWait(this::updateMetrics);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        feed.stop();
+    }
+
+    /**
+     * Samples without a window and serves the metrics on {@code /metrics} until the process is killed.
+     */
+    public static void runHeadless(int port, int refreshMillis) throws java.io.IOException {
+        SystemMonitor monitor = new SystemMonitor(new MetricsHistory(), null);
+        monitor.refreshRate = refreshMillis;
+        monitor.serve(port);
+    }
+
+    private void serve(int port) throws java.io.IOException {
+        MetricsServer server = new MetricsServer(feed, history, TOP_PROCESSES, port);
+        server.start();
+        feed.start();
+        System.out.println("Serving metrics on http://0.0.0.0:" + server.getPort() + "/metrics");
+    }
+
+    // Evaluates the rules in the given file on every sample and appends transitions to the log
+    private void watchAlerts(Path rules, Path log) throws java.io.IOException {
+        alerts = new AlertEngine(feed, rules, log);
+        alerts.start();
+    }
+
+    // Appends every live sample to a memory-mapped recording in the given directory
+    private void record(Path directory) throws java.io.IOException {
+        MetricsRecorder recorder = new MetricsRecorder(directory, feed.hostFacts());
+        ((SamplingScheduler) feed).addSink(recorder);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            feed.stop();
+            try {
+                recorder.close();
+            } catch (java.io.IOException e) {
+                e.printStackTrace();
             }
+        }));
+    }
+
+    // Streams every live sample to a fleet collector at host:port
+    private void streamTo(String address, String name) {
+        int colon = address.lastIndexOf(':');
+        String host = colon >= 0 ? address.substring(0, colon) : address;
+        int port = colon >= 0 ? Integer.parseInt(address.substring(colon + 1)) : FleetProtocol.DEFAULT_PORT;
+        FleetAgent agent = new FleetAgent(new InetSocketAddress(host, port),
+            name != null ? name : feed.hostFacts().getHostname(), feed.hostFacts());
+        ((SamplingScheduler) feed).addSink(agent);
+        System.out.println("Streaming samples to " + host + ":" + port);
+    }
+
+    /**
+     * Opens the fleet view: collects agent streams on {@code port} and shows one tile per host.
+     */
+    public static void runFleet(int port) throws java.io.IOException {
+        FleetCollector collector = new FleetCollector(port);
+        collector.start();
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("System Dashboard - Fleet");
+            frame.setSize(1200, 800);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            FleetPanel panel = new FleetPanel(collector);
+            frame.add(panel);
+            frame.setVisible(true);
+            panel.start();
         });
-        updateThread.setDaemon(true);
-        updateThread.start();
     }
 
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new SystemMonitor());
+    public static void main(String[] args) throws java.io.IOException {
+        // --headless [--port N] [--interval MS] skips the GUI and exports /metrics instead
+        // --record DIR saves every sample; --replay DIR [--speed 1|10|max] [--from EPOCH_MILLIS] plays one back
+        // --agent HOST[:PORT] [--name NAME] streams to a fleet collector; --fleet [--fleet-port N] runs one
+        // --source auto|native|java picks how /proc is read; auto prefers the native library when it loads
+        // --alerts FILE [--alert-log FILE] evaluates alert rules, reloading FILE whenever it changes
+        // --tui draws the dashboard in the terminal instead of a window, e.g. over SSH
+        // --cds-training renders one sample without a window and exits, for the build's AppCDS archive
+        boolean headless = false;
+        int port = MetricsServer.DEFAULT_PORT;
+        int interval = 1000;
+        Path recordDir = null;
+        Path replayDir = null;
+        double speed = 1;
+        long from = 0;
+        String agent = null;
+        String name = null;
+        boolean fleet = false;
+        int fleetPort = FleetProtocol.DEFAULT_PORT;
+        String source = MetricSource.AUTO;
+        Path alertRules = null;
+        Path alertLog = null;
+        boolean tui = false;
+        boolean cdsTraining = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--headless")) {
+                headless = true;
+            } else if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--interval") && i + 1 < args.length) {
+                interval = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--record") && i + 1 < args.length) {
+                recordDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--replay") && i + 1 < args.length) {
+                replayDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--speed") && i + 1 < args.length) {
+                String value = args[++i];
+                speed = value.equals("max") ? 0 : Double.parseDouble(value);
+            } else if (args[i].equals("--from") && i + 1 < args.length) {
+                from = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--agent") && i + 1 < args.length) {
+                agent = args[++i];
+            } else if (args[i].equals("--name") && i + 1 < args.length) {
+                name = args[++i];
+            } else if (args[i].equals("--fleet")) {
+                fleet = true;
+            } else if (args[i].equals("--fleet-port") && i + 1 < args.length) {
+                fleetPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--source") && i + 1 < args.length) {
+                source = args[++i];
+            } else if (args[i].equals("--alerts") && i + 1 < args.length) {
+                alertRules = Paths.get(args[++i]);
+            } else if (args[i].equals("--alert-log") && i + 1 < args.length) {
+                alertLog = Paths.get(args[++i]);
+            } else if (args[i].equals("--tui")) {
+                tui = true;
+            } else if (args[i].equals("--cds-training")) {
+                cdsTraining = true;
+            }
+        }
+
+        if (fleet) {
+            runFleet(fleetPort);
+            return;
+        }
+
+        MetricsHistory history = new MetricsHistory();
+        MetricsReplay replay = null;
+        if (replayDir != null) {
+            replay = new MetricsReplay(replayDir, history, TOP_PROCESSES, speed);
+            replay.seek(from);
+        }
+        SystemMonitor monitor = new SystemMonitor(history, replay,
+            replay == null ? MetricSource.select(source) : null);
+        monitor.refreshRate = interval;
+        if (recordDir != null && replay == null) {
+            monitor.record(recordDir);
+        }
+        if (agent != null && replay == null) {
+            monitor.streamTo(agent, name);
+        }
+        if (alertRules != null) {
+            monitor.watchAlerts(alertRules, alertLog != null ? alertLog : alertRules.resolveSibling("alerts.log"));
+        }
+
+        if (cdsTraining) {
+            monitor.renderFirstSample();
+            System.exit(0);
+        } else if (headless) {
+            monitor.serve(port);
+            if (replay != null) {
+                reportWhenFinished(replay);
+            }
+        } else if (tui) {
+            new TerminalUI(monitor.feed, monitor.alerts, interval, rate -> monitor.refreshRate = rate).run();
+            System.exit(0);
+        } else if (agent != null) {
+            // A bare agent needs no window; the sampler thread is a daemon, so keep main alive
+            monitor.feed.start();
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // The first sample and the /proc walk run while the EDT builds the frame
+            monitor.feed.start();
+            SwingUtilities.invokeLater(monitor::prepareGUI);
+            if (replay != null) {
+                reportWhenFinished(replay);
+            }
+        }
+    }
+
+    // The main thread reports the end of a replay, the TUI shows it in its footer instead
+    private static void reportWhenFinished(MetricsReplay replay) {
+        try {
+            while (!replay.finished()) {
+                Thread.sleep(250);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println("Replay finished after " + replay.generation() + " samples");
     }
 }
\ No newline at end of file
@@ -0,0 +1,376 @@
+package systemdashboard;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Read-only view over one batched sample filled by {@link MetricSource#collectSnapshot}.
+ *
+ * The source writes every metric of a tick into a single {@code long[]} so a refresh
+ * costs one JNI crossing with the native backend. The array is allocated once and only regrown when the number of
+ * online cores changes, so steady-state refreshes do not allocate.
+ */
+public final class SystemSnapshot {
+    // Layout version written by every MetricSource, bumped whenever slots are added
+    public static final int LAYOUT_VERSION = 4;
+
+    // Header slots; doubles are stored as raw IEEE-754 bits
+    public static final int VERSION = 0;
+    public static final int HEADER_SLOTS = 1;
+    public static final int TIMESTAMP = 2;
+    public static final int CPU_USAGE = 3;
+    public static final int CORE_COUNT = 4;
+    public static final int MEM_TOTAL = 5;
+    public static final int MEM_FREE = 6;
+    public static final int SWAP_TOTAL = 7;
+    public static final int SWAP_FREE = 8;
+    public static final int DISK_TOTAL = 9;
+    public static final int DISK_FREE = 10;
+    public static final int NET_RX = 11;
+    public static final int NET_TX = 12;
+    public static final int PROCESS_COUNT = 13;
+    public static final int UPTIME = 14;
+    public static final int BATTERY_PRESENT = 15;
+    public static final int BATTERY_LEVEL = 16;
+    public static final int BATTERY_CHARGING = 17;
+    public static final int CPU_USER = 18;
+    public static final int CPU_SYSTEM = 19;
+    public static final int CPU_IOWAIT = 20;
+    public static final int CPU_IRQ = 21;
+    public static final int CPU_STEAL = 22;
+    // cgroup v2 group of the dashboard itself; limits are -1 when unlimited. Memory and CPU usage
+    // come from the group at or above it that sets the tightest limit, so each compares with its limit
+    public static final int CGROUP_PRESENT = 23;
+    public static final int CGROUP_MEMORY_CURRENT = 24;
+    public static final int CGROUP_MEMORY_MAX = 25;
+    public static final int CGROUP_CPU_QUOTA = 26;
+    public static final int CGROUP_CPU_PERIOD = 27;
+    public static final int CGROUP_CPU_USAGE = 28;
+    public static final int CGROUP_PERIODS = 29;
+    public static final int CGROUP_THROTTLED_PERIODS = 30;
+    public static final int CGROUP_THROTTLED_USEC = 31;
+    public static final int CGROUP_THROTTLED = 32;
+    // Pressure stall information: PSI_RESOURCES blocks of PRESSURE_SLOTS for the host, then the cgroup
+    public static final int HOST_PRESSURE = 33;
+    public static final int CGROUP_PRESSURE = 45;
+    // Memory breakdown from /proc/meminfo in bytes, huge pages as page counts
+    public static final int MEM_AVAILABLE = 57;
+    public static final int MEM_CACHED = 58;
+    public static final int MEM_BUFFERS = 59;
+    public static final int MEM_DIRTY = 60;
+    public static final int MEM_SLAB = 61;
+    public static final int HUGE_PAGES_TOTAL = 62;
+    public static final int HUGE_PAGES_FREE = 63;
+    public static final int HUGE_PAGE_SIZE = 64;
+    // Paging rates from /proc/vmstat, per second
+    public static final int PAGE_FAULTS = 65;
+    public static final int MAJOR_FAULTS = 66;
+    public static final int SWAP_IN = 67;
+    public static final int SWAP_OUT = 68;
+    public static final int HEADER_LENGTH = 69;
+
+    // Pressure resources, and the slots of each block: avg10 percentages, then total stall microseconds
+    public static final int PSI_CPU = 0;
+    public static final int PSI_MEMORY = 1;
+    public static final int PSI_IO = 2;
+    public static final int PSI_RESOURCES = 3;
+    public static final int PRESSURE_SLOTS = 4;
+    public static final int SOME_AVG10 = 0;
+    public static final int FULL_AVG10 = 1;
+    public static final int SOME_TOTAL = 2;
+    public static final int FULL_TOTAL = 3;
+
+    // Optional sections for refresh(int); CPU and uptime are always sampled
+    public static final int GROUP_MEMORY = 1;
+    public static final int GROUP_DISK = 2;
+    public static final int GROUP_NETWORK = 4;
+    public static final int GROUP_PROCESS_COUNT = 8;
+    public static final int GROUP_BATTERY = 16;
+    public static final int GROUP_CGROUP = 32;
+    public static final int GROUP_ALL = 63;
+
+    private long[] slots = new long[HEADER_LENGTH + Runtime.getRuntime().availableProcessors()];
+
+    /**
+     * Collects a fresh sample of every group. Returns false if the source's layout is newer than this view.
+     */
+    boolean refresh(MetricSource source) {
+        return refresh(source, GROUP_ALL);
+    }
+
+    /**
+     * Collects CPU, uptime and the requested {@code GROUP_*} sections; the other sections keep
+     * the values of the last refresh that included them.
+     */
+    boolean refresh(MetricSource source, int groups) {
+        int written = source.collectSnapshot(slots, groups);
+        if (written < 0) {
+            // Core count grew since the last tick
+            slots = Arrays.copyOf(slots, -written);
+            written = source.collectSnapshot(slots, groups);
+        }
+        return written > 0 && slots[VERSION] == LAYOUT_VERSION;
+    }
+
+    /**
+     * Replaces this view's contents with {@code other}'s, reallocating only if the core count grew.
+     */
+    public void copyFrom(SystemSnapshot other) {
+        if (slots.length != other.slots.length) {
+            slots = new long[other.slots.length];
+        }
+        System.arraycopy(other.slots, 0, slots, 0, slots.length);
+    }
+
+    // Raw layout access for the recorder and replay
+
+    int slotCount() {
+        return slots.length;
+    }
+
+    void writeSlots(LongBuffer dst, int index) {
+        dst.put(index, slots, 0, slots.length);
+    }
+
+    void readSlots(LongBuffer src, int index, int count) {
+        if (slots.length != count) {
+            slots = new long[count];
+        }
+        src.get(index, slots, 0, count);
+    }
+
+    public long timestamp() {
+        return slots[TIMESTAMP];
+    }
+
+    public double cpuUsage() {
+        return Double.longBitsToDouble(slots[CPU_USAGE]);
+    }
+
+    public double cpuUser() {
+        return Double.longBitsToDouble(slots[CPU_USER]);
+    }
+
+    public double cpuSystem() {
+        return Double.longBitsToDouble(slots[CPU_SYSTEM]);
+    }
+
+    public double cpuIowait() {
+        return Double.longBitsToDouble(slots[CPU_IOWAIT]);
+    }
+
+    /** Hard and soft interrupt time combined. */
+    public double cpuIrq() {
+        return Double.longBitsToDouble(slots[CPU_IRQ]);
+    }
+
+    public double cpuSteal() {
+        return Double.longBitsToDouble(slots[CPU_STEAL]);
+    }
+
+    public int coreCount() {
+        return (int) slots[CORE_COUNT];
+    }
+
+    public double coreUsage(int core) {
+        return Double.longBitsToDouble(slots[(int) slots[HEADER_SLOTS] + core]);
+    }
+
+    public long totalMemory() {
+        return slots[MEM_TOTAL];
+    }
+
+    public long freeMemory() {
+        return slots[MEM_FREE];
+    }
+
+    /**
+     * Memory that can be handed out without swapping, i.e. MemAvailable. Recordings made before the
+     * layout had it fall back to {@link #freeMemory}.
+     */
+    public long availableMemory() {
+        return hasMemoryBreakdown() ? slots[MEM_AVAILABLE] : freeMemory();
+    }
+
+    /** True if the sample carries the /proc/meminfo breakdown and /proc/vmstat rates. */
+    public boolean hasMemoryBreakdown() {
+        return slots[HEADER_SLOTS] > SWAP_OUT && slots[MEM_AVAILABLE] > 0;
+    }
+
+    /** Page cache, without swap cache. */
+    public long cachedMemory() {
+        return slots[MEM_CACHED];
+    }
+
+    public long bufferMemory() {
+        return slots[MEM_BUFFERS];
+    }
+
+    /** Page cache waiting to be written back. */
+    public long dirtyMemory() {
+        return slots[MEM_DIRTY];
+    }
+
+    /** Kernel slab allocations, reclaimable or not. */
+    public long slabMemory() {
+        return slots[MEM_SLAB];
+    }
+
+    public long hugePagesTotal() {
+        return slots[HUGE_PAGES_TOTAL];
+    }
+
+    public long hugePagesFree() {
+        return slots[HUGE_PAGES_FREE];
+    }
+
+    public long hugePageSize() {
+        return slots[HUGE_PAGE_SIZE];
+    }
+
+    /** Page faults per second over the last interval, minor and major. */
+    public double pageFaultRate() {
+        return Double.longBitsToDouble(slots[PAGE_FAULTS]);
+    }
+
+    /** Faults per second that had to wait for disk. */
+    public double majorFaultRate() {
+        return Double.longBitsToDouble(slots[MAJOR_FAULTS]);
+    }
+
+    /** Pages swapped in per second. */
+    public double swapInRate() {
+        return Double.longBitsToDouble(slots[SWAP_IN]);
+    }
+
+    /** Pages swapped out per second. */
+    public double swapOutRate() {
+        return Double.longBitsToDouble(slots[SWAP_OUT]);
+    }
+
+    public long swapTotal() {
+        return slots[SWAP_TOTAL];
+    }
+
+    public long swapFree() {
+        return slots[SWAP_FREE];
+    }
+
+    public long totalDiskSpace() {
+        return slots[DISK_TOTAL];
+    }
+
+    public long freeDiskSpace() {
+        return slots[DISK_FREE];
+    }
+
+    public long networkBytesReceived() {
+        return slots[NET_RX];
+    }
+
+    public long networkBytesTransmitted() {
+        return slots[NET_TX];
+    }
+
+    public int processCount() {
+        return (int) slots[PROCESS_COUNT];
+    }
+
+    public long uptime() {
+        return slots[UPTIME];
+    }
+
+    public boolean hasBattery() {
+        return slots[BATTERY_PRESENT] != 0;
+    }
+
+    public int batteryLevel() {
+        return (int) slots[BATTERY_LEVEL];
+    }
+
+    public boolean isBatteryCharging() {
+        return slots[BATTERY_CHARGING] != 0;
+    }
+
+    /**
+     * True if the dashboard runs in a cgroup v2 group. Recordings made before the layout had
+     * cgroup slots report false.
+     */
+    public boolean hasCgroup() {
+        return slots[HEADER_SLOTS] > CGROUP_PRESENT && slots[CGROUP_PRESENT] != 0;
+    }
+
+    /** memory.current of the group that sets {@link #cgroupMemoryMax}, or -1 if unknown. */
+    public long cgroupMemoryCurrent() {
+        return slots[CGROUP_MEMORY_CURRENT];
+    }
+
+    /** Effective memory limit, the smallest over the group and its ancestors, or -1 if unlimited. */
+    public long cgroupMemoryMax() {
+        return slots[CGROUP_MEMORY_MAX];
+    }
+
+    /** CPU time the group may use per {@link #cgroupCpuPeriod} in microseconds, or -1 if unlimited. */
+    public long cgroupCpuQuota() {
+        return slots[CGROUP_CPU_QUOTA];
+    }
+
+    public long cgroupCpuPeriod() {
+        return slots[CGROUP_CPU_PERIOD];
+    }
+
+    /** The quota in cores, e.g. 1.5 for "150000 100000", or 0 if unlimited. */
+    public double cgroupCpuLimit() {
+        long quota = cgroupCpuQuota();
+        long period = cgroupCpuPeriod();
+        return quota > 0 && period > 0 ? (double) quota / period : 0;
+    }
+
+    /** CPU used by the group over the last interval, 100% per fully used core. */
+    public double cgroupCpuUsage() {
+        return Double.longBitsToDouble(slots[CGROUP_CPU_USAGE]);
+    }
+
+    /** Cumulative enforcement periods, from cpu.stat. */
+    public long cgroupPeriods() {
+        return slots[CGROUP_PERIODS];
+    }
+
+    /** Cumulative periods in which the group ran out of quota. */
+    public long cgroupThrottledPeriods() {
+        return slots[CGROUP_THROTTLED_PERIODS];
+    }
+
+    /** Cumulative time the group's tasks were held back by the quota, in microseconds. */
+    public long cgroupThrottledMicros() {
+        return slots[CGROUP_THROTTLED_USEC];
+    }
+
+    /** Share of the last interval's enforcement periods that were throttled, in percent. */
+    public double cgroupThrottled() {
+        return Double.longBitsToDouble(slots[CGROUP_THROTTLED]);
+    }
+
+    /**
+     * True if {@code block} ({@link #HOST_PRESSURE} or {@link #CGROUP_PRESSURE}) has pressure stall
+     * information for {@code resource}; it needs a kernel with PSI enabled.
+     */
+    public boolean hasPressure(int block, int resource) {
+        return slots[HEADER_SLOTS] > block + resource * PRESSURE_SLOTS + SOME_TOTAL
+            && (block == HOST_PRESSURE || hasCgroup())
+            && slots[block + resource * PRESSURE_SLOTS + SOME_TOTAL] >= 0;
+    }
+
+    /**
+     * Share of the last 10 seconds in which some (or, if {@code full}, all) runnable tasks of the
+     * host or group were stalled on {@code resource}, in percent.
+     */
+    public double pressureAvg10(int block, int resource, boolean full) {
+        return Double.longBitsToDouble(slots[block + resource * PRESSURE_SLOTS + (full ? FULL_AVG10 : SOME_AVG10)]);
+    }
+
+    /** Cumulative stall time behind {@link #pressureAvg10}, in microseconds. */
+    public long pressureStallMicros(int block, int resource, boolean full) {
+        return slots[block + resource * PRESSURE_SLOTS + (full ? FULL_TOTAL : SOME_TOTAL)];
+    }
+}
@@ -0,0 +1,248 @@
+package systemdashboard;
+
+import java.util.Arrays;
+
+/**
+ * Off-screen character grid for {@link TerminalUI}, and the diff that brings the terminal up to date.
+ *
+ * A frame is drawn into the back buffer from scratch. {@link #flush} then compares it cell by cell
+ * with what the terminal already shows and encodes only the cells that changed, as UTF-8 and ANSI
+ * escapes, into one byte array that the caller writes in a single call. The cursor is only moved
+ * when the next changed cell is not where the previous one left it, and a short run of unchanged
+ * cells on the same line is rewritten instead when that takes fewer bytes than the move. The style
+ * is only switched when it differs. Nothing is allocated per frame once the grid has its size.
+ */
+final class TerminalGrid {
+    static final byte NORMAL = 0;
+    static final byte BOLD = 1;
+    static final byte DIM = 2;
+    static final byte REVERSE = 3;
+    static final byte RED = 4;
+    static final byte YELLOW = 5;
+    static final byte GREEN = 6;
+
+    private static final String[] SGR = {
+        "\033[0m", "\033[0;1m", "\033[0;2m", "\033[0;7m", "\033[0;31m", "\033[0;33m", "\033[0;32m"
+    };
+    private static final String CLEAR = "\033[0m\033[H\033[2J";
+
+    private int columns;
+    private int rows;
+    // Row-major, back buffer being drawn and the cells the terminal shows
+    private char[] chars = new char[0];
+    private byte[] styles = new byte[0];
+    private char[] shownChars = new char[0];
+    private byte[] shownStyles = new byte[0];
+    private boolean repaint = true; // The terminal's contents are unknown: clear it and draw everything
+
+    private byte[] out = new byte[4096];
+    private int length;
+
+    /** Sets the size; any change clears the screen on the next flush and redraws it in full. */
+    void resize(int columns, int rows) {
+        if (columns == this.columns && rows == this.rows) {
+            return;
+        }
+        this.columns = columns;
+        this.rows = rows;
+        chars = new char[columns * rows];
+        styles = new byte[columns * rows];
+        shownChars = new char[columns * rows];
+        shownStyles = new byte[columns * rows];
+        repaint = true;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /** Redraws every cell on the next flush, e.g. after something else wrote to the terminal. */
+    void invalidate() {
+        repaint = true;
+    }
+
+    /** Blanks the back buffer for the next frame. */
+    void clear() {
+        Arrays.fill(chars, ' ');
+        Arrays.fill(styles, NORMAL);
+    }
+
+    /** Writes {@code text} from (row, column), clipped at the right edge. Returns the column after it. */
+    int put(int row, int column, CharSequence text, byte style) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            put(row, column + i, text.charAt(i), style);
+        }
+        return column + length;
+    }
+
+    /** Writes {@code text} so that it ends just before {@code end}. Returns the column it starts at. */
+    int putRight(int row, int end, CharSequence text, byte style) {
+        int start = end - text.length();
+        put(row, start, text, style);
+        return start;
+    }
+
+    void put(int row, int column, char c, byte style) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            return;
+        }
+        // Control characters would move the cursor, and wide ones (from U+1100 on) would break the
+        // one cell per char bookkeeping, e.g. in process names; the sort arrows are narrow
+        if (c < ' ' || c == 0x7f || Character.isSurrogate(c) || c >= 0x1100 && c != '\u25B2' && c != '\u25BC') {
+            c = '?';
+        }
+        chars[row * columns + column] = c;
+        styles[row * columns + column] = style;
+    }
+
+    void fill(int row, int column, int count, char c, byte style) {
+        for (int i = 0; i < count; i++) {
+            put(row, column + i, c, style);
+        }
+    }
+
+    /** Restyles {@code count} cells without changing their text, e.g. to highlight a whole line. */
+    void style(int row, int column, int count, byte style) {
+        if (row < 0 || row >= rows) {
+            return;
+        }
+        int from = Math.max(column, 0);
+        int to = Math.min(column + count, columns);
+        Arrays.fill(styles, row * columns + from, row * columns + Math.max(from, to), style);
+    }
+
+    /**
+     * Encodes the changes since the last flush into {@link #buffer} and returns their length in
+     * bytes, 0 if the terminal is already up to date. The back buffer is then what it shows.
+     */
+    int flush() {
+        length = 0;
+        int style = NORMAL; // Every flush leaves the terminal unstyled, but the cursor anywhere
+        int cursorRow = -1;
+        int cursorColumn = -1;
+        if (repaint) {
+            append(CLEAR);
+            Arrays.fill(shownChars, ' ');
+            Arrays.fill(shownStyles, NORMAL);
+            cursorRow = 0;
+            cursorColumn = 0;
+            repaint = false;
+        }
+        // The bottom-right cell is never written: the pending wrap would scroll some terminals
+        int cells = columns * rows - 1;
+        for (int i = 0; i < cells; i++) {
+            if (chars[i] == shownChars[i] && styles[i] == shownStyles[i]) {
+                continue;
+            }
+            int row = i / columns;
+            int column = i - row * columns;
+            if (row != cursorRow || column != cursorColumn) {
+                if (row == cursorRow && column > cursorColumn && canRewrite(i - (column - cursorColumn), i, style, row, column)) {
+                    for (int j = i - (column - cursorColumn); j < i; j++) {
+                        appendChar(chars[j]);
+                    }
+                } else {
+                    appendMove(row, column);
+                }
+            }
+            if (styles[i] != style) {
+                style = styles[i];
+                append(SGR[style]);
+            }
+            appendChar(chars[i]);
+            shownChars[i] = chars[i];
+            shownStyles[i] = styles[i];
+            cursorRow = row;
+            cursorColumn = column + 1;
+        }
+        if (length > 0 && style != NORMAL) {
+            append(SGR[NORMAL]); // Leave the terminal's own output, e.g. after exit, unstyled
+        }
+        return length;
+    }
+
+    /** The encoded frame, valid up to the length returned by the last {@link #flush}. */
+    byte[] buffer() {
+        return out;
+    }
+
+    // Unchanged cells [from, to) can be written over in the current style for fewer bytes than a move
+    private boolean canRewrite(int from, int to, int style, int row, int column) {
+        int moveBytes = 4 + digits(row + 1) + digits(column + 1);
+        int bytes = 0;
+        for (int j = from; j < to; j++) {
+            if (styles[j] != style) {
+                return false;
+            }
+            bytes += utf8Length(chars[j]);
+            if (bytes >= moveBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ESC [ row ; column H, 1-based
+    private void appendMove(int row, int column) {
+        ensure(16);
+        out[length++] = 033;
+        out[length++] = '[';
+        appendNumber(row + 1);
+        out[length++] = ';';
+        appendNumber(column + 1);
+        out[length++] = 'H';
+    }
+
+    private void appendNumber(int value) {
+        int start = length;
+        do {
+            out[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int a = start, b = length - 1; a < b; a++, b--) {
+            byte t = out[a];
+            out[a] = out[b];
+            out[b] = t;
+        }
+    }
+
+    private void append(String ascii) {
+        ensure(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            out[length++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void appendChar(char c) {
+        ensure(3);
+        if (c < 0x80) {
+            out[length++] = (byte) c;
+        } else if (c < 0x800) {
+            out[length++] = (byte) (0xc0 | c >> 6);
+            out[length++] = (byte) (0x80 | c & 0x3f);
+        } else {
+            out[length++] = (byte) (0xe0 | c >> 12);
+            out[length++] = (byte) (0x80 | c >> 6 & 0x3f);
+            out[length++] = (byte) (0x80 | c & 0x3f);
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, length + bytes));
+        }
+    }
+
+    private static int utf8Length(char c) {
+        return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    private static int digits(int value) {
+        return value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : 4;
+    }
+}
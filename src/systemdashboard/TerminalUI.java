@@ -0,0 +1,571 @@
+package systemdashboard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Text front end for hosts without a display, e.g. over SSH: the system, CPU, memory, disk,
+ * network, battery and process sections of the window, drawn into a {@link TerminalGrid} on every
+ * sample and sent to the terminal as the cells that changed, in one write per frame.
+ *
+ * The terminal is switched to its alternate screen with the cursor hidden and put into
+ * non-canonical, no-echo mode with stty; all of it is undone on exit, including on Ctrl-C. Frames
+ * are rendered on the thread that calls {@link #run}. Keys are read on a daemon thread and handed
+ * over through a queue, so only the render thread touches the process table. The terminal size is
+ * re-read every time the loop wakes up, at least a few times a second, and a change redraws the
+ * whole screen.
+ */
+final class TerminalUI {
+    private static final int SAMPLE = -1; // Queued by the feed listener, keys are queued as themselves
+    private static final int QUIT = -2;
+    private static final long SIZE_POLL_MILLIS = 250;
+    private static final long STTY_SIZE_PERIOD_NANOS = 1_000_000_000L; // Without the native library
+    private static final int[] REFRESH_RATES = {250, 500, 1000, 2000, 5000};
+    private static final int LABEL_WIDTH = 9;
+    private static final int BAR_WIDTH = 20;
+    private static final int CORE_CELL_WIDTH = 18;
+    private static final int MAX_CORE_LINES = 4;
+    private static final int MAX_DEVICE_LINES = 3; // Per kind: mounts, disks and interfaces
+    private static final int[] PROCESS_COLUMNS = {
+        ProcessTableModel.PID, ProcessTableModel.NAME, ProcessTableModel.USER, ProcessTableModel.CPU,
+        ProcessTableModel.MEMORY, ProcessTableModel.READ, ProcessTableModel.WRITE
+    };
+    private static final int[] PROCESS_WIDTHS = {7, 16, 9, 7, 11, 12, 12};
+    private static final String ENTER = "\033[?1049h\033[?25l";
+    private static final String LEAVE = "\033[0m\033[?25h\033[?1049l";
+
+    private final SampleFeed feed;
+    private final AlertEngine alerts; // Null unless started with --alerts
+    private final IntConsumer refreshSetter;
+    private final String sourceLabel; // Footer note on where the samples come from
+    private final MetricsReplay replay; // Null for live samples
+    private boolean replayFinished;
+    private int refreshIndex;
+
+    private final TerminalGrid grid = new TerminalGrid();
+    private final FileOutputStream terminal = new FileOutputStream(FileDescriptor.out);
+    private final LinkedBlockingQueue<Integer> events = new LinkedBlockingQueue<>();
+    private final AtomicBoolean samplePending = new AtomicBoolean(); // At most one SAMPLE queued
+    private final AtomicBoolean restored = new AtomicBoolean();
+    private String savedMode; // stty -g output to restore
+    private long nextSttySizeAt;
+
+    // Render thread copies of the latest sample
+    private final SystemSnapshot snapshot = new SystemSnapshot();
+    private final DeviceSnapshot devices = new DeviceSnapshot();
+    private final ProcessTableModel processModel = new ProcessTableModel();
+    private HostFacts hostFacts;
+    private final StringBuilder text = new StringBuilder(128); // Reused for every row's text
+
+    TerminalUI(SampleFeed feed, AlertEngine alerts, int refreshMillis, IntConsumer refreshSetter) {
+        this.feed = feed;
+        this.alerts = alerts;
+        this.refreshSetter = refreshSetter;
+        this.hostFacts = feed.hostFacts();
+        this.replay = feed instanceof MetricsReplay ? (MetricsReplay) feed : null;
+        String source = feed instanceof SamplingScheduler ? ((SamplingScheduler) feed).source().name() : "replay";
+        this.sourceLabel = "source: " + source + " ";
+        while (refreshIndex < REFRESH_RATES.length - 1 && REFRESH_RATES[refreshIndex] < refreshMillis) {
+            refreshIndex++;
+        }
+    }
+
+    /**
+     * Takes over the terminal, starts the feed and draws every sample until {@code q} is pressed or
+     * the input closes. Throws if stdin is not a terminal.
+     */
+    void run() throws IOException {
+        savedMode = stty("-g");
+        stty("-icanon", "-echo", "min", "1");
+        Runtime.getRuntime().addShutdownHook(new Thread(this::restore));
+        try {
+            write(ENTER);
+            Thread keys = new Thread(this::readKeys, "terminal-keys");
+            keys.setDaemon(true);
+            keys.start();
+            feed.addListener(this::sampleArrived);
+            feed.start();
+            loop();
+        } finally {
+            feed.stop();
+            restore();
+        }
+    }
+
+    private void loop() throws IOException {
+        boolean redraw = true;
+        while (true) {
+            redraw |= resized();
+            if (replay != null && !replayFinished && replay.finished()) {
+                replayFinished = true;
+                redraw = true;
+            }
+            if (redraw) {
+                draw();
+            }
+            Integer event;
+            try {
+                event = events.poll(SIZE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            redraw = event != null;
+            if (event == null) {
+                continue;
+            }
+            if (event == QUIT || event == 'q' || event == 'Q') {
+                return;
+            }
+            if (event == SAMPLE) {
+                samplePending.set(false);
+                feed.copyLatest(snapshot, null);
+                feed.copyDevices(devices);
+                hostFacts = feed.hostFacts();
+                processModel.update(feed);
+            } else {
+                redraw = key(event);
+            }
+        }
+    }
+
+    // Called on the sampling thread; samples arriving while one is queued are folded into it
+    private void sampleArrived() {
+        if (samplePending.compareAndSet(false, true)) {
+            events.offer(SAMPLE);
+        }
+    }
+
+    // Sort keys pick a column and flip the direction when pressed again, like a header click
+    private boolean key(int key) {
+        switch (key) {
+            case 'c':
+                processModel.sortBy(ProcessTableModel.CPU);
+                return true;
+            case 'm':
+                processModel.sortBy(ProcessTableModel.MEMORY);
+                return true;
+            case 'r':
+                processModel.sortBy(ProcessTableModel.READ);
+                return true;
+            case 'w':
+                processModel.sortBy(ProcessTableModel.WRITE);
+                return true;
+            case 'p':
+                processModel.sortBy(ProcessTableModel.PID);
+                return true;
+            case 'n':
+                processModel.sortBy(ProcessTableModel.NAME);
+                return true;
+            case 'u':
+                processModel.sortBy(ProcessTableModel.USER);
+                return true;
+            case '+':
+            case '=':
+                return setRefresh(refreshIndex - 1);
+            case '-':
+                return setRefresh(refreshIndex + 1);
+            case 'l' & 0x1f: // Ctrl-L, e.g. after another program wrote over the screen
+                grid.invalidate();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean setRefresh(int index) {
+        if (index < 0 || index >= REFRESH_RATES.length) {
+            return false;
+        }
+        refreshIndex = index;
+        refreshSetter.accept(REFRESH_RATES[index]);
+        return true;
+    }
+
+    // Queues every key; escape sequences such as arrow keys are dropped whole
+    private void readKeys() {
+        InputStream in = System.in;
+        try {
+            int c;
+            while ((c = in.read()) >= 0) {
+                if (c == 033) {
+                    c = in.read();
+                    if (c == '[' || c == 'O') {
+                        do {
+                            c = in.read();
+                        } while (c >= 0 && (c < 0x40 || c > 0x7e));
+                        continue;
+                    }
+                }
+                if (c >= 0) {
+                    events.offer(c);
+                }
+            }
+        } catch (IOException e) {
+            // Treated like end of input
+        }
+        events.offer(QUIT);
+    }
+
+    // Re-reads the size; stty costs a process, so without the native library it is only run once a second
+    private boolean resized() {
+        int size;
+        if (NativeCollector.isAvailable()) {
+            size = NativeCollector.terminalSize();
+        } else {
+            long now = System.nanoTime();
+            if (grid.columns() > 0 && now - nextSttySizeAt < 0) {
+                return false;
+            }
+            nextSttySizeAt = now + STTY_SIZE_PERIOD_NANOS;
+            size = sttySize();
+        }
+        int rows = size >>> 16;
+        int columns = size & 0xffff;
+        if (rows == 0 || columns == 0) {
+            rows = 24;
+            columns = 80;
+        }
+        if (rows == grid.rows() && columns == grid.columns()) {
+            return false;
+        }
+        grid.resize(columns, rows);
+        return true;
+    }
+
+    private void draw() throws IOException {
+        long started = System.nanoTime();
+        grid.clear();
+        int bottom = grid.rows() - 1; // The footer's row
+        int row = drawTitle(0);
+        row = drawCpu(row, bottom);
+        row = drawMemory(row, bottom);
+        row = drawDisk(row, bottom);
+        row = drawNetwork(row, bottom);
+        if (hostFacts.hasBattery() && row < bottom) {
+            row = drawBattery(row);
+        }
+        drawProcesses(row, bottom);
+        drawFooter(bottom);
+        int length = grid.flush();
+        if (length > 0) {
+            terminal.write(grid.buffer(), 0, length);
+        }
+        feed.diagnostics().recordSince(Diagnostics.RENDER, started);
+    }
+
+    private int drawTitle(int row) {
+        text(" System Dashboard  ").append(hostFacts.getHostname()).append("  ")
+            .append(hostFacts.getOsName()).append(' ').append(hostFacts.getOsVersion())
+            .append(" (").append(hostFacts.getOsArch()).append(")  up ");
+        MetricFormat.appendUptime(text, snapshot.uptime());
+        grid.put(row, 0, text, TerminalGrid.REVERSE);
+        grid.style(row, 0, grid.columns(), TerminalGrid.REVERSE);
+        grid.putRight(row, grid.columns() - 1, MetricFormat.appendClock(text(""), snapshot.timestamp()), TerminalGrid.REVERSE);
+        return row + 1;
+    }
+
+    private int drawCpu(int row, int bottom) {
+        int column = section(row, "CPU", snapshot.cpuUsage());
+        text("user ");
+        MetricFormat.appendFixed(text, snapshot.cpuUser(), 1).append("  sys ");
+        MetricFormat.appendFixed(text, snapshot.cpuSystem(), 1).append("  iowait ");
+        MetricFormat.appendFixed(text, snapshot.cpuIowait(), 1).append("  irq ");
+        MetricFormat.appendFixed(text, snapshot.cpuIrq(), 1).append("  steal ");
+        MetricFormat.appendFixed(text, snapshot.cpuSteal(), 1);
+        grid.put(row++, column, text, TerminalGrid.NORMAL);
+
+        int cores = snapshot.coreCount();
+        int perLine = Math.max(1, (grid.columns() - LABEL_WIDTH) / CORE_CELL_WIDTH);
+        int lines = Math.min(MAX_CORE_LINES, (cores + perLine - 1) / perLine);
+        int shown = Math.min(cores, lines * perLine);
+        if (shown < cores) {
+            shown--; // The last cell says how many are left out
+        }
+        for (int i = 0; i < shown && row + i / perLine < bottom; i++) {
+            int cellRow = row + i / perLine;
+            int cellColumn = LABEL_WIDTH + i % perLine * CORE_CELL_WIDTH;
+            double usage = snapshot.coreUsage(i);
+            grid.putRight(cellRow, cellColumn + 3, text("").append(i + 1), TerminalGrid.DIM);
+            int end = bar(cellRow, cellColumn + 4, 6, usage);
+            grid.putRight(cellRow, end + 6, MetricFormat.appendFixed(text(""), usage, 1).append('%'), TerminalGrid.NORMAL);
+        }
+        if (shown < cores) {
+            int cellRow = row + shown / perLine;
+            grid.put(cellRow, LABEL_WIDTH + shown % perLine * CORE_CELL_WIDTH, text("+").append(cores - shown).append(" more"),
+                TerminalGrid.DIM);
+        }
+        row += lines;
+
+        if (snapshot.hasCgroup()) {
+            text("cgroup ");
+            MetricFormat.appendFixed(text, snapshot.cgroupCpuUsage(), 1).append('%');
+            double limit = snapshot.cgroupCpuLimit();
+            if (limit > 0) {
+                MetricFormat.appendFixed(text.append(" of "), limit, 2).append(" cores, throttled ");
+                MetricFormat.appendFixed(text, snapshot.cgroupThrottled(), 1).append("% of periods");
+            } else {
+                text.append(" (no quota)");
+            }
+            grid.put(row++, LABEL_WIDTH, text, TerminalGrid.NORMAL);
+        }
+        if (snapshot.hasPressure(SystemSnapshot.HOST_PRESSURE, SystemSnapshot.PSI_CPU)) {
+            text("pressure some/full avg10  cpu ");
+            appendPressure(SystemSnapshot.PSI_CPU).append("  memory ");
+            appendPressure(SystemSnapshot.PSI_MEMORY).append("  io ");
+            appendPressure(SystemSnapshot.PSI_IO);
+            grid.put(row++, LABEL_WIDTH, text, TerminalGrid.NORMAL);
+        }
+        return alert(row, AlertEngine.PANEL_CPU);
+    }
+
+    private int drawMemory(int row, int bottom) {
+        long total = snapshot.totalMemory();
+        long used = total - snapshot.availableMemory();
+        int column = section(row, "Memory", total > 0 ? 100.0 * used / total : 0);
+        MetricFormat.appendFixed(text("used "), used / MetricFormat.GB, 2).append(" / ");
+        MetricFormat.appendFixed(text, total / MetricFormat.GB, 2).append(" GB, available ");
+        MetricFormat.appendFixed(text, snapshot.availableMemory() / MetricFormat.GB, 2).append(" GB");
+        if (snapshot.hasMemoryBreakdown()) {
+            MetricFormat.appendFixed(text.append(", cache "), snapshot.cachedMemory() / MetricFormat.GB, 2).append(" GB");
+        }
+        grid.put(row++, column, text, TerminalGrid.NORMAL);
+
+        if (row < bottom) {
+            long swapTotal = snapshot.swapTotal();
+            long swapUsed = swapTotal - snapshot.swapFree();
+            column = section(row, "Swap", swapTotal > 0 ? 100.0 * swapUsed / swapTotal : 0);
+            MetricFormat.appendFixed(text("used "), swapUsed / MetricFormat.GB, 2).append(" / ");
+            MetricFormat.appendFixed(text, swapTotal / MetricFormat.GB, 2).append(" GB");
+            if (snapshot.hasMemoryBreakdown()) {
+                MetricFormat.appendFixed(text.append(", faults "), snapshot.pageFaultRate(), 0).append("/s (");
+                MetricFormat.appendFixed(text, snapshot.majorFaultRate(), 0).append(" major), in/out ");
+                MetricFormat.appendFixed(text, snapshot.swapInRate(), 0).append(" / ");
+                MetricFormat.appendFixed(text, snapshot.swapOutRate(), 0).append(" pages/s");
+            }
+            grid.put(row++, column, text, TerminalGrid.NORMAL);
+        }
+
+        if (snapshot.hasCgroup() && snapshot.cgroupMemoryCurrent() >= 0) {
+            long current = snapshot.cgroupMemoryCurrent();
+            long max = snapshot.cgroupMemoryMax();
+            MetricFormat.appendFixed(text("cgroup "), current / MetricFormat.GB, 2);
+            if (max > 0) {
+                MetricFormat.appendFixed(text.append(" / "), max / MetricFormat.GB, 2).append(" GB (");
+                MetricFormat.appendPercent(text, current, max).append(')');
+            } else {
+                text.append(" GB (no limit)");
+            }
+            grid.put(row++, LABEL_WIDTH, text, TerminalGrid.NORMAL);
+        }
+        return alert(row, AlertEngine.PANEL_MEMORY);
+    }
+
+    private int drawDisk(int row, int bottom) {
+        long total = snapshot.totalDiskSpace();
+        long used = total - snapshot.freeDiskSpace();
+        int column = section(row, "Disk", total > 0 ? 100.0 * used / total : 0);
+        MetricFormat.appendFixed(text("/ used "), used / MetricFormat.GB, 1).append(" / ");
+        MetricFormat.appendFixed(text, total / MetricFormat.GB, 1).append(" GB");
+        grid.put(row++, column, text, TerminalGrid.NORMAL);
+
+        int mounts = Math.min(devices.mountCount(), MAX_DEVICE_LINES);
+        for (int i = 0; i < mounts && row < bottom; i++) {
+            long mountTotal = devices.mountTotalBytes(i);
+            long mountUsed = mountTotal - devices.mountFreeBytes(i);
+            text(devices.mountPoint(i)).append(": ");
+            MetricFormat.appendFixed(text, mountUsed / MetricFormat.GB, 1).append(" / ");
+            MetricFormat.appendFixed(text, mountTotal / MetricFormat.GB, 1).append(" GB (");
+            grid.put(row++, LABEL_WIDTH, MetricFormat.appendPercent(text, mountUsed, mountTotal).append(')'), TerminalGrid.NORMAL);
+        }
+        int disks = Math.min(devices.diskCount(), MAX_DEVICE_LINES);
+        for (int i = 0; i < disks && row < bottom; i++) {
+            text(devices.diskName(i)).append(": ");
+            MetricFormat.appendFixed(text, devices.readsPerSecond(i), 0).append(" r/s ");
+            MetricFormat.appendFixed(text, devices.readBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s, ");
+            MetricFormat.appendFixed(text, devices.writesPerSecond(i), 0).append(" w/s ");
+            MetricFormat.appendFixed(text, devices.writeBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s, ");
+            grid.put(row++, LABEL_WIDTH, MetricFormat.appendFixed(text, devices.utilization(i), 1).append("% busy"),
+                TerminalGrid.NORMAL);
+        }
+        return alert(row, AlertEngine.PANEL_DISK);
+    }
+
+    private int drawNetwork(int row, int bottom) {
+        if (row >= bottom) {
+            return row;
+        }
+        grid.put(row, 0, "Network", TerminalGrid.BOLD);
+        text(hostFacts.getIpAddress()).append("  ").append(hostFacts.getMacAddress()).append("  received ");
+        MetricFormat.appendFixed(text, snapshot.networkBytesReceived() / MetricFormat.GB, 2).append(" GB, sent ");
+        MetricFormat.appendFixed(text, snapshot.networkBytesTransmitted() / MetricFormat.GB, 2).append(" GB");
+        grid.put(row++, LABEL_WIDTH, text, TerminalGrid.NORMAL);
+
+        int interfaces = Math.min(devices.interfaceCount(), MAX_DEVICE_LINES);
+        for (int i = 0; i < interfaces && row < bottom; i++) {
+            text(devices.interfaceName(i)).append(": ");
+            MetricFormat.appendFixed(text, devices.receivedBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s in, ");
+            MetricFormat.appendFixed(text, devices.transmittedBytesPerSecond(i) / MetricFormat.KB, 1).append(" KB/s out, ");
+            MetricFormat.appendFixed(text, devices.receivedPacketsPerSecond(i) + devices.transmittedPacketsPerSecond(i), 0)
+                .append(" pkt/s");
+            double drops = devices.receiveDropsPerSecond(i) + devices.transmitDropsPerSecond(i);
+            if (drops > 0) {
+                MetricFormat.appendFixed(text.append(", "), drops, 1).append(" drops/s");
+            }
+            grid.put(row++, LABEL_WIDTH, text, TerminalGrid.NORMAL);
+        }
+        return alert(row, AlertEngine.PANEL_NETWORK);
+    }
+
+    private int drawBattery(int row) {
+        int column = section(row, "Battery", snapshot.batteryLevel());
+        grid.put(row, column, snapshot.isBatteryCharging() ? "charging" : "discharging", TerminalGrid.NORMAL);
+        return row + 1;
+    }
+
+    // Header and as many of the sorted processes as fit above the footer
+    private void drawProcesses(int row, int bottom) {
+        row = alert(row, AlertEngine.PANEL_PROCESS);
+        if (row >= bottom) {
+            return;
+        }
+        int column = 0;
+        for (int i = 0; i < PROCESS_COLUMNS.length; i++) {
+            String title = processModel.headerTitle(PROCESS_COLUMNS[i]);
+            cell(row, column, PROCESS_WIDTHS[i], i, text("").append(title), TerminalGrid.REVERSE);
+            column += PROCESS_WIDTHS[i] + 1;
+        }
+        grid.style(row, 0, grid.columns(), TerminalGrid.REVERSE);
+        text("").append(snapshot.processCount()).append(" processes ");
+        grid.putRight(row++, grid.columns(), text, TerminalGrid.REVERSE);
+
+        int rows = Math.min(processModel.getRowCount(), bottom - row);
+        for (int r = 0; r < rows; r++, row++) {
+            column = 0;
+            for (int i = 0; i < PROCESS_COLUMNS.length; i++) {
+                text.setLength(0);
+                processModel.appendValue(text, r, PROCESS_COLUMNS[i]);
+                cell(row, column, PROCESS_WIDTHS[i], i, text, TerminalGrid.NORMAL);
+                column += PROCESS_WIDTHS[i] + 1;
+            }
+        }
+    }
+
+    // Name and user are left-aligned, the numbers right-aligned; both are cut to the column width
+    private void cell(int row, int column, int width, int index, StringBuilder value, byte style) {
+        if (value.length() > width) {
+            value.setLength(width);
+        }
+        int modelColumn = PROCESS_COLUMNS[index];
+        if (modelColumn == ProcessTableModel.NAME || modelColumn == ProcessTableModel.USER) {
+            grid.put(row, column, value, style);
+        } else {
+            grid.putRight(row, column + width, value, style);
+        }
+    }
+
+    private void drawFooter(int row) {
+        text(" q quit  c/m/r/w/p/n/u sort  +/- refresh ");
+        int rate = REFRESH_RATES[refreshIndex];
+        if (rate < 1000) {
+            text.append(rate).append(" ms");
+        } else {
+            text.append(rate / 1000).append(" s");
+        }
+        grid.put(row, 0, text, TerminalGrid.REVERSE);
+        grid.style(row, 0, grid.columns(), TerminalGrid.REVERSE);
+        grid.putRight(row, grid.columns() - 1, replayFinished ? "source: replay, finished " : sourceLabel, TerminalGrid.REVERSE);
+    }
+
+    // Bold section label, the usage bar and its percentage; returns the column for the details
+    private int section(int row, String label, double percent) {
+        grid.put(row, 0, label, TerminalGrid.BOLD);
+        int column = bar(row, LABEL_WIDTH, BAR_WIDTH, percent);
+        grid.putRight(row, column + 7, MetricFormat.appendFixed(text(""), percent, 1).append('%'), TerminalGrid.NORMAL);
+        return column + 9;
+    }
+
+    // [|||||     ], green, yellow from 70% and red from 90%; returns the column after the bracket
+    private int bar(int row, int column, int width, double percent) {
+        double clamped = Math.max(0, Math.min(100, percent));
+        int filled = (int) Math.round(clamped * width / 100);
+        byte style = clamped >= 90 ? TerminalGrid.RED : clamped >= 70 ? TerminalGrid.YELLOW : TerminalGrid.GREEN;
+        grid.put(row, column, '[', TerminalGrid.DIM);
+        grid.fill(row, column + 1, filled, '|', style);
+        grid.put(row, column + width + 1, ']', TerminalGrid.DIM);
+        return column + width + 2;
+    }
+
+    private StringBuilder appendPressure(int resource) {
+        MetricFormat.appendFixed(text, snapshot.pressureAvg10(SystemSnapshot.HOST_PRESSURE, resource, false), 1).append('/');
+        return MetricFormat.appendFixed(text, snapshot.pressureAvg10(SystemSnapshot.HOST_PRESSURE, resource, true), 1).append('%');
+    }
+
+    // A red row under the section while one of its alert rules fires
+    private int alert(int row, int panel) {
+        if (alerts != null && alerts.appendFiring(panel, text("ALERT: ")) > 0) {
+            grid.put(row++, LABEL_WIDTH, text, TerminalGrid.RED);
+        }
+        return row;
+    }
+
+    // Resets the shared row buffer; the grid copies the text out before the next call
+    private StringBuilder text(String prefix) {
+        text.setLength(0);
+        return text.append(prefix);
+    }
+
+    private void write(String escapes) throws IOException {
+        terminal.write(escapes.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void restore() {
+        if (!restored.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            write(LEAVE);
+            stty(savedMode);
+        } catch (IOException e) {
+            System.err.println("Could not restore the terminal: " + e.getMessage());
+        }
+    }
+
+    private static int sttySize() {
+        try {
+            String[] size = stty("size").split(" ");
+            return Integer.parseInt(size[0]) << 16 | Integer.parseInt(size[1]);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    // Runs stty against the controlling terminal and returns what it printed
+    private static String stty(String... args) throws IOException {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command)
+            .redirectInput(new File("/dev/tty"))
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        byte[] output = process.getInputStream().readAllBytes();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("stty " + String.join(" ", args) + " failed; the terminal UI needs a terminal");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running stty", e);
+        }
+        return new String(output, StandardCharsets.US_ASCII).trim();
+    }
+}
@@ -0,0 +1,308 @@
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+#include <unistd.h>
+
+#include "cgroup.h"
+
+// Indices into CgroupSampler.files and paths
+#define CG_MEMORY_CURRENT 0
+#define CG_MEMORY_MAX 1
+#define CG_CPU_MAX 2
+#define CG_CPU_STAT 3
+#define CG_PRESSURE 4 // cpu, memory and io in PSI_* order
+
+static const char *const PRESSURE_NAMES[PSI_RESOURCES] = { "cpu", "memory", "io" };
+static const char *const HOST_PRESSURE_PATHS[PSI_RESOURCES] = { "pressure/cpu", "pressure/memory", "pressure/io" };
+
+void cgroup_sampler_init(CgroupSampler *sampler) {
+    memset(sampler, 0, sizeof(*sampler));
+    for (int i = 0; i < CGROUP_FILES; i++) {
+        proc_file_init(&sampler->files[i], sampler->paths[i]);
+    }
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        proc_file_init(&sampler->host_pressure[r], HOST_PRESSURE_PATHS[r]);
+    }
+}
+
+static void close_files(CgroupSampler *sampler) {
+    for (int i = 0; i < CGROUP_FILES; i++) {
+        proc_file_close(&sampler->files[i]);
+    }
+}
+
+void cgroup_sampler_free(CgroupSampler *sampler) {
+    close_files(sampler);
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        proc_file_close(&sampler->host_pressure[r]);
+    }
+    proc_buffer_free(&sampler->buf);
+    memset(sampler, 0, sizeof(*sampler));
+}
+
+void cgroup_sampler_reset(CgroupSampler *sampler) {
+    close_files(sampler);
+    sampler->dir[0] = '\0';
+    sampler->detected = 0;
+    sampler->primed = 0;
+}
+
+// Reads a file that is only looked at during detection
+static ssize_t read_once(ProcBuffer *buf, const char *path) {
+    ProcFile file;
+    proc_file_init(&file, path);
+    ssize_t length = proc_file_read(&file, buf);
+    proc_file_close(&file);
+    return length;
+}
+
+// Copies the space-delimited field at *p and moves past it, returns -1 if it does not fit
+static int copy_field(const char **p, char *dst, size_t size) {
+    const char *s = proc_skip_spaces(*p);
+    size_t length = strcspn(s, " \n");
+    if (length >= size) return -1;
+    memcpy(dst, s, length);
+    dst[length] = '\0';
+    *p = s + length;
+    return 0;
+}
+
+// The "0::/path" line of /proc/self/cgroup names this process's group in the unified hierarchy
+static int find_group(CgroupSampler *s, char *group, size_t size) {
+    if (read_once(&s->buf, "self/cgroup") < 0) return -1;
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        if (strncmp(p, "0::", 3) == 0) {
+            p += 3;
+            return copy_field(&p, group, size);
+        }
+    }
+    return -1;
+}
+
+// Mount point of the cgroup2 filesystem and the group mounted there, from /proc/self/mountinfo
+static int find_mount(CgroupSampler *s, char *mount, char *root, size_t size) {
+    if (read_once(&s->buf, "self/mountinfo") < 0) return -1;
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        const char *eol = strchr(p, '\n');
+        const char *separator = strstr(p, " - ");
+        if (separator == NULL || (eol != NULL && separator > eol) || strncmp(separator + 3, "cgroup2 ", 8) != 0) {
+            continue;
+        }
+        // mount id, parent id, major:minor, root, mount point
+        const char *q = p;
+        for (int field = 0; field < 3; field++) {
+            if (copy_field(&q, root, size) != 0) return -1;
+        }
+        if (copy_field(&q, root, size) != 0 || copy_field(&q, mount, size) != 0) return -1;
+        return 0;
+    }
+    return -1;
+}
+
+// Reads a single-value control file: a number, or -1 for "max" and missing files
+static long long read_value(CgroupSampler *s, ProcFile *file) {
+    if (proc_file_read(file, &s->buf) < 0 || s->buf.data[0] < '0' || s->buf.data[0] > '9') return -1;
+    const char *p = s->buf.data;
+    return (long long)proc_parse_u64(&p);
+}
+
+// Points paths[index] at name in the level from dir up to the mount point with the tightest
+// limit, since the effective limit is the smallest over all ancestors, or at dir itself if none
+// sets one. For cpu.max ("quota period") the tightest is the smallest quota per period.
+static void find_limit(CgroupSampler *s, int index, const char *name, size_t mount_length, int has_period) {
+    char level[CGROUP_PATH_MAX], path[CGROUP_FILE_MAX];
+    unsigned long long best_limit = 0, best_period = 1;
+    int found = 0;
+    snprintf(level, sizeof(level), "%s", s->dir);
+    snprintf(s->paths[index], CGROUP_FILE_MAX, "%s/%s", s->dir, name);
+    for (;;) {
+        snprintf(path, sizeof(path), "%s/%s", level, name);
+        if (read_once(&s->buf, path) >= 0 && s->buf.data[0] >= '0' && s->buf.data[0] <= '9') {
+            const char *p = s->buf.data;
+            unsigned long long limit = proc_parse_u64(&p);
+            unsigned long long period = has_period ? proc_parse_u64(&p) : 1;
+            if (period == 0) period = 1;
+            // limit / period < best_limit / best_period, without dividing
+            if (!found || limit * best_period < best_limit * period) {
+                found = 1;
+                best_limit = limit;
+                best_period = period;
+                snprintf(s->paths[index], CGROUP_FILE_MAX, "%s", path);
+            }
+        }
+        char *slash = strrchr(level, '/');
+        if (slash == NULL || (size_t)(slash - level) < mount_length) break;
+        *slash = '\0';
+    }
+}
+
+// Points paths[index] at name in the group that paths[limit] was taken from, so usage and limit
+// always describe the same group, even when siblings share an ancestor's budget
+static void use_limit_level(CgroupSampler *s, int index, int limit, const char *name) {
+    char path[CGROUP_FILE_MAX];
+    const char *slash = strrchr(s->paths[limit], '/');
+    int length = slash == NULL ? 0 : (int)(slash - s->paths[limit]);
+    if ((size_t)snprintf(path, sizeof(path), "%.*s/%s", length, s->paths[limit], name) >= sizeof(path)) return;
+    if (strcmp(path, s->paths[index]) == 0) return;
+    proc_file_close(&s->files[index]);
+    snprintf(s->paths[index], CGROUP_FILE_MAX, "%s", path);
+    if (index == CG_CPU_STAT) s->primed = 0; // Another group's counters are no baseline
+}
+
+static void detect(CgroupSampler *s, long long now_ns) {
+    char group[CGROUP_PATH_MAX], mount[CGROUP_PATH_MAX], root[CGROUP_PATH_MAX], dir[CGROUP_PATH_MAX];
+    s->detected_ns = now_ns;
+    s->root_generation = proc_root_generation();
+    if (find_group(s, group, sizeof(group)) != 0 || find_mount(s, mount, root, sizeof(root)) != 0) {
+        if (s->detected > 0) cgroup_sampler_reset(s);
+        s->detected = -1;
+        return;
+    }
+
+    // The group is relative to the root of the hierarchy, the mount may expose a subtree of it
+    size_t root_length = strlen(root);
+    const char *relative = group;
+    if (strcmp(root, "/") != 0 && strncmp(group, root, root_length) == 0) {
+        relative = group + root_length;
+    }
+    if (strcmp(relative, "/") == 0) relative = "";
+    if ((size_t)snprintf(dir, sizeof(dir), "%s%s", mount, relative) >= sizeof(dir) || access(dir, R_OK) != 0) {
+        if (s->detected > 0) cgroup_sampler_reset(s);
+        s->detected = -1;
+        return;
+    }
+
+    if (strcmp(dir, s->dir) != 0) {
+        // Another group's counters are no baseline for this one
+        close_files(s);
+        snprintf(s->dir, sizeof(s->dir), "%s", dir);
+        s->primed = 0;
+    }
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        snprintf(s->paths[CG_PRESSURE + r], CGROUP_FILE_MAX, "%s/%s.pressure", s->dir, PRESSURE_NAMES[r]);
+    }
+
+    // A limit may have moved to another level since the last detection
+    proc_file_close(&s->files[CG_MEMORY_MAX]);
+    proc_file_close(&s->files[CG_CPU_MAX]);
+    find_limit(s, CG_MEMORY_MAX, "memory.max", strlen(mount), 0);
+    find_limit(s, CG_CPU_MAX, "cpu.max", strlen(mount), 1);
+    use_limit_level(s, CG_MEMORY_CURRENT, CG_MEMORY_MAX, "memory.current");
+    use_limit_level(s, CG_CPU_STAT, CG_CPU_MAX, "cpu.stat");
+    s->detected = 1;
+}
+
+// "some avg10=0.12 avg60=0.05 avg300=0.01 total=12345" and the same for "full"
+static void read_pressure(CgroupSampler *s, ProcFile *file, Pressure *out) {
+    memset(out, 0, sizeof(*out));
+    out->some_total = -1;
+    if (proc_file_read(file, &s->buf) < 0) return;
+
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        int full = strncmp(p, "full ", 5) == 0;
+        if (!full && strncmp(p, "some ", 5) != 0) continue;
+
+        const char *eol = proc_next_line(p);
+        const char *avg10 = strstr(p, "avg10=");
+        const char *total = strstr(p, "total=");
+        if (avg10 == NULL || total == NULL || total > eol) continue;
+
+        avg10 += 6;
+        total += 6;
+        double avg = proc_parse_decimal(&avg10);
+        long long stalled = (long long)proc_parse_u64(&total);
+        if (full) {
+            out->full_avg10 = avg;
+            out->full_total = stalled;
+        } else {
+            out->some_avg10 = avg;
+            out->some_total = stalled;
+        }
+    }
+}
+
+static void read_cpu_stat(CgroupSampler *s, unsigned long long *usage_usec, CgroupSample *out) {
+    *usage_usec = 0;
+    out->periods = 0;
+    out->throttled_periods = 0;
+    out->throttled_usec = 0;
+    if (proc_file_read(&s->files[CG_CPU_STAT], &s->buf) < 0) return;
+
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        const char *value = strchr(p, ' ');
+        if (value == NULL) break;
+        size_t key_length = value - p;
+        if (key_length == 10 && strncmp(p, "usage_usec", 10) == 0) {
+            *usage_usec = proc_parse_u64(&value);
+        } else if (key_length == 10 && strncmp(p, "nr_periods", 10) == 0) {
+            out->periods = (long long)proc_parse_u64(&value);
+        } else if (key_length == 12 && strncmp(p, "nr_throttled", 12) == 0) {
+            out->throttled_periods = (long long)proc_parse_u64(&value);
+        } else if (key_length == 14 && strncmp(p, "throttled_usec", 14) == 0) {
+            out->throttled_usec = (long long)proc_parse_u64(&value);
+        }
+    }
+}
+
+void cgroup_sampler_sample(CgroupSampler *s, CgroupSample *out) {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    long long now_ns = (long long)now.tv_sec * 1000000000LL + now.tv_nsec;
+
+    memset(out, 0, sizeof(*out));
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        read_pressure(s, &s->host_pressure[r], &out->host[r]);
+    }
+
+    // The group is found through the proc tree, look it up again in a new one
+    if (s->detected != 0 && s->root_generation != proc_root_generation()) {
+        cgroup_sampler_reset(s);
+    }
+    if (s->detected == 0 || now_ns - s->detected_ns >= CGROUP_REDETECT_SECONDS * 1000000000LL) {
+        detect(s, now_ns);
+    }
+    out->memory_current = -1;
+    out->memory_max = -1;
+    out->cpu_quota = -1;
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        out->cgroup[r].some_total = -1;
+    }
+    if (s->detected <= 0) return;
+    out->present = 1;
+
+    out->memory_current = read_value(s, &s->files[CG_MEMORY_CURRENT]);
+    out->memory_max = read_value(s, &s->files[CG_MEMORY_MAX]);
+
+    // "quota period" or "max period"
+    if (proc_file_read(&s->files[CG_CPU_MAX], &s->buf) >= 0) {
+        const char *p = s->buf.data;
+        if (*p >= '0' && *p <= '9') {
+            out->cpu_quota = (long long)proc_parse_u64(&p);
+        } else {
+            p = strchr(p, ' ');
+            if (p == NULL) p = "";
+        }
+        out->cpu_period = (long long)proc_parse_u64(&p);
+    }
+
+    unsigned long long usage_usec;
+    read_cpu_stat(s, &usage_usec, out);
+    double elapsed_usec = s->primed ? (now_ns - s->last_sample_ns) / 1e3 : 0.0;
+    if (elapsed_usec > 0 && usage_usec >= s->prev_usage_usec) {
+        out->cpu_usage = (usage_usec - s->prev_usage_usec) * 100.0 / elapsed_usec;
+    }
+    unsigned long long periods = out->periods, throttled = out->throttled_periods;
+    if (s->primed && periods > s->prev_periods && throttled >= s->prev_throttled) {
+        out->throttled = (throttled - s->prev_throttled) * 100.0 / (periods - s->prev_periods);
+    }
+    s->prev_usage_usec = usage_usec;
+    s->prev_periods = periods;
+    s->prev_throttled = throttled;
+    s->last_sample_ns = now_ns;
+    s->primed = 1;
+
+    for (int r = 0; r < PSI_RESOURCES; r++) {
+        read_pressure(s, &s->files[CG_PRESSURE + r], &out->cgroup[r]);
+    }
+}
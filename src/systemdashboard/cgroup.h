@@ -0,0 +1,67 @@
+#ifndef SYSTEMDASHBOARD_CGROUP_H
+#define SYSTEMDASHBOARD_CGROUP_H
+
+#include "procfs.h"
+
+#define CGROUP_PATH_MAX 512
+// A cgroup directory plus the longest control file name
+#define CGROUP_FILE_MAX (CGROUP_PATH_MAX + 32)
+// memory.current, memory.max, cpu.max, cpu.stat and the three *.pressure files
+#define CGROUP_FILES 7
+// How often the cgroup and the levels that set its limits are looked up again
+#define CGROUP_REDETECT_SECONDS 60
+
+// Pressure stall resources, in the order of the snapshot's pressure slots
+#define PSI_CPU 0
+#define PSI_MEMORY 1
+#define PSI_IO 2
+#define PSI_RESOURCES 3
+
+// One pressure file: avg10 in percent and cumulative stall time in microseconds.
+// some_total is -1 if the file is missing (no PSI in this kernel or for this cgroup).
+typedef struct {
+    double some_avg10, full_avg10;
+    long long some_total, full_total;
+} Pressure;
+
+// One sample. Limits are -1 when unlimited, memory_current -1 when unknown.
+typedef struct {
+    int present;
+    long long memory_current, memory_max;
+    long long cpu_quota, cpu_period;
+    double cpu_usage; // percent of one core over the interval
+    long long periods, throttled_periods, throttled_usec;
+    double throttled; // percent of enforcement periods throttled over the interval
+    Pressure host[PSI_RESOURCES];
+    Pressure cgroup[PSI_RESOURCES];
+} CgroupSample;
+
+// The cgroup v2 directory of this process with its control files kept open. Limits are read
+// from the level at or above it with the tightest one, since the effective limit is the
+// smallest over all ancestors and a container or slice limit usually sits on one of them.
+// memory.current and cpu.stat are read from that same level, so usage is compared with the
+// limit of the group it belongs to; pressure stays the process's own group.
+typedef struct {
+    ProcBuffer buf;
+    char dir[CGROUP_PATH_MAX];
+    char paths[CGROUP_FILES][CGROUP_FILE_MAX];
+    ProcFile files[CGROUP_FILES];
+    ProcFile host_pressure[PSI_RESOURCES];
+    int detected; // 1 found, -1 no cgroup v2 hierarchy, 0 not looked yet
+    long long detected_ns;
+    unsigned int root_generation; // proc_root_generation() at detection
+    unsigned long long prev_usage_usec, prev_periods, prev_throttled;
+    long long last_sample_ns;
+    int primed;
+} CgroupSampler;
+
+void cgroup_sampler_init(CgroupSampler *sampler);
+void cgroup_sampler_free(CgroupSampler *sampler);
+
+// Forgets the detected cgroup; sampling does this by itself when the proc root moves
+void cgroup_sampler_reset(CgroupSampler *sampler);
+
+// Reads every file once and derives the interval rates against the previous call
+void cgroup_sampler_sample(CgroupSampler *sampler, CgroupSample *out);
+
+#endif
@@ -0,0 +1,51 @@
+#ifndef SYSTEMDASHBOARD_COLLECTOR_H
+#define SYSTEMDASHBOARD_COLLECTOR_H
+
+#include <jni.h>
+#include <stdint.h>
+
+#include "procfs.h"
+#include "memstat.h"
+#include "cgroup.h"
+#include "processes.h"
+#include "devices.h"
+
+// Everything one createCollector() handle owns: open descriptors, read buffers, the previous
+// sample's counters and the staging arrays copied out to Java. Nothing is shared between
+// handles, so several can sample from their own threads at their own intervals without
+// locking. A single handle must only be used by one thread at a time.
+typedef struct {
+    // collectSnapshot
+    ProcFile stat;
+    ProcFile net_dev;
+    ProcBuffer buf;
+    CpuSampler cpu;
+    MemorySampler memory;
+    CgroupSampler cgroup;
+    jlong *slots;
+    int slots_capacity;
+
+    // collectProcesses and collectProcessTable
+    ProcessSampler processes;
+    int processes_sampled;
+    long long *process_out;
+    char *process_names;
+    int process_out_top_n;
+    long long *table_out;
+    char *table_names;
+    int table_out_rows;
+
+    // collectDevices
+    DeviceSampler devices;
+    long long *device_out;
+    char *device_names;
+    int device_out_capacity;
+    int device_names_capacity;
+} Collector;
+
+// The handles Java holds are Collector pointers
+static inline Collector *collector_from_handle(jlong handle) {
+    return (Collector *)(intptr_t)handle;
+}
+
+#endif
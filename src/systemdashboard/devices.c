@@ -0,0 +1,338 @@
+#include <jni.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+#include <sys/statvfs.h>
+
+#include "devices.h"
+#include "collector.h"
+#include "systemdashboard_NativeCollector.h"
+
+#define SECTOR_BYTES 512
+
+static int reserve(void **items, int *capacity, int need, size_t size) {
+    if (need <= *capacity) return 0;
+    int grown = *capacity ? *capacity : 16;
+    while (grown < need) grown *= 2;
+    void *p = realloc(*items, grown * size);
+    if (p == NULL) return -1;
+    *items = p;
+    *capacity = grown;
+    return 0;
+}
+
+// Copies a whitespace-delimited token into a fixed name field, returns the position after it
+static const char *copy_token(const char *p, char *name) {
+    p = proc_skip_spaces(p);
+    size_t length = 0;
+    while (p[length] && p[length] != ' ' && p[length] != '\t' && p[length] != '\n' && p[length] != ':') length++;
+    size_t copied = length < DEV_NAME_LENGTH - 1 ? length : DEV_NAME_LENGTH - 1;
+    memcpy(name, p, copied);
+    name[copied] = '\0';
+    return p + length;
+}
+
+void device_sampler_init(DeviceSampler *sampler) {
+    memset(sampler, 0, sizeof(*sampler));
+    proc_file_init(&sampler->net_dev, "net/dev");
+    proc_file_init(&sampler->diskstats, "diskstats");
+    proc_file_init(&sampler->mounts, "self/mounts");
+}
+
+void device_sampler_free(DeviceSampler *sampler) {
+    proc_file_close(&sampler->net_dev);
+    proc_file_close(&sampler->diskstats);
+    proc_file_close(&sampler->mounts);
+    proc_buffer_free(&sampler->buf);
+    for (int i = 0; i < 2; i++) {
+        free(sampler->net[i]);
+        free(sampler->disks[i]);
+    }
+    free(sampler->mount_table);
+    memset(sampler, 0, sizeof(*sampler));
+}
+
+// Every interface except loopback; header lines have no colon
+static int parse_net_dev(DeviceSampler *s, int table) {
+    if (proc_file_read(&s->net_dev, &s->buf) < 0) return -1;
+    int count = 0;
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        const char *eol = strchr(p, '\n');
+        const char *colon = strchr(p, ':');
+        if (colon == NULL || (eol != NULL && colon > eol)) continue;
+
+        if (reserve((void **)&s->net[table], &s->net_capacity[table], count + 1, sizeof(NetCounters)) != 0) return -1;
+        NetCounters *c = &s->net[table][count];
+        copy_token(p, c->name);
+        if (strcmp(c->name, "lo") == 0) continue;
+
+        // rx: bytes packets errs drop fifo frame compressed multicast, tx: bytes packets errs drop ...
+        const char *q = colon + 1;
+        c->rx_bytes = proc_parse_u64(&q);
+        c->rx_packets = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        c->rx_drops = proc_parse_u64(&q);
+        for (int i = 0; i < 4; i++) proc_parse_u64(&q);
+        c->tx_bytes = proc_parse_u64(&q);
+        c->tx_packets = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        c->tx_drops = proc_parse_u64(&q);
+        count++;
+    }
+    s->net_count[table] = count;
+    return 0;
+}
+
+// Block devices with any activity, skipping the idle loop and ram devices every host has
+static int parse_diskstats(DeviceSampler *s, int table) {
+    if (proc_file_read(&s->diskstats, &s->buf) < 0) {
+        s->disk_count[table] = 0;
+        return 0; // Missing in some containers
+    }
+    int count = 0;
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        if (reserve((void **)&s->disks[table], &s->disk_capacity[table], count + 1, sizeof(DiskCounters)) != 0) return -1;
+        DiskCounters *d = &s->disks[table][count];
+
+        // major minor name, then reads merged sectors ms, writes merged sectors ms, in-flight, io_ms
+        const char *q = p;
+        proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        q = copy_token(q, d->name);
+        if (d->name[0] == '\0') continue;
+        d->reads = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        d->sectors_read = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        d->writes = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        d->sectors_written = proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        proc_parse_u64(&q);
+        d->io_ms = proc_parse_u64(&q);
+
+        int idle = d->reads == 0 && d->writes == 0;
+        if (idle && (strncmp(d->name, "loop", 4) == 0 || strncmp(d->name, "ram", 3) == 0)) continue;
+        count++;
+    }
+    s->disk_count[table] = count;
+    return 0;
+}
+
+// Undoes the octal escapes (\040 for space) /proc/self/mounts uses in paths
+static void unescape_path(const char *src, size_t length, char *dst, size_t size) {
+    size_t n = 0;
+    for (size_t i = 0; i < length && n + 1 < size; i++) {
+        if (src[i] == '\\' && i + 3 < length && src[i + 1] >= '0' && src[i + 1] <= '7') {
+            dst[n++] = (char)((src[i + 1] - '0') * 64 + (src[i + 2] - '0') * 8 + (src[i + 3] - '0'));
+            i += 3;
+        } else {
+            dst[n++] = src[i];
+        }
+    }
+    dst[n] = '\0';
+}
+
+// Network filesystems and automount points, whose statvfs() can block for as long as the
+// server or the automounter takes; a hung NFS server must not stall the sampling thread
+static const char *const REMOTE_FSTYPES[] = {
+    "nfs", "nfs4", "cifs", "smb3", "smbfs", "ncpfs", "afs", "ceph", "glusterfs", "lustre", "9p",
+    "autofs", "fuse.sshfs", "fuse.glusterfs", "fuse.s3fs", "fuse.rclone", "davfs", NULL
+};
+
+static int is_remote_fstype(const char *type, size_t length) {
+    for (const char *const *t = REMOTE_FSTYPES; *t; t++) {
+        if (strlen(*t) == length && strncmp(*t, type, length) == 0) return 1;
+    }
+    return 0;
+}
+
+// Every mounted local filesystem with real capacity; pseudo filesystems report zero blocks
+static int parse_mounts(DeviceSampler *s) {
+    if (proc_file_read(&s->mounts, &s->buf) < 0) {
+        s->mount_count = 0;
+        return 0;
+    }
+    int count = 0;
+    char path[4096];
+    for (const char *p = s->buf.data; *p; p = proc_next_line(p)) {
+        // device mountpoint fstype options dump pass
+        const char *q = p;
+        while (*q && *q != ' ' && *q != '\n') q++;
+        if (*q != ' ') continue;
+        const char *mount = q + 1;
+        const char *end = mount;
+        while (*end && *end != ' ' && *end != '\n') end++;
+        if (*end != ' ') continue;
+        const char *type = end + 1;
+        const char *type_end = type;
+        while (*type_end && *type_end != ' ' && *type_end != '\n') type_end++;
+        if (is_remote_fstype(type, type_end - type)) continue;
+        unescape_path(mount, end - mount, path, sizeof(path));
+
+        struct statvfs st;
+        if (statvfs(path, &st) != 0 || st.f_blocks == 0) continue;
+
+        // Bind mounts and overlays can list the same mountpoint twice, keep the last
+        int index = count;
+        for (int i = 0; i < count; i++) {
+            if (strncmp(s->mount_table[i].path, path, DEV_NAME_LENGTH - 1) == 0) {
+                index = i;
+                break;
+            }
+        }
+        if (index == count) {
+            if (reserve((void **)&s->mount_table, &s->mount_capacity, count + 1, sizeof(MountUsage)) != 0) return -1;
+            count++;
+        }
+        MountUsage *m = &s->mount_table[index];
+        // Mount points longer than the name field are truncated, as the UI and labels only show them
+        size_t length = strnlen(path, DEV_NAME_LENGTH - 1);
+        memcpy(m->path, path, length);
+        m->path[length] = '\0';
+        m->total = (unsigned long long)st.f_blocks * st.f_frsize;
+        m->free = (unsigned long long)st.f_bfree * st.f_frsize;
+        m->available = (unsigned long long)st.f_bavail * st.f_frsize;
+    }
+    s->mount_count = count;
+    return 0;
+}
+
+int device_sampler_sample(DeviceSampler *sampler, int mounts) {
+    int next = sampler->current ^ 1;
+    if (parse_net_dev(sampler, next) != 0) return -1;
+    if (parse_diskstats(sampler, next) != 0) return -1;
+    if (mounts && parse_mounts(sampler) != 0) return -1;
+
+    return DEV_HEADER_LENGTH
+        + sampler->net_count[next] * DEV_INTERFACE_SLOTS
+        + sampler->mount_count * DEV_MOUNT_SLOTS
+        + sampler->disk_count[next] * DEV_DISK_SLOTS;
+}
+
+int device_sampler_entries(const DeviceSampler *sampler) {
+    int next = sampler->current ^ 1;
+    return sampler->net_count[next] + sampler->mount_count + sampler->disk_count[next];
+}
+
+static const NetCounters *find_net(const NetCounters *items, int count, const char *name) {
+    for (int i = 0; i < count; i++) {
+        if (strcmp(items[i].name, name) == 0) return &items[i];
+    }
+    return NULL;
+}
+
+static const DiskCounters *find_disk(const DiskCounters *items, int count, const char *name) {
+    for (int i = 0; i < count; i++) {
+        if (strcmp(items[i].name, name) == 0) return &items[i];
+    }
+    return NULL;
+}
+
+// Per-second rate of a counter, zero without a baseline or when it went backwards (reset)
+static double rate(unsigned long long cur, unsigned long long prev, int has_prev, double elapsed) {
+    if (!has_prev || elapsed <= 0 || cur < prev) return 0.0;
+    return (cur - prev) / elapsed;
+}
+
+int device_sampler_write(DeviceSampler *sampler, long long *out, char *names) {
+    int prev = sampler->current;
+    int next = prev ^ 1;
+
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    long long now_ns = (long long)now.tv_sec * 1000000000LL + now.tv_nsec;
+    double elapsed = sampler->primed ? (now_ns - sampler->last_sample_ns) / 1e9 : 0.0;
+
+    int net_count = sampler->net_count[next];
+    int disk_count = sampler->disk_count[next];
+    out[0] = net_count;
+    out[1] = sampler->mount_count;
+    out[2] = disk_count;
+    long long *slot = out + DEV_HEADER_LENGTH;
+    char *name = names;
+
+    for (int i = 0; i < net_count; i++) {
+        const NetCounters *c = &sampler->net[next][i];
+        const NetCounters *p = find_net(sampler->net[prev], sampler->net_count[prev], c->name);
+        int has = p != NULL;
+        slot[0] = c->rx_bytes;
+        slot[1] = c->tx_bytes;
+        slot[2] = double_bits(rate(c->rx_bytes, has ? p->rx_bytes : 0, has, elapsed));
+        slot[3] = double_bits(rate(c->tx_bytes, has ? p->tx_bytes : 0, has, elapsed));
+        slot[4] = double_bits(rate(c->rx_packets, has ? p->rx_packets : 0, has, elapsed));
+        slot[5] = double_bits(rate(c->tx_packets, has ? p->tx_packets : 0, has, elapsed));
+        slot[6] = double_bits(rate(c->rx_drops, has ? p->rx_drops : 0, has, elapsed));
+        slot[7] = double_bits(rate(c->tx_drops, has ? p->tx_drops : 0, has, elapsed));
+        memcpy(name, c->name, DEV_NAME_LENGTH);
+        slot += DEV_INTERFACE_SLOTS;
+        name += DEV_NAME_LENGTH;
+    }
+
+    for (int i = 0; i < sampler->mount_count; i++) {
+        const MountUsage *m = &sampler->mount_table[i];
+        slot[0] = m->total;
+        slot[1] = m->free;
+        slot[2] = m->available;
+        memcpy(name, m->path, DEV_NAME_LENGTH);
+        slot += DEV_MOUNT_SLOTS;
+        name += DEV_NAME_LENGTH;
+    }
+
+    for (int i = 0; i < disk_count; i++) {
+        const DiskCounters *d = &sampler->disks[next][i];
+        const DiskCounters *p = find_disk(sampler->disks[prev], sampler->disk_count[prev], d->name);
+        int has = p != NULL;
+        slot[0] = double_bits(rate(d->reads, has ? p->reads : 0, has, elapsed));
+        slot[1] = double_bits(rate(d->writes, has ? p->writes : 0, has, elapsed));
+        slot[2] = double_bits(rate(d->sectors_read, has ? p->sectors_read : 0, has, elapsed) * SECTOR_BYTES);
+        slot[3] = double_bits(rate(d->sectors_written, has ? p->sectors_written : 0, has, elapsed) * SECTOR_BYTES);
+        // io_ms counts milliseconds with I/O in flight, so ms per second / 10 is percent busy
+        double busy = rate(d->io_ms, has ? p->io_ms : 0, has, elapsed) / 10.0;
+        slot[4] = double_bits(busy > 100.0 ? 100.0 : busy);
+        memcpy(name, d->name, DEV_NAME_LENGTH);
+        slot += DEV_DISK_SLOTS;
+        name += DEV_NAME_LENGTH;
+    }
+
+    sampler->current = next;
+    sampler->last_sample_ns = now_ns;
+    sampler->primed = 1;
+    return (int)(slot - out);
+}
+
+//Reads /proc/net/dev and /proc/diskstats once and, when mounts is set, statvfs() of every mount.
+//Returns the number of slots written, minus the required length (header filled in) if either
+//array is too small, or 0 on failure. The baseline only advances on a successful write.
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectDevices
+  (JNIEnv *env, jclass cls, jlong handle, jlongArray out, jbyteArray names, jboolean mounts) {
+    Collector *c = collector_from_handle(handle);
+    if (c == NULL) return 0;
+    DeviceSampler *devices = &c->devices;
+
+    int length = device_sampler_sample(devices, mounts);
+    if (length < 0) return 0;
+    int names_length = device_sampler_entries(devices) * DEV_NAME_LENGTH;
+
+    if ((*env)->GetArrayLength(env, out) < length || (*env)->GetArrayLength(env, names) < names_length) {
+        if ((*env)->GetArrayLength(env, out) >= DEV_HEADER_LENGTH) {
+            int next = devices->current ^ 1;
+            jlong header[DEV_HEADER_LENGTH] = {
+                devices->net_count[next], devices->mount_count, devices->disk_count[next]
+            };
+            (*env)->SetLongArrayRegion(env, out, 0, DEV_HEADER_LENGTH, header);
+        }
+        return -length;
+    }
+
+    if (reserve((void **)&c->device_out, &c->device_out_capacity, length, sizeof(long long)) != 0) return 0;
+    if (names_length > 0
+            && reserve((void **)&c->device_names, &c->device_names_capacity, names_length, 1) != 0) return 0;
+
+    int written = device_sampler_write(devices, c->device_out, c->device_names);
+    (*env)->SetLongArrayRegion(env, out, 0, written, (jlong *)c->device_out);
+    if (names_length > 0) {
+        (*env)->SetByteArrayRegion(env, names, 0, names_length, (jbyte *)c->device_names);
+    }
+    return written;
+}
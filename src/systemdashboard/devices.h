@@ -0,0 +1,64 @@
+#ifndef SYSTEMDASHBOARD_DEVICES_H
+#define SYSTEMDASHBOARD_DEVICES_H
+
+#include "procfs.h"
+
+#define DEV_NAME_LENGTH 64
+
+// Header: interface, mount and disk counts. The three record blocks follow in that order.
+#define DEV_HEADER_LENGTH 3
+// rx/tx bytes totals, then rx/tx bytes/s, rx/tx packets/s, rx/tx drops/s as double bits
+#define DEV_INTERFACE_SLOTS 8
+// total, free and available bytes
+#define DEV_MOUNT_SLOTS 3
+// reads/s, writes/s, read bytes/s, write bytes/s, utilization % as double bits
+#define DEV_DISK_SLOTS 5
+
+// Cumulative counters of one /proc/net/dev line
+typedef struct {
+    char name[DEV_NAME_LENGTH];
+    unsigned long long rx_bytes, rx_packets, rx_drops;
+    unsigned long long tx_bytes, tx_packets, tx_drops;
+} NetCounters;
+
+// Cumulative counters of one /proc/diskstats line
+typedef struct {
+    char name[DEV_NAME_LENGTH];
+    unsigned long long reads, writes, sectors_read, sectors_written, io_ms;
+} DiskCounters;
+
+typedef struct {
+    char path[DEV_NAME_LENGTH];
+    unsigned long long total, free, available;
+} MountUsage;
+
+// Current and previous counters per interface and disk, matched by name between ticks
+typedef struct {
+    ProcFile net_dev, diskstats, mounts;
+    ProcBuffer buf;
+    NetCounters *net[2];
+    int net_count[2], net_capacity[2];
+    DiskCounters *disks[2];
+    int disk_count[2], disk_capacity[2];
+    MountUsage *mount_table;
+    int mount_count, mount_capacity;
+    int current;
+    long long last_sample_ns;
+    int primed;
+} DeviceSampler;
+
+void device_sampler_init(DeviceSampler *sampler);
+void device_sampler_free(DeviceSampler *sampler);
+
+// Parses net/dev, diskstats and, if requested, every mounted filesystem into the next tables.
+// Returns the number of long slots device_sampler_write needs, or -1.
+int device_sampler_sample(DeviceSampler *sampler, int mounts);
+
+// Writes the header and records computed against the previous sample, then makes this sample
+// the baseline. names receives DEV_NAME_LENGTH bytes per record.
+int device_sampler_write(DeviceSampler *sampler, long long *out, char *names);
+
+// Entries written by the last sample, for sizing the names buffer
+int device_sampler_entries(const DeviceSampler *sampler);
+
+#endif
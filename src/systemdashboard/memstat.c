@@ -0,0 +1,90 @@
+#include <string.h>
+#include <time.h>
+
+#include "memstat.h"
+
+static const char *const MEMINFO_KEYS[] = {
+    "MemTotal", "MemFree", "MemAvailable", "Cached", "Buffers", "Dirty", "Slab",
+    "SwapTotal", "SwapFree", "HugePages_Total", "HugePages_Free", "Hugepagesize"
+};
+#define MEMINFO_COUNT (sizeof(MEMINFO_KEYS) / sizeof(MEMINFO_KEYS[0]))
+
+static const char *const VMSTAT_KEYS[VMSTAT_COUNTERS] = { "pgfault", "pgmajfault", "pswpin", "pswpout" };
+
+void memory_sampler_init(MemorySampler *sampler) {
+    memset(sampler, 0, sizeof(*sampler));
+    proc_file_init(&sampler->meminfo, "meminfo");
+    proc_file_init(&sampler->vmstat, "vmstat");
+}
+
+void memory_sampler_free(MemorySampler *sampler) {
+    proc_file_close(&sampler->meminfo);
+    proc_file_close(&sampler->vmstat);
+    proc_buffer_free(&sampler->buf);
+    memset(sampler, 0, sizeof(*sampler));
+}
+
+// "key value" lines; every key is looked up in the same pass
+static void vmstat_parse(const char *vmstat, unsigned long long values[VMSTAT_COUNTERS]) {
+    memset(values, 0, VMSTAT_COUNTERS * sizeof(unsigned long long));
+    for (const char *p = vmstat; *p; p = proc_next_line(p)) {
+        const char *space = strchr(p, ' ');
+        if (space == NULL) break;
+
+        size_t key_length = space - p;
+        for (int i = 0; i < VMSTAT_COUNTERS; i++) {
+            if (strncmp(p, VMSTAT_KEYS[i], key_length) == 0 && VMSTAT_KEYS[i][key_length] == '\0') {
+                values[i] = proc_parse_u64(&space);
+                break;
+            }
+        }
+    }
+}
+
+int memory_sampler_sample(MemorySampler *s, MemorySample *out) {
+    unsigned long long meminfo[MEMINFO_COUNT];
+    if (proc_file_read(&s->meminfo, &s->buf) < 0) return -1;
+    meminfo_parse(s->buf.data, MEMINFO_KEYS, meminfo, MEMINFO_COUNT);
+
+    memset(out, 0, sizeof(*out));
+    out->total = meminfo[0];
+    out->free = meminfo[1];
+    out->cached = meminfo[3];
+    out->buffers = meminfo[4];
+    out->dirty = meminfo[5];
+    out->slab = meminfo[6];
+    // Kernels before 3.14 have no MemAvailable; page cache and buffers are the bulk of what it adds
+    out->available = meminfo[2] > 0 ? (long long)meminfo[2] : out->free + out->cached + out->buffers;
+    out->swap_total = meminfo[7];
+    out->swap_free = meminfo[8];
+    out->huge_pages_total = meminfo[9];
+    out->huge_pages_free = meminfo[10];
+    out->huge_page_size = meminfo[11];
+
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    long long now_ns = (long long)now.tv_sec * 1000000000LL + now.tv_nsec;
+
+    unsigned long long counters[VMSTAT_COUNTERS];
+    if (proc_file_read(&s->vmstat, &s->buf) < 0) {
+        s->primed = 0;
+        return 0;
+    }
+    vmstat_parse(s->buf.data, counters);
+
+    double seconds = s->primed ? (now_ns - s->last_sample_ns) / 1e9 : 0.0;
+    double rates[VMSTAT_COUNTERS] = { 0 };
+    for (int i = 0; i < VMSTAT_COUNTERS; i++) {
+        if (seconds > 0 && counters[i] >= s->prev[i]) {
+            rates[i] = (counters[i] - s->prev[i]) / seconds;
+        }
+        s->prev[i] = counters[i];
+    }
+    out->page_faults = rates[0];
+    out->major_faults = rates[1];
+    out->swap_in = rates[2];
+    out->swap_out = rates[3];
+    s->last_sample_ns = now_ns;
+    s->primed = 1;
+    return 0;
+}
@@ -0,0 +1,33 @@
+#ifndef SYSTEMDASHBOARD_MEMSTAT_H
+#define SYSTEMDASHBOARD_MEMSTAT_H
+
+#include "procfs.h"
+
+// pgfault, pgmajfault, pswpin and pswpout from /proc/vmstat
+#define VMSTAT_COUNTERS 4
+
+// One sample. Sizes are in bytes except the huge page counts; rates are per second over the
+// interval since the previous call and 0 on the first.
+typedef struct {
+    long long total, free, available, cached, buffers, dirty, slab;
+    long long swap_total, swap_free;
+    long long huge_pages_total, huge_pages_free, huge_page_size;
+    double page_faults, major_faults, swap_in, swap_out;
+} MemorySample;
+
+// /proc/meminfo and /proc/vmstat kept open, with the previous tick's vmstat counters
+typedef struct {
+    ProcFile meminfo, vmstat;
+    ProcBuffer buf;
+    unsigned long long prev[VMSTAT_COUNTERS];
+    long long last_sample_ns;
+    int primed;
+} MemorySampler;
+
+void memory_sampler_init(MemorySampler *sampler);
+void memory_sampler_free(MemorySampler *sampler);
+
+// One read of each file. Returns -1 and leaves out untouched if /proc/meminfo is unreadable.
+int memory_sampler_sample(MemorySampler *sampler, MemorySample *out);
+
+#endif
@@ -0,0 +1,361 @@
+#include <jni.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+#include <fcntl.h>
+#include <unistd.h>
+#include <dirent.h>
+#include <sys/stat.h>
+
+#include "procfs.h"
+#include "processes.h"
+#include "collector.h"
+#include "systemdashboard_NativeCollector.h"
+
+#define PROC_TABLE_INITIAL 1024
+
+static unsigned int pid_hash(int pid, unsigned int capacity) {
+    return ((unsigned int)pid * 2654435761u) & (capacity - 1);
+}
+
+static ProcEntry *table_find(ProcTable *table, int pid) {
+    if (table->entries == NULL) return NULL;
+    for (unsigned int i = pid_hash(pid, table->capacity);; i = (i + 1) & (table->capacity - 1)) {
+        ProcEntry *e = &table->entries[i];
+        if (e->generation != table->generation) return NULL;
+        if (e->pid == pid) return e;
+    }
+}
+
+static ProcEntry *table_slot(ProcTable *table, int pid) {
+    unsigned int i = pid_hash(pid, table->capacity);
+    while (table->entries[i].generation == table->generation) {
+        i = (i + 1) & (table->capacity - 1);
+    }
+    return &table->entries[i];
+}
+
+// Doubles the table and re-inserts its live entries, keeping it at most half full
+static int table_grow(ProcTable *table) {
+    unsigned int capacity = table->capacity ? table->capacity * 2 : PROC_TABLE_INITIAL;
+    ProcEntry *entries = calloc(capacity, sizeof(ProcEntry));
+    if (entries == NULL) return -1;
+
+    ProcTable grown = { entries, capacity, table->count, 1 };
+    for (unsigned int i = 0; i < table->capacity; i++) {
+        ProcEntry *e = &table->entries[i];
+        if (e->generation != table->generation) continue;
+        ProcEntry *slot = table_slot(&grown, e->pid);
+        *slot = *e;
+        slot->generation = grown.generation;
+    }
+    free(table->entries);
+    *table = grown;
+    return 0;
+}
+
+static const char *skip_field(const char *p) {
+    p = proc_skip_spaces(p);
+    while (*p && *p != ' ') p++;
+    return p;
+}
+
+static ssize_t read_small(int dir_fd, const char *path, char *buf, size_t size) {
+    int fd = openat(dir_fd, path, O_RDONLY | O_CLOEXEC);
+    if (fd < 0) return -1;
+    ssize_t n = read(fd, buf, size - 1);
+    close(fd);
+    if (n < 0) return -1;
+    buf[n] = '\0';
+    return n;
+}
+
+// Parses comm, utime+stime, starttime and rss (pages) out of /proc/[pid]/stat
+static int parse_pid_stat(char *buf, ProcEntry *e, unsigned long long *start_time) {
+    char *open = strchr(buf, '(');
+    char *close = strrchr(buf, ')');
+    if (open == NULL || close == NULL || close < open) return -1;
+
+    size_t comm_length = close - open - 1;
+    if (comm_length >= PROC_COMM_LENGTH) comm_length = PROC_COMM_LENGTH - 1;
+    memset(e->comm, 0, PROC_COMM_LENGTH);
+    memcpy(e->comm, open + 1, comm_length);
+
+    // Field 3 (state) follows the closing paren, utime is field 14
+    const char *p = close + 1;
+    for (int field = 3; field < 14; field++) p = skip_field(p);
+    unsigned long long utime = proc_parse_u64(&p);
+    unsigned long long stime = proc_parse_u64(&p);
+    for (int field = 16; field < 22; field++) p = skip_field(p);
+    *start_time = proc_parse_u64(&p);
+    p = skip_field(p); // vsize
+    e->rss = (long long)proc_parse_u64(&p);
+    e->cpu_ticks = utime + stime;
+    return 0;
+}
+
+// Storage-level read_bytes/write_bytes from /proc/[pid]/io, unreadable for other users' processes
+static void parse_pid_io(const char *buf, unsigned long long *read_bytes, unsigned long long *write_bytes) {
+    for (const char *p = buf; *p; p = proc_next_line(p)) {
+        if (strncmp(p, "read_bytes:", 11) == 0) {
+            p += 11;
+            *read_bytes = proc_parse_u64(&p);
+        } else if (strncmp(p, "write_bytes:", 12) == 0) {
+            p += 12;
+            *write_bytes = proc_parse_u64(&p);
+        }
+    }
+}
+
+static double rank_value(const ProcEntry *e, int dimension) {
+    switch (dimension) {
+        case PROC_BY_CPU: return e->cpu;
+        case PROC_BY_MEMORY: return (double)e->rss;
+        default: return e->read_rate + e->write_rate;
+    }
+}
+
+static void heap_sift_down(const ProcEntry *entries, int *heap, int size, int i, int dimension) {
+    for (;;) {
+        int smallest = i, l = 2 * i + 1, r = l + 1;
+        if (l < size && rank_value(&entries[heap[l]], dimension) < rank_value(&entries[heap[smallest]], dimension)) smallest = l;
+        if (r < size && rank_value(&entries[heap[r]], dimension) < rank_value(&entries[heap[smallest]], dimension)) smallest = r;
+        if (smallest == i) return;
+        int tmp = heap[i];
+        heap[i] = heap[smallest];
+        heap[smallest] = tmp;
+        i = smallest;
+    }
+}
+
+static void heap_sift_up(const ProcEntry *entries, int *heap, int i, int dimension) {
+    while (i > 0) {
+        int parent = (i - 1) / 2;
+        if (rank_value(&entries[heap[parent]], dimension) <= rank_value(&entries[heap[i]], dimension)) return;
+        int tmp = heap[i];
+        heap[i] = heap[parent];
+        heap[parent] = tmp;
+        i = parent;
+    }
+}
+
+// Keeps the top_n largest entries in a bounded min-heap, the root is the smallest survivor
+static void heap_offer(const ProcEntry *entries, int *heap, int *size, int top_n, int index, int dimension) {
+    if (*size < top_n) {
+        heap[*size] = index;
+        heap_sift_up(entries, heap, (*size)++, dimension);
+    } else if (rank_value(&entries[index], dimension) > rank_value(&entries[heap[0]], dimension)) {
+        heap[0] = index;
+        heap_sift_down(entries, heap, *size, 0, dimension);
+    }
+}
+
+void process_sampler_init(ProcessSampler *sampler) {
+    memset(sampler, 0, sizeof(*sampler));
+    sampler->clock_ticks = sysconf(_SC_CLK_TCK);
+    sampler->page_size = sysconf(_SC_PAGESIZE);
+}
+
+void process_sampler_free(ProcessSampler *sampler) {
+    for (int i = 0; i < 2; i++) free(sampler->tables[i].entries);
+    for (int d = 0; d < PROC_DIMENSIONS; d++) free(sampler->heaps[d]);
+    memset(sampler, 0, sizeof(*sampler));
+}
+
+int process_sampler_sample(ProcessSampler *sampler, int top_n) {
+    ProcTable *prev = &sampler->tables[sampler->current];
+    ProcTable *next = &sampler->tables[sampler->current ^ 1];
+
+    DIR *dir = opendir(proc_root());
+    if (dir == NULL) return -1;
+    int proc_fd = dirfd(dir);
+
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    long long now_ns = (long long)now.tv_sec * 1000000000LL + now.tv_nsec;
+    double elapsed = sampler->last_sample_ns ? (now_ns - sampler->last_sample_ns) / 1e9 : 0.0;
+
+    // Bumping the generation empties the table without touching its memory
+    next->generation++;
+    next->count = 0;
+    if (next->entries == NULL && table_grow(next) != 0) {
+        closedir(dir);
+        return -1;
+    }
+
+    char path[288];
+    char buf[1024];
+    struct dirent *entry;
+    while ((entry = readdir(dir)) != NULL) {
+        if (entry->d_name[0] < '1' || entry->d_name[0] > '9') continue;
+        int pid = atoi(entry->d_name);
+
+        ProcEntry sample;
+        unsigned long long start_time;
+        snprintf(path, sizeof(path), "%s/stat", entry->d_name);
+        if (read_small(proc_fd, path, buf, sizeof(buf)) < 0) continue; // exited mid-walk
+        if (parse_pid_stat(buf, &sample, &start_time) != 0) continue;
+
+        // The directory is owned by the process's effective uid
+        struct stat st;
+        sample.uid = fstatat(proc_fd, entry->d_name, &st, 0) == 0 ? (int)st.st_uid : -1;
+
+        unsigned long long read_bytes = 0, write_bytes = 0;
+        snprintf(path, sizeof(path), "%s/io", entry->d_name);
+        if (read_small(proc_fd, path, buf, sizeof(buf)) >= 0) {
+            parse_pid_io(buf, &read_bytes, &write_bytes);
+        }
+
+        if ((next->count + 1) * 2 > next->capacity && table_grow(next) != 0) break;
+        ProcEntry *e = table_slot(next, pid);
+        *e = sample;
+        e->pid = pid;
+        e->generation = next->generation;
+        e->start_time = start_time;
+        e->rss *= sampler->page_size;
+        e->read_bytes = read_bytes;
+        e->write_bytes = write_bytes;
+        e->cpu = e->read_rate = e->write_rate = 0.0;
+        next->count++;
+
+        // Only a PID seen last tick with the same start time has a valid baseline
+        ProcEntry *last = table_find(prev, pid);
+        if (last != NULL && last->start_time == start_time && elapsed > 0) {
+            if (e->cpu_ticks >= last->cpu_ticks) {
+                e->cpu = 100.0 * (e->cpu_ticks - last->cpu_ticks) / sampler->clock_ticks / elapsed;
+            }
+            if (read_bytes >= last->read_bytes) e->read_rate = (read_bytes - last->read_bytes) / elapsed;
+            if (write_bytes >= last->write_bytes) e->write_rate = (write_bytes - last->write_bytes) / elapsed;
+        }
+    }
+    closedir(dir);
+
+    if (top_n > sampler->heap_capacity) {
+        for (int d = 0; d < PROC_DIMENSIONS; d++) {
+            int *heap = realloc(sampler->heaps[d], top_n * sizeof(int));
+            if (heap == NULL) return -1;
+            sampler->heaps[d] = heap;
+        }
+        sampler->heap_capacity = top_n;
+    }
+
+    sampler->current ^= 1;
+    sampler->last_sample_ns = now_ns;
+    return next->count;
+}
+
+int process_sampler_write(ProcessSampler *sampler, int top_n, long long *out, char *names) {
+    ProcTable *table = &sampler->tables[sampler->current];
+    int sizes[PROC_DIMENSIONS] = {0};
+
+    for (unsigned int i = 0; i < table->capacity; i++) {
+        if (table->entries[i].generation != table->generation) continue;
+        for (int d = 0; d < PROC_DIMENSIONS; d++) {
+            heap_offer(table->entries, sampler->heaps[d], &sizes[d], top_n, i, d);
+        }
+    }
+
+    out[0] = table->count;
+    out[1] = sizes[0];
+    for (int d = 0; d < PROC_DIMENSIONS; d++) {
+        // Pop the minimum into the last free record so each block ends up sorted descending
+        int *heap = sampler->heaps[d];
+        for (int size = sizes[d]; size > 0; size--) {
+            const ProcEntry *e = &table->entries[heap[0]];
+            int record = d * top_n + size - 1;
+            long long *slot = out + PROC_HEADER_LENGTH + record * PROC_RECORD_SLOTS;
+            slot[0] = e->pid;
+            slot[1] = double_bits(e->cpu);
+            slot[2] = e->rss;
+            slot[3] = double_bits(e->read_rate);
+            slot[4] = double_bits(e->write_rate);
+            memcpy(names + record * PROC_COMM_LENGTH, e->comm, PROC_COMM_LENGTH);
+
+            heap[0] = heap[size - 1];
+            heap_sift_down(table->entries, heap, size - 1, 0, d);
+        }
+    }
+    return sizes[0];
+}
+
+int process_sampler_write_table(ProcessSampler *sampler, long long *out, char *names) {
+    ProcTable *table = &sampler->tables[sampler->current];
+    int row = 0;
+    for (unsigned int i = 0; i < table->capacity; i++) {
+        const ProcEntry *e = &table->entries[i];
+        if (e->generation != table->generation) continue;
+        long long *slot = out + row * PROC_TABLE_SLOTS;
+        slot[0] = e->pid;
+        slot[1] = e->uid;
+        slot[2] = double_bits(e->cpu);
+        slot[3] = e->rss;
+        slot[4] = double_bits(e->read_rate);
+        slot[5] = double_bits(e->write_rate);
+        memcpy(names + row * PROC_COMM_LENGTH, e->comm, PROC_COMM_LENGTH);
+        row++;
+    }
+    return row;
+}
+
+//Walks /proc once and fills the top topN processes by CPU, RSS and disk I/O rate.
+//Returns the number of records per dimension, or -1 if the arrays are too small.
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectProcesses
+  (JNIEnv *env, jclass cls, jlong handle, jint top_n, jlongArray out, jbyteArray names) {
+    Collector *c = collector_from_handle(handle);
+    if (c == NULL) return -1;
+    int out_length = PROC_HEADER_LENGTH + PROC_DIMENSIONS * top_n * PROC_RECORD_SLOTS;
+    int names_length = PROC_DIMENSIONS * top_n * PROC_COMM_LENGTH;
+    if (top_n <= 0 || (*env)->GetArrayLength(env, out) < out_length
+            || (*env)->GetArrayLength(env, names) < names_length) {
+        return -1;
+    }
+
+    if (top_n > c->process_out_top_n) {
+        long long *grown_out = realloc(c->process_out, out_length * sizeof(long long));
+        if (grown_out == NULL) return -1;
+        c->process_out = grown_out;
+        char *grown_names = realloc(c->process_names, names_length);
+        if (grown_names == NULL) return -1;
+        c->process_names = grown_names;
+        c->process_out_top_n = top_n;
+    }
+    memset(c->process_out, 0, out_length * sizeof(long long));
+    memset(c->process_names, 0, names_length);
+
+    if (process_sampler_sample(&c->processes, top_n) < 0) return -1;
+    c->processes_sampled = 1;
+    int written = process_sampler_write(&c->processes, top_n, c->process_out, c->process_names);
+
+    (*env)->SetLongArrayRegion(env, out, 0, out_length, (jlong *)c->process_out);
+    (*env)->SetByteArrayRegion(env, names, 0, names_length, (jbyte *)c->process_names);
+    return written;
+}
+
+//Writes every process seen by the last collectProcesses walk, without walking again.
+//Returns the row count, or the negated row count if the arrays are too small.
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectProcessTable
+  (JNIEnv *env, jclass cls, jlong handle, jlongArray out, jbyteArray names) {
+    Collector *c = collector_from_handle(handle);
+    if (c == NULL || !c->processes_sampled) return 0;
+    int rows = c->processes.tables[c->processes.current].count;
+    if ((*env)->GetArrayLength(env, out) < rows * PROC_TABLE_SLOTS
+            || (*env)->GetArrayLength(env, names) < rows * PROC_COMM_LENGTH) {
+        return -rows;
+    }
+
+    if (rows > c->table_out_rows) {
+        long long *grown_out = realloc(c->table_out, rows * PROC_TABLE_SLOTS * sizeof(long long));
+        if (grown_out == NULL) return 0;
+        c->table_out = grown_out;
+        char *grown_names = realloc(c->table_names, rows * PROC_COMM_LENGTH);
+        if (grown_names == NULL) return 0;
+        c->table_names = grown_names;
+        c->table_out_rows = rows;
+    }
+    int written = process_sampler_write_table(&c->processes, c->table_out, c->table_names);
+
+    (*env)->SetLongArrayRegion(env, out, 0, written * PROC_TABLE_SLOTS, (jlong *)c->table_out);
+    (*env)->SetByteArrayRegion(env, names, 0, written * PROC_COMM_LENGTH, (jbyte *)c->table_names);
+    return written;
+}
@@ -0,0 +1,62 @@
+#ifndef SYSTEMDASHBOARD_PROCESSES_H
+#define SYSTEMDASHBOARD_PROCESSES_H
+
+#define PROC_COMM_LENGTH 16
+
+// Ranking dimensions, in the order their top-N blocks are written out
+#define PROC_BY_CPU 0
+#define PROC_BY_MEMORY 1
+#define PROC_BY_IO 2
+#define PROC_DIMENSIONS 3
+
+// Slots per process record: pid, cpu% bits, rss bytes, read bytes/s bits, write bytes/s bits
+#define PROC_RECORD_SLOTS 5
+// Header: total process count, records per dimension
+#define PROC_HEADER_LENGTH 2
+// Slots per row of the full table: pid, uid, cpu% bits, rss bytes, read bytes/s bits, write bytes/s bits
+#define PROC_TABLE_SLOTS 6
+
+// State carried for one PID between ticks
+typedef struct {
+    int pid;
+    int uid; // -1 if the process exited before its owner was read
+    unsigned int generation;
+    unsigned long long start_time;
+    unsigned long long cpu_ticks;
+    unsigned long long read_bytes, write_bytes;
+    long long rss;
+    double cpu, read_rate, write_rate;
+    char comm[PROC_COMM_LENGTH];
+} ProcEntry;
+
+// Open-addressed PID table, an entry is live only when its generation matches the table's
+typedef struct {
+    ProcEntry *entries;
+    unsigned int capacity;
+    unsigned int count;
+    unsigned int generation;
+} ProcTable;
+
+typedef struct {
+    ProcTable tables[2];
+    int current;
+    int *heaps[PROC_DIMENSIONS];
+    int heap_capacity;
+    long long last_sample_ns;
+    long clock_ticks;
+    long page_size;
+} ProcessSampler;
+
+void process_sampler_init(ProcessSampler *sampler);
+void process_sampler_free(ProcessSampler *sampler);
+
+// Walks /proc once, returns the number of live processes or -1
+int process_sampler_sample(ProcessSampler *sampler, int top_n);
+
+// Writes the header and top_n records per dimension into out, comm names into names
+int process_sampler_write(ProcessSampler *sampler, int top_n, long long *out, char *names);
+
+// Writes every process of the last walk, in table order, and returns how many there were
+int process_sampler_write_table(ProcessSampler *sampler, long long *out, char *names);
+
+#endif
@@ -0,0 +1,269 @@
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <fcntl.h>
+#include <unistd.h>
+
+#include "procfs.h"
+
+#define PROC_BUFFER_INITIAL 4096
+#define PROC_ROOT_MAX 256
+
+static char root_path[PROC_ROOT_MAX] = "/proc";
+static unsigned int root_generation = 0;
+
+const char *proc_root(void) {
+    return root_path;
+}
+
+void proc_set_root(const char *root) {
+    snprintf(root_path, sizeof(root_path), "%s", root);
+    root_generation++;
+}
+
+unsigned int proc_root_generation(void) {
+    return root_generation;
+}
+
+const char *proc_path(char *buf, size_t size, const char *relative) {
+    snprintf(buf, size, "%s/%s", root_path, relative);
+    return buf;
+}
+
+void proc_file_init(ProcFile *file, const char *path) {
+    file->path = path;
+    file->fd = -1;
+    file->root_generation = root_generation;
+}
+
+void proc_file_close(ProcFile *file) {
+    if (file->fd >= 0) {
+        close(file->fd);
+        file->fd = -1;
+    }
+}
+
+// Re-reads the whole file from offset 0, growing the buffer until the read comes back short
+ssize_t proc_file_read(ProcFile *file, ProcBuffer *buf) {
+    if (file->fd >= 0 && file->root_generation != root_generation) {
+        proc_file_close(file);
+    }
+    if (file->fd < 0) {
+        char path[PROC_ROOT_MAX + 64];
+        // Files outside /proc, such as cgroup control files, are given as absolute paths
+        const char *name = file->path[0] == '/' ? file->path : proc_path(path, sizeof(path), file->path);
+        file->fd = open(name, O_RDONLY | O_CLOEXEC);
+        if (file->fd < 0) return -1;
+        file->root_generation = root_generation;
+    }
+
+    if (buf->data == NULL) {
+        buf->data = malloc(PROC_BUFFER_INITIAL);
+        if (buf->data == NULL) return -1;
+        buf->capacity = PROC_BUFFER_INITIAL;
+    }
+
+    size_t length = 0;
+    for (;;) {
+        ssize_t n = pread(file->fd, buf->data + length, buf->capacity - length - 1, length);
+        if (n < 0) {
+            // The descriptor went stale, reopen on the next tick
+            proc_file_close(file);
+            return -1;
+        }
+        length += n;
+        if (n == 0 || length < buf->capacity - 1) break;
+
+        char *grown = realloc(buf->data, buf->capacity * 2);
+        if (grown == NULL) break;
+        buf->data = grown;
+        buf->capacity *= 2;
+    }
+    buf->data[length] = '\0';
+    return length;
+}
+
+void proc_buffer_free(ProcBuffer *buf) {
+    free(buf->data);
+    buf->data = NULL;
+    buf->capacity = 0;
+}
+
+const char *proc_skip_spaces(const char *p) {
+    while (*p == ' ' || *p == '\t') p++;
+    return p;
+}
+
+const char *proc_next_line(const char *p) {
+    const char *eol = strchr(p, '\n');
+    return eol ? eol + 1 : p + strlen(p);
+}
+
+unsigned long long proc_parse_u64(const char **p) {
+    const char *s = proc_skip_spaces(*p);
+    unsigned long long value = 0;
+    while (*s >= '0' && *s <= '9') {
+        value = value * 10 + (*s - '0');
+        s++;
+    }
+    *p = s;
+    return value;
+}
+
+// Locale-independent, unlike strtod: the JVM may have switched to a locale with a decimal comma
+double proc_parse_decimal(const char **p) {
+    double value = (double)proc_parse_u64(p);
+    const char *s = *p;
+    if (*s == '.') {
+        double scale = 0.1;
+        for (s++; *s >= '0' && *s <= '9'; s++) {
+            value += (*s - '0') * scale;
+            scale /= 10;
+        }
+    }
+    *p = s;
+    return value;
+}
+
+static void parse_cpu_times(const char **p, CpuTimes *t) {
+    t->user = proc_parse_u64(p);
+    t->nice = proc_parse_u64(p);
+    t->system = proc_parse_u64(p);
+    t->idle = proc_parse_u64(p);
+    t->iowait = proc_parse_u64(p);
+    t->irq = proc_parse_u64(p);
+    t->softirq = proc_parse_u64(p);
+    t->steal = proc_parse_u64(p);
+}
+
+static int cpu_sampler_reserve(CpuSampler *sampler, int cores) {
+    if (cores <= sampler->capacity) return 0;
+
+    int capacity = sampler->capacity ? sampler->capacity : 8;
+    while (capacity < cores) capacity *= 2;
+
+    CpuTimes *cur = realloc(sampler->cores, capacity * sizeof(CpuTimes));
+    if (cur == NULL) return -1;
+    sampler->cores = cur;
+    CpuTimes *prev = realloc(sampler->prev_cores, capacity * sizeof(CpuTimes));
+    if (prev == NULL) return -1;
+    sampler->prev_cores = prev;
+
+    memset(cur + sampler->capacity, 0, (capacity - sampler->capacity) * sizeof(CpuTimes));
+    memset(prev + sampler->capacity, 0, (capacity - sampler->capacity) * sizeof(CpuTimes));
+    sampler->capacity = capacity;
+    return 0;
+}
+
+// Parses the aggregate and every cpuN line of /proc/stat in one pass, returns the core count
+int cpu_sampler_parse(CpuSampler *sampler, const char *stat) {
+    int num_cores = 0;
+    const char *p = stat;
+
+    // The cpu lines always come first, stop at the first line that is not one
+    while (p[0] == 'c' && p[1] == 'p' && p[2] == 'u') {
+        p += 3;
+        if (*p == ' ') {
+            parse_cpu_times(&p, &sampler->total);
+        } else {
+            int core = (int)proc_parse_u64(&p);
+            if (cpu_sampler_reserve(sampler, core + 1) != 0) return -1;
+            // Cores can be offline, leave their slots zeroed
+            for (int i = num_cores; i < core; i++) {
+                memset(&sampler->cores[i], 0, sizeof(CpuTimes));
+            }
+            parse_cpu_times(&p, &sampler->cores[core]);
+            num_cores = core + 1;
+        }
+        p = proc_next_line(p);
+    }
+
+    sampler->num_cores = num_cores;
+    return num_cores;
+}
+
+// Makes the counters just parsed the baseline for the next delta
+void cpu_sampler_commit(CpuSampler *sampler) {
+    CpuTimes *swap = sampler->prev_cores;
+    sampler->prev_cores = sampler->cores;
+    sampler->cores = swap;
+    sampler->prev_total = sampler->total;
+    sampler->prev_num_cores = sampler->num_cores;
+    sampler->primed = 1;
+}
+
+void cpu_sampler_free(CpuSampler *sampler) {
+    free(sampler->cores);
+    free(sampler->prev_cores);
+    memset(sampler, 0, sizeof(*sampler));
+}
+
+static unsigned long long cpu_total(const CpuTimes *t) {
+    return t->user + t->nice + t->system + t->idle + t->iowait + t->irq + t->softirq + t->steal;
+}
+
+// Per-CPU counters such as iowait can go backwards (proc(5)), so each field's delta is clamped at 0
+static double cpu_delta(unsigned long long cur, unsigned long long prev) {
+    return cur > prev ? (double)(cur - prev) : 0.0;
+}
+
+void cpu_usage_between(const CpuTimes *cur, const CpuTimes *prev, CpuUsage *usage) {
+    memset(usage, 0, sizeof(*usage));
+    if (cpu_total(prev) == 0) return; // No baseline yet, e.g. a core that just came online
+
+    double user = cpu_delta(cur->user, prev->user) + cpu_delta(cur->nice, prev->nice);
+    double system = cpu_delta(cur->system, prev->system);
+    double idle = cpu_delta(cur->idle, prev->idle);
+    double iowait = cpu_delta(cur->iowait, prev->iowait);
+    double irq = cpu_delta(cur->irq, prev->irq) + cpu_delta(cur->softirq, prev->softirq);
+    double steal = cpu_delta(cur->steal, prev->steal);
+    double total = user + system + idle + iowait + irq + steal;
+    if (total <= 0) return;
+
+    double scale = 100.0 / total;
+    usage->busy = 100.0 - (idle + iowait) * scale;
+    usage->user = user * scale;
+    usage->system = system * scale;
+    usage->iowait = iowait * scale;
+    usage->irq = irq * scale;
+    usage->steal = steal * scale;
+}
+
+void net_dev_totals(const char *net_dev, unsigned long long *rx, unsigned long long *tx) {
+    *rx = 0;
+    *tx = 0;
+    for (const char *p = net_dev; *p; p = proc_next_line(p)) {
+        const char *eol = strchr(p, '\n');
+        const char *colon = strchr(p, ':');
+        if (colon == NULL || (eol != NULL && colon > eol)) continue; // header lines
+
+        const char *iface = proc_skip_spaces(p);
+        if (colon - iface == 2 && strncmp(iface, "lo", 2) == 0) continue;
+
+        // Columns: rx bytes packets errs drop fifo frame compressed multicast, then tx bytes
+        const char *q = colon + 1;
+        unsigned long long rx_bytes = proc_parse_u64(&q);
+        for (int i = 0; i < 7; i++) proc_parse_u64(&q);
+        *rx += rx_bytes;
+        *tx += proc_parse_u64(&q);
+    }
+}
+
+void meminfo_parse(const char *meminfo, const char *const keys[], unsigned long long values[], int count) {
+    memset(values, 0, count * sizeof(unsigned long long));
+    for (const char *p = meminfo; *p; p = proc_next_line(p)) {
+        const char *colon = strchr(p, ':');
+        if (colon == NULL) break;
+
+        size_t key_length = colon - p;
+        for (int i = 0; i < count; i++) {
+            if (strncmp(p, keys[i], key_length) == 0 && keys[i][key_length] == '\0') {
+                const char *q = colon + 1;
+                values[i] = proc_parse_u64(&q);
+                q = proc_skip_spaces(q);
+                if (q[0] == 'k' && q[1] == 'B') values[i] *= 1024;
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+#ifndef SYSTEMDASHBOARD_PROCFS_H
+#define SYSTEMDASHBOARD_PROCFS_H
+
+#include <stddef.h>
+#include <string.h>
+#include <sys/types.h>
+
+// A /proc file kept open across ticks and re-read from offset 0 with pread().
+// The path is relative to proc_root() unless absolute; the file is reopened when the root changes.
+typedef struct {
+    const char *path;
+    int fd;
+    unsigned int root_generation;
+} ProcFile;
+
+// Growable read buffer reused for every ProcFile read, always NUL-terminated
+typedef struct {
+    char *data;
+    size_t capacity;
+} ProcBuffer;
+
+// "/proc" unless redirected, e.g. to a generated tree by the benchmarks. Process-wide: one root
+// for every collector handle and the legacy getters, set through NativeCollector.setProcRoot
+const char *proc_root(void);
+void proc_set_root(const char *root);
+// Bumped by every proc_set_root, for state derived from the tree other than open files
+unsigned int proc_root_generation(void);
+// Formats proc_root()/relative into buf and returns buf
+const char *proc_path(char *buf, size_t size, const char *relative);
+
+void proc_file_init(ProcFile *file, const char *path);
+void proc_file_close(ProcFile *file);
+ssize_t proc_file_read(ProcFile *file, ProcBuffer *buf);
+void proc_buffer_free(ProcBuffer *buf);
+
+// Allocation-free scanning helpers, each advances *p past what it consumed
+const char *proc_skip_spaces(const char *p);
+const char *proc_next_line(const char *p);
+unsigned long long proc_parse_u64(const char **p);
+// Unsigned decimal with an optional fraction, e.g. the "0.25" of a PSI avg10
+double proc_parse_decimal(const char **p);
+
+// Cumulative jiffies of one "cpu" line in /proc/stat
+typedef struct {
+    unsigned long long user, nice, system, idle, iowait, irq, softirq, steal;
+} CpuTimes;
+
+typedef struct {
+    double busy, user, system, iowait, irq, steal;
+} CpuUsage;
+
+// Current and previous counters for the aggregate and every core, sized from /proc/stat itself
+typedef struct {
+    CpuTimes total, prev_total;
+    CpuTimes *cores, *prev_cores;
+    int num_cores, prev_num_cores, capacity;
+    int primed;
+} CpuSampler;
+
+int cpu_sampler_parse(CpuSampler *sampler, const char *stat);
+void cpu_sampler_commit(CpuSampler *sampler);
+void cpu_sampler_free(CpuSampler *sampler);
+void cpu_usage_between(const CpuTimes *cur, const CpuTimes *prev, CpuUsage *usage);
+
+// Doubles travel through the long[] layouts as raw IEEE-754 bits
+static inline long long double_bits(double value) {
+    long long bits;
+    memcpy(&bits, &value, sizeof(bits));
+    return bits;
+}
+
+// Sums rx/tx bytes of every non-loopback interface in /proc/net/dev
+void net_dev_totals(const char *net_dev, unsigned long long *rx, unsigned long long *tx);
+
+// Looks up several "Key: value [kB]" entries in one pass, values are converted to bytes
+void meminfo_parse(const char *meminfo, const char *const keys[], unsigned long long values[], int count);
+
+#endif
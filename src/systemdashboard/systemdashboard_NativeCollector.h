@@ -0,0 +1,93 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class systemdashboard_NativeCollector */
+
+#ifndef _Included_systemdashboard_NativeCollector
+#define _Included_systemdashboard_NativeCollector
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    createCollector
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_systemdashboard_NativeCollector_createCollector
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    closeCollector
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_systemdashboard_NativeCollector_closeCollector
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    collectSnapshot
+ * Signature: (J[JI)I
+ */
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectSnapshot
+  (JNIEnv *, jclass, jlong, jlongArray, jint);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    collectProcesses
+ * Signature: (JI[J[B)I
+ */
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectProcesses
+  (JNIEnv *, jclass, jlong, jint, jlongArray, jbyteArray);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    collectProcessTable
+ * Signature: (J[J[B)I
+ */
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectProcessTable
+  (JNIEnv *, jclass, jlong, jlongArray, jbyteArray);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    collectDevices
+ * Signature: (J[J[BZ)I
+ */
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectDevices
+  (JNIEnv *, jclass, jlong, jlongArray, jbyteArray, jboolean);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    collectHostFacts
+ * Signature: ()[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_systemdashboard_NativeCollector_collectHostFacts
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    hasBattery
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_systemdashboard_NativeCollector_hasBattery
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    terminalSize
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_terminalSize
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     systemdashboard_NativeCollector
+ * Method:    setProcRoot
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_systemdashboard_NativeCollector_setProcRoot
+  (JNIEnv *, jclass, jstring);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
@@ -22,51 +22,26 @@
 #include <sys/types.h>
 #include <pwd.h>
 #include "systemdashboard_SystemMonitor.h"
+#include "systemdashboard_NativeCollector.h"
+#include "procfs.h"
+#include "collector.h"
+
+#include <time.h>
+#include <pthread.h>
 
-#define MAX_CPU_CORES 32
-#define MAX_PROCESSES 3  // top 3 memory- or CPU-consuming processes
-#define PROC_PATH "/proc"  /// stat (CPU usage) [pid]/status (per-process info) net/dev (network stats)
 #define BATTERY_PATH "/sys/class/power_supply/BAT0"
-#define MIN(a,b) ((a) < (b) ? (a) : (b))
-
-// Helper function to read CPU stats from /proc/stat
-static void read_cpu_stats(long long *idle_time, long long *total_time) {
-    FILE *fp = fopen("/proc/stat", "r");
-    if (fp == NULL) return;
-
-    char line[256];
-    if (fgets(line, sizeof(line), fp) != NULL) {
-        long long user, nice, system, idle, iowait, irq, softirq, steal;
-        sscanf(line, "cpu %lld %lld %lld %lld %lld %lld %lld %lld",
-               &user, &nice, &system, &idle, &iowait, &irq, &softirq, &steal);
-        
-        *idle_time = idle + iowait;
-        *total_time = user + nice + system + idle + iowait + irq + softirq + steal;
-    }
-    fclose(fp);
-}
 
-// Helper function to read individual CPU core stats
-static void read_cpu_core_stats(int core, long long *idle_time, long long *total_time) {
-    FILE *fp = fopen("/proc/stat", "r");
-    if (fp == NULL) return;
-
-    char line[256];
-    char cpu_label[10];
-    snprintf(cpu_label, sizeof(cpu_label), "cpu%d", core);
-
-    while (fgets(line, sizeof(line), fp) != NULL) {
-        if (strncmp(line, cpu_label, strlen(cpu_label)) == 0) {
-            long long user, nice, system, idle, iowait, irq, softirq, steal;
-            sscanf(line, "%*s %lld %lld %lld %lld %lld %lld %lld %lld",
-                   &user, &nice, &system, &idle, &iowait, &irq, &softirq, &steal);
-            
-            *idle_time = idle + iowait;
-            *total_time = user + nice + system + idle + iowait + irq + softirq + steal;
-            break;
-        }
-    }
-    fclose(fp);
+// The legacy SystemMonitor getters keep one process-wide baseline each. This lock only stops
+// concurrent callers from corrupting it; independent samplers use their own collector handles.
+static pthread_mutex_t legacy_lock = PTHREAD_MUTEX_INITIALIZER;
+
+// /proc/stat reader shared by the legacy getCpuUsage/getPerCpuUsage getters
+static ProcFile legacy_stat_file = { "stat", -1, 0 };
+static ProcBuffer legacy_stat_buf;
+
+static int read_legacy_cpu_stats(CpuSampler *sampler) {
+    if (proc_file_read(&legacy_stat_file, &legacy_stat_buf) < 0) return -1;
+    return cpu_sampler_parse(sampler, legacy_stat_buf.data);
 }
 
 // Helper function to create Java string
@@ -99,30 +74,39 @@ JNIEXPORT jint JNICALL Java_systemdashboard_SystemMonitor_getCpuCores
 
 JNIEXPORT jdoubleArray JNICALL Java_systemdashboard_SystemMonitor_getPerCpuUsage
   (JNIEnv *env, jobject obj) {
-    static long long prev_idle_time[MAX_CPU_CORES] = {0};
-    static long long prev_total_time[MAX_CPU_CORES] = {0};
-    int num_cores = sysconf(_SC_NPROCESSORS_ONLN);
-    
-    jdoubleArray result = (*env)->NewDoubleArray(env, num_cores);
-    jdouble cpu_usage[MAX_CPU_CORES];
-
-    for (int i = 0; i < num_cores; i++) {
-        long long idle_time, total_time;
-        read_cpu_core_stats(i, &idle_time, &total_time);
-
-        if (prev_total_time[i] == 0) {
-            cpu_usage[i] = 0.0;
-        } else {
-            long long idle_diff = idle_time - prev_idle_time[i];
-            long long total_diff = total_time - prev_total_time[i];
-            cpu_usage[i] = 100.0 * (1.0 - ((double)idle_diff / total_diff));
+    static CpuSampler sampler;
+    // Grown with the core count and kept, rather than a stack array sized by whatever /proc/stat says
+    static jdouble *cpu_usage;
+    static int cpu_usage_capacity;
+    pthread_mutex_lock(&legacy_lock);
+    int num_cores = read_legacy_cpu_stats(&sampler);
+    if (num_cores <= 0) {
+        pthread_mutex_unlock(&legacy_lock);
+        return (*env)->NewDoubleArray(env, 0);
+    }
+    if (num_cores > cpu_usage_capacity) {
+        jdouble *grown = realloc(cpu_usage, num_cores * sizeof(jdouble));
+        if (grown == NULL) {
+            pthread_mutex_unlock(&legacy_lock);
+            return (*env)->NewDoubleArray(env, 0);
         }
+        cpu_usage = grown;
+        cpu_usage_capacity = num_cores;
+    }
 
-        prev_idle_time[i] = idle_time;
-        prev_total_time[i] = total_time;
+    for (int i = 0; i < num_cores; i++) {
+        CpuUsage usage;
+        cpu_usage_between(&sampler.cores[i], &sampler.prev_cores[i], &usage);
+        cpu_usage[i] = sampler.primed && i < sampler.prev_num_cores ? usage.busy : 0.0;
     }
+    cpu_sampler_commit(&sampler);
 
-    (*env)->SetDoubleArrayRegion(env, result, 0, num_cores, cpu_usage);
+    // Copied out before unlocking, the buffer is shared with the next caller
+    jdoubleArray result = (*env)->NewDoubleArray(env, num_cores);
+    if (result != NULL) {
+        (*env)->SetDoubleArrayRegion(env, result, 0, num_cores, cpu_usage);
+    }
+    pthread_mutex_unlock(&legacy_lock);
     return result;
 }
 //total amount of swap memory from sysinfo()
@@ -144,60 +128,42 @@ JNIEXPORT jlong JNICALL Java_systemdashboard_SystemMonitor_getSwapFree
     return 0;
 }
 
+// /proc/net/dev reader shared by the legacy network getters
+static ProcFile legacy_net_dev_file = { "net/dev", -1, 0 };
+static ProcBuffer legacy_net_dev_buf;
+
+// Sums by column after the "iface:" separator, so names that run into the counters
+// (e.g. "eth0:123") or differ in padding parse the same as the collector's
+static int read_legacy_net_dev(unsigned long long *rx, unsigned long long *tx) {
+    if (proc_file_read(&legacy_net_dev_file, &legacy_net_dev_buf) < 0) return -1;
+    net_dev_totals(legacy_net_dev_buf.data, rx, tx);
+    return 0;
+}
+
 // total number of bytes received by all network interfaces from /proc/net/dev
 JNIEXPORT jlong JNICALL Java_systemdashboard_SystemMonitor_getNetworkBytesReceived
   (JNIEnv *env, jobject obj) {
-    FILE *fp = fopen("/proc/net/dev", "r");
-    if (fp == NULL) return 0;
-
-    char line[256];
-    long long total_bytes = 0;
-    
-    // Skip header lines
-    fgets(line, sizeof(line), fp);
-    fgets(line, sizeof(line), fp);
-
-    while (fgets(line, sizeof(line), fp)) {
-        char iface[32];
-        long long bytes;
-        sscanf(line, "%s %lld", iface, &bytes);
-        if (strcmp(iface, "lo:") != 0) { // Skip loopback
-            total_bytes += bytes;
-        }
-    }
-    fclose(fp);
-    return (jlong)total_bytes;
+    unsigned long long rx, tx;
+    pthread_mutex_lock(&legacy_lock);
+    int read = read_legacy_net_dev(&rx, &tx);
+    pthread_mutex_unlock(&legacy_lock);
+    return read < 0 ? 0 : (jlong)rx;
 }
 
 // total number of bytes sent/transmitted by all network interfaces from /proc/net/dev
 JNIEXPORT jlong JNICALL Java_systemdashboard_SystemMonitor_getNetworkBytesTransmitted
   (JNIEnv *env, jobject obj) {
-    FILE *fp = fopen("/proc/net/dev", "r");
-    if (fp == NULL) return 0;
-
-    char line[256];
-    long long total_bytes = 0;
-    
-    // Skip header lines
-    fgets(line, sizeof(line), fp);
-    fgets(line, sizeof(line), fp);
-
-    while (fgets(line, sizeof(line), fp)) {
-        char iface[32];
-        long long trans;
-        sscanf(line, "%s %*s %*s %*s %*s %*s %*s %*s %*s %lld", iface, &trans);
-        if (strcmp(iface, "lo:") != 0) { // Skip loopback
-            total_bytes += trans;
-        }
-    }
-    fclose(fp);
-    return (jlong)total_bytes;
+    unsigned long long rx, tx;
+    pthread_mutex_lock(&legacy_lock);
+    int read = read_legacy_net_dev(&rx, &tx);
+    pthread_mutex_unlock(&legacy_lock);
+    return read < 0 ? 0 : (jlong)tx;
 }
 
 //number of currently running processes from /proc
 JNIEXPORT jint JNICALL Java_systemdashboard_SystemMonitor_getProcessCount
   (JNIEnv *env, jobject obj) {
-    DIR *dir = opendir("/proc");
+    DIR *dir = opendir(proc_root());
     if (dir == NULL) return 0;
 
     int count = 0;
@@ -229,28 +195,19 @@ JNIEXPORT jlong JNICALL Java_systemdashboard_SystemMonitor_getSystemUptime
 //total CPU usage percentage across all cores.
 JNIEXPORT jdouble JNICALL Java_systemdashboard_SystemMonitor_getCpuUsage
   (JNIEnv *env, jobject obj) {
-    static long long prev_idle_time = 0;
-    static long long prev_total_time = 0;
-    long long idle_time, total_time;
-    
-    read_cpu_stats(&idle_time, &total_time);
-    
-    if (prev_total_time == 0) {
-        prev_idle_time = idle_time;
-        prev_total_time = total_time;
+    static CpuSampler sampler;
+    pthread_mutex_lock(&legacy_lock);
+    if (read_legacy_cpu_stats(&sampler) < 0) {
+        pthread_mutex_unlock(&legacy_lock);
         return 0.0;
     }
-    
-    long long idle_diff = idle_time - prev_idle_time;
-    long long total_diff = total_time - prev_total_time;
 
     //Calculates the difference between current and previous idle/total times.
-    double cpu_usage = 100.0 * (1.0 - ((double)idle_diff / total_diff));
-    
-    prev_idle_time = idle_time;
-    prev_total_time = total_time;
-    
-    return cpu_usage;
+    CpuUsage usage;
+    cpu_usage_between(&sampler.total, &sampler.prev_total, &usage);
+    cpu_sampler_commit(&sampler);
+    pthread_mutex_unlock(&legacy_lock);
+    return usage.busy;
 }
 
 //total physical RAM in bytes from sysinfo() struct’s totalram field.
@@ -445,69 +402,337 @@ JNIEXPORT jboolean JNICALL Java_systemdashboard_SystemMonitor_isBatteryCharging
     return JNI_FALSE;
 }
 
-typedef struct {
-    char name[256];
-    float cpu_usage;
-} ProcessInfo;
+// Slot layout shared with SystemSnapshot.java, bump SNAP_LAYOUT_VERSION when it changes
+#define SNAP_LAYOUT_VERSION 4
+#define SNAP_VERSION 0
+#define SNAP_HEADER_SLOTS 1
+#define SNAP_TIMESTAMP 2
+#define SNAP_CPU_USAGE 3
+#define SNAP_CORE_COUNT 4
+#define SNAP_MEM_TOTAL 5
+#define SNAP_MEM_FREE 6
+#define SNAP_SWAP_TOTAL 7
+#define SNAP_SWAP_FREE 8
+#define SNAP_DISK_TOTAL 9
+#define SNAP_DISK_FREE 10
+#define SNAP_NET_RX 11
+#define SNAP_NET_TX 12
+#define SNAP_PROCESS_COUNT 13
+#define SNAP_UPTIME 14
+#define SNAP_BATTERY_PRESENT 15
+#define SNAP_BATTERY_LEVEL 16
+#define SNAP_BATTERY_CHARGING 17
+#define SNAP_CPU_USER 18
+#define SNAP_CPU_SYSTEM 19
+#define SNAP_CPU_IOWAIT 20
+#define SNAP_CPU_IRQ 21
+#define SNAP_CPU_STEAL 22
+#define SNAP_CGROUP_PRESENT 23
+#define SNAP_CGROUP_MEMORY_CURRENT 24
+#define SNAP_CGROUP_MEMORY_MAX 25
+#define SNAP_CGROUP_CPU_QUOTA 26
+#define SNAP_CGROUP_CPU_PERIOD 27
+#define SNAP_CGROUP_CPU_USAGE 28
+#define SNAP_CGROUP_PERIODS 29
+#define SNAP_CGROUP_THROTTLED_PERIODS 30
+#define SNAP_CGROUP_THROTTLED_USEC 31
+#define SNAP_CGROUP_THROTTLED 32
+// PSI_RESOURCES blocks of SNAP_PRESSURE_SLOTS: some avg10, full avg10, some total, full total
+#define SNAP_HOST_PRESSURE 33
+#define SNAP_CGROUP_PRESSURE 45
+#define SNAP_PRESSURE_SLOTS 4
+#define SNAP_MEM_AVAILABLE 57
+#define SNAP_MEM_CACHED 58
+#define SNAP_MEM_BUFFERS 59
+#define SNAP_MEM_DIRTY 60
+#define SNAP_MEM_SLAB 61
+#define SNAP_HUGE_PAGES_TOTAL 62
+#define SNAP_HUGE_PAGES_FREE 63
+#define SNAP_HUGE_PAGE_SIZE 64
+// Per-second rates from /proc/vmstat as double bits
+#define SNAP_PAGE_FAULTS 65
+#define SNAP_MAJOR_FAULTS 66
+#define SNAP_SWAP_IN 67
+#define SNAP_SWAP_OUT 68
+#define SNAP_HEADER_LENGTH 69
+
+// Optional sections, CPU and uptime are always collected. Skipped sections keep their last values.
+#define SNAP_GROUP_MEMORY 1
+#define SNAP_GROUP_DISK 2
+#define SNAP_GROUP_NETWORK 4
+#define SNAP_GROUP_PROCESS_COUNT 8
+#define SNAP_GROUP_BATTERY 16
+#define SNAP_GROUP_CGROUP 32
+
+//Allocates a collector with its own descriptors, buffers and previous-sample state.
+//Files are opened on first use. Returns 0 if out of memory.
+JNIEXPORT jlong JNICALL Java_systemdashboard_NativeCollector_createCollector
+  (JNIEnv *env, jclass cls) {
+    Collector *c = calloc(1, sizeof(Collector));
+    if (c == NULL) return 0;
+    proc_file_init(&c->stat, "stat");
+    proc_file_init(&c->net_dev, "net/dev");
+    memory_sampler_init(&c->memory);
+    cgroup_sampler_init(&c->cgroup);
+    process_sampler_init(&c->processes);
+    device_sampler_init(&c->devices);
+    return (jlong)(intptr_t)c;
+}
 
-static int compare_processes(const void *a, const void *b) {
-    return ((ProcessInfo*)b)->cpu_usage - ((ProcessInfo*)a)->cpu_usage;
+//Closes every descriptor of the handle and frees it. The handle must not be in use on another thread.
+JNIEXPORT void JNICALL Java_systemdashboard_NativeCollector_closeCollector
+  (JNIEnv *env, jclass cls, jlong handle) {
+    Collector *c = collector_from_handle(handle);
+    if (c == NULL) return;
+    proc_file_close(&c->stat);
+    proc_file_close(&c->net_dev);
+    proc_buffer_free(&c->buf);
+    cpu_sampler_free(&c->cpu);
+    memory_sampler_free(&c->memory);
+    cgroup_sampler_free(&c->cgroup);
+    process_sampler_free(&c->processes);
+    device_sampler_free(&c->devices);
+    free(c->slots);
+    free(c->process_out);
+    free(c->process_names);
+    free(c->table_out);
+    free(c->table_names);
+    free(c->device_out);
+    free(c->device_names);
+    free(c);
 }
 
-JNIEXPORT jobjectArray JNICALL Java_systemdashboard_SystemMonitor_getTopProcesses
-  (JNIEnv *env, jobject obj) {
-    DIR *dir;
-    struct dirent *entry;
-    ProcessInfo processes[128];
-    int process_count = 0;
+static void snapshot_cpu(Collector *c, jlong *slots) {
+    CpuSampler *cpu = &c->cpu;
+    CpuUsage usage;
+
+    cpu_usage_between(&cpu->total, &cpu->prev_total, &usage);
+    slots[SNAP_CPU_USAGE] = double_bits(usage.busy);
+    slots[SNAP_CPU_USER] = double_bits(usage.user);
+    slots[SNAP_CPU_SYSTEM] = double_bits(usage.system);
+    slots[SNAP_CPU_IOWAIT] = double_bits(usage.iowait);
+    slots[SNAP_CPU_IRQ] = double_bits(usage.irq);
+    slots[SNAP_CPU_STEAL] = double_bits(usage.steal);
+
+    for (int i = 0; i < cpu->num_cores; i++) {
+        // Cores that just came online have no baseline yet
+        if (cpu->primed && i < cpu->prev_num_cores) {
+            cpu_usage_between(&cpu->cores[i], &cpu->prev_cores[i], &usage);
+            slots[SNAP_HEADER_LENGTH + i] = double_bits(usage.busy);
+        } else {
+            slots[SNAP_HEADER_LENGTH + i] = double_bits(0.0);
+        }
+    }
+}
+
+static void snapshot_memory(Collector *c, jlong *slots) {
+    MemorySample sample;
+    if (memory_sampler_sample(&c->memory, &sample) < 0) return;
+
+    slots[SNAP_MEM_TOTAL] = sample.total;
+    slots[SNAP_MEM_FREE] = sample.free;
+    slots[SNAP_SWAP_TOTAL] = sample.swap_total;
+    slots[SNAP_SWAP_FREE] = sample.swap_free;
+    slots[SNAP_MEM_AVAILABLE] = sample.available;
+    slots[SNAP_MEM_CACHED] = sample.cached;
+    slots[SNAP_MEM_BUFFERS] = sample.buffers;
+    slots[SNAP_MEM_DIRTY] = sample.dirty;
+    slots[SNAP_MEM_SLAB] = sample.slab;
+    slots[SNAP_HUGE_PAGES_TOTAL] = sample.huge_pages_total;
+    slots[SNAP_HUGE_PAGES_FREE] = sample.huge_pages_free;
+    slots[SNAP_HUGE_PAGE_SIZE] = sample.huge_page_size;
+    slots[SNAP_PAGE_FAULTS] = double_bits(sample.page_faults);
+    slots[SNAP_MAJOR_FAULTS] = double_bits(sample.major_faults);
+    slots[SNAP_SWAP_IN] = double_bits(sample.swap_in);
+    slots[SNAP_SWAP_OUT] = double_bits(sample.swap_out);
+}
 
-    dir = opendir("/proc");
-    if (!dir) {
-        return NULL;
+static void snapshot_network(Collector *c, jlong *slots) {
+    unsigned long long rx, tx;
+    if (proc_file_read(&c->net_dev, &c->buf) < 0) return;
+
+    net_dev_totals(c->buf.data, &rx, &tx);
+    slots[SNAP_NET_RX] = rx;
+    slots[SNAP_NET_TX] = tx;
+}
+
+static void snapshot_pressure(const Pressure *pressure, jlong *slots) {
+    for (int r = 0; r < PSI_RESOURCES; r++, slots += SNAP_PRESSURE_SLOTS) {
+        slots[0] = double_bits(pressure[r].some_avg10);
+        slots[1] = double_bits(pressure[r].full_avg10);
+        slots[2] = pressure[r].some_total;
+        slots[3] = pressure[r].full_total;
     }
-    
-    while ((entry = readdir(dir)) != NULL && process_count < 128) {
-        if (entry->d_type == DT_DIR) {
-            char *endptr;
-            long pid = strtol(entry->d_name, &endptr, 10);
-            if (*endptr == '\0') {
-                char stat_path[256];
-                snprintf(stat_path, sizeof(stat_path), "/proc/%ld/stat", pid);
-                
-                FILE *fp = fopen(stat_path, "r");
-                if (fp) {
-                    char comm[256], state;
-                    unsigned long utime, stime;
-                    if (fscanf(fp, "%*d (%[^)]) %c %*d %*d %*d %*d %*d %*u %*u %*u %*u %lu %lu",
-                             comm, &state, &utime, &stime) == 4) {
-                        processes[process_count].cpu_usage = utime + stime;
-                        strncpy(processes[process_count].name, comm, sizeof(processes[process_count].name)-1);
-                        process_count++;
-                    }
-                    fclose(fp);
-                }
-            }
+}
+
+static void snapshot_cgroup(Collector *c, jlong *slots) {
+    CgroupSample sample;
+    cgroup_sampler_sample(&c->cgroup, &sample);
+
+    slots[SNAP_CGROUP_PRESENT] = sample.present;
+    slots[SNAP_CGROUP_MEMORY_CURRENT] = sample.memory_current;
+    slots[SNAP_CGROUP_MEMORY_MAX] = sample.memory_max;
+    slots[SNAP_CGROUP_CPU_QUOTA] = sample.cpu_quota;
+    slots[SNAP_CGROUP_CPU_PERIOD] = sample.cpu_period;
+    slots[SNAP_CGROUP_CPU_USAGE] = double_bits(sample.cpu_usage);
+    slots[SNAP_CGROUP_PERIODS] = sample.periods;
+    slots[SNAP_CGROUP_THROTTLED_PERIODS] = sample.throttled_periods;
+    slots[SNAP_CGROUP_THROTTLED_USEC] = sample.throttled_usec;
+    slots[SNAP_CGROUP_THROTTLED] = double_bits(sample.throttled);
+    snapshot_pressure(sample.host, slots + SNAP_HOST_PRESSURE);
+    snapshot_pressure(sample.cgroup, slots + SNAP_CGROUP_PRESSURE);
+}
+
+static int count_processes(void) {
+    DIR *dir = opendir(proc_root());
+    if (dir == NULL) return 0;
+
+    int count = 0;
+    struct dirent *entry;
+    while ((entry = readdir(dir)) != NULL) {
+        if (entry->d_type == DT_DIR && entry->d_name[0] >= '1' && entry->d_name[0] <= '9') {
+            count++;
         }
     }
     closedir(dir);
-    
-    // Sort processes by CPU usage
-    qsort(processes, process_count, sizeof(ProcessInfo), compare_processes);
-    
-    // Create Java string array for top processes
-    jobjectArray result = (*env)->NewObjectArray(env, 
-        MIN(MAX_PROCESSES, process_count),
-        (*env)->FindClass(env, "java/lang/String"),
-        NULL);
-    
-    for (int i = 0; i < MIN(MAX_PROCESSES, process_count); i++) {
-        char process_info[512];
-        snprintf(process_info, sizeof(process_info), "%s (CPU: %.1f%%)",
-                processes[i].name, processes[i].cpu_usage * 100.0 / sysconf(_SC_CLK_TCK));
-        
-        (*env)->SetObjectArrayElement(env, result, i,
-            create_jstring(env, process_info));
+    return count;
+}
+
+static void snapshot_battery(jlong *slots) {
+    slots[SNAP_BATTERY_PRESENT] = 0;
+    slots[SNAP_BATTERY_LEVEL] = 0;
+    slots[SNAP_BATTERY_CHARGING] = 0;
+
+    char path[256];
+    snprintf(path, sizeof(path), "%s/capacity", BATTERY_PATH);
+    char *content = read_file_content(path);
+    if (content == NULL) return;
+
+    slots[SNAP_BATTERY_PRESENT] = 1;
+    slots[SNAP_BATTERY_LEVEL] = atoi(content);
+    free(content);
+
+    snprintf(path, sizeof(path), "%s/status", BATTERY_PATH);
+    content = read_file_content(path);
+    if (content) {
+        slots[SNAP_BATTERY_CHARGING] = strstr(content, "Charging") != NULL;
+        free(content);
     }
-    
-    return result;
-} 
\ No newline at end of file
+}
+
+//Fills the SystemSnapshot layout with one pread() of each kept-open /proc and cgroup file, one sysinfo()
+//and, when the disk group is requested, one statvfs(). The per-core arrays are sized from /proc/stat itself.
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_collectSnapshot
+  (JNIEnv *env, jclass cls, jlong handle, jlongArray out, jint groups) {
+    Collector *c = collector_from_handle(handle);
+    if (c == NULL) return 0;
+
+    if (proc_file_read(&c->stat, &c->buf) < 0) return 0;
+    int num_cores = cpu_sampler_parse(&c->cpu, c->buf.data);
+    if (num_cores < 0) return 0;
+
+    // Leave the CPU baseline untouched so the retry with a larger array still gets a full interval
+    int length = SNAP_HEADER_LENGTH + num_cores;
+    if ((*env)->GetArrayLength(env, out) < length) {
+        return -length;
+    }
+
+    if (c->slots_capacity < length) {
+        jlong *grown = realloc(c->slots, length * sizeof(jlong));
+        if (grown == NULL) return 0;
+        memset(grown + c->slots_capacity, 0, (length - c->slots_capacity) * sizeof(jlong));
+        c->slots = grown;
+        c->slots_capacity = length;
+    }
+    jlong *slots = c->slots;
+
+    struct timespec now;
+    clock_gettime(CLOCK_REALTIME, &now);
+
+    slots[SNAP_VERSION] = SNAP_LAYOUT_VERSION;
+    slots[SNAP_HEADER_SLOTS] = SNAP_HEADER_LENGTH;
+    slots[SNAP_TIMESTAMP] = (jlong)now.tv_sec * 1000 + now.tv_nsec / 1000000;
+    slots[SNAP_CORE_COUNT] = num_cores;
+
+    snapshot_cpu(c, slots);
+    cpu_sampler_commit(&c->cpu);
+
+    struct sysinfo si;
+    if (sysinfo(&si) == 0) {
+        slots[SNAP_UPTIME] = si.uptime;
+    }
+
+    if (groups & SNAP_GROUP_MEMORY) {
+        snapshot_memory(c, slots);
+    }
+
+    struct statvfs buf;
+    if ((groups & SNAP_GROUP_DISK) && statvfs("/", &buf) == 0) {
+        slots[SNAP_DISK_TOTAL] = (jlong)buf.f_blocks * buf.f_frsize;
+        slots[SNAP_DISK_FREE] = (jlong)buf.f_bfree * buf.f_frsize;
+    }
+
+    if (groups & SNAP_GROUP_NETWORK) {
+        snapshot_network(c, slots);
+    }
+    if (groups & SNAP_GROUP_PROCESS_COUNT) {
+        slots[SNAP_PROCESS_COUNT] = count_processes();
+    }
+    if (groups & SNAP_GROUP_BATTERY) {
+        snapshot_battery(slots);
+    }
+    if (groups & SNAP_GROUP_CGROUP) {
+        snapshot_cgroup(c, slots);
+    }
+
+    (*env)->SetLongArrayRegion(env, out, 0, length, slots);
+    return length;
+}
+
+//Points every collector handle and the legacy getters at another proc tree. Open descriptors are
+//reopened, and the cgroup looked up again, on their next read. Not meant to race with sampling.
+JNIEXPORT void JNICALL Java_systemdashboard_NativeCollector_setProcRoot
+  (JNIEnv *env, jclass cls, jstring root) {
+    const char *path = (*env)->GetStringUTFChars(env, root, NULL);
+    if (path == NULL) return;
+    proc_set_root(path);
+    (*env)->ReleaseStringUTFChars(env, root, path);
+}
+
+//OS name, version and arch, hostname, IP and MAC address in one call; the SystemMonitor getters never use their receiver
+JNIEXPORT jobjectArray JNICALL Java_systemdashboard_NativeCollector_collectHostFacts
+  (JNIEnv *env, jclass cls) {
+    jclass string_class = (*env)->FindClass(env, "java/lang/String");
+    if (string_class == NULL) return NULL;
+    jobjectArray facts = (*env)->NewObjectArray(env, 6, string_class, NULL);
+    if (facts == NULL) return NULL;
+
+    jstring values[6] = {
+        Java_systemdashboard_SystemMonitor_getOsName(env, NULL),
+        Java_systemdashboard_SystemMonitor_getOsVersion(env, NULL),
+        Java_systemdashboard_SystemMonitor_getOsArch(env, NULL),
+        Java_systemdashboard_SystemMonitor_getHostname(env, NULL),
+        Java_systemdashboard_SystemMonitor_getIpAddress(env, NULL),
+        Java_systemdashboard_SystemMonitor_getMacAddress(env, NULL),
+    };
+    for (int i = 0; i < 6; i++) {
+        (*env)->SetObjectArrayElement(env, facts, i, values[i]);
+        (*env)->DeleteLocalRef(env, values[i]);
+    }
+    return facts;
+}
+
+JNIEXPORT jboolean JNICALL Java_systemdashboard_NativeCollector_hasBattery
+  (JNIEnv *env, jclass cls) {
+    return Java_systemdashboard_SystemMonitor_hasBattery(env, NULL);
+}
+
+// Rows in the high 16 bits and columns in the low 16, or 0 if neither stdout nor stdin is a terminal
+JNIEXPORT jint JNICALL Java_systemdashboard_NativeCollector_terminalSize
+  (JNIEnv *env, jclass cls) {
+    struct winsize size;
+    if (ioctl(STDOUT_FILENO, TIOCGWINSZ, &size) != 0 && ioctl(STDIN_FILENO, TIOCGWINSZ, &size) != 0) {
+        return 0;
+    }
+    return (jint) ((size.ws_row & 0xffff) << 16 | (size.ws_col & 0xffff));
+}